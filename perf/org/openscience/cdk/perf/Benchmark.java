@@ -0,0 +1,90 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.perf;
+
+/**
+ * A benchmark of one operation applied to every molecule of a
+ * {@link Dataset}. The {@link BenchmarkRunner} calls {@link #setUp(Dataset)}
+ * once, and {@link #prepare()} before each iteration; neither is part of the
+ * measured time, so benchmarks which modify the molecules make fresh copies
+ * in {@link #prepare()}.
+ *
+ * <p>{@link #run()} returns a value computed from the results, which the
+ * runner accumulates, so that the JIT cannot remove the measured work.
+ *
+ * @cdk.githash
+ */
+public abstract class Benchmark {
+
+    private final String name;
+
+    /**
+     * @param name the name, as group.operation, used to select benchmarks
+     */
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the name of this benchmark
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The number of molecules each iteration processes, by which the
+     * measured time is divided. By default the molecules of the dataset.
+     *
+     * @param  dataset the molecules to benchmark on
+     * @return         the number of molecules of an iteration
+     */
+    public int getSize(Dataset dataset) {
+        return dataset.size();
+    }
+
+    /**
+     * Prepare the input of all iterations.
+     *
+     * @param  dataset   the molecules to benchmark on
+     * @throws Exception if the input cannot be prepared
+     */
+    public void setUp(Dataset dataset) throws Exception {
+    }
+
+    /**
+     * Prepare the input of the next iteration.
+     *
+     * @throws Exception if the input cannot be prepared
+     */
+    public void prepare() throws Exception {
+    }
+
+    /**
+     * Apply the operation to every molecule once.
+     *
+     * @return           a value depending on all results
+     * @throws Exception if the operation fails
+     */
+    public abstract long run() throws Exception;
+}
@@ -0,0 +1,144 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.perf;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmarks of the CDK hot paths on a fixed dataset, by default
+ * the 100 molecules of <code>src/test/data/mdl/pcoretest1.sdf</code>. Each
+ * benchmark is run for a number of warmup iterations, which are not
+ * reported, and then for the measured iterations; an iteration applies the
+ * operation once to every molecule. The mean time per molecule and its
+ * standard deviation over the iterations are reported.
+ *
+ * <pre>
+ * ant perf -Dperf.benchmark=fingerprint -Dperf.iterations=10
+ * java org.openscience.cdk.perf.BenchmarkRunner [-d file.sdf] [-b regex] [-w warmup] [-i iterations] [-l]
+ * </pre>
+ *
+ * @cdk.githash
+ */
+public class BenchmarkRunner {
+
+    private static final String DEFAULT_DATASET = "src/test/data/mdl/pcoretest1.sdf";
+
+    private long sink;
+
+    /**
+     * @return all benchmarks, grouped by the code they measure
+     */
+    public static List<Benchmark> getBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.addAll(IOBenchmarks.getBenchmarks());
+        benchmarks.addAll(SmilesBenchmarks.getBenchmarks());
+        benchmarks.addAll(PerceptionBenchmarks.getBenchmarks());
+        benchmarks.addAll(FingerprintBenchmarks.getBenchmarks());
+        benchmarks.addAll(SmartsBenchmarks.getBenchmarks());
+        benchmarks.addAll(DescriptorBenchmarks.getBenchmarks());
+        benchmarks.addAll(LayoutBenchmarks.getBenchmarks());
+        benchmarks.addAll(SpatialBenchmarks.getBenchmarks());
+        return benchmarks;
+    }
+
+    /**
+     * Run a benchmark and print its results.
+     *
+     * @param  benchmark  the benchmark
+     * @param  dataset    the molecules
+     * @param  warmup     the number of unreported iterations
+     * @param  iterations the number of measured iterations
+     * @return            the time per molecule of each measured iteration, in microseconds
+     * @throws Exception  if the benchmark fails
+     */
+    public double[] run(Benchmark benchmark, Dataset dataset, int warmup, int iterations) throws Exception {
+        benchmark.setUp(dataset);
+        for (int i = 0; i < warmup; i++) {
+            benchmark.prepare();
+            sink += benchmark.run();
+        }
+        double[] times = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            benchmark.prepare();
+            long start = System.nanoTime();
+            sink += benchmark.run();
+            times[i] = (System.nanoTime() - start) / 1000.0 / benchmark.getSize(dataset);
+        }
+        return times;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String file = DEFAULT_DATASET;
+        Pattern filter = Pattern.compile("");
+        int warmup = 3;
+        int iterations = 5;
+        boolean list = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].length() == 0) continue;
+            else if (args[i].equals("-d")) file = args[++i];
+            else if (args[i].equals("-b")) filter = Pattern.compile(args[++i]);
+            else if (args[i].equals("-w")) warmup = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-i")) iterations = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-l")) list = true;
+            else {
+                System.err.println("usage: BenchmarkRunner [-d file.sdf] [-b regex] [-w warmup] [-i iterations] [-l]");
+                System.exit(1);
+            }
+        }
+
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        for (Benchmark benchmark : getBenchmarks()) {
+            if (filter.matcher(benchmark.getName()).find()) benchmarks.add(benchmark);
+        }
+        if (list) {
+            for (Benchmark benchmark : benchmarks) System.out.println(benchmark.getName());
+            return;
+        }
+
+        Dataset dataset = Dataset.read(new File(file));
+        System.out.println("Dataset: " + dataset.getName() + ", " + dataset.size() + " molecules");
+        System.out.println("Iterations: " + warmup + " warmup, " + iterations + " measured");
+        System.out.println(String.format("%-40s %12s %10s %12s", "Benchmark", "us/molecule", "stddev", "molecules/s"));
+        BenchmarkRunner runner = new BenchmarkRunner();
+        boolean failed = false;
+        for (Benchmark benchmark : benchmarks) {
+            try {
+                double[] times = runner.run(benchmark, dataset, warmup, iterations);
+                double mean = 0, variance = 0;
+                for (double time : times) mean += time / times.length;
+                for (double time : times) variance += (time - mean) * (time - mean) / Math.max(1, times.length - 1);
+                System.out.println(String.format("%-40s %12.2f %10.2f %12.0f",
+                                                 benchmark.getName(), mean, Math.sqrt(variance), 1e6 / mean));
+            } catch (Exception exception) {
+                System.out.println(String.format("%-40s failed: %s", benchmark.getName(), exception));
+                failed = true;
+            }
+        }
+        // keeps the results alive
+        if (runner.sink == 42) System.out.println();
+        if (failed) System.exit(1);
+    }
+}
@@ -0,0 +1,174 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.perf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.io.iterator.IteratingSDFReader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.CDKHydrogenAdder;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+/**
+ * The molecules of an SD file, kept in memory for benchmarking. The file
+ * content is kept as well, for the readers. The molecules as read are
+ * shared by all benchmarks and must not be modified; the copy methods give
+ * fresh molecules in the states the benchmarked algorithms expect.
+ *
+ * @cdk.githash
+ */
+public final class Dataset {
+
+    /** The builder of all molecules in the benchmarks. */
+    public static final IChemObjectBuilder BUILDER = SilentChemObjectBuilder.getInstance();
+
+    private final String name;
+    private final byte[] content;
+    private final List<IAtomContainer> molecules;
+
+    private Dataset(String name, byte[] content, List<IAtomContainer> molecules) {
+        this.name = name;
+        this.content = content;
+        this.molecules = Collections.unmodifiableList(molecules);
+    }
+
+    /**
+     * Read all molecules of an SD file.
+     *
+     * @param  file        the SD file
+     * @return             the dataset
+     * @throws IOException if the file cannot be read
+     */
+    public static Dataset read(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) != -1;) out.write(buffer, 0, n);
+        } finally {
+            in.close();
+        }
+        byte[] content = out.toByteArray();
+        List<IAtomContainer> molecules = new ArrayList<IAtomContainer>();
+        IteratingSDFReader reader = new IteratingSDFReader(new ByteArrayInputStream(content), BUILDER);
+        while (reader.hasNext()) molecules.add(reader.next());
+        reader.close();
+        return new Dataset(file.getName(), content, molecules);
+    }
+
+    /**
+     * @return the name of the file
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of molecules
+     */
+    public int size() {
+        return molecules.size();
+    }
+
+    /**
+     * @return the content of the SD file; do not modify it
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * @return the molecules as read; do not modify them
+     */
+    public List<IAtomContainer> getMolecules() {
+        return molecules;
+    }
+
+    /**
+     * @return copies of the molecules as read
+     * @throws CloneNotSupportedException if a molecule cannot be copied
+     */
+    public List<IAtomContainer> copy() throws CloneNotSupportedException {
+        return copy(molecules);
+    }
+
+    /**
+     * @param  molecules the molecules to copy
+     * @return           copies of the molecules
+     * @throws CloneNotSupportedException if a molecule cannot be copied
+     */
+    public static List<IAtomContainer> copy(List<IAtomContainer> molecules) throws CloneNotSupportedException {
+        List<IAtomContainer> copies = new ArrayList<IAtomContainer>(molecules.size());
+        for (IAtomContainer molecule : molecules) copies.add(molecule.clone());
+        return copies;
+    }
+
+    /**
+     * @return copies with configured atom types and implicit hydrogen counts
+     * @throws CloneNotSupportedException if a molecule cannot be copied
+     * @throws CDKException               if the atom types cannot be perceived
+     */
+    public List<IAtomContainer> configured() throws CloneNotSupportedException, CDKException {
+        List<IAtomContainer> copies = copy();
+        CDKHydrogenAdder adder = CDKHydrogenAdder.getInstance(BUILDER);
+        for (IAtomContainer molecule : copies) {
+            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(molecule);
+            adder.addImplicitHydrogens(molecule);
+        }
+        return copies;
+    }
+
+    /**
+     * @return configured copies with perceived aromaticity
+     * @throws CloneNotSupportedException if a molecule cannot be copied
+     * @throws CDKException               if the atom types or aromaticity cannot be perceived
+     */
+    public List<IAtomContainer> aromatic() throws CloneNotSupportedException, CDKException {
+        List<IAtomContainer> copies = configured();
+        for (IAtomContainer molecule : copies) CDKHueckelAromaticityDetector.detectAromaticity(molecule);
+        return copies;
+    }
+
+    /**
+     * @return aromatic copies with the hydrogens removed and counted as implicit
+     * @throws CloneNotSupportedException if a molecule cannot be copied
+     * @throws CDKException               if the atom types or aromaticity cannot be perceived
+     */
+    public List<IAtomContainer> heavyAtoms() throws CloneNotSupportedException, CDKException {
+        List<IAtomContainer> copies = new ArrayList<IAtomContainer>(molecules.size());
+        for (IAtomContainer molecule : aromatic()) copies.add(AtomContainerManipulator.removeHydrogens(molecule));
+        return copies;
+    }
+}
@@ -0,0 +1,94 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.perf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.qsar.DescriptorEngine;
+
+/**
+ * Benchmarks of the {@link DescriptorEngine} with a fixed set of molecular
+ * descriptors, one molecule at a time and in batch mode on all processors.
+ *
+ * @cdk.githash
+ */
+final class DescriptorBenchmarks {
+
+    private static final String PACKAGE = "org.openscience.cdk.qsar.descriptors.molecular.";
+
+    private static final List<String> DESCRIPTORS = Arrays.asList(
+        PACKAGE + "ALOGPDescriptor", PACKAGE + "AromaticAtomsCountDescriptor", PACKAGE + "BCUTDescriptor",
+        PACKAGE + "ChiPathDescriptor", PACKAGE + "HBondAcceptorCountDescriptor", PACKAGE + "HBondDonorCountDescriptor",
+        PACKAGE + "KappaShapeIndicesDescriptor", PACKAGE + "RotatableBondsCountDescriptor", PACKAGE + "TPSADescriptor",
+        PACKAGE + "WeightDescriptor", PACKAGE + "WienerNumbersDescriptor", PACKAGE + "XLogPDescriptor"
+    );
+
+    private DescriptorBenchmarks() {
+    }
+
+    static List<Benchmark> getBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new DescriptorBenchmark("descriptor.DescriptorEngine", 1));
+        benchmarks.add(new DescriptorBenchmark("descriptor.DescriptorEngine.threads",
+                                               Runtime.getRuntime().availableProcessors()));
+        return benchmarks;
+    }
+
+    private static final class DescriptorBenchmark extends Benchmark {
+
+        private final int threads;
+        private DescriptorEngine engine;
+        private List<IAtomContainer> aromatic, molecules;
+
+        DescriptorBenchmark(String name, int threads) {
+            super(name);
+            this.threads = threads;
+        }
+
+        @Override
+        public void setUp(Dataset dataset) throws Exception {
+            engine = new DescriptorEngine(DESCRIPTORS);
+            aromatic = dataset.aromatic();
+        }
+
+        @Override
+        public void prepare() throws Exception {
+            molecules = Dataset.copy(aromatic);
+        }
+
+        @Override
+        public long run() throws Exception {
+            if (threads == 1) {
+                for (IAtomContainer molecule : molecules) engine.process(molecule);
+            } else {
+                engine.process(molecules, threads);
+            }
+            long values = 0;
+            for (IAtomContainer molecule : molecules) values += molecule.getProperties().size();
+            return values;
+        }
+    }
+}
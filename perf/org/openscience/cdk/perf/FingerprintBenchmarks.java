@@ -0,0 +1,99 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openscience.cdk.fingerprint.EStateFingerprinter;
+import org.openscience.cdk.fingerprint.ExtendedFingerprinter;
+import org.openscience.cdk.fingerprint.Fingerprinter;
+import org.openscience.cdk.fingerprint.GraphOnlyFingerprinter;
+import org.openscience.cdk.fingerprint.HybridizationFingerprinter;
+import org.openscience.cdk.fingerprint.IFingerprinter;
+import org.openscience.cdk.fingerprint.KlekotaRothFingerprinter;
+import org.openscience.cdk.fingerprint.LingoFingerprinter;
+import org.openscience.cdk.fingerprint.MACCSFingerprinter;
+import org.openscience.cdk.fingerprint.PubchemFingerprinter;
+import org.openscience.cdk.fingerprint.ShortestPathFingerprinter;
+import org.openscience.cdk.fingerprint.SignatureFingerprinter;
+import org.openscience.cdk.fingerprint.SubstructureFingerprinter;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * Benchmarks of each {@link IFingerprinter}, on the aromatic molecules with
+ * explicit hydrogens.
+ *
+ * @cdk.githash
+ */
+final class FingerprintBenchmarks {
+
+    private FingerprintBenchmarks() {
+    }
+
+    static List<Benchmark> getBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new FingerprintBenchmark(new Fingerprinter(), false));
+        benchmarks.add(new FingerprintBenchmark(new ExtendedFingerprinter(), false));
+        benchmarks.add(new FingerprintBenchmark(new GraphOnlyFingerprinter(), false));
+        benchmarks.add(new FingerprintBenchmark(new HybridizationFingerprinter(), false));
+        benchmarks.add(new FingerprintBenchmark(new ShortestPathFingerprinter(), false));
+        benchmarks.add(new FingerprintBenchmark(new MACCSFingerprinter(), false));
+        benchmarks.add(new FingerprintBenchmark(new PubchemFingerprinter(), false));
+        benchmarks.add(new FingerprintBenchmark(new SubstructureFingerprinter(), false));
+        benchmarks.add(new FingerprintBenchmark(new KlekotaRothFingerprinter(), false));
+        benchmarks.add(new FingerprintBenchmark(new EStateFingerprinter(), false));
+        benchmarks.add(new FingerprintBenchmark(new SignatureFingerprinter(), false));
+        // only has raw fingerprints
+        benchmarks.add(new FingerprintBenchmark(new LingoFingerprinter(), true));
+        return benchmarks;
+    }
+
+    private static final class FingerprintBenchmark extends Benchmark {
+
+        private final IFingerprinter fingerprinter;
+        private final boolean raw;
+        private List<IAtomContainer> molecules;
+
+        FingerprintBenchmark(IFingerprinter fingerprinter, boolean raw) {
+            super("fingerprint." + fingerprinter.getClass().getSimpleName());
+            this.fingerprinter = fingerprinter;
+            this.raw = raw;
+        }
+
+        @Override
+        public void setUp(Dataset dataset) throws Exception {
+            molecules = dataset.aromatic();
+        }
+
+        @Override
+        public long run() throws Exception {
+            long bits = 0;
+            for (IAtomContainer molecule : molecules) {
+                if (raw) bits += fingerprinter.getRawFingerprint(molecule).size();
+                else bits += fingerprinter.getBitFingerprint(molecule).cardinality();
+            }
+            return bits;
+        }
+    }
+}
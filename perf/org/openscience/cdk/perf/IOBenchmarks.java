@@ -0,0 +1,81 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.perf;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openscience.cdk.io.iterator.IteratingSDFReader;
+import org.openscience.cdk.io.iterator.ParallelIteratingSDFReader;
+
+/**
+ * Benchmarks of reading the MDL V2000 SD file from memory.
+ *
+ * @cdk.githash
+ */
+final class IOBenchmarks {
+
+    private IOBenchmarks() {
+    }
+
+    static List<Benchmark> getBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new Benchmark("io.IteratingSDFReader") {
+            private byte[] content;
+
+            @Override
+            public void setUp(Dataset dataset) {
+                content = dataset.getContent();
+            }
+
+            @Override
+            public long run() throws Exception {
+                long atoms = 0;
+                IteratingSDFReader reader = new IteratingSDFReader(new ByteArrayInputStream(content), Dataset.BUILDER);
+                while (reader.hasNext()) atoms += reader.next().getAtomCount();
+                reader.close();
+                return atoms;
+            }
+        });
+        benchmarks.add(new Benchmark("io.ParallelIteratingSDFReader") {
+            private byte[] content;
+
+            @Override
+            public void setUp(Dataset dataset) {
+                content = dataset.getContent();
+            }
+
+            @Override
+            public long run() throws Exception {
+                long atoms = 0;
+                ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(new ByteArrayInputStream(content),
+                                                                                   Dataset.BUILDER);
+                while (reader.hasNext()) atoms += reader.next().getAtomCount();
+                reader.close();
+                return atoms;
+            }
+        });
+        return benchmarks;
+    }
+}
@@ -0,0 +1,155 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
+import org.openscience.cdk.atomtype.CDKAtomTypeMatcher;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IAtomType;
+import org.openscience.cdk.ringsearch.AllRingsFinder;
+import org.openscience.cdk.ringsearch.HanserRingFinder;
+import org.openscience.cdk.ringsearch.SSSRFinder;
+
+/**
+ * Benchmarks of atom typing, aromaticity detection and ring perception.
+ *
+ * @cdk.githash
+ */
+final class PerceptionBenchmarks {
+
+    private PerceptionBenchmarks() {
+    }
+
+    static List<Benchmark> getBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new Benchmark("atomtype.CDKAtomTypeMatcher") {
+            private final CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(Dataset.BUILDER);
+            private List<IAtomContainer> molecules;
+
+            @Override
+            public void setUp(Dataset dataset) throws Exception {
+                molecules = dataset.copy();
+            }
+
+            @Override
+            public long run() throws Exception {
+                long types = 0;
+                for (IAtomContainer molecule : molecules) {
+                    for (IAtomType type : matcher.findMatchingAtomType(molecule)) {
+                        if (type != null) types++;
+                    }
+                }
+                return types;
+            }
+        });
+        benchmarks.add(new Benchmark("aromaticity.CDKHueckelAromaticityDetector") {
+            private List<IAtomContainer> configured, molecules;
+
+            @Override
+            public void setUp(Dataset dataset) throws Exception {
+                configured = dataset.configured();
+            }
+
+            @Override
+            public void prepare() throws Exception {
+                molecules = Dataset.copy(configured);
+            }
+
+            @Override
+            public long run() throws Exception {
+                long aromatic = 0;
+                for (IAtomContainer molecule : molecules) {
+                    if (CDKHueckelAromaticityDetector.detectAromaticity(molecule)) aromatic++;
+                }
+                return aromatic;
+            }
+        });
+        benchmarks.add(new Benchmark("rings.SSSRFinder") {
+            private List<IAtomContainer> molecules;
+
+            @Override
+            public void setUp(Dataset dataset) throws Exception {
+                molecules = dataset.copy();
+            }
+
+            @Override
+            public long run() throws Exception {
+                long rings = 0;
+                for (IAtomContainer molecule : molecules) rings += new SSSRFinder(molecule).findSSSR().getAtomContainerCount();
+                return rings;
+            }
+        });
+        benchmarks.add(new Benchmark("rings.SSSRFinder.relevant") {
+            private List<IAtomContainer> molecules;
+
+            @Override
+            public void setUp(Dataset dataset) throws Exception {
+                molecules = dataset.copy();
+            }
+
+            @Override
+            public long run() throws Exception {
+                long rings = 0;
+                for (IAtomContainer molecule : molecules)
+                    rings += new SSSRFinder(molecule).findRelevantRings().getAtomContainerCount();
+                return rings;
+            }
+        });
+        benchmarks.add(new Benchmark("rings.AllRingsFinder") {
+            private final AllRingsFinder finder = new AllRingsFinder();
+            private List<IAtomContainer> molecules;
+
+            @Override
+            public void setUp(Dataset dataset) throws Exception {
+                molecules = dataset.copy();
+            }
+
+            @Override
+            public long run() throws Exception {
+                long rings = 0;
+                for (IAtomContainer molecule : molecules) rings += finder.findAllRings(molecule).getAtomContainerCount();
+                return rings;
+            }
+        });
+        benchmarks.add(new Benchmark("rings.HanserRingFinder") {
+            private final HanserRingFinder finder = new HanserRingFinder();
+            private List<IAtomContainer> molecules;
+
+            @Override
+            public void setUp(Dataset dataset) throws Exception {
+                molecules = dataset.copy();
+            }
+
+            @Override
+            public long run() throws Exception {
+                long rings = 0;
+                for (IAtomContainer molecule : molecules) rings += finder.findAllRings(molecule).getAtomContainerCount();
+                return rings;
+            }
+        });
+        return benchmarks;
+    }
+}
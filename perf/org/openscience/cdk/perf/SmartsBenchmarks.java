@@ -0,0 +1,85 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.smarts.SMARTSQueryTool;
+
+/**
+ * Benchmarks of SMARTS matching with the {@link SMARTSQueryTool}, for all
+ * matches and for the first match only.
+ *
+ * @cdk.githash
+ */
+final class SmartsBenchmarks {
+
+    private static final String[] PATTERNS = {
+        "c1ccccc1", "[#6]=O", "[OX2H]", "[NX3;H2,H1;!$(NC=O)]", "C(=O)[O;H1,-1]", "[R2]", "[#7]~[#6]~[#6]~[#8]"
+    };
+
+    private SmartsBenchmarks() {
+    }
+
+    static List<Benchmark> getBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new SmartsBenchmark("smarts.SMARTSQueryTool.matches", false));
+        benchmarks.add(new SmartsBenchmark("smarts.SMARTSQueryTool.hasMatch", true));
+        return benchmarks;
+    }
+
+    private static final class SmartsBenchmark extends Benchmark {
+
+        private final List<SMARTSQueryTool> queries = new ArrayList<SMARTSQueryTool>();
+        private final boolean first;
+        private List<IAtomContainer> molecules;
+
+        SmartsBenchmark(String name, boolean first) {
+            super(name);
+            this.first = first;
+            for (String smarts : PATTERNS) queries.add(new SMARTSQueryTool(smarts));
+        }
+
+        @Override
+        public void setUp(Dataset dataset) throws Exception {
+            molecules = dataset.aromatic();
+        }
+
+        @Override
+        public long run() throws Exception {
+            long hits = 0;
+            for (IAtomContainer molecule : molecules) {
+                for (SMARTSQueryTool query : queries) {
+                    if (first) {
+                        if (query.hasMatch(molecule)) hits++;
+                    } else if (query.matches(molecule)) {
+                        hits += query.countMatches();
+                    }
+                }
+            }
+            return hits;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * Benchmarks of SMILES parsing and canonical SMILES generation.
+ *
+ * @cdk.githash
+ */
+final class SmilesBenchmarks {
+
+    private SmilesBenchmarks() {
+    }
+
+    static List<Benchmark> getBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new Benchmark("smiles.SmilesParser") {
+            private final SmilesParser parser = new SmilesParser(Dataset.BUILDER);
+            private final List<String> smiles = new ArrayList<String>();
+
+            @Override
+            public void setUp(Dataset dataset) throws Exception {
+                smiles.clear();
+                SmilesGenerator generator = new SmilesGenerator();
+                for (IAtomContainer molecule : dataset.heavyAtoms()) smiles.add(generator.createSMILES(molecule));
+            }
+
+            @Override
+            public long run() throws Exception {
+                long atoms = 0;
+                for (String s : smiles) atoms += parser.parseSmiles(s).getAtomCount();
+                return atoms;
+            }
+        });
+        benchmarks.add(new Benchmark("smiles.SmilesGenerator") {
+            private final SmilesGenerator generator = new SmilesGenerator();
+            private List<IAtomContainer> molecules;
+
+            @Override
+            public void setUp(Dataset dataset) throws Exception {
+                molecules = dataset.heavyAtoms();
+            }
+
+            @Override
+            public long run() throws Exception {
+                long length = 0;
+                for (IAtomContainer molecule : molecules) length += generator.createSMILES(molecule).length();
+                return length;
+            }
+        });
+        return benchmarks;
+    }
+}
@@ -0,0 +1,134 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.perf;
+
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openscience.cdk.ChemFile;
+import org.openscience.cdk.config.AtomTypeFactory;
+import org.openscience.cdk.geometry.surface.NeighborList;
+import org.openscience.cdk.geometry.surface.NumericalSurface;
+import org.openscience.cdk.graph.rebond.RebondTool;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemFile;
+import org.openscience.cdk.io.PDBReader;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+import org.openscience.cdk.tools.manipulator.AtomTypeManipulator;
+import org.openscience.cdk.tools.manipulator.ChemFileManipulator;
+
+/**
+ * Benchmarks of the spatial searches on the 3D coordinates of a protein,
+ * <code>src/test/data/pdb/1OHG.pdb</code> with 15070 atoms, read without
+ * bonds. The dataset is not used; the time is that of the one protein.
+ *
+ * @cdk.githash
+ */
+final class SpatialBenchmarks {
+
+    private static final String PROTEIN = "src/test/data/pdb/1OHG.pdb";
+
+    private SpatialBenchmarks() {
+    }
+
+    /** The protein, with the covalent radii set as the PDBReader does to rebond. */
+    static IAtomContainer readProtein() throws Exception {
+        PDBReader reader = new PDBReader(new FileInputStream(PROTEIN));
+        IChemFile file = reader.read(new ChemFile());
+        reader.close();
+        IAtomContainer protein = ChemFileManipulator.getAllAtomContainers(file).get(0);
+        AtomTypeFactory factory = AtomTypeFactory.getInstance("org/openscience/cdk/config/data/jmol_atomtypes.txt",
+                                                              protein.getBuilder());
+        for (IAtom atom : protein.atoms()) AtomTypeManipulator.configure(atom, factory.getAtomTypes(atom.getSymbol())[0]);
+        return protein;
+    }
+
+    static List<Benchmark> getBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new SpatialBenchmark("spatial.NeighborList") {
+            @Override
+            public long run() throws Exception {
+                // the radius of NumericalSurface, for a sulphur and a 1.4 A solvent
+                NeighborList neighbors = new NeighborList(atoms, 1.8 + 1.4 + 1.4);
+                long found = 0;
+                for (int i = 0; i < atoms.length; i++) found += neighbors.getNumberOfNeighbors(i);
+                return found;
+            }
+        });
+        benchmarks.add(new SpatialBenchmark("spatial.RebondTool") {
+            @Override
+            public long run() throws Exception {
+                // the settings of the PDBReader
+                new RebondTool(2.0, 0.5, 0.5).rebond(protein);
+                return protein.getBondCount();
+            }
+        });
+        benchmarks.add(new SpatialBenchmark("spatial.RebondTool.threads") {
+            @Override
+            public long run() throws Exception {
+                new RebondTool(2.0, 0.5, 0.5).rebond(protein, Runtime.getRuntime().availableProcessors());
+                return protein.getBondCount();
+            }
+        });
+        benchmarks.add(new SpatialBenchmark("spatial.NumericalSurface") {
+            @Override
+            public long run() throws Exception {
+                NumericalSurface surface = new NumericalSurface(protein, 1.4, 2);
+                surface.calculateSurface();
+                return (long) surface.getTotalSurfaceArea();
+            }
+        });
+        benchmarks.add(new SpatialBenchmark("spatial.NumericalSurface.threads") {
+            @Override
+            public long run() throws Exception {
+                NumericalSurface surface = new NumericalSurface(protein, 1.4, 2);
+                surface.calculateSurface(Runtime.getRuntime().availableProcessors());
+                return (long) surface.getTotalSurfaceArea();
+            }
+        });
+        return benchmarks;
+    }
+
+    private abstract static class SpatialBenchmark extends Benchmark {
+
+        IAtomContainer protein;
+        IAtom[] atoms;
+
+        SpatialBenchmark(String name) {
+            super(name);
+        }
+
+        @Override
+        public void setUp(Dataset dataset) throws Exception {
+            protein = readProtein();
+            atoms = AtomContainerManipulator.getAtomArray(protein);
+        }
+
+        @Override
+        public int getSize(Dataset dataset) {
+            return 1;
+        }
+    }
+}
@@ -31,6 +31,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.graph.AdjacencyList;
+import org.openscience.cdk.graph.IAdjacencyListProvider;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
@@ -61,7 +63,8 @@ import org.openscience.cdk.interfaces.IBond.Order;
  * @cdk.created 2000-10-02
  */
 public class AtomContainer extends ChemObject 
-  implements IAtomContainer, IChemObjectListener, Serializable, Cloneable {
+  implements IAtomContainer, IChemObjectListener, IAdjacencyListProvider,
+             Serializable, Cloneable {
 
 	/**
      * Determines if a de-serialized object is compatible with this class.
@@ -124,6 +127,19 @@ public class AtomContainer extends ChemObject
      */
     protected List<IStereoElement> stereoElements;
 
+    /**
+     * Adjacency list of the atoms and bonds, created on demand and discarded
+     * when atoms or bonds are added, removed or replaced, or when a bond
+     * notifies a change.
+     */
+    private transient AdjacencyList adjacency;
+
+    /**
+     * Whether all bonds notified this container of their changes when the
+     * adjacency list was made, so that it may answer neighbour queries.
+     */
+    private transient boolean adjacencyNotified;
+
 
 	/**
 	 *  Constructs an empty AtomContainer.
@@ -228,6 +244,7 @@ public class AtomContainer extends ChemObject
 	 *@see           #getAtom
 	 */
 	public void setAtoms(IAtom[] atoms) {
+	    adjacency = null;
 	    // unregister this as listener with the old atoms
 	    for (IAtom atom : this.atoms)
 	        if (atom != null) atom.removeListener(this);
@@ -249,6 +266,7 @@ public class AtomContainer extends ChemObject
 	 */
 	public void setBonds(IBond[] bonds)
 	{
+		adjacency = null;
 		this.bonds = bonds;
         for (IBond bond : bonds) {
             bond.addListener(this);
@@ -284,6 +302,7 @@ public class AtomContainer extends ChemObject
 	 */
 	public void setAtom(int number, IAtom atom)
 	{
+		adjacency = null;
 		atom.addListener(this);
 		atoms[number] = atom;
 		notifyChanged();
@@ -596,6 +615,11 @@ public class AtomContainer extends ChemObject
 	 */
 	public int getAtomNumber(IAtom atom)
 	{
+		AdjacencyList adjacency = this.adjacency;
+		if (adjacency != null && adjacency.getAtomCount() == atomCount) {
+			int index = adjacency.indexOf(atom);
+			if (index >= 0 && atoms[index] == atom) return index;
+		}
 		for (int f = 0; f < atomCount; f++)
 		{
 			if (atoms[f] == atom) return f;
@@ -694,6 +718,13 @@ public class AtomContainer extends ChemObject
 	 */
 	public IBond getBond(IAtom atom1, IAtom atom2)
 	{
+		int[] edges = getCachedEdges(atom1);
+		if (edges != null) {
+			for (int edge : edges) {
+				if (bonds[edge].getConnectedAtom(atom1) == atom2) return bonds[edge];
+			}
+			return null;
+		}
 		for (int i = 0; i < getBondCount(); i++)
 		{
 			if (bonds[i].contains(atom1) &&
@@ -762,6 +793,12 @@ public class AtomContainer extends ChemObject
 	 */
 	public List<IAtom> getConnectedAtomsList(IAtom atom)
 	{
+		int[] edges = getCachedEdges(atom);
+		if (edges != null) {
+			List<IAtom> atomsList = new ArrayList<IAtom>(edges.length);
+			for (int edge : edges) atomsList.add(bonds[edge].getConnectedAtom(atom));
+			return atomsList;
+		}
 		List<IAtom> atomsList = new ArrayList<IAtom>();
 		for (int i = 0; i < bondCount; i++)
 		{
@@ -778,6 +815,12 @@ public class AtomContainer extends ChemObject
 	 */
 	public List<IBond> getConnectedBondsList(IAtom atom)
 	{
+		int[] edges = getCachedEdges(atom);
+		if (edges != null) {
+			List<IBond> bondsList = new ArrayList<IBond>(edges.length);
+			for (int edge : edges) bondsList.add(bonds[edge]);
+			return bondsList;
+		}
 		List<IBond> bondsList = new ArrayList<IBond>();
 		for (int i = 0; i < bondCount; i++)
 		{
@@ -851,6 +894,8 @@ public class AtomContainer extends ChemObject
 	 */
 	public int getConnectedAtomsCount(IAtom atom)
 	{
+		int[] edges = getCachedEdges(atom);
+		if (edges != null) return edges.length;
 		int count = 0;
 		for (int i = 0; i < bondCount; i++)
 		{
@@ -1038,6 +1083,7 @@ public class AtomContainer extends ChemObject
 		{
 			return;
 		}
+		adjacency = null;
 
 		if (atomCount + 1 >= atoms.length)
 		{
@@ -1057,9 +1103,11 @@ public class AtomContainer extends ChemObject
 	 */
 	public void addBond(IBond bond)
 	{
+		adjacency = null;
 		if (bondCount >= bonds.length) growBondArray();
 		bonds[bondCount] = bond;
 		++bondCount;
+		bond.addListener(this);
 		notifyChanged();
 	}
 
@@ -1137,6 +1185,7 @@ public class AtomContainer extends ChemObject
 	 */
 	public void removeAtom(int position)
 	{
+		adjacency = null;
 		atoms[position].removeListener(this);
 		for (int i = position; i < atomCount - 1; i++)
 		{
@@ -1170,6 +1219,7 @@ public class AtomContainer extends ChemObject
 	 */
 	public IBond removeBond(int position)
 	{
+		adjacency = null;
 		IBond bond = bonds[position];
 		bond.removeListener(this);
 		for (int i = position; i < bondCount - 1; i++)
@@ -1342,6 +1392,7 @@ public class AtomContainer extends ChemObject
 	 */
     @Override
 	public void removeAllElements() {
+		adjacency = null;
 		removeAllElectronContainers();
         for (int f = 0; f < getAtomCount(); f++) {
 			getAtom(f).removeListener(this);	
@@ -1376,6 +1427,7 @@ public class AtomContainer extends ChemObject
      *  Removes all Bonds from this container.
      */
     public void removeAllBonds() {
+    	adjacency = null;
     	for (int f = 0; f < getBondCount(); f++) {
 			getBond(f).removeListener(this);	
 		}
@@ -1567,6 +1619,53 @@ public class AtomContainer extends ChemObject
 	}
 
 
+	/**
+	 * Returns an adjacency list of the current atoms and bonds. It is kept
+	 * until atoms or bonds are added, removed or replaced, or a bond notifies
+	 * a change, and is checked against the bonds before it is returned. While
+	 * all bonds notify this container, it is also used to answer neighbour
+	 * queries such as {@link #getConnectedAtomsList(IAtom)} without scanning
+	 * all bonds.
+	 *
+	 * @return the adjacency list of this container
+	 */
+	@TestMethod("testGetAdjacencyList")
+	public AdjacencyList getAdjacencyList() {
+		AdjacencyList adjacency = this.adjacency;
+		if (adjacency == null || !adjacency.isCurrent(this)) {
+			boolean notified = true;
+			for (int i = 0; i < bondCount && notified; i++)
+				notified = bonds[i].getNotification() && bonds[i].getListenerCount() > 0;
+			adjacency = new AdjacencyList(this);
+			this.adjacencyNotified = notified;
+			this.adjacency = adjacency;
+		}
+		return adjacency;
+	}
+
+	/**
+	 * Returns the indices of the bonds of the given atom from the cached
+	 * adjacency list, or null if there is no adjacency list that describes
+	 * all bonds of this container, or if a bond may change without notifying
+	 * this container. An adjacency list is discarded when one of its bonds
+	 * no longer contains the atom.
+	 */
+	private int[] getCachedEdges(IAtom atom) {
+		AdjacencyList adjacency = this.adjacency;
+		if (adjacency == null || !adjacencyNotified || adjacency.getAtomCount() != atomCount
+		    || adjacency.getEdgeCount() != bondCount) return null;
+		int index = adjacency.indexOf(atom);
+		if (index < 0 || atoms[index] != atom) return null;
+		int[] edges = adjacency.getEdges(index);
+		for (int edge : edges) {
+			if (bonds[edge] != adjacency.getBond(edge) || !bonds[edge].contains(atom)) {
+				this.adjacency = null;
+				return null;
+			}
+		}
+		return edges;
+	}
+
 	/**
 	 * Clones this AtomContainer object and its content.
 	 *
@@ -1742,6 +1841,8 @@ public class AtomContainer extends ChemObject
 	 */
 	public void stateChanged(IChemObjectChangeEvent event)
 	{
+		// the bond may have other atoms now
+		if (event.getSource() instanceof IBond) adjacency = null;
 		notifyChanged(event);
 	}
 
@@ -20,8 +20,12 @@
  */
 package org.openscience.cdk.atomtype;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +35,7 @@ import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.config.AtomTypeFactory;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.exception.NoSuchAtomException;
+import org.openscience.cdk.graph.AdjacencyList;
 import org.openscience.cdk.graph.SpanningTree;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
@@ -44,6 +49,7 @@ import org.openscience.cdk.interfaces.IRingSet;
 import org.openscience.cdk.interfaces.ISingleElectron;
 import org.openscience.cdk.interfaces.IAtomType.Hybridization;
 import org.openscience.cdk.tools.manipulator.BondManipulator;
+import org.openscience.cdk.tools.periodictable.PeriodicTable;
 
 /**
  * Atom Type matcher that perceives atom types as defined in the CDK atom type list
@@ -65,9 +71,24 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 	
 	private AtomTypeFactory factory;
 	private int mode;
+
+    /** Matched atom types by atom environment, least recently used first. */
+    private Map<AtomEnvironment,IAtomType> cache;
+    private volatile int cacheSize = 0;
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
 	
     private static Map<Integer,Map<IChemObjectBuilder,CDKAtomTypeMatcher>> 
     	factories = new Hashtable<Integer,Map<IChemObjectBuilder,CDKAtomTypeMatcher>>(1); 
+
+    /** Atomic numbers by element symbol, to select the perceive method with. */
+    private static final Map<String,Integer> ATOMIC_NUMBERS = new HashMap<String,Integer>();
+    static {
+        for (int number = 1; number <= PeriodicTable.getElementCount(); number++) {
+            String symbol = PeriodicTable.getSymbol(number);
+            if (symbol != null) ATOMIC_NUMBERS.put(symbol, number);
+        }
+    }
     
     private CDKAtomTypeMatcher(IChemObjectBuilder builder, int mode) {
     	factory = AtomTypeFactory.getInstance(
@@ -93,10 +114,11 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     
     @TestMethod("testFindMatchingAtomType_IAtomContainer")
     public IAtomType[] findMatchingAtomType(IAtomContainer atomContainer) throws CDKException {
+        ConnectionTable table = new ConnectionTable(atomContainer, true);
         IAtomType[] types = new IAtomType[atomContainer.getAtomCount()];
         int typeCounter = 0;
         for (IAtom atom : atomContainer.atoms()) {
-            types[typeCounter] = findMatchingAtomType(atomContainer, atom);
+            types[typeCounter] = findMatchingAtomType(table, atom);
             typeCounter++;
         }
         return types;
@@ -105,416 +127,518 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     @TestMethod("testFindMatchingAtomType_IAtomContainer_IAtom")
     public IAtomType findMatchingAtomType(IAtomContainer atomContainer, IAtom atom)
         throws CDKException {
-        IAtomType type = null;
+        return findMatchingAtomType(new ConnectionTable(atomContainer, false), atom);
+    }
+
+    /**
+     * Sets the number of atom environments for which the perceived atom type
+     * is remembered. The environment of an atom is everything the perception
+     * looks at: the element, charge, hydrogen count, hybridization, aromaticity,
+     * single electrons and ring membership of the atom, and for each bond its
+     * order and flags, and the element and pi bonds of the neighbour. Atoms
+     * with an environment seen before get the remembered type without
+     * perception. When more environments are seen than fit, the least recently
+     * used one is forgotten.
+     *
+     * <p>Typing a ring atom sets the {@link CDKConstants#ISINRING} flag of
+     * the ring atoms of the container, as a side effect of the ring perception.
+     * An atom which gets its type from the cache gets this flag only for
+     * itself, if it is a C, N, O or S atom in a ring.
+     *
+     * <p>Caching is off by default. As {@link #getInstance(IChemObjectBuilder, int)}
+     * shares the matchers, the setting applies to all users of this instance.
+     *
+     * @param size the maximum number of environments, or 0 to turn caching off
+     * @see   #getCacheHits()
+     */
+    @TestMethod("testSetCacheSize_int")
+    public synchronized void setCacheSize(final int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("The cache size must not be negative: " + size);
+        if (size == 0) {
+            cache = null;
+        } else {
+            Map<AtomEnvironment,IAtomType> entries = new LinkedHashMap<AtomEnvironment,IAtomType>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<AtomEnvironment,IAtomType> eldest) {
+                    return size() > size;
+                }
+            };
+            if (cache != null) entries.putAll(cache);
+            cache = entries;
+        }
+        cacheSize = size;
+    }
+
+    /**
+     * Returns the maximum number of atom environments remembered.
+     *
+     * @return the cache size, 0 if caching is off
+     */
+    @TestMethod("testSetCacheSize_int")
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Returns how many atoms got their type from the cache.
+     *
+     * @return the number of cache hits since the last {@link #clearCache()}
+     */
+    @TestMethod("testGetCacheHits")
+    public synchronized long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Returns how many atoms were perceived while caching, because their
+     * environment was not in the cache.
+     *
+     * @return the number of cache misses since the last {@link #clearCache()}
+     */
+    @TestMethod("testGetCacheHits")
+    public synchronized long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * Forgets all remembered atom types and resets the hit and miss counts.
+     */
+    @TestMethod("testClearCache")
+    public synchronized void clearCache() {
+        if (cache != null) cache.clear();
+        cacheHits = 0;
+        cacheMisses = 0;
+    }
+
+    private IAtomType findMatchingAtomType(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom instanceof IPseudoAtom) {
         	return factory.getAtomType("X");
         }
-        if ("C".equals(atom.getSymbol())) {
-            type = perceiveCarbons(atomContainer, atom);
-        } else if ("Li".equals(atom.getSymbol())) {
-            type = perceiveLithium(atomContainer, atom);
-        } else if ("O".equals(atom.getSymbol())) {
-            type = perceiveOxygens(atomContainer, atom);
-        } else if ("N".equals(atom.getSymbol())) {
-            type = perceiveNitrogens(atomContainer, atom);
-        } else if ("H".equals(atom.getSymbol())) {
-            type = perceiveHydrogens(atomContainer, atom);
-        } else if ("S".equals(atom.getSymbol())) {
-            type = perceiveSulphurs(atomContainer, atom);
-        } else if ("P".equals(atom.getSymbol())) {
-            type = perceivePhosphors(atomContainer, atom);
-        } else if ("Si".equals(atom.getSymbol())) {
-            type = perceiveSilicon(atomContainer, atom);
-        } else if ("B".equals(atom.getSymbol())) {
-            type = perceiveBorons(atomContainer, atom);
-        } else if ("Be".equals(atom.getSymbol())) {
-            type = perceiveBeryllium(atomContainer, atom);
-        } else if ("Cr".equals(atom.getSymbol())) {
-            type = perceiveChromium(atomContainer, atom);
-        } else if ("Se".equals(atom.getSymbol())) {
-            type = perceiveSelenium(atomContainer, atom);
-        } else if ("Mo".equals(atom.getSymbol())) {
-            type = perceiveMolybdenum(atomContainer, atom);
-        } else if ("Rb".equals(atom.getSymbol())) {
-            type = perceiveRubidium(atomContainer, atom);
-        } else if ("Te".equals(atom.getSymbol())) {
-            type = perceiveTellurium(atomContainer, atom);
-        } else if ("Cu".equals(atom.getSymbol())) {
-            type = perceiveCopper(atomContainer, atom);
-        } else if ("Ba".equals(atom.getSymbol())) {
-            type = perceiveBarium(atomContainer, atom);
-        } else if ("Ga".equals(atom.getSymbol())) {
-            type = perceiveGallium(atomContainer, atom);
-        } else if ("Ru".equals(atom.getSymbol())) {
-            type = perceiveRuthenium(atomContainer, atom);
-        } else if ("Zn".equals(atom.getSymbol())) {
-            type = perceiveZinc(atomContainer, atom);
-        } else if ("Al".equals(atom.getSymbol())) {
-            type = perceiveAluminium(atomContainer, atom);
-        }  else if ("Ni".equals(atom.getSymbol())) {
-            type = perceiveNickel(atomContainer, atom);
-        } else if ("Gd".equals(atom.getSymbol())) {
-            type = perceiveGadolinum(atomContainer, atom);
-        } else if ("Ge".equals(atom.getSymbol())) {
-            type = perceiveGermanium(atomContainer, atom);
-        } else if ("Co".equals(atom.getSymbol())) {
-            type = perceiveCobalt(atomContainer, atom);
-        } else if ("Br".equals(atom.getSymbol())) {
-            type = perceiveBromine(atomContainer, atom);
-        } else if ("V".equals(atom.getSymbol())) {
-            type = perceiveVanadium(atomContainer, atom);
-        } else if ("Ti".equals(atom.getSymbol())) {
-            type = perceiveTitanium(atomContainer, atom);
-        } else if ("Sr".equals(atom.getSymbol())) {
-            type = perceiveStrontium(atomContainer, atom);
-        } else if ("Pb".equals(atom.getSymbol())) {
-            type = perceiveLead(atomContainer, atom);
-        } else if ("Tl".equals(atom.getSymbol())) {
-            type = perceiveThallium(atomContainer, atom);
-        } else if ("Sb".equals(atom.getSymbol())) {
-            type = perceiveAntimony(atomContainer, atom);
-        } else if ("Pt".equals(atom.getSymbol())) {
-            type = perceivePlatinum(atomContainer, atom);
-        } else if ("Hg".equals(atom.getSymbol())) {
-            type = perceiveMercury(atomContainer, atom);
-        } else if ("Fe".equals(atom.getSymbol())) {
-            type = perceiveIron(atomContainer, atom);
-        } else if ("Ra".equals(atom.getSymbol())) {
-            type = perceiveRadium(atomContainer, atom);
-        } else if ("Au".equals(atom.getSymbol())) {
-            type = perceiveGold(atomContainer, atom);
-        } else if ("Ag".equals(atom.getSymbol())) {
-            type = perceiveSilver(atomContainer, atom);
-        } else if ("Cl".equals(atom.getSymbol())) {
-            type = perceiveChlorine(atomContainer, atom);
-        } else if ("In".equals(atom.getSymbol())) {
-            type = perceiveIndium(atomContainer, atom);
-        } else if ("Pu".equals(atom.getSymbol())) {
-            type = perceivePlutonium(atomContainer, atom);
-        } else if ("Th".equals(atom.getSymbol())) {
-            type = perceiveThorium(atomContainer, atom);
-        } else if ("K".equals(atom.getSymbol())) {
-            type = perceivePotassium(atomContainer, atom);
-        } else if ("Mn".equals(atom.getSymbol())) {
-            type = perceiveManganese(atomContainer, atom);
-        } else if ("Mg".equals(atom.getSymbol())) {
-            type = perceiveMagnesium(atomContainer, atom);
-        } else if ("Na".equals(atom.getSymbol())) {
-            type = perceiveSodium(atomContainer, atom);
-        } else if ("As".equals(atom.getSymbol())) {
-            type = perceiveArsenic(atomContainer, atom);
-        } else if ("Cd".equals(atom.getSymbol())) {
-            type = perceiveCadmium(atomContainer, atom);
-        } else if ("Ca".equals(atom.getSymbol())) {
-            type = perceiveCalcium(atomContainer, atom);
-        } else {
-            if (type == null) type = perceiveHalogens(atomContainer, atom);
-            if (type == null) type = perceiveCommonSalts(atomContainer, atom);
-            if (type == null) type = perceiveOrganometallicCenters(atomContainer, atom);
-            if (type == null) type = perceiveNobelGases(atomContainer, atom);
+        if (cacheSize == 0) return perceive(table, atom);
+        long[] words = table.getEnvironment(atom);
+        if (words == null) return perceive(table, atom);
+        AtomEnvironment environment = new AtomEnvironment(words);
+        synchronized (this) {
+            if (cache != null) {
+                IAtomType type = cache.get(environment);
+                if (type != null || cache.containsKey(environment)) {
+                    cacheHits++;
+                    // as the ring perception would have done
+                    if ((words[0] & ConnectionTable.RING_ATOM) != 0) atom.setFlag(CDKConstants.ISINRING, true);
+                    return type;
+                }
+                cacheMisses++;
+            }
+        }
+        IAtomType type = perceive(table, atom);
+        synchronized (this) {
+            if (cache != null) cache.put(environment, type);
         }
         return type;
     }
+
+    private IAtomType perceive(ConnectionTable table, IAtom atom) throws CDKException {
+        Integer atomicNumber = ATOMIC_NUMBERS.get(atom.getSymbol());
+        switch (atomicNumber == null ? 0 : atomicNumber) {
+            case 6: // C
+                return perceiveCarbons(table, atom);
+            case 3: // Li
+                return perceiveLithium(table, atom);
+            case 8: // O
+                return perceiveOxygens(table, atom);
+            case 7: // N
+                return perceiveNitrogens(table, atom);
+            case 1: // H
+                return perceiveHydrogens(table, atom);
+            case 16: // S
+                return perceiveSulphurs(table, atom);
+            case 15: // P
+                return perceivePhosphors(table, atom);
+            case 14: // Si
+                return perceiveSilicon(table, atom);
+            case 5: // B
+                return perceiveBorons(table, atom);
+            case 4: // Be
+                return perceiveBeryllium(table, atom);
+            case 24: // Cr
+                return perceiveChromium(table, atom);
+            case 34: // Se
+                return perceiveSelenium(table, atom);
+            case 42: // Mo
+                return perceiveMolybdenum(table, atom);
+            case 37: // Rb
+                return perceiveRubidium(table, atom);
+            case 52: // Te
+                return perceiveTellurium(table, atom);
+            case 29: // Cu
+                return perceiveCopper(table, atom);
+            case 56: // Ba
+                return perceiveBarium(table, atom);
+            case 31: // Ga
+                return perceiveGallium(table, atom);
+            case 44: // Ru
+                return perceiveRuthenium(table, atom);
+            case 30: // Zn
+                return perceiveZinc(table, atom);
+            case 13: // Al
+                return perceiveAluminium(table, atom);
+            case 28: // Ni
+                return perceiveNickel(table, atom);
+            case 64: // Gd
+                return perceiveGadolinum(table, atom);
+            case 32: // Ge
+                return perceiveGermanium(table, atom);
+            case 27: // Co
+                return perceiveCobalt(table, atom);
+            case 35: // Br
+                return perceiveBromine(table, atom);
+            case 23: // V
+                return perceiveVanadium(table, atom);
+            case 22: // Ti
+                return perceiveTitanium(table, atom);
+            case 38: // Sr
+                return perceiveStrontium(table, atom);
+            case 82: // Pb
+                return perceiveLead(table, atom);
+            case 81: // Tl
+                return perceiveThallium(table, atom);
+            case 51: // Sb
+                return perceiveAntimony(table, atom);
+            case 78: // Pt
+                return perceivePlatinum(table, atom);
+            case 80: // Hg
+                return perceiveMercury(table, atom);
+            case 26: // Fe
+                return perceiveIron(table, atom);
+            case 88: // Ra
+                return perceiveRadium(table, atom);
+            case 79: // Au
+                return perceiveGold(table, atom);
+            case 47: // Ag
+                return perceiveSilver(table, atom);
+            case 17: // Cl
+                return perceiveChlorine(table, atom);
+            case 49: // In
+                return perceiveIndium(table, atom);
+            case 94: // Pu
+                return perceivePlutonium(table, atom);
+            case 90: // Th
+                return perceiveThorium(table, atom);
+            case 19: // K
+                return perceivePotassium(table, atom);
+            case 25: // Mn
+                return perceiveManganese(table, atom);
+            case 12: // Mg
+                return perceiveMagnesium(table, atom);
+            case 11: // Na
+                return perceiveSodium(table, atom);
+            case 33: // As
+                return perceiveArsenic(table, atom);
+            case 48: // Cd
+                return perceiveCadmium(table, atom);
+            case 20: // Ca
+                return perceiveCalcium(table, atom);
+            default:
+                IAtomType type = perceiveHalogens(table, atom);
+                if (type == null) type = perceiveCommonSalts(table, atom);
+                if (type == null) type = perceiveOrganometallicCenters(table, atom);
+                if (type == null) type = perceiveNobelGases(table, atom);
+                return type;
+        }
+    }
     
-    private IAtomType perceiveGallium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+    private IAtomType perceiveGallium(ConnectionTable table, IAtom atom) throws CDKException {
+        IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
         if (!isCharged(atom) && maxBondOrder == IBond.Order.SINGLE &&
-            atomContainer.getConnectedAtomsCount(atom) <= 3) {
+            table.getConnectedAtomsCount(atom) <= 3) {
             IAtomType type = getAtomType("Ga");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() == 3) {
             IAtomType type = getAtomType("Ga.3plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
 
-    private IAtomType perceiveGermanium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+    private IAtomType perceiveGermanium(ConnectionTable table, IAtom atom) throws CDKException {
+        IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
         if (!isCharged(atom) && maxBondOrder == IBond.Order.SINGLE &&
-            atomContainer.getConnectedAtomsCount(atom) <= 4) {
+            table.getConnectedAtomsCount(atom) <= 4) {
             IAtomType type = getAtomType("Ge");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
-        if (atom.getFormalCharge() == 0 && atomContainer.getConnectedAtomsCount(atom) == 3) {
+        if (atom.getFormalCharge() == 0 && table.getConnectedAtomsCount(atom) == 3) {
             IAtomType type = getAtomType("Ge.3");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
 
-    private IAtomType perceiveSelenium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveSelenium(ConnectionTable table, IAtom atom) throws CDKException {
         if ("Se".equals(atom.getSymbol())) {
-            int doublebondcount = countAttachedDoubleBonds(atomContainer, atom);
+            int doublebondcount = countAttachedDoubleBonds(table, atom);
             if (atom.getFormalCharge() != CDKConstants.UNSET
                     && atom.getFormalCharge() == 0) {
-                if (atomContainer.getConnectedAtomsCount(atom) == 0) {
+                if (table.getConnectedAtomsCount(atom) == 0) {
                 	if (atom.getImplicitHydrogenCount() != null && atom.getImplicitHydrogenCount() == 0 ) {
                 		IAtomType type = getAtomType("Se.2");
-                		if (isAcceptable(atom, atomContainer, type)) return type;
+                		if (isAcceptable(atom, table, type)) return type;
                 	} else {
                 		IAtomType type = getAtomType("Se.3");
-                		if (isAcceptable(atom, atomContainer, type)) return type;
+                		if (isAcceptable(atom, table, type)) return type;
                 	}
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 1) {
+                } else if (table.getConnectedAtomsCount(atom) == 1) {
 
                     if (doublebondcount == 1) {
                         IAtomType type = getAtomType("Se.1");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     } else if (doublebondcount == 0) {
                         IAtomType type = getAtomType("Se.3");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     }
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 2) {
+                } else if (table.getConnectedAtomsCount(atom) == 2) {
                     if (doublebondcount == 0) {
                         IAtomType type = getAtomType("Se.3");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     } else if (doublebondcount == 2) {
                         IAtomType type = getAtomType("Se.sp2.2");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     }
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 3) {
+                } else if (table.getConnectedAtomsCount(atom) == 3) {
                     IAtomType type = getAtomType("Se.sp3.3");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 4) {
+                    if (isAcceptable(atom, table, type)) return type;
+                } else if (table.getConnectedAtomsCount(atom) == 4) {
                     if (doublebondcount == 2) {
                         IAtomType type = getAtomType("Se.sp3.4");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     } else if (doublebondcount == 0) {
                         IAtomType type = getAtomType("Se.sp3d1.4");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     }
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 5) {
+                } else if (table.getConnectedAtomsCount(atom) == 5) {
                     IAtomType type = getAtomType("Se.5");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET && atom.getFormalCharge() == 4)
-                    && atomContainer.getConnectedAtomsCount(atom) == 0) {
+                    && table.getConnectedAtomsCount(atom) == 0) {
                 IAtomType type = getAtomType("Se.4plus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET && atom.getFormalCharge() == 1)
-                    && atomContainer.getConnectedAtomsCount(atom) == 3) {
+                    && table.getConnectedAtomsCount(atom) == 3) {
                 IAtomType type = getAtomType("Se.plus.3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET && atom.getFormalCharge() == -2)
-                    && atomContainer.getConnectedAtomsCount(atom) == 0) {
+                    && table.getConnectedAtomsCount(atom) == 0) {
                 IAtomType type = getAtomType("Se.2minus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
         return null;
     }
 
-    private IAtomType perceiveTellurium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
-        if (!isCharged(atom) && maxBondOrder == IBond.Order.SINGLE && atomContainer.getConnectedAtomsCount(atom) <= 2) {
+    private IAtomType perceiveTellurium(ConnectionTable table, IAtom atom) throws CDKException {
+        IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
+        if (!isCharged(atom) && maxBondOrder == IBond.Order.SINGLE && table.getConnectedAtomsCount(atom) <= 2) {
             IAtomType type = getAtomType("Te.3");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() == 4) {
-            if (atomContainer.getConnectedAtomsCount(atom) == 0) {
+            if (table.getConnectedAtomsCount(atom) == 0) {
                 IAtomType type = getAtomType("Te.4plus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
         return null;
     }
 
-	private IAtomType perceiveBorons(IAtomContainer atomContainer, IAtom atom)
+	private IAtomType perceiveBorons(ConnectionTable table, IAtom atom)
 		throws CDKException {
-	    IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	    IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
 	    if (atom.getFormalCharge() == -1 && 
 	        maxBondOrder == IBond.Order.SINGLE &&
-	        atomContainer.getConnectedAtomsCount(atom) <= 4) {
+	        table.getConnectedAtomsCount(atom) <= 4) {
 	        IAtomType type = getAtomType("B.minus");
-	        if (isAcceptable(atom, atomContainer, type)) return type;
+	        if (isAcceptable(atom, table, type)) return type;
 	    } else if (atom.getFormalCharge() == +3
-                && atomContainer.getConnectedAtomsCount(atom) == 4) {
+                && table.getConnectedAtomsCount(atom) == 4) {
             IAtomType type = getAtomType("B.3plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
-	    } else if (atomContainer.getConnectedAtomsCount(atom) <= 3) {
+            if (isAcceptable(atom, table, type)) return type;
+	    } else if (table.getConnectedAtomsCount(atom) <= 3) {
 	        IAtomType type = getAtomType("B");
-	        if (isAcceptable(atom, atomContainer, type)) return type;
+	        if (isAcceptable(atom, table, type)) return type;
 	    }
     	return null;
     }
 
-    private IAtomType perceiveBeryllium(IAtomContainer atomContainer, IAtom atom)
+    private IAtomType perceiveBeryllium(ConnectionTable table, IAtom atom)
     	throws CDKException {
 		if (atom.getFormalCharge() == -2 &&
-		    atomContainer.getMaximumBondOrder(atom) == IBond.Order.SINGLE &&
-		    atomContainer.getConnectedAtomsCount(atom) <= 4) {
+		    table.getMaximumBondOrder(atom) == IBond.Order.SINGLE &&
+		    table.getConnectedAtomsCount(atom) <= 4) {
 		    IAtomType type = getAtomType("Be.2minus");
-		    if (isAcceptable(atom, atomContainer, type)) return type;
+		    if (isAcceptable(atom, table, type)) return type;
 		} else if (atom.getFormalCharge() == 0 &&
-                   atomContainer.getConnectedAtomsCount(atom) == 0) {
+                   table.getConnectedAtomsCount(atom) == 0) {
             IAtomType type = getAtomType("Be.neutral");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
 		return null;
     }
 
-    private IAtomType perceiveCarbonRadicals(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (atomContainer.getConnectedBondsCount(atom) == 0) {
+    private IAtomType perceiveCarbonRadicals(ConnectionTable table, IAtom atom) throws CDKException {
+        if (table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("C.radical.planar");
-            if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atomContainer.getConnectedBondsCount(atom) <= 3) {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            if (isAcceptable(atom, table, type)) return type;
+        } else if (table.getConnectedBondsCount(atom) <= 3) {
+            IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
             if (maxBondOrder == IBond.Order.SINGLE) {
                 IAtomType type = getAtomType("C.radical.planar");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (maxBondOrder == IBond.Order.DOUBLE) {
                 IAtomType type = getAtomType("C.radical.sp2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (maxBondOrder == IBond.Order.TRIPLE) {
                 IAtomType type = getAtomType("C.radical.sp1");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
         return null;
     }
     
-	private IAtomType perceiveCarbons(IAtomContainer atomContainer, IAtom atom)
+	private IAtomType perceiveCarbons(ConnectionTable table, IAtom atom)
     	throws CDKException {
 	    // if hybridization is given, use that
-	    if (hasOneSingleElectron(atomContainer, atom)) {
-	        return perceiveCarbonRadicals(atomContainer, atom);
+	    if (hasOneSingleElectron(table, atom)) {
+	        return perceiveCarbonRadicals(table, atom);
 	    } else if (hasHybridization(atom) && !isCharged(atom)) {
 	        if (atom.getHybridization() == Hybridization.SP2) {
 	            IAtomType type = getAtomType("C.sp2");
-	            if (isAcceptable(atom, atomContainer, type)) return type;
+	            if (isAcceptable(atom, table, type)) return type;
 	        } else if (atom.getHybridization() == Hybridization.SP3) {
 	            IAtomType type = getAtomType("C.sp3");
-	            if (isAcceptable(atom, atomContainer, type)) return type;
+	            if (isAcceptable(atom, table, type)) return type;
 	        } else if (atom.getHybridization() == Hybridization.SP1) {
-	        	IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	        	IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
 	        	if (maxBondOrder == Order.TRIPLE) {
 		            IAtomType type = getAtomType("C.sp");
-		            if (isAcceptable(atom, atomContainer, type)) return type;
+		            if (isAcceptable(atom, table, type)) return type;
 	        	} else {
 	        		IAtomType type = getAtomType("C.allene");
-	        		if (isAcceptable(atom, atomContainer, type)) return type;
+	        		if (isAcceptable(atom, table, type)) return type;
 	        	}
 	        }
 	    } else if (atom.getFlag(CDKConstants.ISAROMATIC)) {
 	        IAtomType type = getAtomType("C.sp2");
-	        if (isAcceptable(atom, atomContainer, type)) return type;
-	    } else if (hasOneOrMoreSingleOrDoubleBonds(atomContainer, atom)) {
+	        if (isAcceptable(atom, table, type)) return type;
+	    } else if (hasOneOrMoreSingleOrDoubleBonds(table, atom)) {
 	        IAtomType type = getAtomType("C.sp2");
-	        if (isAcceptable(atom, atomContainer, type)) return type;
+	        if (isAcceptable(atom, table, type)) return type;
 	    } else if (isCharged(atom)) {
 	        if (atom.getFormalCharge() == 1) {
-	            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+	            if (table.getConnectedBondsCount(atom) == 0) {
 	                IAtomType type = getAtomType("C.plus.sp2");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            } else {
-	                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	                IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
 	                if (maxBondOrder == CDKConstants.BONDORDER_TRIPLE) {
 	                    IAtomType type = getAtomType("C.plus.sp1");
-	                    if (isAcceptable(atom, atomContainer, type)) return type;
+	                    if (isAcceptable(atom, table, type)) return type;
 	                } else if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
 	                    IAtomType type = getAtomType("C.plus.sp2");
-	                    if (isAcceptable(atom, atomContainer, type)) return type;
+	                    if (isAcceptable(atom, table, type)) return type;
 	                } else if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
 	                    IAtomType type = getAtomType("C.plus.planar");
-	                    if (isAcceptable(atom, atomContainer, type)) return type;
+	                    if (isAcceptable(atom, table, type)) return type;
 	                } 
 	            }
 	        } else if (atom.getFormalCharge() == -1) {
-	            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	            IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
 	            if (maxBondOrder == CDKConstants.BONDORDER_SINGLE &&
-	                    atomContainer.getConnectedBondsCount(atom) <= 3) {
-	                if (isRingAtom(atom, atomContainer) && bothNeighborsAreSp2(atom, atomContainer)) {
+	                    table.getConnectedBondsCount(atom) <= 3) {
+	                if (isRingAtom(atom, table) && bothNeighborsAreSp2(atom, table)) {
 	                    IAtomType type = getAtomType("C.minus.planar");
-	                    if (isAcceptable(atom, atomContainer, type)) return type;
+	                    if (isAcceptable(atom, table, type)) return type;
 	                }
 	                IAtomType type = getAtomType("C.minus.sp3");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            } else if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE &&
-	                    atomContainer.getConnectedBondsCount(atom) <= 3) {
+	                    table.getConnectedBondsCount(atom) <= 3) {
 	                IAtomType type = getAtomType("C.minus.sp2");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            } else if (maxBondOrder == CDKConstants.BONDORDER_TRIPLE &&
-	                    atomContainer.getConnectedBondsCount(atom) <= 1) {
+	                    table.getConnectedBondsCount(atom) <= 1) {
 	                IAtomType type = getAtomType("C.minus.sp1");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            }
 	        }
 	        return null;
-	    } else if (atomContainer.getConnectedBondsCount(atom) > 4) {
+	    } else if (table.getConnectedBondsCount(atom) > 4) {
 	        // FIXME: I don't perceive carbons with more than 4 connections yet
 	        return null;
 	    } else { // OK, use bond order info
-	        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	        IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
 	        if (maxBondOrder == IBond.Order.QUADRUPLE) {
 	            // WTF??
 	            return null;
 	        } else if (maxBondOrder == CDKConstants.BONDORDER_TRIPLE) {
 	            IAtomType type = getAtomType("C.sp");
-	            if (isAcceptable(atom, atomContainer, type)) return type;
+	            if (isAcceptable(atom, table, type)) return type;
 	        } else if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
 	            // OK, one or two double bonds?
-	            int doubleBondCount = countAttachedDoubleBonds(atomContainer, atom);
+	            int doubleBondCount = countAttachedDoubleBonds(table, atom);
 	            if (doubleBondCount == 2) {
 	                IAtomType type = getAtomType("C.allene");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            } else if (doubleBondCount == 1) {
 	                IAtomType type = getAtomType("C.sp2");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            }
 	        } else {
-	            if (hasAromaticBond(atomContainer, atom)) {
+	            if (hasAromaticBond(table, atom)) {
 	                IAtomType type = getAtomType("C.sp2");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            }
 	            IAtomType type = getAtomType("C.sp3");
-	            if (isAcceptable(atom, atomContainer, type)) return type;
+	            if (isAcceptable(atom, table, type)) return type;
 	        }
 	    }
     	return null;
     }
 
-    private boolean hasOneOrMoreSingleOrDoubleBonds(IAtomContainer atomContainer, IAtom atom) {
-    	for (IBond bond : atomContainer.getConnectedBondsList(atom)) {
+    private boolean hasOneOrMoreSingleOrDoubleBonds(ConnectionTable table, IAtom atom) {
+    	for (IBond bond : table.getConnectedBondsList(atom)) {
     		if (bond.getFlag(CDKConstants.SINGLE_OR_DOUBLE)) return true;
     	}
 		return false;
 	}
 
-	private boolean hasOneSingleElectron(IAtomContainer atomContainer, IAtom atom) {
-	    Iterator<ISingleElectron> singleElectrons = atomContainer.singleElectrons().iterator();
-	    while (singleElectrons.hasNext()) {
-	    	if (singleElectrons.next().contains(atom)) return true;
-	    }
-	    return false;
+	private boolean hasOneSingleElectron(ConnectionTable table, IAtom atom) {
+	    return table.countSingleElectrons(atom) > 0;
     }
 
-    private int countSingleElectrons(IAtomContainer atomContainer, IAtom atom) {
-	    Iterator<ISingleElectron> singleElectrons = atomContainer.singleElectrons().iterator();
-	    int count = 0;
-	    while (singleElectrons.hasNext()) {
-	    	if (singleElectrons.next().contains(atom)) count++;
-	    }
-	    return count;
+    private int countSingleElectrons(ConnectionTable table, IAtom atom) {
+	    return table.countSingleElectrons(atom);
     }
 
-    private IAtomType perceiveOxygenRadicals(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveOxygenRadicals(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() == 0) {
-            if (atomContainer.getConnectedBondsCount(atom) <= 1) {
+            if (table.getConnectedBondsCount(atom) <= 1) {
                 IAtomType type = getAtomType("O.sp3.radical");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (atom.getFormalCharge() == +1) {
-            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+            if (table.getConnectedBondsCount(atom) == 0) {
                 IAtomType type = getAtomType("O.plus.radical");
-                if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedBondsCount(atom) <= 2) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+                if (isAcceptable(atom, table, type)) return type;
+            } else if (table.getConnectedBondsCount(atom) <= 2) {
+                IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
                 if (maxBondOrder == IBond.Order.SINGLE) {
                     IAtomType type = getAtomType("O.plus.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else if (maxBondOrder == IBond.Order.DOUBLE) {
                     IAtomType type = getAtomType("O.plus.sp2.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             }
         }
@@ -529,105 +653,105 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         return atom.getHybridization() != CDKConstants.UNSET;
     }
     
-	private IAtomType perceiveOxygens(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-	    if (hasOneSingleElectron(atomContainer, atom)) {
-	        return perceiveOxygenRadicals(atomContainer, atom);
+	private IAtomType perceiveOxygens(ConnectionTable table, IAtom atom) throws CDKException {
+	    if (hasOneSingleElectron(table, atom)) {
+	        return perceiveOxygenRadicals(table, atom);
 	    }
 	    
 	    // if hybridization is given, use that
 	    if (hasHybridization(atom) && !isCharged(atom)) {
 	        if (atom.getHybridization() == Hybridization.SP2) {
-	            int connectedAtomsCount = atomContainer.getConnectedAtomsCount(atom);
+	            int connectedAtomsCount = table.getConnectedAtomsCount(atom);
 	            if (connectedAtomsCount == 1) {
-	                if (isCarboxylate(atom, atomContainer)) {
+	                if (isCarboxylate(atom, table)) {
 	                    IAtomType type = getAtomType("O.sp2.co2");
-	                    if (isAcceptable(atom, atomContainer, type)) return type;    				        
+	                    if (isAcceptable(atom, table, type)) return type;    				        
 	                } else {
 	                    IAtomType type = getAtomType("O.sp2");
-	                    if (isAcceptable(atom, atomContainer, type)) return type;
+	                    if (isAcceptable(atom, table, type)) return type;
 	                }
 	            } else if (connectedAtomsCount == 2) {
 	                IAtomType type = getAtomType("O.planar3");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            }    				
 	        } else if (atom.getHybridization() == Hybridization.SP3) {
 	            IAtomType type = getAtomType("O.sp3");
-	            if (isAcceptable(atom, atomContainer, type)) return type;
+	            if (isAcceptable(atom, table, type)) return type;
 	        } else if (atom.getHybridization() == Hybridization.PLANAR3) {
 	            IAtomType type = getAtomType("O.planar3");
-	            if (isAcceptable(atom, atomContainer, type)) return type;
+	            if (isAcceptable(atom, table, type)) return type;
 	        }
 	    } else if (isCharged(atom)) {
 	        if (atom.getFormalCharge() == -1 &&
-	                atomContainer.getConnectedAtomsCount(atom) <= 1) {
-	            if (isCarboxylate(atom, atomContainer)) {
+	                table.getConnectedAtomsCount(atom) <= 1) {
+	            if (isCarboxylate(atom, table)) {
 	                IAtomType type = getAtomType("O.minus.co2");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            } else {
 	                IAtomType type = getAtomType("O.minus");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            }
 	        } else if (atom.getFormalCharge() == -2 &&
-	                atomContainer.getConnectedAtomsCount(atom) == 0) {
+	                table.getConnectedAtomsCount(atom) == 0) {
 	            IAtomType type = getAtomType("O.minus2");
-	            if (isAcceptable(atom, atomContainer, type)) return type;
+	            if (isAcceptable(atom, table, type)) return type;
 	        } else if (atom.getFormalCharge() == +1) {
-	            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+	            if (table.getConnectedBondsCount(atom) == 0) {
 	                IAtomType type = getAtomType("O.plus");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            }
-	            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	            IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
 	            if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
 	                IAtomType type = getAtomType("O.plus.sp2");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            } else if (maxBondOrder == CDKConstants.BONDORDER_TRIPLE) {
 	                IAtomType type = getAtomType("O.plus.sp1");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            } else {
 	                IAtomType type = getAtomType("O.plus");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            }
 	        }
 	        return null;
-	    } else if (atomContainer.getConnectedBondsCount(atom) > 2) {
+	    } else if (table.getConnectedBondsCount(atom) > 2) {
 	        // FIXME: I don't perceive carbons with more than 4 connections yet
 	        return null;
-	    } else if (atomContainer.getConnectedBondsCount(atom) == 0) {
+	    } else if (table.getConnectedBondsCount(atom) == 0) {
 	        IAtomType type = getAtomType("O.sp3");
-	        if (isAcceptable(atom, atomContainer, type)) return type;
+	        if (isAcceptable(atom, table, type)) return type;
 	    } else { // OK, use bond order info
-	        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+	        IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
 	        if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
-	            if (isCarboxylate(atom, atomContainer)) {
+	            if (isCarboxylate(atom, table)) {
 	                IAtomType type = getAtomType("O.sp2.co2");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            } else {
 	                IAtomType type = getAtomType("O.sp2");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            }
 	        } else if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
-	            int explicitHydrogens = countExplicitHydrogens(atom, atomContainer);
-	            int connectedHeavyAtoms = atomContainer.getConnectedBondsCount(atom) - explicitHydrogens; 
+	            int explicitHydrogens = countExplicitHydrogens(atom, table);
+	            int connectedHeavyAtoms = table.getConnectedBondsCount(atom) - explicitHydrogens; 
 	            if (connectedHeavyAtoms == 2) {
 	                // a O.sp3 which is expected to take part in an aromatic system
-	                if (isRingAtom(atom, atomContainer) && bothNeighborsAreSp2(atom, atomContainer)) {
+	                if (isRingAtom(atom, table) && bothNeighborsAreSp2(atom, table)) {
 	                    IAtomType type = getAtomType("O.planar3");
-	                    if (isAcceptable(atom, atomContainer, type)) return type;
+	                    if (isAcceptable(atom, table, type)) return type;
 	                }
 	                IAtomType type = getAtomType("O.sp3");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            } else {
 	                IAtomType type = getAtomType("O.sp3");
-	                if (isAcceptable(atom, atomContainer, type)) return type;
+	                if (isAcceptable(atom, table, type)) return type;
 	            }
 	        }
 	    }
     	return null;
     }
 
-    private boolean isCarboxylate(IAtom atom, IAtomContainer container) {
+    private boolean isCarboxylate(IAtom atom, ConnectionTable table) {
         // assumes that the oxygen only has one neighbor (C=O, or C-[O-])
-        List<IAtom> neighbors = container.getConnectedAtomsList(atom);
+        List<IAtom> neighbors = table.getConnectedAtomsList(atom);
         if (neighbors.size() != 1) return false;
         IAtom carbon = neighbors.get(0);
         if (!"C".equals(carbon.getSymbol())) return false;
@@ -635,7 +759,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         int oxygenCount = 0;
         int singleBondedNegativeOxygenCount = 0;
         int doubleBondedOxygenCount = 0;
-        for (IBond cBond : container.getConnectedBondsList(carbon)) {
+        for (IBond cBond : table.getConnectedBondsList(carbon)) {
             IAtom neighbor = cBond.getConnectedAtom(carbon);
             if ("O".equals(neighbor.getSymbol())) {
                 oxygenCount++;
@@ -651,9 +775,9 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         return (oxygenCount == 2) && (singleBondedNegativeOxygenCount == 1) && (doubleBondedOxygenCount == 1);
     }
 
-    private boolean atLeastTwoNeighborsAreSp2(IAtom atom, IAtomContainer atomContainer) {
+    private boolean atLeastTwoNeighborsAreSp2(IAtom atom, ConnectionTable table) {
     	int count = 0;
-    	Iterator<IAtom> atoms = atomContainer.getConnectedAtomsList(atom).iterator();
+    	Iterator<IAtom> atoms = table.getConnectedAtomsList(atom).iterator();
     	while (atoms.hasNext() && (count < 2)) {
     		IAtom nextAtom = atoms.next();
     		if (!nextAtom.getSymbol().equals("H")) {
@@ -661,10 +785,10 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     				nextAtom.getHybridization() == Hybridization.SP2) {
     				// OK, it's SP2
     				count++;
-    			} else if (countAttachedDoubleBonds(atomContainer, nextAtom) > 0) {
+    			} else if (countAttachedDoubleBonds(table, nextAtom) > 0) {
     				// OK, it's SP2
     				count++;
-    			} else if (atomContainer.getBond(atom, nextAtom).getFlag(CDKConstants.ISAROMATIC)) {
+    			} else if (table.getBond(atom, nextAtom).getFlag(CDKConstants.ISAROMATIC)) {
                     // two aromatic bonds indicate sp2
                     count++;
                 } // OK, not SP2
@@ -673,274 +797,274 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     	return count >= 2;
     }
 
-    private boolean bothNeighborsAreSp2(IAtom atom, IAtomContainer atomContainer) {       
-    	return atLeastTwoNeighborsAreSp2(atom, atomContainer);
+    private boolean bothNeighborsAreSp2(IAtom atom, ConnectionTable table) {       
+    	return atLeastTwoNeighborsAreSp2(atom, table);
     }
 
-    private IAtomType perceiveNitrogenRadicals(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (atomContainer.getConnectedBondsCount(atom) >= 1 &&
-                atomContainer.getConnectedBondsCount(atom) <= 2) {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+    private IAtomType perceiveNitrogenRadicals(ConnectionTable table, IAtom atom) throws CDKException {
+        if (table.getConnectedBondsCount(atom) >= 1 &&
+                table.getConnectedBondsCount(atom) <= 2) {
+            IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
             if (atom.getFormalCharge() != CDKConstants.UNSET &&
                     atom.getFormalCharge() == +1) {
                 if (maxBondOrder == IBond.Order.DOUBLE) {
                     IAtomType type = getAtomType("N.plus.sp2.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else if (maxBondOrder == IBond.Order.SINGLE) {
                     IAtomType type = getAtomType("N.plus.sp3.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             } else if (atom.getFormalCharge() == CDKConstants.UNSET ||
                     atom.getFormalCharge() == 0) {
                 if (maxBondOrder == IBond.Order.SINGLE) {
                     IAtomType type = getAtomType("N.sp3.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else if (maxBondOrder == IBond.Order.DOUBLE) {
                     IAtomType type = getAtomType("N.sp2.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             }
         } else {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
             if (atom.getFormalCharge() != CDKConstants.UNSET &&
                     atom.getFormalCharge() == +1 && maxBondOrder == IBond.Order.SINGLE) {
                 IAtomType type = getAtomType("N.plus.sp3.radical");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
         return null;
     }
-    private IAtomType perceiveMolybdenum(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveMolybdenum(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 4) {
                 IAtomType type = getAtomType("Mo.4");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             }
             IAtomType type1 = getAtomType("Mo.metallic");
-            if (isAcceptable(atom, atomContainer, type1)) {
+            if (isAcceptable(atom, table, type1)) {
                 return type1;
             }
         }
         return null;
     }
-    private IAtomType perceiveNitrogens(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveNitrogens(ConnectionTable table, IAtom atom) throws CDKException {
         // if hybridization is given, use that
-        if (hasOneSingleElectron(atomContainer, atom)) {
-            return perceiveNitrogenRadicals(atomContainer, atom);
+        if (hasOneSingleElectron(table, atom)) {
+            return perceiveNitrogenRadicals(table, atom);
         } else if (hasHybridization(atom) && !isCharged(atom)) {
             if (atom.getHybridization() == Hybridization.SP1) {
-                int neighborCount = atomContainer.getConnectedAtomsCount(atom);
+                int neighborCount = table.getConnectedAtomsCount(atom);
                 if (neighborCount > 1) {
                     IAtomType type = getAtomType("N.sp1.2");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else {
                     IAtomType type = getAtomType("N.sp1");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             } else if (atom.getHybridization() == Hybridization.SP2) {
-            	if (isAmide(atom, atomContainer)) {
+            	if (isAmide(atom, table)) {
                     IAtomType type = getAtomType("N.amide");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
-                } else if (isThioAmide(atom, atomContainer)) {
+                    if (isAcceptable(atom, table, type)) return type;
+                } else if (isThioAmide(atom, table)) {
                     IAtomType type = getAtomType("N.thioamide");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
                 // but an sp2 hyb N might N.sp2 or N.planar3 (pyrrole), so check for the latter
-            	int neighborCount = atomContainer.getConnectedAtomsCount(atom);
+            	int neighborCount = table.getConnectedAtomsCount(atom);
             	if (neighborCount == 4 &&
-            	    IBond.Order.DOUBLE == atomContainer.getMaximumBondOrder(atom)) {
+            	    IBond.Order.DOUBLE == table.getMaximumBondOrder(atom)) {
             	    IAtomType type = getAtomType("N.oxide");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
             	} else
-            	if (neighborCount > 1 && bothNeighborsAreSp2(atom, atomContainer)) {
-            		IRing ring = getRing(atom, atomContainer);
+            	if (neighborCount > 1 && bothNeighborsAreSp2(atom, table)) {
+            		IRing ring = getRing(atom, table);
             		int ringSize = ring == null ? 0 : ring.getAtomCount();
             		if (ring != null && ring.getAtomCount() > 0) {
             			if (neighborCount == 3) {
-                            IBond.Order maxOrder = atomContainer.getMaximumBondOrder(atom);
+                            IBond.Order maxOrder = table.getMaximumBondOrder(atom);
                             if (maxOrder == IBond.Order.DOUBLE) {
                                 IAtomType type = getAtomType("N.sp2.3");
-                                if (isAcceptable(atom, atomContainer, type)) return type;
+                                if (isAcceptable(atom, table, type)) return type;
                             } else if (maxOrder == IBond.Order.SINGLE) {
                                 IAtomType type = getAtomType("N.planar3");
-                                if (isAcceptable(atom, atomContainer, type)) return type;
+                                if (isAcceptable(atom, table, type)) return type;
                             }
             			} else if (neighborCount == 2) {
-            				IBond.Order maxOrder = atomContainer.getMaximumBondOrder(atom);
+            				IBond.Order maxOrder = table.getMaximumBondOrder(atom);
             				if (maxOrder == IBond.Order.SINGLE) {
             				    if (atom.getImplicitHydrogenCount() != CDKConstants.UNSET && atom.getImplicitHydrogenCount() == 1) {
             						IAtomType type = getAtomType("N.planar3");
-            						if (isAcceptable(atom, atomContainer, type)) return type;
+            						if (isAcceptable(atom, table, type)) return type;
             					} else {
             						IAtomType type = getAtomType("N.sp2");
-            						if (isAcceptable(atom, atomContainer, type)) return type;
+            						if (isAcceptable(atom, table, type)) return type;
             					}
             				} else if (maxOrder == IBond.Order.DOUBLE) {
             					IAtomType type = getAtomType("N.sp2");
-            					if (isAcceptable(atom, atomContainer, type)) return type;
+            					if (isAcceptable(atom, table, type)) return type;
             				}
             			}
             		}
             	}
                 IAtomType type = getAtomType("N.sp2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (atom.getHybridization() == Hybridization.SP3) {
                 IAtomType type = getAtomType("N.sp3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (atom.getHybridization() == Hybridization.PLANAR3) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
-                if (atomContainer.getConnectedAtomsCount(atom) == 3 &&
+                IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
+                if (table.getConnectedAtomsCount(atom) == 3 &&
                         maxBondOrder == CDKConstants.BONDORDER_DOUBLE &&
-                        countAttachedDoubleBonds(atomContainer, atom, "O") == 2) {
+                        countAttachedDoubleBonds(table, atom, "O") == 2) {
                     IAtomType type = getAtomType("N.nitro");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
                 IAtomType type = getAtomType("N.planar3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (isCharged(atom)) {
             if (atom.getFormalCharge() == 1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+                IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
                 if (maxBondOrder == CDKConstants.BONDORDER_SINGLE ||
-                        atomContainer.getConnectedBondsCount(atom) == 0) {
+                        table.getConnectedBondsCount(atom) == 0) {
                     if (atom.getHybridization() == IAtomType.Hybridization.SP2) {
                         IAtomType type = getAtomType("N.plus.sp2");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     }
                     IAtomType type = getAtomType("N.plus");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
-                    int doubleBonds= countAttachedDoubleBonds(atomContainer, atom);
+                    int doubleBonds= countAttachedDoubleBonds(table, atom);
                     if (doubleBonds == 1) {
                         IAtomType type = getAtomType("N.plus.sp2");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     } else if (doubleBonds == 2) {
                         IAtomType type = getAtomType("N.plus.sp1");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     }
                 } else if (maxBondOrder == CDKConstants.BONDORDER_TRIPLE) {
-                    if (atomContainer.getConnectedBondsCount(atom) == 2) {
+                    if (table.getConnectedBondsCount(atom) == 2) {
                         IAtomType type = getAtomType("N.plus.sp1");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     }
                 }
             } else if (atom.getFormalCharge() == -1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+                IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
                 if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
-                    if (atomContainer.getConnectedAtomsCount(atom) >= 2 &&
-                    		bothNeighborsAreSp2(atom,atomContainer) &&
-                    		isRingAtom(atom, atomContainer)) {
+                    if (table.getConnectedAtomsCount(atom) >= 2 &&
+                    		bothNeighborsAreSp2(atom,table) &&
+                    		isRingAtom(atom, table)) {
                         IAtomType type = getAtomType("N.minus.planar3");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
-                    } else if (atomContainer.getConnectedBondsCount(atom) <= 2) {
+                        if (isAcceptable(atom, table, type)) return type;
+                    } else if (table.getConnectedBondsCount(atom) <= 2) {
                         IAtomType type = getAtomType("N.minus.sp3");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     }
                 } else if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
-                    if (atomContainer.getConnectedBondsCount(atom) <= 1) {
+                    if (table.getConnectedBondsCount(atom) <= 1) {
                         IAtomType type = getAtomType("N.minus.sp2");
-                        if (isAcceptable(atom, atomContainer, type)) return type;
+                        if (isAcceptable(atom, table, type)) return type;
                     }
                 }
             }
-        } else if (atomContainer.getConnectedBondsCount(atom) > 3) {
-            if (atomContainer.getConnectedBondsCount(atom) == 4 &&
-                countAttachedDoubleBonds(atomContainer, atom) == 1) {
+        } else if (table.getConnectedBondsCount(atom) > 3) {
+            if (table.getConnectedBondsCount(atom) == 4 &&
+                countAttachedDoubleBonds(table, atom) == 1) {
                 IAtomType type = getAtomType("N.oxide");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
             return null;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 0) {
+        } else if (table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("N.sp3");
-            if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (hasOneOrMoreSingleOrDoubleBonds(atomContainer, atom)) {
-        	int connectedAtoms = atomContainer.getConnectedAtomsCount(atom) +
+            if (isAcceptable(atom, table, type)) return type;
+        } else if (hasOneOrMoreSingleOrDoubleBonds(table, atom)) {
+        	int connectedAtoms = table.getConnectedAtomsCount(atom) +
         		(atom.getImplicitHydrogenCount() == CDKConstants.UNSET
         		    ? 0
         			: atom.getImplicitHydrogenCount());
         	if (connectedAtoms == 3) {
             	IAtomType type = getAtomType("N.planar3");
-            	if (isAcceptable(atom, atomContainer, type)) return type;
+            	if (isAcceptable(atom, table, type)) return type;
         	}
         	IAtomType type = getAtomType("N.sp2");
-        	if (isAcceptable(atom, atomContainer, type)) return type;
+        	if (isAcceptable(atom, table, type)) return type;
         } else { // OK, use bond order info
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
             if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
-                if (isAmide(atom, atomContainer)) {
+                if (isAmide(atom, table)) {
                     IAtomType type = getAtomType("N.amide");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
-                } else if (isThioAmide(atom, atomContainer)) {
+                    if (isAcceptable(atom, table, type)) return type;
+                } else if (isThioAmide(atom, table)) {
                     IAtomType type = getAtomType("N.thioamide");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
-                int explicitHydrogens = countExplicitHydrogens(atom, atomContainer);
-                int connectedHeavyAtoms = atomContainer.getConnectedBondsCount(atom) - explicitHydrogens;
+                int explicitHydrogens = countExplicitHydrogens(atom, table);
+                int connectedHeavyAtoms = table.getConnectedBondsCount(atom) - explicitHydrogens;
                 if (connectedHeavyAtoms == 2) {
-                	List<IBond> bonds = atomContainer.getConnectedBondsList(atom);
+                	List<IBond> bonds = table.getConnectedBondsList(atom);
                     if (bonds.get(0).getFlag(CDKConstants.ISAROMATIC) &&
                             bonds.get(1).getFlag(CDKConstants.ISAROMATIC)) {
                         Integer hCount = atom.getImplicitHydrogenCount();
                         if (hCount == CDKConstants.UNSET || hCount == 0) {
-                            if (atomContainer.getMaximumBondOrder(atom) == CDKConstants.BONDORDER_SINGLE &&
-                                    isSingleHeteroAtom(atom, atomContainer)) {
+                            if (table.getMaximumBondOrder(atom) == CDKConstants.BONDORDER_SINGLE &&
+                                    isSingleHeteroAtom(atom, table)) {
                                 IAtomType type = getAtomType("N.planar3");
-                                if (isAcceptable(atom, atomContainer, type)) return type;
+                                if (isAcceptable(atom, table, type)) return type;
                             } else {
                                 IAtomType type = getAtomType("N.sp2");
-                                if (isAcceptable(atom, atomContainer, type)) return type;
+                                if (isAcceptable(atom, table, type)) return type;
                             }
                         } else if (hCount == 1) {
                             IAtomType type = getAtomType("N.planar3");
-                            if (isAcceptable(atom, atomContainer, type))
+                            if (isAcceptable(atom, table, type))
                                 return type;
                         }
-                	} else if (bothNeighborsAreSp2(atom, atomContainer) && isRingAtom(atom, atomContainer)) {
+                	} else if (bothNeighborsAreSp2(atom, table) && isRingAtom(atom, table)) {
                 		// a N.sp3 which is expected to take part in an aromatic system
                 		IAtomType type = getAtomType("N.planar3");
-                		if (isAcceptable(atom, atomContainer, type)) return type;
+                		if (isAcceptable(atom, table, type)) return type;
                 	} else {
                 		IAtomType type = getAtomType("N.sp3");
-                		if (isAcceptable(atom, atomContainer, type)) return type;
+                		if (isAcceptable(atom, table, type)) return type;
                 	}
                 } else if (connectedHeavyAtoms == 3) {
-                	if (bothNeighborsAreSp2(atom, atomContainer) && isRingAtom(atom, atomContainer)) {
+                	if (bothNeighborsAreSp2(atom, table) && isRingAtom(atom, table)) {
                 		IAtomType type = getAtomType("N.planar3");
-                		if (isAcceptable(atom, atomContainer, type)) return type;
+                		if (isAcceptable(atom, table, type)) return type;
                 	}
                 	IAtomType type = getAtomType("N.sp3");
-                	if (isAcceptable(atom, atomContainer, type)) return type;
+                	if (isAcceptable(atom, table, type)) return type;
                 } else if (connectedHeavyAtoms == 1) {
                     IAtomType type = getAtomType("N.sp3");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else if (connectedHeavyAtoms == 0) {
                     IAtomType type = getAtomType("N.sp3");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             } else if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
-                if (atomContainer.getConnectedAtomsCount(atom) == 3 &&
-                        countAttachedDoubleBonds(atomContainer, atom, "O") == 2) {
+                if (table.getConnectedAtomsCount(atom) == 3 &&
+                        countAttachedDoubleBonds(table, atom, "O") == 2) {
                     IAtomType type = getAtomType("N.nitro");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
-                } else if (atomContainer.getConnectedAtomsCount(atom) == 3 &&
-                        countAttachedDoubleBonds(atomContainer, atom) > 0) {
+                    if (isAcceptable(atom, table, type)) return type;
+                } else if (table.getConnectedAtomsCount(atom) == 3 &&
+                        countAttachedDoubleBonds(table, atom) > 0) {
                     IAtomType type = getAtomType("N.sp2.3");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
                 IAtomType type = getAtomType("N.sp2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (maxBondOrder == CDKConstants.BONDORDER_TRIPLE) {
-                int neighborCount = atomContainer.getConnectedAtomsCount(atom);
+                int neighborCount = table.getConnectedAtomsCount(atom);
                 if (neighborCount > 1) {
                     IAtomType type = getAtomType("N.sp1.2");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else {
                     IAtomType type = getAtomType("N.sp1");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             }
         }
@@ -952,18 +1076,18 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
      * hetroatoms. Currently used in N.planar3 perception of (e.g. pyrrole).
      *
      * @param atom an atom to test
-     * @param container container of the atom
+     * @param table connections of the container of the atom
      *
      * @return whether the atom's only bonds are to hetroatoms
-     * @see #perceiveNitrogens(org.openscience.cdk.interfaces.IAtomContainer, org.openscience.cdk.interfaces.IAtom)
+     * @see #perceiveNitrogens(ConnectionTable, IAtom)
      */
-    private boolean isSingleHeteroAtom(IAtom atom, IAtomContainer container) {
+    private boolean isSingleHeteroAtom(IAtom atom, ConnectionTable table) {
 
-        List<IAtom> connected = container.getConnectedAtomsList(atom);
+        List<IAtom> connected = table.getConnectedAtomsList(atom);
 
         for (IAtom atom1 : connected) {
 
-            boolean aromatic = container.getBond(atom, atom1).getFlag(CDKConstants.ISAROMATIC);
+            boolean aromatic = table.getBond(atom, atom1).getFlag(CDKConstants.ISAROMATIC);
 
             // ignoring non-aromatic bonds
             if(!aromatic)
@@ -974,10 +1098,10 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                 return false;
 
             // check the second sphere
-            for (IAtom atom2 : container.getConnectedAtomsList(atom1)) {
+            for (IAtom atom2 : table.getConnectedAtomsList(atom1)) {
 
                 if (atom2 != atom
-                   && container.getBond(atom1, atom2).getFlag(CDKConstants.ISAROMATIC)
+                   && table.getBond(atom1, atom2).getFlag(CDKConstants.ISAROMATIC)
                    && !"C".equals(atom2.getSymbol())) {
                         return false;
                 }
@@ -990,15 +1114,14 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
 
     }
 
-    private boolean isRingAtom(IAtom atom, IAtomContainer atomContainer) {
-    	SpanningTree st = new SpanningTree(atomContainer);
-        return st.getCyclicFragmentsContainer().contains(atom);
+    private boolean isRingAtom(IAtom atom, ConnectionTable table) {
+        return table.isRingAtom(atom);
     }
 
-    private IRing getRing(IAtom atom, IAtomContainer atomContainer) {
-    	SpanningTree st = new SpanningTree(atomContainer);
+    private IRing getRing(IAtom atom, ConnectionTable table) {
+    	SpanningTree st = table.getSpanningTree();
     	try {
-    		if (st.getCyclicFragmentsContainer().contains(atom)) {
+    		if (table.isRingAtom(atom)) {
     			IRingSet set = st.getAllRings();
     			for (int i=0; i<set.getAtomContainerCount(); i++) {
     				IRing ring = (IRing)set.getAtomContainer(i);
@@ -1013,29 +1136,29 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     	return null;
     }
 
-    private boolean isAmide(IAtom atom, IAtomContainer atomContainer) {
-    	List<IAtom> neighbors = atomContainer.getConnectedAtomsList(atom);
+    private boolean isAmide(IAtom atom, ConnectionTable table) {
+    	List<IAtom> neighbors = table.getConnectedAtomsList(atom);
     	for (IAtom neighbor : neighbors) {
     		if (neighbor.getSymbol().equals("C")) {
-    			if (countAttachedDoubleBonds(atomContainer, neighbor, "O") == 1) return true;
+    			if (countAttachedDoubleBonds(table, neighbor, "O") == 1) return true;
     		}
     	}
     	return false;
     }
 
-    private boolean isThioAmide(IAtom atom, IAtomContainer atomContainer) {
-        List<IAtom> neighbors = atomContainer.getConnectedAtomsList(atom);
+    private boolean isThioAmide(IAtom atom, ConnectionTable table) {
+        List<IAtom> neighbors = table.getConnectedAtomsList(atom);
         for (IAtom neighbor : neighbors) {
             if (neighbor.getSymbol().equals("C")) {
-                if (countAttachedDoubleBonds(atomContainer, neighbor, "S") == 1) return true;
+                if (countAttachedDoubleBonds(table, neighbor, "S") == 1) return true;
             }
         }
         return false;
     }
 
-    private int countExplicitHydrogens(IAtom atom, IAtomContainer atomContainer) {
+    private int countExplicitHydrogens(IAtom atom, ConnectionTable table) {
     	int count = 0;
-        for (IAtom aAtom : atomContainer.getConnectedAtomsList(atom)) {
+        for (IAtom aAtom : table.getConnectedAtomsList(atom)) {
             if (aAtom.getSymbol().equals("H")) {
                 count++;
             }
@@ -1043,85 +1166,85 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     	return count;
     }
     
-    private IAtomType perceiveIron(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveIron(ConnectionTable table, IAtom atom) throws CDKException {
         if ("Fe".equals(atom.getSymbol())) {
-            if (hasOneSingleElectron(atomContainer, atom)) {
+            if (hasOneSingleElectron(table, atom)) {
                 // no idea how to deal with this yet
                 return null;
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == 0)) {
                 IAtomType type = getAtomType("Fe.metallic");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
-                int neighbors = atomContainer.getConnectedAtomsCount(atom);
+                int neighbors = table.getConnectedAtomsCount(atom);
                 if (neighbors == 2) {
                     IAtomType type5 = getAtomType("Fe.2");
-                    if (isAcceptable(atom, atomContainer, type5)) {
+                    if (isAcceptable(atom, table, type5)) {
                         return type5;
                     }
                 } else if (neighbors == 3) {
                     IAtomType type6 = getAtomType("Fe.3");
-                    if (isAcceptable(atom, atomContainer, type6)) {
+                    if (isAcceptable(atom, table, type6)) {
                         return type6;
                     }
                 } else if (neighbors == 4) {
                     IAtomType type7 = getAtomType("Fe.4");
-                    if (isAcceptable(atom, atomContainer, type7)) {
+                    if (isAcceptable(atom, table, type7)) {
                         return type7;
                     }
                 } else if (neighbors == 5) {
                     IAtomType type8 = getAtomType("Fe.5");
-                    if (isAcceptable(atom, atomContainer, type8)) {
+                    if (isAcceptable(atom, table, type8)) {
                         return type8;
                     }
                 } else if (neighbors == 6) {
                     IAtomType type9 = getAtomType("Fe.6");
-                    if (isAcceptable(atom, atomContainer, type9)) {
+                    if (isAcceptable(atom, table, type9)) {
                         return type9;
                     }
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == 2)) {
-                int neighbors = atomContainer.getConnectedAtomsCount(atom);
+                int neighbors = table.getConnectedAtomsCount(atom);
                 if (neighbors <= 1) {
                     IAtomType type = getAtomType("Fe.2plus");
-                    if (isAcceptable(atom, atomContainer, type)) {
+                    if (isAcceptable(atom, table, type)) {
                         return type;
                     }
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == 1)) {
-                int neighbors = atomContainer.getConnectedAtomsCount(atom);
+                int neighbors = table.getConnectedAtomsCount(atom);
 
                 if (neighbors == 2) {
                     IAtomType type0 = getAtomType("Fe.plus");
-                    if (isAcceptable(atom, atomContainer, type0)) {
+                    if (isAcceptable(atom, table, type0)) {
                         return type0;
                     }
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == 3)) {
                 IAtomType type1 = getAtomType("Fe.3plus");
-                if (isAcceptable(atom, atomContainer, type1)) {
+                if (isAcceptable(atom, table, type1)) {
                     return type1;
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == -2)) {
                 IAtomType type2 = getAtomType("Fe.2minus");
-                if (isAcceptable(atom, atomContainer, type2)) {
+                if (isAcceptable(atom, table, type2)) {
                     return type2;
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == -3)) {
                 IAtomType type3 = getAtomType("Fe.3minus");
-                if (isAcceptable(atom, atomContainer, type3)) {
+                if (isAcceptable(atom, table, type3)) {
                     return type3;
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == -4)) {
                 IAtomType type4 = getAtomType("Fe.4minus");
-                if (isAcceptable(atom, atomContainer, type4)) {
+                if (isAcceptable(atom, table, type4)) {
                     return type4;
                 }
             }
@@ -1130,48 +1253,48 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     }
 
 
-    private IAtomType perceiveMercury(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveMercury(ConnectionTable table, IAtom atom) throws CDKException {
         if ("Hg".equals(atom.getSymbol())) {
-            if (hasOneSingleElectron(atomContainer, atom)) {
+            if (hasOneSingleElectron(table, atom)) {
                 // no idea how to deal with this yet
                 return null;
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == -1)) {
                 IAtomType type = getAtomType("Hg.minus");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == 2)) {
                 IAtomType type = getAtomType("Hg.2plus");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == +1)) {
-                int neighbors = atomContainer.getConnectedAtomsCount(atom);
+                int neighbors = table.getConnectedAtomsCount(atom);
                 if (neighbors <= 1) {  
                     IAtomType type = getAtomType("Hg.plus");
-                    if (isAcceptable(atom, atomContainer, type)) {
+                    if (isAcceptable(atom, table, type)) {
                         return type;
                     }
                 }
             } else if ((atom.getFormalCharge() != null
                     && atom.getFormalCharge() == 0)) {
-                int neighbors = atomContainer.getConnectedAtomsCount(atom);
+                int neighbors = table.getConnectedAtomsCount(atom);
                 if (neighbors == 2) {
                     IAtomType type = getAtomType("Hg.2");
-                    if (isAcceptable(atom, atomContainer, type)) {
+                    if (isAcceptable(atom, table, type)) {
                         return type;
                     }
                 } else if (neighbors == 1) {
                     IAtomType type = getAtomType("Hg.1");
-                    if (isAcceptable(atom, atomContainer, type)) {
+                    if (isAcceptable(atom, table, type)) {
                         return type;
                     }
                 } else if (neighbors == 0) {
                     IAtomType type = getAtomType("Hg.metallic");
-                    if (isAcceptable(atom, atomContainer, type)) {
+                    if (isAcceptable(atom, table, type)) {
                         return type;
                     }
                 }
@@ -1180,12 +1303,12 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         return null;
     }
 
-    private IAtomType perceiveSulphurs(IAtomContainer atomContainer, IAtom atom)
+    private IAtomType perceiveSulphurs(ConnectionTable table, IAtom atom)
     throws CDKException {
-        List<IBond> neighbors = atomContainer.getConnectedBondsList(atom);
-        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+        List<IBond> neighbors = table.getConnectedBondsList(atom);
+        IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
         int neighborcount = neighbors.size();
-        if (hasOneSingleElectron(atomContainer, atom)) {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if (atom.getHybridization() != CDKConstants.UNSET &&
@@ -1194,10 +1317,10 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
                    atom.getFormalCharge() == +1) {
             if (neighborcount == 3) {
                 IAtomType type = getAtomType("S.inyl.charged");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else {
                 IAtomType type = getAtomType("S.plus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET &&
                    atom.getFormalCharge() != 0) {
@@ -1205,97 +1328,97 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             if (atom.getFormalCharge() == -1 &&
                     neighborcount == 1) {
                 IAtomType type = getAtomType("S.minus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (atom.getFormalCharge() == +1 &&
                     neighborcount == 2) {
                 IAtomType type = getAtomType("S.plus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (atom.getFormalCharge() == +1 &&
                     neighborcount == 3) {
                 IAtomType type = getAtomType("S.inyl.charged");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (atom.getFormalCharge() == +2 &&
                     neighborcount == 4) {
                 IAtomType type = getAtomType("S.onyl.charged");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (atom.getFormalCharge() == -2 &&
                     neighborcount == 0) {
                 IAtomType type = getAtomType("S.2minus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 0) {
             if (atom.getFormalCharge() != CDKConstants.UNSET &&
                 atom.getFormalCharge() == 0) {
                 IAtomType type = getAtomType("S.3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 1) {
-            if (atomContainer.getConnectedBondsList(atom).get(0).getOrder() == CDKConstants.BONDORDER_DOUBLE) {
+            if (table.getConnectedBondsList(atom).get(0).getOrder() == CDKConstants.BONDORDER_DOUBLE) {
                 IAtomType type = getAtomType("S.2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedBondsList(atom).get(0).getOrder() == CDKConstants.BONDORDER_SINGLE) {
+                if (isAcceptable(atom, table, type)) return type;
+            } else if (table.getConnectedBondsList(atom).get(0).getOrder() == CDKConstants.BONDORDER_SINGLE) {
                 IAtomType type = getAtomType("S.3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 2) {
-            if (isRingAtom(atom, atomContainer) && bothNeighborsAreSp2(atom, atomContainer)) {
-                if (countAttachedDoubleBonds(atomContainer, atom) == 2) {
+            if (isRingAtom(atom, table) && bothNeighborsAreSp2(atom, table)) {
+                if (countAttachedDoubleBonds(table, atom) == 2) {
                     IAtomType type = getAtomType("S.inyl.2");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else {
                     IAtomType type = getAtomType("S.planar3");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
-            } else if (countAttachedDoubleBonds(atomContainer, atom, "O") == 2) {
+            } else if (countAttachedDoubleBonds(table, atom, "O") == 2) {
                 IAtomType type = getAtomType("S.oxide");
-                if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (countAttachedDoubleBonds(atomContainer, atom) == 2) {
+                if (isAcceptable(atom, table, type)) return type;
+            } else if (countAttachedDoubleBonds(table, atom) == 2) {
                 IAtomType type = getAtomType("S.inyl.2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (countAttachedDoubleBonds(atomContainer, atom) <= 1) {
+                if (isAcceptable(atom, table, type)) return type;
+            } else if (countAttachedDoubleBonds(table, atom) <= 1) {
                 IAtomType type = getAtomType("S.3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (countAttachedDoubleBonds(atomContainer, atom) == 0
-                    && countAttachedSingleBonds(atomContainer, atom) == 2) {
+                if (isAcceptable(atom, table, type)) return type;
+            } else if (countAttachedDoubleBonds(table, atom) == 0
+                    && countAttachedSingleBonds(table, atom) == 2) {
                 IAtomType type = getAtomType("S.octahedral");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 3) {
-            int doubleBondedAtoms = countAttachedDoubleBonds(atomContainer, atom);
+            int doubleBondedAtoms = countAttachedDoubleBonds(table, atom);
             if (doubleBondedAtoms == 1) {
                 IAtomType type = getAtomType("S.inyl");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (doubleBondedAtoms == 3) {
                 IAtomType type = getAtomType("S.trioxide");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (doubleBondedAtoms == 0) {
                 IAtomType type = getAtomType("S.anyl");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 4) {
             // count the number of double bonded oxygens
-            int doubleBondedOxygens = countAttachedDoubleBonds(atomContainer, atom, "O");
-            int doubleBondedNitrogens = countAttachedDoubleBonds(atomContainer, atom, "N");
-            int doubleBondedSulphurs = countAttachedDoubleBonds(atomContainer, atom, "S");
-            int countAttachedDoubleBonds = countAttachedDoubleBonds(atomContainer, atom);
+            int doubleBondedOxygens = countAttachedDoubleBonds(table, atom, "O");
+            int doubleBondedNitrogens = countAttachedDoubleBonds(table, atom, "N");
+            int doubleBondedSulphurs = countAttachedDoubleBonds(table, atom, "S");
+            int countAttachedDoubleBonds = countAttachedDoubleBonds(table, atom);
 
             if (doubleBondedOxygens + doubleBondedNitrogens == 2) {
                 IAtomType type = getAtomType("S.onyl");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (doubleBondedSulphurs == 1
                     && doubleBondedOxygens == 1) {
                 IAtomType type = getAtomType("S.thionyl");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
                 IAtomType type = getAtomType("S.anyl");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (doubleBondedOxygens == 1) {
                 IAtomType type = getAtomType("S.sp3d1");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (countAttachedDoubleBonds == 2
                     && maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
                 IAtomType type = getAtomType("S.sp3.4");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
 
         } else if (neighborcount == 5) {
@@ -1303,98 +1426,98 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
             if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
 
                 IAtomType type = getAtomType("S.sp3d1");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
                 IAtomType type = getAtomType("S.octahedral");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 6) {
             if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
                 IAtomType type = getAtomType("S.octahedral");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
         return null;
     }
 
-    private IAtomType perceivePhosphors(IAtomContainer atomContainer, IAtom atom)
+    private IAtomType perceivePhosphors(ConnectionTable table, IAtom atom)
     throws CDKException {
-        List<IBond> neighbors = atomContainer.getConnectedBondsList(atom);
+        List<IBond> neighbors = table.getConnectedBondsList(atom);
         int neighborcount = neighbors.size();
-        IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
-        if (countSingleElectrons(atomContainer, atom) == 3) {
+        IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
+        if (countSingleElectrons(table, atom) == 3) {
         	IAtomType type = getAtomType("P.se.3");
-            if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (hasOneSingleElectron(atomContainer, atom)) {
+            if (isAcceptable(atom, table, type)) return type;
+        } else if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if (neighborcount == 0) {
             if (atom.getFormalCharge() == null ||
                 atom.getFormalCharge().intValue() == 0) {
                 IAtomType type = getAtomType("P.ine");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 1) {
             if (atom.getFormalCharge() == null ||
                 atom.getFormalCharge().intValue() == 0) {
                 IAtomType type = getAtomType("P.ide");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 3) {
-        	int doubleBonds = countAttachedDoubleBonds(atomContainer, atom);
+        	int doubleBonds = countAttachedDoubleBonds(table, atom);
             if (atom.getFormalCharge() != null &
                 atom.getFormalCharge().intValue() == 1) {
                 IAtomType type = getAtomType("P.anium");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (doubleBonds == 1) {
             	IAtomType type = getAtomType("P.ate");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else {
                 IAtomType type = getAtomType("P.ine");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 2) {
             if (maxBondOrder == CDKConstants.BONDORDER_DOUBLE) {
                 if (atom.getFormalCharge() != null &
                     atom.getFormalCharge().intValue() == 1) {
                     IAtomType type = getAtomType("P.sp1.plus");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else {
                     IAtomType type = getAtomType("P.irane");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             } else if (maxBondOrder == CDKConstants.BONDORDER_SINGLE) {
                 IAtomType type = getAtomType("P.ine");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 4) {
             // count the number of double bonded oxygens
-            int doubleBonds = countAttachedDoubleBonds(atomContainer, atom);
+            int doubleBonds = countAttachedDoubleBonds(table, atom);
             if (atom.getFormalCharge() == 1 && doubleBonds == 0) {
                 IAtomType type = getAtomType("P.ate.charged");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (doubleBonds == 1){
                 IAtomType type = getAtomType("P.ate");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 5) {
             if (atom.getFormalCharge() == null ||
                 atom.getFormalCharge().intValue() == 0) {
                 IAtomType type = getAtomType("P.ane");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
     	return null;
     }
     
-    private IAtomType perceiveHydrogens(IAtomContainer atomContainer, IAtom atom)
+    private IAtomType perceiveHydrogens(ConnectionTable table, IAtom atom)
     throws CDKException {
-        int neighborcount = atomContainer.getConnectedBondsCount(atom);
-        if (hasOneSingleElectron(atomContainer, atom)) {
+        int neighborcount = table.getConnectedBondsCount(atom);
+        if (hasOneSingleElectron(table, atom)) {
             if ((atom.getFormalCharge() == CDKConstants.UNSET || atom.getFormalCharge() == 0) &&
                     neighborcount == 0) {
                 IAtomType type = getAtomType("H.radical");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
             return null;
         } else if (neighborcount == 2) {
@@ -1403,66 +1526,66 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         } else if (neighborcount == 1) {
             if (atom.getFormalCharge() == CDKConstants.UNSET || atom.getFormalCharge() == 0) {
                 IAtomType type = getAtomType("H");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 0) {
             if (atom.getFormalCharge() == CDKConstants.UNSET || atom.getFormalCharge() == 0) {
                 IAtomType type = getAtomType("H");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (atom.getFormalCharge() == 1){
                 IAtomType type = getAtomType("H.plus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (atom.getFormalCharge() == -1){
                 IAtomType type = getAtomType("H.minus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
     	return null;
     }
 
-    private IAtomType perceiveLithium(IAtomContainer atomContainer, IAtom atom)
+    private IAtomType perceiveLithium(ConnectionTable table, IAtom atom)
     	throws CDKException {
-        int neighborcount = atomContainer.getConnectedBondsCount(atom);
+        int neighborcount = table.getConnectedBondsCount(atom);
         if (neighborcount == 1) {
             if (atom.getFormalCharge() == CDKConstants.UNSET ||
                     atom.getFormalCharge() == 0) {
                 IAtomType type = getAtomType("Li");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (neighborcount == 0) {
             if (atom.getFormalCharge() == CDKConstants.UNSET
                     || atom.getFormalCharge() == 0) {
                 IAtomType type = getAtomType("Li.neutral");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
             if (atom.getFormalCharge() == CDKConstants.UNSET
                     || atom.getFormalCharge() == +1) {
                 IAtomType type = getAtomType("Li.plus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
     	return null;
     }
 
-    private IAtomType perceiveHalogens(IAtomContainer atomContainer, IAtom atom)
+    private IAtomType perceiveHalogens(ConnectionTable table, IAtom atom)
     throws CDKException {
     	if ("F".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
-				if (atomContainer.getConnectedBondsCount(atom) == 0) {
+    		if (hasOneSingleElectron(table, atom)) {
+				if (table.getConnectedBondsCount(atom) == 0) {
 					if (atom.getFormalCharge() != CDKConstants.UNSET &&
 						atom.getFormalCharge() == +1) {
 						IAtomType type = getAtomType("F.plus.radical");
-						if (isAcceptable(atom, atomContainer, type)) return type;
+						if (isAcceptable(atom, table, type)) return type;
 					} else if (atom.getFormalCharge() == CDKConstants.UNSET ||
 							   atom.getFormalCharge() == 0) {
 						IAtomType type = getAtomType("F.radical");
-						if (isAcceptable(atom, atomContainer, type)) return type;
+						if (isAcceptable(atom, table, type)) return type;
 					}
-				} else if (atomContainer.getConnectedBondsCount(atom) <= 1) {
-					IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+				} else if (table.getConnectedBondsCount(atom) <= 1) {
+					IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
 					if (maxBondOrder == IBond.Order.SINGLE) {
 						IAtomType type = getAtomType("F.plus.radical");
-						if (isAcceptable(atom, atomContainer, type)) return type;
+						if (isAcceptable(atom, table, type)) return type;
 					}
 				}
 				return null;
@@ -1470,80 +1593,80 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     				atom.getFormalCharge() != 0) {
     			if (atom.getFormalCharge() == -1) {
     				IAtomType type = getAtomType("F.minus");
-    				if (isAcceptable(atom, atomContainer, type)) return type;
+    				if (isAcceptable(atom, table, type)) return type;
     			} else if (atom.getFormalCharge() == 1) {
-    				IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+    				IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
     				if (maxBondOrder == IBond.Order.DOUBLE) {
     					IAtomType type = getAtomType("F.plus.sp2");
-    					if (isAcceptable(atom, atomContainer, type)) return type;
+    					if (isAcceptable(atom, table, type)) return type;
     				}else if (maxBondOrder == IBond.Order.SINGLE){
     					IAtomType type = getAtomType("F.plus.sp3");
-    					if (isAcceptable(atom, atomContainer, type)) return type;
+    					if (isAcceptable(atom, table, type)) return type;
     				}
     			}
-    		} else if (atomContainer.getConnectedBondsCount(atom) == 1 ||
-    				atomContainer.getConnectedBondsCount(atom) == 0) {
+    		} else if (table.getConnectedBondsCount(atom) == 1 ||
+    				table.getConnectedBondsCount(atom) == 0) {
     			IAtomType type = getAtomType("F");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		}
     	} else if ("I".equals(atom.getSymbol())) {
-    	    return perceiveIodine(atomContainer, atom);
+    	    return perceiveIodine(table, atom);
     	}
     		
     	return null;
     }
-    private IAtomType perceiveArsenic(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveArsenic(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == +1
-                && atomContainer.getConnectedBondsCount(atom) <= 4)) {
+                && table.getConnectedBondsCount(atom) <= 4)) {
             IAtomType type = getAtomType("As.plus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 4) {
                 IAtomType type = getAtomType("As.5");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             }
             if (neighbors == 2) {
                 IAtomType type = getAtomType("As.2");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             }
             IAtomType type = getAtomType("As");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == +3)) {
             IAtomType type = getAtomType("As.3plus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == -1)) {
             IAtomType type = getAtomType("As.minus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         }
         return null;
     }   
      
-    private IAtomType perceiveThorium(IAtomContainer atomContainer, IAtom atom)
+    private IAtomType perceiveThorium(ConnectionTable table, IAtom atom)
             throws CDKException {
         if ("Th".equals(atom.getSymbol())) {
-            if (atom.getFormalCharge() == 0 && atomContainer.getConnectedBondsCount(atom) == 0) {
+            if (atom.getFormalCharge() == 0 && table.getConnectedBondsCount(atom) == 0) {
                 IAtomType type = getAtomType("Th");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             }
@@ -1551,688 +1674,688 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         return null;
     }
 
-    private IAtomType perceiveRubidium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveRubidium(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             return null;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == +1) {
             IAtomType type = getAtomType("Rb.plus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0) {
             IAtomType type = getAtomType("Rb.neutral");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         }
         return null;
     }
-    private IAtomType perceiveCommonSalts(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveCommonSalts(ConnectionTable table, IAtom atom) throws CDKException {
         if ("Mg".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
+    		if (hasOneSingleElectron(table, atom)) {
     			// no idea how to deal with this yet
     			return null;
     		} else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
     				atom.getFormalCharge() == +2)) {
     			IAtomType type = getAtomType("Mg.2plus");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		}
     	} else if ("Co".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
+    		if (hasOneSingleElectron(table, atom)) {
     			// no idea how to deal with this yet
     			return null;
     		} else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
     				atom.getFormalCharge() == +2)) {
     			IAtomType type = getAtomType("Co.2plus");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		} else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
     				atom.getFormalCharge() == +3)) {
     			IAtomType type = getAtomType("Co.3plus");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
             } else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
                     atom.getFormalCharge() == 0)) {
                 IAtomType type = getAtomType("Co.metallic");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
     		}
         } else if ("W".equals(atom.getSymbol())) {
-            if (hasOneSingleElectron(atomContainer, atom)) {
+            if (hasOneSingleElectron(table, atom)) {
                 // no idea how to deal with this yet
                 return null;
             } else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
                     atom.getFormalCharge() == 0)) {
                 IAtomType type = getAtomType("W.metallic");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
     	}
     	return null;
     }
-    private IAtomType perceiveCopper(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveCopper(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == +2)) {
             IAtomType type = getAtomType("Cu.2plus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 1) {
                 IAtomType type = getAtomType("Cu.1");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             } else {
                 IAtomType type01 = getAtomType("Cu.metallic");
-                if (isAcceptable(atom, atomContainer, type01)) {
+                if (isAcceptable(atom, table, type01)) {
                     return type01;
                 }
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == +1) {
             IAtomType type02 = getAtomType("Cu.plus");
-            if (isAcceptable(atom, atomContainer, type02)) {
+            if (isAcceptable(atom, table, type02)) {
                 return type02;
             }
         }
         return null;
     }
-    private IAtomType perceiveBarium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveBarium(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 2)) {
             IAtomType type = getAtomType("Ba.2plus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         }
         return null;
     }
-    private IAtomType perceiveAluminium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveAluminium(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 3) {
-            int connectedBondsCount = atomContainer.getConnectedBondsCount(atom);
+            int connectedBondsCount = table.getConnectedBondsCount(atom);
             if (connectedBondsCount == 0) {
                 IAtomType type = getAtomType("Al.3plus");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0
-                && atomContainer.getConnectedBondsCount(atom) == 3) {
+                && table.getConnectedBondsCount(atom) == 3) {
             IAtomType type = getAtomType("Al");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == -3
-                && atomContainer.getConnectedBondsCount(atom) == 6) {
+                && table.getConnectedBondsCount(atom) == 6) {
             IAtomType type = getAtomType("Al.3minus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         }
         return null;
     }
-    private IAtomType perceiveZinc(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveZinc(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 0
+        } else if (table.getConnectedBondsCount(atom) == 0
                 && (atom.getFormalCharge() != null
                 && atom.getFormalCharge() == 0)) {
             IAtomType type = getAtomType("Zn.metallic");
-            if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 0
+            if (isAcceptable(atom, table, type)) return type;
+        } else if (table.getConnectedBondsCount(atom) == 0
                 && (atom.getFormalCharge() != null
                 && atom.getFormalCharge() == 2)) {
             IAtomType type = getAtomType("Zn.2plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 1
+            if (isAcceptable(atom, table, type)) return type;
+        } else if (table.getConnectedBondsCount(atom) == 1
                 && (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
             IAtomType type = getAtomType("Zn.1");
-            if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 2
+            if (isAcceptable(atom, table, type)) return type;
+        } else if (table.getConnectedBondsCount(atom) == 2
                 && (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
             IAtomType type = getAtomType("Zn");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
-    private IAtomType perceiveChromium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveChromium(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0
-                && atomContainer.getConnectedBondsCount(atom) == 6) {
+                && table.getConnectedBondsCount(atom) == 6) {
             IAtomType type = getAtomType("Cr");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0
-                && atomContainer.getConnectedBondsCount(atom) == 4) {
+                && table.getConnectedBondsCount(atom) == 4) {
             IAtomType type = getAtomType("Cr.4");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 6
-                && atomContainer.getConnectedBondsCount(atom) == 0) {
+                && table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("Cr.6plus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0
-                && atomContainer.getConnectedBondsCount(atom) == 0) {
+                && table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("Cr.neutral");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if ("Cr".equals(atom.getSymbol())) {
             if (atom.getFormalCharge() != CDKConstants.UNSET
                     && atom.getFormalCharge() == 3
-                    && atomContainer.getConnectedBondsCount(atom) == 0) {
+                    && table.getConnectedBondsCount(atom) == 0) {
                 IAtomType type = getAtomType("Cr.3plus");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             }
         }
         return null;
     }
-    private IAtomType perceiveOrganometallicCenters(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveOrganometallicCenters(ConnectionTable table, IAtom atom) throws CDKException {
     	if ("Po".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
+    		if (hasOneSingleElectron(table, atom)) {
     			// no idea how to deal with this yet
     			return null;
-    		} else if (atomContainer.getConnectedBondsCount(atom) == 2) {
+    		} else if (table.getConnectedBondsCount(atom) == 2) {
     			IAtomType type = getAtomType("Po");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		}
     	}  else if ("Sn".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
+    		if (hasOneSingleElectron(table, atom)) {
     			// no idea how to deal with this yet
     			return null;
     		} else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
     				atom.getFormalCharge() == 0 &&
-    				atomContainer.getConnectedBondsCount(atom) <= 4)) {
+    				table.getConnectedBondsCount(atom) <= 4)) {
     			IAtomType type = getAtomType("Sn.sp3");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		}
     	} else if ("Sc".equals(atom.getSymbol())) {
     		if (atom.getFormalCharge() != CDKConstants.UNSET &&
     			atom.getFormalCharge() == -3 &&
-    			atomContainer.getConnectedBondsCount(atom) == 6) {
+    			table.getConnectedBondsCount(atom) == 6) {
     			IAtomType type = getAtomType("Sc.3minus");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		}
     	} 
     	return null;
     }
-    private IAtomType perceiveNickel(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveNickel(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == +2)) {
             IAtomType type = getAtomType("Ni.2plus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)
-                && atomContainer.getConnectedAtomsCount(atom) == 2) {
+                && table.getConnectedAtomsCount(atom) == 2) {
             IAtomType type = getAtomType("Ni");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)
-                && atomContainer.getConnectedAtomsCount(atom) == 0) {
+                && table.getConnectedAtomsCount(atom) == 0) {
             IAtomType type = getAtomType("Ni.metallic");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 1)
-                && atomContainer.getConnectedAtomsCount(atom) == 1) {
+                && table.getConnectedAtomsCount(atom) == 1) {
             IAtomType type = getAtomType("Ni.plus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         }
         return null;
     }
-    private IAtomType perceiveNobelGases(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveNobelGases(ConnectionTable table, IAtom atom) throws CDKException {
     	if ("He".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
+    		if (hasOneSingleElectron(table, atom)) {
     			// no idea how to deal with this yet
     			return null;
     		} else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
     				atom.getFormalCharge() == 0)) {
     			IAtomType type = getAtomType("He");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		}
     	} else if ("Ne".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
+    		if (hasOneSingleElectron(table, atom)) {
     			// no idea how to deal with this yet
     			return null;
     		} else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
     				atom.getFormalCharge() == 0)) {
     			IAtomType type = getAtomType("Ne");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		}
     	} else if ("Ar".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
+    		if (hasOneSingleElectron(table, atom)) {
     			// no idea how to deal with this yet
     			return null;
     		} else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
     				atom.getFormalCharge() == 0)) {
     			IAtomType type = getAtomType("Ar");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		}
     	} else if ("Kr".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
+    		if (hasOneSingleElectron(table, atom)) {
     			// no idea how to deal with this yet
     			return null;
     		} else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
     				atom.getFormalCharge() == 0)) {
     			IAtomType type = getAtomType("Kr");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		}
     	} else if ("Xe".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
+    		if (hasOneSingleElectron(table, atom)) {
     			// no idea how to deal with this yet
     			return null;
     		} else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
     				atom.getFormalCharge() == 0)) {
-            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+            if (table.getConnectedBondsCount(atom) == 0) {
                 IAtomType type = getAtomType("Xe");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else {
                 IAtomType type = getAtomType("Xe.3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
     		}
     	} else if ("Rn".equals(atom.getSymbol())) {
-    		if (hasOneSingleElectron(atomContainer, atom)) {
+    		if (hasOneSingleElectron(table, atom)) {
     			// no idea how to deal with this yet
     			return null;
     		} else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
     				atom.getFormalCharge() == 0)) {
     			IAtomType type = getAtomType("Rn");
-    			if (isAcceptable(atom, atomContainer, type)) return type;
+    			if (isAcceptable(atom, table, type)) return type;
     		}
     	}
     	return null;
     }
 
-    private IAtomType perceiveSilicon(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveSilicon(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0) {
-            if (atomContainer.getConnectedBondsCount(atom) == 2) {
+            if (table.getConnectedBondsCount(atom) == 2) {
                 IAtomType type = getAtomType("Si.2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedBondsCount(atom) == 3) {
+                if (isAcceptable(atom, table, type)) return type;
+            } else if (table.getConnectedBondsCount(atom) == 3) {
                 IAtomType type = getAtomType("Si.3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedBondsCount(atom) == 4) {
+                if (isAcceptable(atom, table, type)) return type;
+            } else if (table.getConnectedBondsCount(atom) == 4) {
                 IAtomType type = getAtomType("Si.sp3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == -2) {
             IAtomType type = getAtomType("Si.2minus.6");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveManganese(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveManganese(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if ((atom.getFormalCharge() != null
                 && atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 2) {
                 IAtomType type02 = getAtomType("Mn.2");
-                if (isAcceptable(atom, atomContainer, type02)) return type02;
+                if (isAcceptable(atom, table, type02)) return type02;
             } else if (neighbors == 0) {
                 IAtomType type03 = getAtomType("Mn.metallic");
-                if (isAcceptable(atom, atomContainer, type03)) return type03;
+                if (isAcceptable(atom, table, type03)) return type03;
             }
         } else if ((atom.getFormalCharge() != null
                 && atom.getFormalCharge() == +2)) {
             IAtomType type = getAtomType("Mn.2plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if ((atom.getFormalCharge() != null
                 && atom.getFormalCharge() == +3)) {
             IAtomType type = getAtomType("Mn.3plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveSodium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveSodium(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 1)) {
             IAtomType type = getAtomType("Na.plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if ((atom.getFormalCharge() == CDKConstants.UNSET
                 || atom.getFormalCharge() == 0)
-                && atomContainer.getConnectedAtomsCount(atom) == 1) {
+                && table.getConnectedAtomsCount(atom) == 1) {
             IAtomType type = getAtomType("Na");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)
-                && atomContainer.getConnectedAtomsCount(atom) == 0) {
+                && table.getConnectedAtomsCount(atom) == 0) {
             IAtomType type = getAtomType("Na.neutral");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } 
         return null;
     }
     
-    private IAtomType perceiveIodine(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
-            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+    private IAtomType perceiveIodine(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
+            if (table.getConnectedBondsCount(atom) == 0) {
                 if (atom.getFormalCharge() != CDKConstants.UNSET &&
                     atom.getFormalCharge() == +1) {
                     IAtomType type = getAtomType("I.plus.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else if (atom.getFormalCharge() == CDKConstants.UNSET ||
                            atom.getFormalCharge() == 0) {
                     IAtomType type = getAtomType("I.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
-            } else if (atomContainer.getConnectedBondsCount(atom) <= 1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            } else if (table.getConnectedBondsCount(atom) <= 1) {
+                IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
                 if (maxBondOrder == IBond.Order.SINGLE) {
                     IAtomType type = getAtomType("I.plus.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             }
             return null;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET && 
                atom.getFormalCharge() != 0) {
       if (atom.getFormalCharge() == -1) {
-          if (atomContainer.getConnectedAtomsCount(atom) == 0) {
+          if (table.getConnectedAtomsCount(atom) == 0) {
               IAtomType type = getAtomType("I.minus");
-              if (isAcceptable(atom, atomContainer, type)) return type;
+              if (isAcceptable(atom, table, type)) return type;
           } else {
               IAtomType type = getAtomType("I.minus.5");
-              if (isAcceptable(atom, atomContainer, type)) return type;
+              if (isAcceptable(atom, table, type)) return type;
           }
             } else if (atom.getFormalCharge() == 1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+                IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
                 if (maxBondOrder == IBond.Order.DOUBLE) {
                     IAtomType type = getAtomType("I.plus.sp2");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else if (maxBondOrder == IBond.Order.SINGLE){
                     IAtomType type = getAtomType("I.plus.sp3");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             }
-        } else if (atomContainer.getConnectedBondsCount(atom) == 3) {
-            int doubleBondCount = countAttachedDoubleBonds(atomContainer, atom);
+        } else if (table.getConnectedBondsCount(atom) == 3) {
+            int doubleBondCount = countAttachedDoubleBonds(table, atom);
             if (doubleBondCount == 2) {
                 IAtomType type = getAtomType("I.5");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (atom.getFormalCharge() != CDKConstants.UNSET
                     && atom.getFormalCharge() == 0) {
                 IAtomType type = getAtomType("I.sp3d2.3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
-        } else if (atomContainer.getConnectedBondsCount(atom) == 2) {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+        } else if (table.getConnectedBondsCount(atom) == 2) {
+            IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
             if (maxBondOrder == IBond.Order.DOUBLE) {
                 IAtomType type = getAtomType("I.3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
-        } else if (atomContainer.getConnectedBondsCount(atom) == 1 ||
-                atomContainer.getConnectedBondsCount(atom) == 0) {
+        } else if (table.getConnectedBondsCount(atom) == 1 ||
+                table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("I");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveRuthenium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveRuthenium(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0) {
             IAtomType type = getAtomType("Ru.6");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == -2) {
             IAtomType type = getAtomType("Ru.2minus.6");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == -3) {
             IAtomType type = getAtomType("Ru.3minus.6");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceivePotassium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceivePotassium(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                 atom.getFormalCharge() == +1)) {
             IAtomType type = getAtomType("K.plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() == CDKConstants.UNSET
                 || atom.getFormalCharge() == 0) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 1) {
                 IAtomType type = getAtomType("K.neutral");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
             IAtomType type = getAtomType("K.metallic");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceivePlutonium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (atom.getFormalCharge() == 0 && atomContainer.getConnectedBondsCount(atom) == 0) {
+    private IAtomType perceivePlutonium(ConnectionTable table, IAtom atom) throws CDKException {
+        if (atom.getFormalCharge() == 0 && table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("Pu");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveCadmium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveCadmium(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == +2)) {
             IAtomType type = getAtomType("Cd.2plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
-            if (atomContainer.getConnectedAtomsCount(atom) == 0) {
+            if (table.getConnectedAtomsCount(atom) == 0) {
                 IAtomType type = getAtomType("Cd.metallic");
-                if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedAtomsCount(atom) == 2) {
+                if (isAcceptable(atom, table, type)) return type;
+            } else if (table.getConnectedAtomsCount(atom) == 2) {
                 IAtomType type = getAtomType("Cd.2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
         return null;
     }
     
-    private IAtomType perceiveIndium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (atom.getFormalCharge() == 0 && atomContainer.getConnectedBondsCount(atom) == 3) {
+    private IAtomType perceiveIndium(ConnectionTable table, IAtom atom) throws CDKException {
+        if (atom.getFormalCharge() == 0 && table.getConnectedBondsCount(atom) == 3) {
             IAtomType type = getAtomType("In.3");
-            if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atom.getFormalCharge() == 3 && atomContainer.getConnectedBondsCount(atom) == 0) {
+            if (isAcceptable(atom, table, type)) return type;
+        } else if (atom.getFormalCharge() == 3 && table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("In.3plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atom.getFormalCharge() == 0 && atomContainer.getConnectedBondsCount(atom) == 1) {
+            if (isAcceptable(atom, table, type)) return type;
+        } else if (atom.getFormalCharge() == 0 && table.getConnectedBondsCount(atom) == 1) {
             IAtomType type = getAtomType("In.1");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else {
             IAtomType type = getAtomType("In");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveChlorine(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
-            if (atomContainer.getConnectedBondsCount(atom) > 1) {
+    private IAtomType perceiveChlorine(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
+            if (table.getConnectedBondsCount(atom) > 1) {
                 if (atom.getFormalCharge() != CDKConstants.UNSET
                         && atom.getFormalCharge() == +1) {
                     IAtomType type = getAtomType("Cl.plus.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
-            } else if (atomContainer.getConnectedBondsCount(atom) == 1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            } else if (table.getConnectedBondsCount(atom) == 1) {
+                IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
                 if (maxBondOrder == IBond.Order.SINGLE) {
                     IAtomType type = getAtomType("Cl.plus.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
-            } else if (atomContainer.getConnectedBondsCount(atom) == 0
+            } else if (table.getConnectedBondsCount(atom) == 0
                     && (atom.getFormalCharge() == CDKConstants.UNSET
                     || atom.getFormalCharge() == 0)) {
                 IAtomType type = getAtomType("Cl.radical");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if (atom.getFormalCharge() == CDKConstants.UNSET
                 || atom.getFormalCharge() == 0) {
-            int neighborcount = atomContainer.getConnectedBondsCount(atom);
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            int neighborcount = table.getConnectedBondsCount(atom);
+            IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
 
             if (maxBondOrder == IBond.Order.DOUBLE) {
-                int neighbor = atomContainer.getConnectedAtomsCount(atom);
+                int neighbor = table.getConnectedAtomsCount(atom);
                 if (neighbor == 2) {
                     IAtomType type = getAtomType("Cl.2");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else if (neighbor == 3) {
                     IAtomType type = getAtomType("Cl.chlorate");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else if (neighbor == 4) {
                     IAtomType type = getAtomType("Cl.perchlorate");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             } else if (neighborcount <= 1) {
                 IAtomType type = getAtomType("Cl");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == -1)) {
             IAtomType type = getAtomType("Cl.minus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET && atom.getFormalCharge() == 1) {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
             if (maxBondOrder == IBond.Order.DOUBLE) {
                 IAtomType type = getAtomType("Cl.plus.sp2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (maxBondOrder == IBond.Order.SINGLE) {
                 IAtomType type = getAtomType("Cl.plus.sp3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
-                && atom.getFormalCharge() == +3) && atomContainer.getConnectedBondsCount(atom) == 4) {
+                && atom.getFormalCharge() == +3) && table.getConnectedBondsCount(atom) == 4) {
             IAtomType type = getAtomType("Cl.perchlorate.charged");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else {
-            int doubleBonds = countAttachedDoubleBonds(atomContainer, atom);
-            if (atomContainer.getConnectedBondsCount(atom) == 3
+            int doubleBonds = countAttachedDoubleBonds(table, atom);
+            if (table.getConnectedBondsCount(atom) == 3
                     && doubleBonds == 2) {
                 IAtomType type = getAtomType("Cl.chlorate");
-                if (isAcceptable(atom, atomContainer, type)) return type;
-            } else if (atomContainer.getConnectedBondsCount(atom) == 4
+                if (isAcceptable(atom, table, type)) return type;
+            } else if (table.getConnectedBondsCount(atom) == 4
                     && doubleBonds == 3) {
                 IAtomType type = getAtomType("Cl.perchlorate");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
         return null;
     }
     
-    private IAtomType perceiveSilver(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveSilver(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 1) {
                 IAtomType type = getAtomType("Ag.1");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
             IAtomType type = getAtomType("Ag.neutral");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 1)) {
             IAtomType type = getAtomType("Ag.plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveGold(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveGold(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             return null;
         }
-        int neighbors = atomContainer.getConnectedAtomsCount(atom);
+        int neighbors = table.getConnectedAtomsCount(atom);
         if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0) && neighbors == 1) {
             IAtomType type = getAtomType("Au.1");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveRadium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveRadium(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)) {
             IAtomType type = getAtomType("Ra.neutral");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveCalcium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveCalcium(ConnectionTable table, IAtom atom) throws CDKException {
         if ("Ca".equals(atom.getSymbol())) {
-            if (hasOneSingleElectron(atomContainer, atom)) {
+            if (hasOneSingleElectron(table, atom)) {
                 // no idea how to deal with this yet
                 return null;
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET
-                    && atom.getFormalCharge() == 2 && atomContainer.getConnectedAtomsCount(atom) == 0)) {
+                    && atom.getFormalCharge() == 2 && table.getConnectedAtomsCount(atom) == 0)) {
                 IAtomType type = getAtomType("Ca.2plus");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET
-                    && atom.getFormalCharge() == 0 && atomContainer.getConnectedAtomsCount(atom) == 2)) {
+                    && atom.getFormalCharge() == 0 && table.getConnectedAtomsCount(atom) == 2)) {
                 IAtomType type = getAtomType("Ca.2");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             } else if ((atom.getFormalCharge() != CDKConstants.UNSET
-                    && atom.getFormalCharge() == 0 && atomContainer.getConnectedAtomsCount(atom) == 1)) {
+                    && atom.getFormalCharge() == 0 && table.getConnectedAtomsCount(atom) == 1)) {
                 IAtomType type = getAtomType("Ca.1");
-                if (isAcceptable(atom, atomContainer, type)) {
+                if (isAcceptable(atom, table, type)) {
                     return type;
                 }
             }
@@ -2240,295 +2363,295 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
         return null;
     }
     
-    private IAtomType perceivePlatinum(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceivePlatinum(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                 atom.getFormalCharge() == +2)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 4) {
                 IAtomType type = getAtomType("Pt.2plus.4");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else {
                 IAtomType type = getAtomType("Pt.2plus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
                 atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 2) {
                 IAtomType type = getAtomType("Pt.2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 4) {
                 IAtomType type = getAtomType("Pt.4");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 6) {
                 IAtomType type = getAtomType("Pt.6");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
         return null;
     }
     
-    private IAtomType perceiveAntimony(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveAntimony(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                     atom.getFormalCharge() == 0 &&
-                    atomContainer.getConnectedBondsCount(atom) == 3)) {
+                    table.getConnectedBondsCount(atom) == 3)) {
             IAtomType type = getAtomType("Sb.3");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET && 
                     atom.getFormalCharge() == 0 &&
-                    atomContainer.getConnectedBondsCount(atom) == 4)) {
+                    table.getConnectedBondsCount(atom) == 4)) {
             IAtomType type = getAtomType("Sb.4");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveGadolinum(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveGadolinum(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET &&
             atom.getFormalCharge() == +3 &&
-            atomContainer.getConnectedBondsCount(atom) == 0) {
+            table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("Gd.3plus");
-            if (isAcceptable(atom, atomContainer, type)) {
+            if (isAcceptable(atom, table, type)) {
                 return type;
             }
         }
         return null;
     }
 
-    private IAtomType perceiveMagnesium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveMagnesium(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                     atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 4) {
                 IAtomType type = getAtomType("Mg.neutral");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 2) {
                 IAtomType type = getAtomType("Mg.neutral.2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 1) {
                 IAtomType type = getAtomType("Mg.neutral.1");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else {
                 IAtomType type = getAtomType("Mg.neutral");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                 atom.getFormalCharge() == +2)) {
             IAtomType type = getAtomType("Mg.2plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveThallium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveThallium(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET &&
             atom.getFormalCharge() == +1 &&
-            atomContainer.getConnectedBondsCount(atom) == 0) {
+            table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("Tl.plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET &&
                    atom.getFormalCharge() == 0 &&
-                   atomContainer.getConnectedBondsCount(atom) == 0) {
+                   table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("Tl");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET &&
                    atom.getFormalCharge() == 0 &&
-                   atomContainer.getConnectedBondsCount(atom) == 1) {
+                   table.getConnectedBondsCount(atom) == 1) {
             IAtomType type = getAtomType("Tl.1");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveLead(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveLead(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET &&
             atom.getFormalCharge() == 0 &&
-            atomContainer.getConnectedBondsCount(atom) == 0) {
+            table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("Pb.neutral");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET &&
                    atom.getFormalCharge() == 2 &&
-                   atomContainer.getConnectedBondsCount(atom) == 0) {
+                   table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("Pb.2plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET &&
                    atom.getFormalCharge() == 0 &&
-                   atomContainer.getConnectedBondsCount(atom) == 1) {
+                   table.getConnectedBondsCount(atom) == 1) {
             IAtomType type = getAtomType("Pb.1");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveStrontium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveStrontium(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 2)) {
             IAtomType type = getAtomType("Sr.2plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveTitanium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveTitanium(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET &&
             atom.getFormalCharge() == -3 &&
-            atomContainer.getConnectedBondsCount(atom) == 6) {
+            table.getConnectedBondsCount(atom) == 6) {
             IAtomType type = getAtomType("Ti.3minus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
                     atom.getFormalCharge() == 0) &&
-                   atomContainer.getConnectedBondsCount(atom) == 4) {
+                   table.getConnectedBondsCount(atom) == 4) {
             IAtomType type = getAtomType("Ti.sp3");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == 0)
-                && atomContainer.getConnectedBondsCount(atom) == 2) {
+                && table.getConnectedBondsCount(atom) == 2) {
             IAtomType type = getAtomType("Ti.2");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveVanadium(IAtomContainer atomContainer, IAtom atom) throws CDKException {
+    private IAtomType perceiveVanadium(ConnectionTable table, IAtom atom) throws CDKException {
         if (atom.getFormalCharge() != CDKConstants.UNSET &&
                 atom.getFormalCharge() == -3 &&
-                atomContainer.getConnectedBondsCount(atom) == 6) {
+                table.getConnectedBondsCount(atom) == 6) {
             IAtomType type = getAtomType("V.3minus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() != CDKConstants.UNSET
                 && atom.getFormalCharge() == -3
-                && atomContainer.getConnectedBondsCount(atom) == 4) {
+                && table.getConnectedBondsCount(atom) == 4) {
             IAtomType type = getAtomType("V.3minus.4");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private IAtomType perceiveBromine(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
-            if (atomContainer.getConnectedBondsCount(atom) == 0) {
+    private IAtomType perceiveBromine(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
+            if (table.getConnectedBondsCount(atom) == 0) {
                 if (atom.getFormalCharge() != CDKConstants.UNSET &&
                         atom.getFormalCharge() == +1) {
                     IAtomType type = getAtomType("Br.plus.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 } else if (atom.getFormalCharge() == CDKConstants.UNSET ||
                         atom.getFormalCharge() == 0) {
                     IAtomType type = getAtomType("Br.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
-            } else if (atomContainer.getConnectedBondsCount(atom) <= 1) {
-                IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            } else if (table.getConnectedBondsCount(atom) <= 1) {
+                IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
                 if (maxBondOrder == IBond.Order.SINGLE) {
                     IAtomType type = getAtomType("Br.plus.radical");
-                    if (isAcceptable(atom, atomContainer, type)) return type;
+                    if (isAcceptable(atom, table, type)) return type;
                 }
             }
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                 atom.getFormalCharge() == -1)) {
             IAtomType type = getAtomType("Br.minus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if (atom.getFormalCharge() == 1) {
-            IBond.Order maxBondOrder = atomContainer.getMaximumBondOrder(atom);
+            IBond.Order maxBondOrder = table.getMaximumBondOrder(atom);
             if (maxBondOrder == IBond.Order.DOUBLE) {
                 IAtomType type = getAtomType("Br.plus.sp2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }else if (maxBondOrder == IBond.Order.SINGLE){
                 IAtomType type = getAtomType("Br.plus.sp3");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
-        } else if (atomContainer.getConnectedBondsCount(atom) == 1 ||
-                atomContainer.getConnectedBondsCount(atom) == 0) {
+        } else if (table.getConnectedBondsCount(atom) == 1 ||
+                table.getConnectedBondsCount(atom) == 0) {
             IAtomType type = getAtomType("Br");
-            if (isAcceptable(atom, atomContainer, type)) return type;
-        } else if (atomContainer.getConnectedBondsCount(atom) == 3) {
+            if (isAcceptable(atom, table, type)) return type;
+        } else if (table.getConnectedBondsCount(atom) == 3) {
             IAtomType type = getAtomType("Br.3");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         }
         return null;
     }
     
-    private int countAttachedDoubleBonds(IAtomContainer container, IAtom atom, String symbol) {
-        return countAttachedBonds(container, atom, IBond.Order.DOUBLE, symbol);
+    private int countAttachedDoubleBonds(ConnectionTable table, IAtom atom, String symbol) {
+        return countAttachedBonds(table, atom, IBond.Order.DOUBLE, symbol);
     }
     
-    private IAtomType perceiveCobalt(IAtomContainer atomContainer, IAtom atom) throws CDKException {
-        if (hasOneSingleElectron(atomContainer, atom)) {
+    private IAtomType perceiveCobalt(ConnectionTable table, IAtom atom) throws CDKException {
+        if (hasOneSingleElectron(table, atom)) {
             // no idea how to deal with this yet
             return null;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                 atom.getFormalCharge() == +2)) {
             IAtomType type = getAtomType("Co.2plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if ((atom.getFormalCharge() != CDKConstants.UNSET &&
                 atom.getFormalCharge() == +3)) {
             IAtomType type = getAtomType("Co.3plus");
-            if (isAcceptable(atom, atomContainer, type)) return type;
+            if (isAcceptable(atom, table, type)) return type;
         } else if ((atom.getFormalCharge() == CDKConstants.UNSET ||
                 atom.getFormalCharge() == 0)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 2) {
                 IAtomType type = getAtomType("Co.2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 4) {
                 IAtomType type = getAtomType("Co.4");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 6) {
                 IAtomType type = getAtomType("Co.6");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 1) {
                 IAtomType type = getAtomType("Co.1");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else {
                 IAtomType type = getAtomType("Co.metallic");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         } else if ((atom.getFormalCharge() != null
                 && atom.getFormalCharge() == +1)) {
-            int neighbors = atomContainer.getConnectedAtomsCount(atom);
+            int neighbors = table.getConnectedAtomsCount(atom);
             if (neighbors == 2) {
                 IAtomType type = getAtomType("Co.plus.2");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 4) {
                 IAtomType type = getAtomType("Co.plus.4");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 1) {
                 IAtomType type = getAtomType("Co.plus.1");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 6) {
                 IAtomType type = getAtomType("Co.plus.6");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else if (neighbors == 5) {
                 IAtomType type = getAtomType("Co.plus.5");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             } else {
                 IAtomType type = getAtomType("Co.plus");
-                if (isAcceptable(atom, atomContainer, type)) return type;
+                if (isAcceptable(atom, table, type)) return type;
             }
         }
         return null;
     }
 
-    private int countAttachedDoubleBonds(IAtomContainer container, IAtom atom) {
-    	return countAttachedBonds(container, atom, IBond.Order.DOUBLE, null);
+    private int countAttachedDoubleBonds(ConnectionTable table, IAtom atom) {
+    	return countAttachedBonds(table, atom, IBond.Order.DOUBLE, null);
     }
     
-    private int countAttachedSingleBonds(IAtomContainer atomContainer, IAtom atom) {
-        return countAttachedBonds(atomContainer, atom, IBond.Order.SINGLE, null);
+    private int countAttachedSingleBonds(ConnectionTable table, IAtom atom) {
+        return countAttachedBonds(table, atom, IBond.Order.SINGLE, null);
     }
 
-    private boolean hasAromaticBond(IAtomContainer container, IAtom atom) {
-        List<IBond> neighbors = container.getConnectedBondsList(atom);
+    private boolean hasAromaticBond(ConnectionTable table, IAtom atom) {
+        List<IBond> neighbors = table.getConnectedBondsList(atom);
         for (IBond bond : neighbors) {
             if (bond.getFlag(CDKConstants.ISAROMATIC)) return true;
         }
@@ -2538,16 +2661,16 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     /**
      * Count the number of doubly bonded atoms.
      *
-     * @param container the molecule in which to look
+     * @param table the connections of the molecule in which to look
      * @param atom the atom being looked at
      * @param order the desired bond order of the attached bonds 
      * @param symbol If not null, then it only counts the double bonded atoms which
      *               match the given symbol.
      * @return the number of doubly bonded atoms
      */
-    private int countAttachedBonds(IAtomContainer container, IAtom atom, IBond.Order order, String symbol) {
+    private int countAttachedBonds(ConnectionTable table, IAtom atom, IBond.Order order, String symbol) {
     	// count the number of double bonded oxygens
-    	List<IBond> neighbors = container.getConnectedBondsList(atom);
+    	List<IBond> neighbors = table.getConnectedBondsList(atom);
     	int neighborcount = neighbors.size();
     	int doubleBondedAtoms = 0;
     	for (int i=neighborcount-1;i>=0;i--) {
@@ -2578,16 +2701,16 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     	return type;
     }
     
-    private boolean isAcceptable(IAtom atom, IAtomContainer container, IAtomType type) {
+    private boolean isAcceptable(IAtom atom, ConnectionTable table, IAtomType type) {
     	if (mode == REQUIRE_EXPLICIT_HYDROGENS) {
     		// make sure no implicit hydrogens were assumed
-    		int actualContainerCount = container.getConnectedAtomsCount(atom);
+    		int actualContainerCount = table.getConnectedAtomsCount(atom);
     		int requiredContainerCount = type.getFormalNeighbourCount();
     		if (actualContainerCount != requiredContainerCount)
     			return false;
     	} else if (atom.getImplicitHydrogenCount() != CDKConstants.UNSET) {
     		// confirm correct neighbour count
-    		int connectedAtoms = container.getConnectedAtomsCount(atom);
+    		int connectedAtoms = table.getConnectedAtomsCount(atom);
     		int hCount = atom.getImplicitHydrogenCount();
     		int actualNeighbourCount =  connectedAtoms + hCount;
     		int requiredNeighbourCount = type.getFormalNeighbourCount();
@@ -2598,7 +2721,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     	// confirm correct bond orders
         IBond.Order typeOrder = type.getMaxBondOrder(); 
     	if (typeOrder != null) {
-    		for (IBond bond : container.getConnectedBondsList(atom)) {
+    		for (IBond bond : table.getConnectedBondsList(atom)) {
     			IBond.Order order = bond.getOrder();
     			if (order != CDKConstants.UNSET && order != IBond.Order.UNSET) {
     				if (BondManipulator.isHigherOrder(order, typeOrder)) return false;
@@ -2612,7 +2735,7 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     	}
     		
     	// confirm correct valency
-    	if (type.getValency() != CDKConstants.UNSET && container.getBondOrderSum(atom) > type.getValency())
+    	if (type.getValency() != CDKConstants.UNSET && table.getBondOrderSum(atom) > type.getValency())
     		return false;
 
     	// confirm correct formal charge
@@ -2626,6 +2749,311 @@ public class CDKAtomTypeMatcher implements IAtomTypeMatcher {
     private boolean isHueckelNumber(int electronCount) {
         return (electronCount % 4 == 2) && (electronCount >= 2);
     }
-    
-}
 
+    /**
+     * The connections of the atoms of a container, as the perceive methods
+     * ask for them. Neighbours and bonds come from the
+     * {@link AdjacencyList} of the container, so each lookup takes time
+     * proportional to the degree of the atom. A table for the whole
+     * container also has the bond order sums, maximum bond orders and
+     * single electron counts of all atoms, filled in one pass over the
+     * bonds and single electrons, and finds the ring atoms once. Bond
+     * orders are read when the table is made; it is used for one call only.
+     */
+    private static final class ConnectionTable {
+
+        /** The bit of the atom word of an environment set for ring atoms. */
+        static final long RING_ATOM = 1L << 29;
+
+        private final IAtomContainer container;
+        private final AdjacencyList adjacency;
+        private final double[] bondOrderSums;
+        private final IBond.Order[] maxBondOrders;
+        private final int[] singleElectronCounts;
+        private SpanningTree spanningTree;
+        private boolean[] ringAtoms;
+        private boolean[] cyclicAtoms;
+
+        ConnectionTable(IAtomContainer container, boolean complete) {
+            this.container = container;
+            this.adjacency = AdjacencyList.getAdjacencyList(container);
+            if (!complete) {
+                bondOrderSums = null;
+                maxBondOrders = null;
+                singleElectronCounts = null;
+                return;
+            }
+            int atomCount = adjacency.getAtomCount();
+            bondOrderSums = new double[atomCount];
+            maxBondOrders = new IBond.Order[atomCount];
+            singleElectronCounts = new int[atomCount];
+            for (int i = 0; i < atomCount; i++) {
+                IBond.Order max = IBond.Order.SINGLE;
+                double sum = 0;
+                for (int edge : adjacency.getEdges(i)) {
+                    IBond.Order order = adjacency.getBond(edge).getOrder();
+                    if (order == null) continue;
+                    sum += order.numeric();
+                    if (order.numeric() > max.numeric()) max = order;
+                }
+                bondOrderSums[i] = sum;
+                maxBondOrders[i] = max;
+            }
+            for (ISingleElectron singleElectron : container.singleElectrons()) {
+                int index = adjacency.indexOf(singleElectron.getAtom());
+                if (index >= 0) singleElectronCounts[index]++;
+            }
+        }
+
+        int getConnectedAtomsCount(IAtom atom) {
+            int index = adjacency.indexOf(atom);
+            return index < 0 ? 0 : adjacency.getDegree(index);
+        }
+
+        int getConnectedBondsCount(IAtom atom) {
+            return getConnectedAtomsCount(atom);
+        }
+
+        List<IAtom> getConnectedAtomsList(IAtom atom) {
+            int index = adjacency.indexOf(atom);
+            if (index < 0) return new ArrayList<IAtom>(0);
+            int[] neighbours = adjacency.getNeighbours(index);
+            List<IAtom> atoms = new ArrayList<IAtom>(neighbours.length);
+            for (int neighbour : neighbours) atoms.add(adjacency.getAtom(neighbour));
+            return atoms;
+        }
+
+        List<IBond> getConnectedBondsList(IAtom atom) {
+            int index = adjacency.indexOf(atom);
+            if (index < 0) return new ArrayList<IBond>(0);
+            int[] edges = adjacency.getEdges(index);
+            List<IBond> bonds = new ArrayList<IBond>(edges.length);
+            for (int edge : edges) bonds.add(adjacency.getBond(edge));
+            return bonds;
+        }
+
+        IBond getBond(IAtom atom1, IAtom atom2) {
+            int index1 = adjacency.indexOf(atom1), index2 = adjacency.indexOf(atom2);
+            if (index1 < 0 || index2 < 0) return null;
+            int edge = adjacency.getBondIndex(index1, index2);
+            return edge < 0 ? null : adjacency.getBond(edge);
+        }
+
+        double getBondOrderSum(IAtom atom) {
+            int index = adjacency.indexOf(atom);
+            if (index < 0) return 0;
+            if (bondOrderSums != null) return bondOrderSums[index];
+            double sum = 0;
+            for (int edge : adjacency.getEdges(index)) {
+                IBond.Order order = adjacency.getBond(edge).getOrder();
+                if (order != null) sum += order.numeric();
+            }
+            return sum;
+        }
+
+        IBond.Order getMaximumBondOrder(IAtom atom) {
+            int index = adjacency.indexOf(atom);
+            if (index < 0) return IBond.Order.SINGLE;
+            if (maxBondOrders != null) return maxBondOrders[index];
+            IBond.Order max = IBond.Order.SINGLE;
+            for (int edge : adjacency.getEdges(index)) {
+                IBond.Order order = adjacency.getBond(edge).getOrder();
+                if (order != null && order.numeric() > max.numeric()) max = order;
+            }
+            return max;
+        }
+
+        int countSingleElectrons(IAtom atom) {
+            if (singleElectronCounts != null) {
+                int index = adjacency.indexOf(atom);
+                return index < 0 ? 0 : singleElectronCounts[index];
+            }
+            int count = 0;
+            for (ISingleElectron singleElectron : container.singleElectrons()) {
+                if (singleElectron.contains(atom)) count++;
+            }
+            return count;
+        }
+
+        SpanningTree getSpanningTree() {
+            if (spanningTree == null) spanningTree = new SpanningTree(container);
+            return spanningTree;
+        }
+
+        boolean isRingAtom(IAtom atom) {
+            if (ringAtoms == null) {
+                ringAtoms = new boolean[adjacency.getAtomCount()];
+                for (IAtom ringAtom : getSpanningTree().getCyclicFragmentsContainer().atoms()) {
+                    int index = adjacency.indexOf(ringAtom);
+                    if (index >= 0) ringAtoms[index] = true;
+                }
+            }
+            int index = adjacency.indexOf(atom);
+            return index >= 0 && ringAtoms[index];
+        }
+
+        /**
+         * Encodes the environment of an atom, as far as the perception
+         * depends on it, in one word for the atom and one for each bond,
+         * the bonds sorted. Returns null for atoms the encoding cannot
+         * describe: unknown elements, out of range charges or hydrogen
+         * counts, and atoms of containers with bonds not between two atoms.
+         */
+        long[] getEnvironment(IAtom atom) {
+            int index = adjacency.indexOf(atom);
+            if (index < 0 || adjacency.getEdgeCount() != adjacency.getBondCount()) return null;
+            int element = atomicNumber(atom);
+            if (element == 0) return null;
+            Integer charge = atom.getFormalCharge();
+            Integer hydrogens = atom.getImplicitHydrogenCount();
+            if (charge != null && (charge < -127 || charge > 127)) return null;
+            if (hydrogens != null && (hydrogens < 0 || hydrogens > 62)) return null;
+            Hybridization hybridization = atom.getHybridization();
+            int[] neighbours = adjacency.getNeighbours(index);
+            int[] edges = adjacency.getEdges(index);
+
+            long word = element;
+            word |= (long) (charge == null ? 0 : charge + 128) << 7;
+            word |= (long) (hydrogens == null ? 0 : hydrogens + 1) << 15;
+            word |= (long) (hybridization == null ? 0 : hybridization.ordinal() + 1) << 21;
+            word |= (atom.getFlag(CDKConstants.ISAROMATIC) ? 1L : 0L) << 25;
+            word |= (long) Math.min(countSingleElectrons(atom), 7) << 26;
+            // only C, N, O and S are typed by ring membership
+            if (neighbours.length > 1 && (element == 6 || element == 7 || element == 8 || element == 16))
+                word |= isCyclic(index) ? RING_ATOM : 0L;
+
+            long[] words = new long[1 + neighbours.length];
+            words[0] = word;
+            for (int k = 0; k < neighbours.length; k++) {
+                IBond bond = adjacency.getBond(edges[k]);
+                IAtom neighbour = adjacency.getAtom(neighbours[k]);
+                word = order(bond.getOrder());
+                word |= (bond.getFlag(CDKConstants.ISAROMATIC) ? 1L : 0L) << 3;
+                word |= (bond.getFlag(CDKConstants.SINGLE_OR_DOUBLE) ? 1L : 0L) << 4;
+                word |= (long) atomicNumber(neighbour) << 5;
+                Integer neighbourCharge = neighbour.getFormalCharge();
+                word |= (neighbourCharge != null && neighbourCharge == -1 ? 1L : 0L) << 12;
+                word |= (neighbour.getHybridization() == Hybridization.SP2 ? 1L : 0L) << 13;
+                // the second sphere: double bonds, oxygens and aromatic hetero atoms
+                int doubleBonds = 0, doubleOxygens = 0, doubleSulphurs = 0;
+                int oxygens = 0, singleNegativeOxygens = 0;
+                boolean aromaticHetero = false;
+                int[] nextNeighbours = adjacency.getNeighbours(neighbours[k]);
+                int[] nextEdges = adjacency.getEdges(neighbours[k]);
+                for (int l = 0; l < nextNeighbours.length; l++) {
+                    IBond nextBond = adjacency.getBond(nextEdges[l]);
+                    IAtom next = adjacency.getAtom(nextNeighbours[l]);
+                    int nextElement = atomicNumber(next);
+                    IBond.Order order = nextBond.getOrder();
+                    if (order == IBond.Order.DOUBLE) {
+                        doubleBonds++;
+                        if (nextElement == 8) doubleOxygens++;
+                        else if (nextElement == 16) doubleSulphurs++;
+                    }
+                    if (nextElement == 8) {
+                        oxygens++;
+                        Integer nextCharge = next.getFormalCharge();
+                        if (order == IBond.Order.SINGLE && nextCharge != null && nextCharge == -1)
+                            singleNegativeOxygens++;
+                    }
+                    if (next != atom && nextElement != 6 && nextBond.getFlag(CDKConstants.ISAROMATIC))
+                        aromaticHetero = true;
+                }
+                word |= (long) Math.min(doubleBonds, 15) << 14;
+                word |= (long) Math.min(doubleOxygens, 7) << 18;
+                word |= (long) Math.min(doubleSulphurs, 7) << 21;
+                word |= (long) Math.min(oxygens, 7) << 24;
+                word |= (long) Math.min(singleNegativeOxygens, 7) << 27;
+                word |= (aromaticHetero ? 1L : 0L) << 30;
+                words[1 + k] = word;
+            }
+            Arrays.sort(words, 1, words.length);
+            return words;
+        }
+
+        /**
+         * Whether the atom is in a ring, like {@link #isRingAtom(IAtom)},
+         * but found from the bridges of the adjacency list. Unlike the
+         * {@link SpanningTree} this does not change the atoms, so the
+         * environment of an atom can be encoded without side effects.
+         */
+        private boolean isCyclic(int index) {
+            if (cyclicAtoms == null) {
+                int atomCount = adjacency.getAtomCount();
+                boolean[] cyclic = new boolean[atomCount];
+                int[] discovered = new int[atomCount];
+                int[] low = new int[atomCount];
+                int[] parentEdge = new int[atomCount];
+                int[] next = new int[atomCount];
+                int[] stack = new int[atomCount];
+                int time = 0;
+                for (int root = 0; root < atomCount; root++) {
+                    if (discovered[root] != 0) continue;
+                    int top = 0;
+                    stack[0] = root;
+                    parentEdge[root] = -1;
+                    discovered[root] = low[root] = ++time;
+                    while (top >= 0) {
+                        int u = stack[top];
+                        int[] neighbours = adjacency.getNeighbours(u);
+                        int[] edges = adjacency.getEdges(u);
+                        if (next[u] < neighbours.length) {
+                            int k = next[u]++;
+                            int v = neighbours[k];
+                            if (edges[k] == parentEdge[u]) continue;
+                            if (discovered[v] == 0) {
+                                parentEdge[v] = edges[k];
+                                discovered[v] = low[v] = ++time;
+                                stack[++top] = v;
+                            } else {
+                                // a back edge closes a ring
+                                low[u] = Math.min(low[u], discovered[v]);
+                                cyclic[u] = cyclic[v] = true;
+                            }
+                        } else if (--top >= 0) {
+                            int parent = stack[top];
+                            low[parent] = Math.min(low[parent], low[u]);
+                            // a tree edge which is not a bridge
+                            if (low[u] <= discovered[parent]) cyclic[u] = cyclic[parent] = true;
+                        }
+                    }
+                }
+                cyclicAtoms = cyclic;
+            }
+            return cyclicAtoms[index];
+        }
+
+        private static int atomicNumber(IAtom atom) {
+            Integer atomicNumber = ATOMIC_NUMBERS.get(atom.getSymbol());
+            return atomicNumber == null ? 0 : atomicNumber;
+        }
+
+        private static long order(IBond.Order order) {
+            return order == null ? 0 : order.ordinal() + 1;
+        }
+    }
+
+    /**
+     * The encoded environment of an atom, the key of the atom type cache.
+     */
+    private static final class AtomEnvironment {
+
+        private final long[] words;
+        private final int hashCode;
+
+        AtomEnvironment(long[] words) {
+            this.words = words;
+            this.hashCode = Arrays.hashCode(words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof AtomEnvironment && Arrays.equals(words, ((AtomEnvironment) object).words);
+        }
+    }
+}
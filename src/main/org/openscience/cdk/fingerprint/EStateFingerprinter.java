@@ -79,7 +79,7 @@ public class EStateFingerprinter implements IFingerprinter {
         SMARTSQueryTool sqt = new SMARTSQueryTool("C");
         for (int i = 0; i < PATTERNS.length; i++) {
             sqt.setSmarts(PATTERNS[i]);
-            boolean status = sqt.matches(atomContainer);
+            boolean status = sqt.hasMatch(atomContainer);
             if (status) fingerPrint.set(i, true);
         }
         return new BitSetFingerprint(fingerPrint);
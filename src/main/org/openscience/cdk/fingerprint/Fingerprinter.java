@@ -29,7 +29,6 @@ import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.graph.PathTools;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
@@ -40,13 +39,9 @@ import org.openscience.cdk.tools.LoggingToolFactory;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 import org.openscience.cdk.tools.periodictable.PeriodicTable;
 
-import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  *  Generates a fingerprint for a given AtomContainer. Fingerprints are
@@ -104,6 +99,7 @@ public class Fingerprinter implements IFingerprinter {
 	
 	private int size;
 	private int searchDepth;
+	private boolean fastHashing;
 
 	static int debugCounter = 0;
 
@@ -145,10 +141,28 @@ public class Fingerprinter implements IFingerprinter {
 	 * @param  searchDepth The desired depth of search
 	 */
 	public Fingerprinter(int size, int searchDepth) {
+		this(size, searchDepth, false);
+    }
+
+	/**
+	 * Constructs a fingerprint generator that creates fingerprints of
+	 * the given size, using a generation algorithm with the given search
+	 * depth. With fast hashing the paths are hashed directly from the atom
+	 * and bond labels, which is faster but sets different bits than the
+	 * default path string hashing. Fingerprints created with and without
+	 * fast hashing must therefore not be compared with each other.
+	 *
+	 * @param  size        The desired size of the fingerprint
+	 * @param  searchDepth The desired depth of search
+	 * @param  fastHashing Whether paths are hashed with rolling hashes
+	 *                     instead of path string hashes
+	 */
+	@TestMethod("testFingerprinter_int_int_boolean")
+	public Fingerprinter(int size, int searchDepth, boolean fastHashing) {
 		this.size = size;
 		this.searchDepth = searchDepth;
-
-    }
+		this.fastHashing = fastHashing;
+	}
 
     /**
      * Generates a fingerprint of the default size for the given AtomContainer.
@@ -177,10 +191,18 @@ public class Fingerprinter implements IFingerprinter {
 		logger.debug("Finished Aromaticity Detection");
 		BitSet bitSet = new BitSet(size);
 
-        int[] hashes = findPathes(container, searchDepth);
-        for (int hash : hashes) {
-            position = new java.util.Random(hash).nextInt(size);
-            bitSet.set(position);
+        if (fastHashing) {
+            int[] hashes = createPathHasher(container, searchDepth).fastHashes();
+            for (int hash : hashes) {
+                position = PathHasher.mixedPosition(hash, size);
+                bitSet.set(position);
+            }
+        } else {
+            int[] hashes = findPathes(container, searchDepth);
+            for (int hash : hashes) {
+                position = PathHasher.randomPosition(hash, size);
+                bitSet.set(position);
+            }
         }
 
         return new BitSetFingerprint(bitSet);
@@ -211,78 +233,40 @@ public class Fingerprinter implements IFingerprinter {
      *
      * @param container The molecule to search
      * @param searchDepth The maximum path length desired
-     * @return A Map of path strings, keyed on themselves
+     * @return The hashes of the unique path strings
      */
     protected int[] findPathes(IAtomContainer container, int searchDepth) {
+        return createPathHasher(container, searchDepth).hashes();
+    }
 
-        List<StringBuffer> allPaths = new ArrayList<StringBuffer>();
-
-        Map<IAtom,Map<IAtom, IBond>> cache 
-            = new HashMap<IAtom, Map<IAtom,IBond>>();
-        
-        for (IAtom startAtom : container.atoms()) {
-                List<List<IAtom>> p 
-                    = PathTools.getPathsOfLengthUpto(container, 
-                                                     startAtom, 
-                                                     searchDepth);
-                for (List<IAtom> path : p) {
-                    StringBuffer sb = new StringBuffer();
-                    IAtom x = path.get(0);
-
-                    // TODO if we ever get more than 255 elements, this will 
-                    // fail maybe we should use 0 for pseudo atoms and 
-                    // malformed symbols?
-                    if (x instanceof IPseudoAtom)
-                        sb.append((char) PeriodicTable.getElementCount() + 1);
-                    else {
-                        Integer atnum = PeriodicTable.getAtomicNumber(x.getSymbol());
-                        if (atnum != null) sb.append(convertSymbol(x.getSymbol()));
-                        else sb.append((char) 
-                                       PeriodicTable.getElementCount() + 1);
-                    }
-
-                    for (int i = 1; i < path.size(); i++) {
-                        final IAtom[] y = {path.get(i)};
-                        Map<IAtom, IBond> m = cache.get( x );
-                        final IBond[] b = { m != null ? m.get( y[0] ) : null };
-                        if ( b[0] == null ) {
-                            b[0] = container.getBond(x, y[0]);
-                            cache.put( x, 
-                                       new HashMap<IAtom, IBond>() {
-                                {put(y[0], b[0]); }
-                            } );
-                                                }
-                     sb.append(getBondSymbol(b[0]));
-                     sb.append(convertSymbol(y[0].getSymbol()));
-                     x = y[0];
-                    }
-
-                    // we store the lexicographically lower one of the
-                    // string and its reverse
-                    StringBuffer revForm = new StringBuffer(sb);
-                    revForm.reverse();
-                    if (sb.toString().compareTo(revForm.toString()) <= 0)
-                        allPaths.add(sb);
-                    else allPaths.add(revForm);
-                }
+    /**
+     * Labels the atoms and bonds of the container for path hashing. Pseudo
+     * atoms and atoms with unknown elements are labelled with one more than
+     * the number of elements when they start a path.
+     */
+    private PathHasher createPathHasher(IAtomContainer container, int searchDepth) {
+        int atomCount = container.getAtomCount();
+        String[] firstLabels = new String[atomCount];
+        String[] atomLabels = new String[atomCount];
+        for (int i = 0; i < atomCount; i++) {
+            IAtom atom = container.getAtom(i);
+            atomLabels[i] = convertSymbol(atom.getSymbol());
+            // TODO if we ever get more than 255 elements, this will
+            // fail maybe we should use 0 for pseudo atoms and
+            // malformed symbols?
+            if (atom instanceof IPseudoAtom
+                || PeriodicTable.getAtomicNumber(atom.getSymbol()) == null)
+                firstLabels[i] = Integer.toString(
+                    (char) PeriodicTable.getElementCount() + 1
+                );
+            else firstLabels[i] = atomLabels[i];
         }
-        // now lets clean stuff up
-        Set<String> cleanPath = new HashSet<String>();
-        for (StringBuffer s : allPaths) {
-            String s1 = s.toString().trim();
-            if (s1.equals("")) continue;
-            if (cleanPath.contains(s1)) continue;
-            String s2 = s.reverse().toString().trim();
-            if (cleanPath.contains(s2)) continue;
-            cleanPath.add(s2);
+        String[] bondLabels = new String[container.getBondCount()];
+        for (int j = 0; j < bondLabels.length; j++) {
+            bondLabels[j] = getBondSymbol(container.getBond(j));
         }
-
-        // convert paths to hashes
-        int[] hashes = new int[cleanPath.size()];
-        int i= 0;
-        for (String s: cleanPath) hashes[i++] = s.hashCode();
-
-        return hashes;
+        return new PathHasher(container, firstLabels, atomLabels, bondLabels,
+                              searchDepth, true);
     }
 
     private String convertSymbol(String symbol) {
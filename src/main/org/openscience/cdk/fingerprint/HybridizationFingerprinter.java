@@ -23,19 +23,13 @@
  */
 package org.openscience.cdk.fingerprint;
 
-import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.Set;
 
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.graph.PathTools;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IAtomType.Hybridization;
@@ -145,7 +139,7 @@ public class HybridizationFingerprinter implements IFingerprinter {
                 percieveAtomTypesAndConfigureUnsetProperties(clonedContainer);
             int[] hashes = findPathes(clonedContainer, searchDepth);
             for (int hash : hashes) {
-                bitSet.set(new Random(hash).nextInt(size));
+                bitSet.set(PathHasher.randomPosition(hash, size));
             }
         } catch (CloneNotSupportedException exception) {
             throw new CDKException(
@@ -164,77 +158,32 @@ public class HybridizationFingerprinter implements IFingerprinter {
      *
      * @param  container    The molecule to search
      * @param  searchDepth  The maximum path length desired
-     * @return              A Map of path strings, keyed on themselves
+     * @return              The hashes of the unique path strings
      */
     protected int[] findPathes(IAtomContainer container, int searchDepth) {
-
-        List<StringBuffer> allPaths = new ArrayList<StringBuffer>();
-
-        Map<IAtom,Map<IAtom, IBond>> cache 
-            = new HashMap<IAtom, Map<IAtom,IBond>>();
-        
-        for (IAtom startAtom : container.atoms()) {
-                List<List<IAtom>> p = PathTools.getPathsOfLengthUpto(
-                    container, startAtom, searchDepth
-                );
-                for (List<IAtom> path : p) {
-                    StringBuffer sb = new StringBuffer();
-                    IAtom x = path.get(0);
-
-                    // TODO if we ever get more than 255 elements, this will
-                    // fail maybe we should use 0 for pseudo atoms and
-                    // malformed symbols?
-                    if (x instanceof IPseudoAtom)
-                        sb.append('0');
-                    else {
-                        Integer atnum = PeriodicTable.getAtomicNumber(x.getSymbol());
-                        if (atnum != null) sb.append((char) atnum.intValue());
-                        else sb.append('0');
-                    }
-
-                    for (int i = 1; i < path.size(); i++) {
-                        final IAtom[] y = {path.get(i)};
-                        Map<IAtom, IBond> m = cache.get( x );
-                        final IBond[] b = { m != null ? m.get( y[0] ) : null };
-                        if ( b[0] == null ) {
-                            b[0] = container.getBond(x, y[0]);
-                            cache.put(
-                                x, 
-                                new HashMap<IAtom, IBond>() {
-                                  static final long serialVersionUID = 1L;
-                                  { put(y[0], b[0]); }
-                                }
-                            );
-                        }
-                        sb.append(getBondSymbol(b[0]));
-                        sb.append(convertSymbol(y[0].getSymbol()));
-                        x = y[0];
-                    }
-
-                    // we store the lexicographically lower one of the
-                    // string and its reverse
-                    StringBuffer revForm = new StringBuffer(sb);
-                    revForm.reverse();
-                    if (sb.toString().compareTo(revForm.toString()) <= 0)
-                        allPaths.add(sb);
-                    else allPaths.add(revForm);
-                }
+        int atomCount = container.getAtomCount();
+        String[] firstLabels = new String[atomCount];
+        String[] atomLabels = new String[atomCount];
+        for (int i = 0; i < atomCount; i++) {
+            IAtom atom = container.getAtom(i);
+            atomLabels[i] = convertSymbol(atom.getSymbol());
+            // TODO if we ever get more than 255 elements, this will
+            // fail maybe we should use 0 for pseudo atoms and
+            // malformed symbols?
+            if (atom instanceof IPseudoAtom)
+                firstLabels[i] = "0";
+            else {
+                Integer atnum = PeriodicTable.getAtomicNumber(atom.getSymbol());
+                if (atnum != null) firstLabels[i] = String.valueOf((char) atnum.intValue());
+                else firstLabels[i] = "0";
+            }
         }
-        // now lets clean stuff up
-        Set<String> cleanPath = new HashSet<String>();
-        for (StringBuffer s : allPaths) {
-            if (cleanPath.contains( s.toString() )) continue;
-            String s2 = s.reverse().toString();
-            if (cleanPath.contains(s2)) continue;
-            cleanPath.add(s2);
+        String[] bondLabels = new String[container.getBondCount()];
+        for (int j = 0; j < bondLabels.length; j++) {
+            bondLabels[j] = getBondSymbol(container.getBond(j));
         }
-
-        // convert paths to hashes
-        int[] hashes = new int[cleanPath.size()];
-        int i= 0;
-        for (String s: cleanPath) hashes[i++] = s.hashCode();
-
-        return hashes;
+        return new PathHasher(container, firstLabels, atomLabels, bondLabels,
+                              searchDepth, false).hashes();
     }
 
     /**
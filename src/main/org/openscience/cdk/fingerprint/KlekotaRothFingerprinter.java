@@ -9,6 +9,7 @@ package org.openscience.cdk.fingerprint;
 
 
 import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.smiles.smarts.SMARTSPatternSet;
 
 /**
  * SMARTS based substructure fingerprint based on <emph>Chemical substructures 
@@ -24,9 +25,24 @@ import org.openscience.cdk.annotations.TestClass;
 public class KlekotaRothFingerprinter extends SubstructureFingerprinter 
 {
 	
+    private static SMARTSPatternSet patterns = null;
+
     public KlekotaRothFingerprinter()
     {
-    	super( new String[] {
+    	super(getPatterns());
+    }
+
+    /**
+     * The 4860 substructures are compiled only once and shared by all
+     * instances of this fingerprinter.
+     */
+    private static synchronized SMARTSPatternSet getPatterns()
+    {
+        if (patterns == null) patterns = new SMARTSPatternSet(SMARTS);
+        return patterns;
+    }
+
+    private static final String[] SMARTS = new String[] {
 "[!#1][CH]([!#1])[!#1]",
 "[!#1][CH]([!#1])[CH]([!#1])[!#1]",
 "[!#1][CH]([!#1])[CH]([!#1])C([CH3])([CH3])[CH3]",
@@ -4887,7 +4903,6 @@ public class KlekotaRothFingerprinter extends SubstructureFingerprinter
 "SCCC=O",
 "SCCS",
 "SCCS(=O)=O"
-                                        });
-    }
+    };
 
 }
@@ -104,13 +104,11 @@ public class MACCSFingerprinter implements IFingerprinter {
             int count = keys[i].getCount();
 
             sqt.setSmarts(smarts);
-            boolean status = sqt.matches(atomContainer);
-            if (status) {
-                if (count == 0) fingerPrint.set(i, true);
-                else {
-                   List<List<Integer>> matches = sqt.getUniqueMatchingAtoms();
-                    if (matches.size() > count) fingerPrint.set(i, true);
-                }
+            if (count == 0) {
+                if (sqt.hasMatch(atomContainer)) fingerPrint.set(i, true);
+            } else if (sqt.matches(atomContainer)) {
+                List<List<Integer>> matches = sqt.getUniqueMatchingAtoms();
+                if (matches.size() > count) fingerPrint.set(i, true);
             }
         }
 
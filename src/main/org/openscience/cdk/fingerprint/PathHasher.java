@@ -0,0 +1,329 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.fingerprint;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.graph.AdjacencyList;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * Enumerates all simple paths of a molecule up to a given number of bonds and
+ * hashes them, without creating a String or List per path. The paths are
+ * walked depth first over the {@link AdjacencyList} of the molecule, with a
+ * single, reused character buffer.
+ *
+ * <p>Two kinds of hashes are supported:
+ * <ul>
+ * <li>{@link #hashes()} gives exactly the hashes of the path strings used by
+ * the {@link Fingerprinter} (the String hash code of the lexicographically
+ * larger of the path string and its reverse), so that fingerprints are bit
+ * compatible with earlier versions;</li>
+ * <li>{@link #fastHashes()} gives polynomial rolling hashes over the label
+ * hash codes, computed in both directions while walking the path. These
+ * hashes do not depend on the direction a path is walked in, but differ from
+ * the path string hashes.</li>
+ * </ul>
+ *
+ * @cdk.module standard
+ * @cdk.githash
+ * @cdk.keyword fingerprint
+ */
+@TestClass("org.openscience.cdk.fingerprint.PathHasherTest")
+final class PathHasher {
+
+    /** Multiplier of the rolling hashes (the 32 bit FNV prime). */
+    private static final int PRIME = 0x01000193;
+
+    /** Constants of the linear congruential generator in java.util.Random. */
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND     = 0xBL;
+    private static final long MASK       = (1L << 48) - 1;
+
+    private final int[][] neighbours;
+    private final int[][] neighbourBonds;
+
+    private final char[][] firstLabels;
+    private final char[][] atomLabels;
+    private final char[][] bondLabels;
+
+    private final int searchDepth;
+    private final boolean trim;
+
+    private final boolean[] visited;
+    private final char[] buffer;
+    private IntSet found;
+
+    /**
+     * Prepares the paths of the given molecule for hashing. Each path string
+     * is the label of its first atom, followed by the bond and atom labels of
+     * the remainder of the path.
+     *
+     * @param container   the molecule
+     * @param firstLabels the label of each atom when it starts a path
+     * @param atomLabels  the label of each atom elsewhere in a path
+     * @param bondLabels  the label of each bond
+     * @param searchDepth the maximum number of bonds in a path
+     * @param trim        whether leading and trailing white space is removed
+     *                    from the path strings before hashing
+     */
+    @TestMethod("testHashes")
+    PathHasher(IAtomContainer container, String[] firstLabels, String[] atomLabels,
+               String[] bondLabels, int searchDepth, boolean trim) {
+        int atomCount = container.getAtomCount();
+        this.searchDepth = searchDepth;
+        this.trim = trim;
+        this.firstLabels = toChars(firstLabels);
+        this.atomLabels = toChars(atomLabels);
+        this.bondLabels = toChars(bondLabels);
+
+        AdjacencyList adjacency = AdjacencyList.getAdjacencyList(container);
+        neighbours = adjacency.toNeighbourArray();
+        neighbourBonds = adjacency.toEdgeArray();
+
+        int maxFirst = 0, maxAtom = 0, maxBond = 0;
+        for (char[] label : this.firstLabels) maxFirst = Math.max(maxFirst, label.length);
+        for (char[] label : this.atomLabels) maxAtom = Math.max(maxAtom, label.length);
+        for (char[] label : this.bondLabels) maxBond = Math.max(maxBond, label.length);
+        int maxBonds = Math.max(Math.min(searchDepth, atomCount - 1), 0);
+        buffer = new char[maxFirst + maxBonds * (maxAtom + maxBond)];
+        visited = new boolean[atomCount];
+    }
+
+    /**
+     * Returns the distinct hashes of the path strings, as
+     * {@link String#hashCode()} of the lexicographically larger of each path
+     * string and its reverse. Empty path strings are skipped.
+     *
+     * @return the path hashes
+     */
+    @TestMethod("testHashes")
+    int[] hashes() {
+        found = new IntSet();
+        for (int start = 0; start < neighbours.length; start++) {
+            int length = append(firstLabels[start], 0);
+            visited[start] = true;
+            addPath(length);
+            walk(start, 0, length);
+            visited[start] = false;
+        }
+        return found.toArray();
+    }
+
+    /**
+     * Returns the distinct rolling hashes of the paths. Each path is hashed
+     * from both ends and the smaller value is used, so a path and its reverse
+     * get the same hash.
+     *
+     * @return the path hashes
+     */
+    @TestMethod("testFastHashes")
+    int[] fastHashes() {
+        int[] atomCodes = new int[atomLabels.length];
+        for (int i = 0; i < atomCodes.length; i++) atomCodes[i] = hashCode(atomLabels[i]);
+        int[] bondCodes = new int[bondLabels.length];
+        for (int j = 0; j < bondCodes.length; j++) bondCodes[j] = hashCode(bondLabels[j]) ^ 0x5bd1e995;
+
+        found = new IntSet();
+        for (int start = 0; start < neighbours.length; start++) {
+            int code = atomCodes[start];
+            visited[start] = true;
+            found.add(code);
+            walkFast(start, 0, code, code, PRIME, atomCodes, bondCodes);
+            visited[start] = false;
+        }
+        return found.toArray();
+    }
+
+    /**
+     * Extends the current path, which ends at the given atom and is stored in
+     * the first <i>length</i> characters of the buffer.
+     */
+    private void walk(int atom, int depth, int length) {
+        if (depth >= searchDepth) return;
+        int[] atomNeighbours = neighbours[atom];
+        for (int k = 0; k < atomNeighbours.length; k++) {
+            int neighbour = atomNeighbours[k];
+            if (visited[neighbour]) continue;
+            int extended = append(bondLabels[neighbourBonds[atom][k]], length);
+            extended = append(atomLabels[neighbour], extended);
+            visited[neighbour] = true;
+            addPath(extended);
+            walk(neighbour, depth + 1, extended);
+            visited[neighbour] = false;
+        }
+    }
+
+    /**
+     * Extends the current path, which ends at the given atom and has the
+     * given forward and backward hashes. The factor is the power of the
+     * multiplier at which the next label enters the backward hash.
+     */
+    private void walkFast(int atom, int depth, int forward, int backward, int factor,
+                          int[] atomCodes, int[] bondCodes) {
+        if (depth >= searchDepth) return;
+        int[] atomNeighbours = neighbours[atom];
+        for (int k = 0; k < atomNeighbours.length; k++) {
+            int neighbour = atomNeighbours[k];
+            if (visited[neighbour]) continue;
+            int bondCode = bondCodes[neighbourBonds[atom][k]];
+            int atomCode = atomCodes[neighbour];
+            int f = (forward * PRIME + bondCode) * PRIME + atomCode;
+            int b = backward + factor * bondCode + factor * PRIME * atomCode;
+            visited[neighbour] = true;
+            found.add(Math.min(f, b));
+            walkFast(neighbour, depth + 1, f, b, factor * PRIME * PRIME, atomCodes, bondCodes);
+            visited[neighbour] = false;
+        }
+    }
+
+    /**
+     * Hashes the path string in the first <i>length</i> characters of the
+     * buffer in the same way as the string based implementation.
+     */
+    private void addPath(int length) {
+        char[] chars = buffer;
+        // is the reverse larger than the forward string?
+        boolean reverse = false;
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            if (chars[i] != chars[j]) {
+                reverse = chars[j] > chars[i];
+                break;
+            }
+        }
+        int begin = 0, end = length;
+        if (trim) {
+            while (begin < end && chars[begin] <= ' ') begin++;
+            while (end > begin && chars[end - 1] <= ' ') end--;
+        }
+        if (begin == end) return;
+        int hash = 0;
+        if (reverse) {
+            for (int i = end - 1; i >= begin; i--) hash = 31 * hash + chars[i];
+        } else {
+            for (int i = begin; i < end; i++) hash = 31 * hash + chars[i];
+        }
+        found.add(hash);
+    }
+
+    private int append(char[] label, int length) {
+        System.arraycopy(label, 0, buffer, length, label.length);
+        return length + label.length;
+    }
+
+    /**
+     * Returns the same position as <code>new java.util.Random(seed).nextInt(size)</code>,
+     * without creating a Random instance.
+     *
+     * @param seed the seed, the hash of a path
+     * @param size the number of bits in the fingerprint
+     * @return a position from 0 (inclusive) to size (exclusive)
+     */
+    @TestMethod("testRandomPosition")
+    static int randomPosition(int seed, int size) {
+        if (size <= 0) throw new IllegalArgumentException("size must be positive");
+        long state = (seed ^ MULTIPLIER) & MASK;
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        int random = (int) (state >>> 17);
+        if ((size & -size) == size) return (int) ((size * (long) random) >> 31);
+        int position = random % size;
+        while (random - position + (size - 1) < 0) {
+            state = (state * MULTIPLIER + ADDEND) & MASK;
+            random = (int) (state >>> 17);
+            position = random % size;
+        }
+        return position;
+    }
+
+    /**
+     * Maps a rolling hash onto a position in a fingerprint of the given size,
+     * after mixing the bits of the hash.
+     *
+     * @param hash the hash of a path
+     * @param size the number of bits in the fingerprint
+     * @return a position from 0 (inclusive) to size (exclusive)
+     */
+    @TestMethod("testMixedPosition")
+    static int mixedPosition(int hash, int size) {
+        if (size <= 0) throw new IllegalArgumentException("size must be positive");
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return (int) (((hash & 0xffffffffL) * size) >>> 32);
+    }
+
+    private static int hashCode(char[] label) {
+        int hash = 0;
+        for (char c : label) hash = 31 * hash + c;
+        return hash;
+    }
+
+    private static char[][] toChars(String[] labels) {
+        char[][] chars = new char[labels.length][];
+        for (int i = 0; i < labels.length; i++) {
+            chars[i] = String.valueOf(labels[i]).toCharArray();
+        }
+        return chars;
+    }
+
+    /**
+     * A minimal open addressing set of int values.
+     */
+    private static final class IntSet {
+
+        private int[] values = new int[64];
+        private boolean[] used = new boolean[64];
+        private int size = 0;
+
+        void add(int value) {
+            int mask = values.length - 1;
+            int hash = value * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (used[slot]) {
+                if (values[slot] == value) return;
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            values[slot] = value;
+            if (++size * 2 > values.length) grow();
+        }
+
+        private void grow() {
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            values = new int[oldValues.length * 2];
+            used = new boolean[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldUsed[i]) add(oldValues[i]);
+            }
+        }
+
+        int[] toArray() {
+            int[] array = new int[size];
+            int n = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (used[i]) array[n++] = values[i];
+            }
+            return array;
+        }
+    }
+}
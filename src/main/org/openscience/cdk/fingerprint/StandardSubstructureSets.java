@@ -2,6 +2,7 @@ package org.openscience.cdk.fingerprint;
 
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.smiles.smarts.SMARTSPatternSet;
 
 import java.io.BufferedReader;
 import java.io.InputStream;
@@ -21,6 +22,7 @@ import java.util.List;
 public class StandardSubstructureSets {
 
 	private static String[] smarts = null;
+	private static SMARTSPatternSet patterns = null;
 	
 	/**
 	 * The functional groups. 
@@ -50,5 +52,18 @@ public class StandardSubstructureSets {
         return smarts;
 
     }
+
+    /**
+     * The functional groups, compiled for matching. The returned set is
+     * created once and shared.
+     *
+     * @return The compiled set of the functional groups.
+     * @throws Exception if there is an error parsing SMARTS for the functional groups
+     */
+    @TestMethod("testGetFunctionalGroupPatterns")
+    public static synchronized SMARTSPatternSet getFunctionalGroupPatterns() throws Exception {
+        if (patterns == null) patterns = new SMARTSPatternSet(getFunctionalGroupSMARTS());
+        return patterns;
+    }
 	
 }
@@ -31,9 +31,8 @@ import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.smiles.smarts.SMARTSQueryTool;
+import org.openscience.cdk.smiles.smarts.SMARTSPatternSet;
 
-import java.util.BitSet;
 import java.util.Map;
 
 /**
@@ -375,6 +374,9 @@ public class SubstructureFingerprinter implements IFingerprinter {
 
     private String[] smarts;
 
+    /** The compiled substructures, created when first needed. */
+    private SMARTSPatternSet patterns;
+
     /**
      * Set up the fingerprinter to use the fragments from 
      * {@link org.openscience.cdk.fingerprint.StandardSubstructureSets}.
@@ -383,6 +385,7 @@ public class SubstructureFingerprinter implements IFingerprinter {
     public SubstructureFingerprinter() {
         try {
             smarts = StandardSubstructureSets.getFunctionalGroupSMARTS();
+            patterns = StandardSubstructureSets.getFunctionalGroupPatterns();
         } catch (Exception e) {
             smarts = null;
         }
@@ -398,6 +401,19 @@ public class SubstructureFingerprinter implements IFingerprinter {
         this.smarts = smarts;
     }
 
+    /**
+     * Set up the fingerprinter to use a precompiled set of fragments. The
+     * same set may be shared by many fingerprinters.
+     *
+     * @param patterns The compiled collection of fragments to look for
+     */
+    @TestMethod("testSubstructureFingerprinter_SMARTSPatternSet")
+    public SubstructureFingerprinter(SMARTSPatternSet patterns) {
+        this.patterns = patterns;
+        this.smarts = new String[patterns.size()];
+        for (int i = 0; i < smarts.length; i++) smarts[i] = patterns.getSmarts(i);
+    }
+
     /** {@inheritDoc} */
     @TestMethod("testUserFunctionalGroups,testFingerprint")
     public IBitFingerprint getBitFingerprint(IAtomContainer atomContainer) 
@@ -405,19 +421,21 @@ public class SubstructureFingerprinter implements IFingerprinter {
         if (smarts == null) {
             throw new CDKException("No substructures were defined");
         }
+        return new BitSetFingerprint(getPatterns().match(atomContainer));
+    }
 
-        int bitsetLength = smarts.length;
-        BitSet fingerPrint = new BitSet(bitsetLength);
-
-        SMARTSQueryTool sqt = new SMARTSQueryTool("C");
-        for (int i = 0; i < smarts.length; i++) {
-            String pattern = smarts[i];
-
-            sqt.setSmarts(pattern);
-            boolean status = sqt.matches(atomContainer);
-            if (status) fingerPrint.set(i, true);
+    /**
+     * Compiles the fragments the first time they are needed.
+     */
+    private synchronized SMARTSPatternSet getPatterns() throws CDKException {
+        if (patterns == null) {
+            try {
+                patterns = new SMARTSPatternSet(smarts);
+            } catch (IllegalArgumentException exception) {
+                throw new CDKException("Error parsing SMARTS: " + exception.getMessage(), exception);
+            }
         }
-        return new BitSetFingerprint(fingerPrint);
+        return patterns;
     }
 
     /** {@inheritDoc} */
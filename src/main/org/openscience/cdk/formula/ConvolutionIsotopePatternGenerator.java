@@ -0,0 +1,339 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.formula;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.tools.ILoggingTool;
+import org.openscience.cdk.tools.LoggingToolFactory;
+
+/**
+ * Generates the isotope pattern of a molecular formula, giving the same
+ * {@link IsotopePattern} as the {@link IsotopePatternGenerator} but fast
+ * enough for large molecules and high-throughput use.
+ *
+ * <p>Instead of adding the isotopes of one atom at a time, the distribution
+ * of each element is raised to the power of its atom count by repeated
+ * squaring, so C<sub>300</sub> needs about ten convolutions rather than
+ * three hundred. Distributions are kept as mass-sorted primitive arrays.
+ * After each convolution peaks closer than the resolution are merged into
+ * one peak at their abundance weighted mass, and peaks with a probability
+ * below a fraction of the most abundant peak are pruned.
+ *
+ * <p>The generator holds no state between calls and an instance can be
+ * shared between threads.
+ *
+ * <pre>
+ * ConvolutionIsotopePatternGenerator generator = new ConvolutionIsotopePatternGenerator(0.01);
+ * IsotopePattern pattern = generator.getIsotopes(formula);
+ * </pre>
+ *
+ * @cdk.module  formula
+ * @cdk.githash
+ * @cdk.keyword isotope pattern
+ * @see IsotopePatternGenerator
+ */
+@TestClass("org.openscience.cdk.formula.ConvolutionIsotopePatternGeneratorTest")
+public class ConvolutionIsotopePatternGenerator {
+
+    private static final ILoggingTool logger =
+        LoggingToolFactory.createLoggingTool(ConvolutionIsotopePatternGenerator.class);
+
+    /** Default mass difference below which two peaks are merged. */
+    public static final double DEFAULT_RESOLUTION = 0.00005;
+
+    /** Default abundance, relative to the highest peak, below which peaks are pruned. */
+    public static final double DEFAULT_PRUNING = 1e-8;
+
+    /** Minimal relative abundance of the isotopes in the returned pattern. */
+    private final double minAbundance;
+
+    private double resolution = DEFAULT_RESOLUTION;
+
+    private double pruning = DEFAULT_PRUNING;
+
+    /**
+     * Constructor for the generator with a minimal abundance of 0.1.
+     */
+    @TestMethod("testConvolutionIsotopePatternGenerator")
+    public ConvolutionIsotopePatternGenerator() {
+        this(0.1);
+    }
+
+    /**
+     * Constructor for the generator.
+     *
+     * @param minAbundance minimal abundance, relative to the most abundant
+     *                     isotope, of the isotopes in the pattern
+     */
+    @TestMethod("testConvolutionIsotopePatternGenerator_double")
+    public ConvolutionIsotopePatternGenerator(double minAbundance) {
+        this.minAbundance = minAbundance;
+    }
+
+    /**
+     * Sets the mass difference below which two peaks are merged into one.
+     *
+     * @param  resolution the resolution in Dalton, {@link #DEFAULT_RESOLUTION} by default
+     * @return            this generator
+     */
+    @TestMethod("testSetResolution_double")
+    public ConvolutionIsotopePatternGenerator setResolution(double resolution) {
+        if (resolution < 0) throw new IllegalArgumentException("the resolution must not be negative");
+        this.resolution = resolution;
+        return this;
+    }
+
+    /**
+     * Returns the mass difference below which two peaks are merged into one.
+     *
+     * @return the resolution in Dalton
+     */
+    @TestMethod("testGetResolution")
+    public double getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Sets the abundance, relative to the highest peak, below which peaks
+     * are dropped from the intermediate distributions. Lower values give
+     * more accurate small peaks at the cost of speed.
+     *
+     * @param  pruning the relative abundance, {@link #DEFAULT_PRUNING} by default
+     * @return         this generator
+     */
+    @TestMethod("testSetPruning_double")
+    public ConvolutionIsotopePatternGenerator setPruning(double pruning) {
+        if (pruning < 0 || pruning >= 1)
+            throw new IllegalArgumentException("the pruning must be in [0,1)");
+        this.pruning = pruning;
+        return this;
+    }
+
+    /**
+     * Returns the abundance, relative to the highest peak, below which peaks
+     * are dropped from the intermediate distributions.
+     *
+     * @return the relative abundance
+     */
+    @TestMethod("testGetPruning")
+    public double getPruning() {
+        return pruning;
+    }
+
+    /**
+     * Get the isotope pattern of a molecular formula. The isotopes are
+     * sorted by mass, their intensity is relative to the most abundant one
+     * and isotopes below the minimal abundance are left out. Elements
+     * without natural isotopes are ignored.
+     *
+     * @param  formula the IMolecularFormula
+     * @return         an IsotopePattern with the isotopes
+     */
+    @TestMethod("testGetIsotopes_IMolecularFormula")
+    public IsotopePattern getIsotopes(IMolecularFormula formula) {
+        IsotopeFactory factory;
+        try {
+            factory = IsotopeFactory.getInstance(formula.getBuilder());
+        } catch (IOException e) {
+            throw new IllegalStateException("could not read the isotope data: " + e.getMessage());
+        }
+
+        Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+        for (IIsotope isotope : formula.isotopes()) {
+            Integer count = counts.get(isotope.getSymbol());
+            counts.put(isotope.getSymbol(),
+                       (count == null ? 0 : count) + formula.getIsotopeCount(isotope));
+        }
+
+        Distribution distribution = null;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            Distribution element = element(factory.getIsotopes(entry.getKey()));
+            if (element == null) {
+                logger.debug("no natural isotopes for ", entry.getKey());
+                continue;
+            }
+            element = power(element, entry.getValue());
+            distribution = distribution == null ? element : convolve(distribution, element);
+        }
+
+        IsotopePattern pattern = new IsotopePattern();
+        if (distribution == null) return pattern;
+
+        double highest = distribution.highest();
+        for (int i = 0; i < distribution.size; i++) {
+            double intensity = distribution.abundance[i] / highest;
+            if (intensity < minAbundance && distribution.abundance[i] != highest) continue;
+            IsotopeContainer isotope = new IsotopeContainer(distribution.mass[i], intensity);
+            if (pattern.getNumberOfIsotopes() == 0) pattern.setMonoIsotope(isotope);
+            else pattern.addIsotope(isotope);
+        }
+        return pattern;
+    }
+
+    /**
+     * The distribution of a single atom of an element, normalised to a sum
+     * of one, or null if the element has no natural isotopes.
+     */
+    private Distribution element(IIsotope[] isotopes) {
+        Distribution distribution = new Distribution(isotopes.length);
+        double sum = 0;
+        for (IIsotope isotope : isotopes) {
+            Double abundance = isotope.getNaturalAbundance();
+            if (abundance == null || abundance <= 0 || isotope.getExactMass() == null) continue;
+            distribution.mass[distribution.size] = isotope.getExactMass();
+            distribution.abundance[distribution.size] = abundance;
+            distribution.size++;
+            sum += abundance;
+        }
+        if (distribution.size == 0) return null;
+        for (int i = 0; i < distribution.size; i++) distribution.abundance[i] /= sum;
+        sort(distribution.mass, distribution.abundance, 0, distribution.size - 1);
+        return merge(distribution);
+    }
+
+    /** The distribution of <i>count</i> atoms, by exponentiation by squaring. */
+    private Distribution power(Distribution distribution, int count) {
+        Distribution result = null;
+        while (count > 0) {
+            if ((count & 1) != 0)
+                result = result == null ? distribution : convolve(result, distribution);
+            count >>= 1;
+            if (count > 0) distribution = convolve(distribution, distribution);
+        }
+        return result;
+    }
+
+    /** The distribution of the sum of the two masses. */
+    private Distribution convolve(Distribution a, Distribution b) {
+        Distribution result = new Distribution(a.size * b.size);
+        for (int i = 0; i < a.size; i++) {
+            for (int j = 0; j < b.size; j++) {
+                result.mass[result.size] = a.mass[i] + b.mass[j];
+                result.abundance[result.size] = a.abundance[i] * b.abundance[j];
+                result.size++;
+            }
+        }
+        sort(result.mass, result.abundance, 0, result.size - 1);
+        return merge(result);
+    }
+
+    /**
+     * Merges the peaks of a mass-sorted distribution which are closer than
+     * the resolution to the first peak of their group, and prunes the peaks
+     * below the relative abundance threshold.
+     */
+    private Distribution merge(Distribution distribution) {
+        double[] mass = distribution.mass;
+        double[] abundance = distribution.abundance;
+        int size = 0;
+        for (int i = 0; i < distribution.size; ) {
+            double start = mass[i];
+            double sum = 0, weighted = 0;
+            for (; i < distribution.size && mass[i] - start <= resolution; i++) {
+                sum += abundance[i];
+                weighted += mass[i] * abundance[i];
+            }
+            mass[size] = weighted / sum;
+            abundance[size] = sum;
+            size++;
+        }
+        distribution.size = size;
+
+        double threshold = distribution.highest() * pruning;
+        size = 0;
+        for (int i = 0; i < distribution.size; i++) {
+            if (abundance[i] < threshold) continue;
+            mass[size] = mass[i];
+            abundance[size] = abundance[i];
+            size++;
+        }
+        distribution.size = size;
+        return distribution;
+    }
+
+    /** Sorts the peaks from index lo to hi (inclusive) by mass. */
+    private static void sort(double[] mass, double[] abundance, int lo, int hi) {
+        while (hi - lo > 16) {
+            double pivot = median(mass[lo], mass[(lo + hi) >>> 1], mass[hi]);
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (mass[i] < pivot) i++;
+                while (mass[j] > pivot) j--;
+                if (i <= j) swap(mass, abundance, i++, j--);
+            }
+            // recurse into the smaller part to bound the stack depth
+            if (j - lo < hi - i) {
+                sort(mass, abundance, lo, j);
+                lo = i;
+            } else {
+                sort(mass, abundance, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && mass[j - 1] > mass[j]; j--) swap(mass, abundance, j, j - 1);
+        }
+    }
+
+    private static double median(double a, double b, double c) {
+        return a < b ? (b < c ? b : (a < c ? c : a)) : (a < c ? a : (b < c ? c : b));
+    }
+
+    private static void swap(double[] mass, double[] abundance, int i, int j) {
+        double tmp = mass[i];
+        mass[i] = mass[j];
+        mass[j] = tmp;
+        tmp = abundance[i];
+        abundance[i] = abundance[j];
+        abundance[j] = tmp;
+    }
+
+    /** Peaks as parallel arrays of mass and probability, sorted by mass. */
+    private static final class Distribution {
+
+        final double[] mass;
+        final double[] abundance;
+        int size;
+
+        Distribution(int capacity) {
+            mass = new double[capacity];
+            abundance = new double[capacity];
+        }
+
+        double highest() {
+            double highest = 0;
+            for (int i = 0; i < size; i++) {
+                if (abundance[i] > highest) highest = abundance[i];
+            }
+            return highest;
+        }
+    }
+}
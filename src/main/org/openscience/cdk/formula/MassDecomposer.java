@@ -0,0 +1,288 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+
+/**
+ * Finds all combinations of element counts whose mass is within a tolerance
+ * of a given mass. The element masses are scaled to integers and an
+ * extended residue table is built with the round robin algorithm of
+ * Boecker and Lipt&aacute;k {@cdk.cite Boecker2007}. The table tells in
+ * constant time whether an integer mass can be made from the lightest
+ * elements, so the search only follows branches which lead to a solution.
+ * The integer masses covering the tolerance window are decomposed one by
+ * one and the combinations are then checked against the real masses.
+ *
+ * <p>The tables only depend on the element masses and counts, so one
+ * decomposer can answer any number of queries. It is not modified by
+ * {@link #decompose(double, double)} and may be shared between threads.
+ *
+ * <pre>
+ * // C 0-15, H 0-15, N 0-15, O 0-15
+ * MassDecomposer decomposer = new MassDecomposer(new double[]{12.0, 1.007825, 14.003074, 15.994915},
+ *                                                new int[]{0, 0, 0, 0}, new int[]{15, 15, 15, 15});
+ * List&lt;int[]&gt; counts = decomposer.decompose(133.0968, 0.05);
+ * </pre>
+ *
+ * @cdk.module  formula
+ * @cdk.githash
+ * @cdk.keyword mass decomposition
+ * @see MassToFormulaTool
+ */
+@TestClass("org.openscience.cdk.formula.MassDecomposerTest")
+public final class MassDecomposer {
+
+    /**
+     * Factor from real to integer masses, the one Boecker et al. use for
+     * biomolecules. Any factor gives the same results as the rounding errors
+     * are bounded, it only trades the table size against the number of
+     * integer masses per query.
+     */
+    private static final double BLOWUP = 5963.337687;
+
+    private static final long INFINITY = Long.MAX_VALUE;
+
+    private final int elementCount;
+
+    private final double[] masses;
+
+    private final int[] minCounts;
+
+    /** Elements which can vary in count, lightest first, as indices into the arrays above. */
+    private final int[] free;
+
+    /** Integer mass of each free element. */
+    private final long[] weights;
+
+    /** Maximal additional count of each free element. */
+    private final int[] bounds;
+
+    /**
+     * The extended residue table: ert[i][r] is the smallest integer mass with
+     * residue r modulo weights[0] which is a combination of free elements 0..i.
+     */
+    private final long[][] ert;
+
+    /** The mass of the minimal counts. */
+    private final double minimalMass;
+
+    /** Lowest and highest rounding error, relative to the mass, of the free elements. */
+    private final double minError, maxError;
+
+    /**
+     * Create a decomposer for the elements with the given masses and counts.
+     *
+     * @param masses    the mass of each element
+     * @param minCounts the minimal count of each element
+     * @param maxCounts the maximal count of each element
+     * @throws IllegalArgumentException if the arrays differ in length, a mass is
+     *                                  not positive or a count range is invalid
+     */
+    @TestMethod("testMassDecomposer_arraydouble_arrayint_arrayint")
+    public MassDecomposer(double[] masses, int[] minCounts, int[] maxCounts) {
+        if (masses.length != minCounts.length || masses.length != maxCounts.length)
+            throw new IllegalArgumentException("masses and counts must have the same length");
+        this.elementCount = masses.length;
+        this.masses = masses.clone();
+        this.minCounts = minCounts.clone();
+
+        double minimalMass = 0;
+        int freeCount = 0;
+        for (int i = 0; i < elementCount; i++) {
+            if (!(masses[i] > 0))
+                throw new IllegalArgumentException("element masses must be positive");
+            if (minCounts[i] < 0 || maxCounts[i] < minCounts[i])
+                throw new IllegalArgumentException("invalid count range for element " + i);
+            minimalMass += masses[i] * minCounts[i];
+            if (maxCounts[i] > minCounts[i]) freeCount++;
+        }
+        this.minimalMass = minimalMass;
+
+        // the free elements sorted by mass, the lightest gives the smallest table
+        free = new int[freeCount];
+        for (int i = 0, j = 0; i < elementCount; i++) {
+            if (maxCounts[i] > minCounts[i]) free[j++] = i;
+        }
+        for (int i = 1; i < freeCount; i++) {
+            for (int j = i; j > 0 && masses[free[j - 1]] > masses[free[j]]; j--) {
+                int tmp = free[j];
+                free[j] = free[j - 1];
+                free[j - 1] = tmp;
+            }
+        }
+
+        weights = new long[freeCount];
+        bounds = new int[freeCount];
+        double minError = 0, maxError = 0;
+        for (int i = 0; i < freeCount; i++) {
+            double scaled = masses[free[i]] * BLOWUP;
+            weights[i] = Math.max(1, Math.round(scaled));
+            bounds[i] = maxCounts[free[i]] - minCounts[free[i]];
+            double error = (scaled - weights[i]) / masses[free[i]];
+            if (i == 0 || error < minError) minError = error;
+            if (i == 0 || error > maxError) maxError = error;
+        }
+        this.minError = minError;
+        this.maxError = maxError;
+        this.ert = freeCount == 0 ? new long[0][] : residueTable(weights);
+    }
+
+    /**
+     * Build the extended residue table by the round robin algorithm.
+     */
+    private static long[][] residueTable(long[] weights) {
+        int modulus = (int) weights[0];
+        long[][] ert = new long[weights.length][];
+        ert[0] = new long[modulus];
+        Arrays.fill(ert[0], INFINITY);
+        ert[0][0] = 0;
+        for (int i = 1; i < weights.length; i++) {
+            long[] table = ert[i - 1].clone();
+            long weight = weights[i];
+            int gcd = gcd(modulus, (int) (weight % modulus));
+            for (int p = 0; p < gcd; p++) {
+                // start the round at the smallest entry of this residue class
+                long n = INFINITY;
+                for (int q = p; q < modulus; q += gcd) {
+                    if (table[q] < n) n = table[q];
+                }
+                if (n == INFINITY) continue;
+                for (int repeat = modulus / gcd - 1; repeat > 0; repeat--) {
+                    n += weight;
+                    int r = (int) (n % modulus);
+                    if (table[r] < n) n = table[r];
+                    table[r] = n;
+                }
+            }
+            ert[i] = table;
+        }
+        return ert;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int tmp = a % b;
+            a = b;
+            b = tmp;
+        }
+        return a;
+    }
+
+    /**
+     * Find the combinations of element counts whose mass differs less than
+     * the tolerance from the given mass. The empty combination is never
+     * returned.
+     *
+     * @param  mass      the mass to decompose
+     * @param  tolerance the allowed mass difference
+     * @return           the counts of each element, in the order of the constructor arguments
+     */
+    @TestMethod("testDecompose_double_double")
+    public List<int[]> decompose(double mass, double tolerance) {
+        List<int[]> result = new ArrayList<int[]>();
+        double low = mass - tolerance - minimalMass;
+        double high = mass + tolerance - minimalMass;
+        if (high < 0) return result;
+
+        Search search = new Search(mass, tolerance, result);
+        if (free.length == 0) {
+            search.check();
+            return result;
+        }
+
+        // all integer masses a combination in the window can round to, the
+        // rounding error is at most the relative error times the real mass
+        long first = Math.max(0, (long) Math.floor(low * (BLOWUP - maxError)) - 1);
+        long last = (long) Math.ceil(high * (BLOWUP - minError)) + 1;
+        int top = free.length - 1;
+        for (long integer = first; integer <= last; integer++) {
+            if (ert[top][(int) (integer % weights[0])] <= integer) search.decompose(integer, top);
+        }
+        return result;
+    }
+
+    /**
+     * The mass of a combination of element counts.
+     *
+     * @param  counts the count of each element
+     * @return        the mass
+     */
+    @TestMethod("testGetMass_arrayint")
+    public double getMass(int[] counts) {
+        double mass = 0;
+        for (int i = 0; i < elementCount; i++) {
+            mass += masses[i] * counts[i];
+        }
+        return mass;
+    }
+
+    /** The state of the backtracking search for one query. */
+    private final class Search {
+
+        private final double mass, tolerance;
+        private final List<int[]> result;
+        private final int[] counts;
+
+        Search(double mass, double tolerance, List<int[]> result) {
+            this.mass = mass;
+            this.tolerance = tolerance;
+            this.result = result;
+            this.counts = minCounts.clone();
+        }
+
+        /** Decompose an integer mass into free elements 0..i. */
+        void decompose(long integer, int i) {
+            if (i == 0) {
+                if (integer % weights[0] != 0 || integer / weights[0] > bounds[0]) return;
+                counts[free[0]] = minCounts[free[0]] + (int) (integer / weights[0]);
+                check();
+                return;
+            }
+            long weight = weights[i];
+            long[] table = ert[i - 1];
+            int modulus = (int) weights[0];
+            for (int c = 0; c <= bounds[i] && c * weight <= integer; c++) {
+                long rest = integer - c * weight;
+                if (table[(int) (rest % modulus)] > rest) continue;
+                counts[free[i]] = minCounts[free[i]] + c;
+                decompose(rest, i - 1);
+            }
+            counts[free[i]] = minCounts[free[i]];
+        }
+
+        /** Add the current counts if their real mass is within the tolerance. */
+        void check() {
+            boolean empty = true;
+            for (int count : counts) {
+                if (count != 0) empty = false;
+            }
+            if (!empty && Math.abs(mass - getMass(counts)) < tolerance) result.add(counts.clone());
+        }
+    }
+}
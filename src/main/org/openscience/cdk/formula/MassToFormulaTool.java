@@ -26,6 +26,8 @@ package org.openscience.cdk.formula;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
@@ -37,22 +39,26 @@ import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.formula.rules.ChargeRule;
 import org.openscience.cdk.formula.rules.ElementRule;
 import org.openscience.cdk.formula.rules.IRule;
+import org.openscience.cdk.formula.rules.MMElementRule;
+import org.openscience.cdk.formula.rules.NitrogenRule;
+import org.openscience.cdk.formula.rules.RDBERule;
 import org.openscience.cdk.formula.rules.ToleranceRangeRule;
-import org.openscience.cdk.interfaces.IElement;
 import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.interfaces.IMolecularFormula;
 import org.openscience.cdk.interfaces.IMolecularFormulaSet;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
-import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
-import org.openscience.cdk.tools.manipulator.MolecularFormulaRangeManipulator;
 
 /**
- * <p>Tool to determine molecular formula consistent with a given accurate mass. The 
- * molecular formulas are not validate. It only consist in generate combination according
- * object (see MolecularFormulaChecker). The algorithm is published in Rojas-Cherto M. et.al. 
- * {@cdk.cite RojasCherto2011}.
+ * <p>Tool to determine molecular formula consistent with a given accurate mass. The
+ * {@link ElementRule}, {@link ChargeRule} and {@link ToleranceRangeRule} of the
+ * restrictions define which combinations of elements are generated. Of the other
+ * restrictions, the {@link NitrogenRule}, {@link RDBERule} and {@link MMElementRule}
+ * are applied to the element counts while the molecular formulas are generated.
+ * Any other rule is not applied here; validating the generated formulas with it
+ * is left to the caller (see MolecularFormulaChecker). The algorithm is published
+ * in Rojas-Cherto M. et.al. {@cdk.cite RojasCherto2011}.
  * 
  * <pre>
  *   MassToFormulaTool mf = new MassToFormulaTool();
@@ -79,8 +85,14 @@ public class MassToFormulaTool {
 	/** */
 	AtomTypeFactory factory;
 	
-	/** matrix to follow for the permutations.*/
-	private int[][] matrix_Base;
+	/** The isotopes of the element range, in the order of the elements.*/
+	private IIsotope[] isotopes;
+
+	/** The decomposer for the element range, null until a mass is generated.*/
+	private MassDecomposer decomposer;
+
+	/** Lowest and highest mass of the element range.*/
+	private double minimalMass, maximalMass;
 
 	/** Array listing the order of the elements to be shown according probability occurrence.*/
 	private String[] orderElements;
@@ -136,7 +148,7 @@ public class MassToFormulaTool {
 						 break;
 					 }
 				 }
-				 this.matrix_Base = getMatrix(mfRange.getIsotopeCount());
+				 this.decomposer = null;
 			}else if(rule instanceof ChargeRule){
 				this.charge = (Double) ((Object[])rule.getParameters())[0];
 				
@@ -239,7 +251,7 @@ public class MassToFormulaTool {
 		rules1.add(rule);
 		this.tolerance  = (Double) ((Object[])rule.getParameters())[1];
 		
-		this.matrix_Base = getMatrix(mfRange1.getIsotopeCount());
+		this.decomposer = null;
 		
 		this.mfRange = mfRange1;
 		this.rules = rules1;
@@ -248,6 +260,10 @@ public class MassToFormulaTool {
 	}
 	/**
 	 * Method that actually does the work of extracting the molecular formula.
+	 * The restrictions which can be checked on the element counts alone
+	 * ({@link NitrogenRule}, {@link RDBERule} and {@link MMElementRule}) are
+	 * applied before the molecular formulas are created. Other restrictions
+	 * are not applied, see {@link MolecularFormulaChecker}.
 	 *
 	 * @param  mass            molecular formula to create from the mass
 	 * @return                 the filled molecular formulas as IMolecularFormulaSet
@@ -259,174 +275,117 @@ public class MassToFormulaTool {
 			logger.error("Proposed mass is not valid: ",mass);
 			return null;
 		}
-		IMolecularFormula minimalMF = MolecularFormulaRangeManipulator.getMinimalFormula(mfRange,builder);
-		IMolecularFormula maximalMF = MolecularFormulaRangeManipulator.getMaximalFormula(mfRange,builder);
-		double massMim = MolecularFormulaManipulator.getTotalExactMass(minimalMF)-tolerance;
-		double massMap = MolecularFormulaManipulator.getTotalExactMass(maximalMF)+tolerance;
-		if(massMim > mass ||
-				massMap < mass){
+		if(decomposer == null)
+			prepare();
+		if(minimalMass-tolerance > mass ||
+				maximalMass+tolerance < mass){
 			logger.error("Proposed mass is out of the range: ",mass);
 			return null;
 		}
 		
-		IMolecularFormulaSet molecularFormulaSet = builder.newInstance(IMolecularFormulaSet.class);
+		List<IRule> prefilters = new ArrayList<IRule>();
+		for(IRule rule : rules)
+			if(rule instanceof NitrogenRule || rule instanceof RDBERule || rule instanceof MMElementRule)
+				prefilters.add(rule);
 		
-		int[][] matrix = this.matrix_Base;
-		int numberElements = mfRange.getIsotopeCount();
+		List<int[]> candidates = new ArrayList<int[]>();
+		for(int[] counts : decomposer.decompose(mass, tolerance)){
+			if(accept(prefilters, counts))
+				candidates.add(counts);
+		}
+		if(candidates.isEmpty())
+			return null;
 		
+		// order by the difference with the proposed mass
+		final double[] diff = new double[candidates.size()];
+		Integer[] order = new Integer[diff.length];
+		for(int i = 0; i < diff.length; i++){
+			diff[i] = Math.abs(mass - decomposer.getMass(candidates.get(i)));
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(diff[a], diff[b]);
+			}
+		});
 		
-		// put IIsotope into a list
+		IMolecularFormulaSet molecularFormulaSet = builder.newInstance(IMolecularFormulaSet.class);
+		for(Integer i : order)
+			molecularFormulaSet.addMolecularFormula(getFormula(candidates.get(i)));
+		return molecularFormulaSet;
+	}
+
+	/**
+	 * Extract the molecular formulas of several masses. The masses share the
+	 * restrictions and the tables built from them, which makes this faster
+	 * than separate calls when many peaks are analysed.
+	 *
+	 * @param  masses          the masses to create molecular formulas from
+	 * @return                 the molecular formulas of each mass, an entry is null
+	 *                         if the mass is not valid or has no molecular formula
+	 * @see                    #generate(double)
+	 */
+	@TestMethod("testGenerate_arraydouble")
+	public IMolecularFormulaSet[] generate(double[] masses) {
+		IMolecularFormulaSet[] sets = new IMolecularFormulaSet[masses.length];
+		for(int i = 0; i < masses.length; i++)
+			sets[i] = generate(masses[i]);
+		return sets;
+	}
+
+	/**
+	 * Build the decomposer and the mass range for the current element restrictions.
+	 */
+	private void prepare() {
 		List<IIsotope> isotopes_TO = new ArrayList<IIsotope>();
-		Iterator<IIsotope> isIt = mfRange.isotopes().iterator();
-		while(isIt.hasNext())
-			isotopes_TO.add(isIt.next());
-		
+		minimalMass = 0;
+		maximalMass = 0;
+		for(IIsotope isotope : mfRange.isotopes()){
+			isotopes_TO.add(isotope);
+			minimalMass += isotope.getExactMass()*mfRange.getIsotopeCountMin(isotope);
+			maximalMass += isotope.getExactMass()*mfRange.getIsotopeCountMax(isotope);
+		}
 		isotopes_TO = orderList(isotopes_TO);
+		
+		isotopes = isotopes_TO.toArray(new IIsotope[isotopes_TO.size()]);
+		double[] masses = new double[isotopes.length];
+		int[] minCounts = new int[isotopes.length];
+		int[] maxCounts = new int[isotopes.length];
+		for(int i = 0; i < isotopes.length; i++){
+			masses[i] = isotopes[i].getExactMass();
+			minCounts[i] = mfRange.getIsotopeCountMin(isotopes[i]);
+			maxCounts[i] = mfRange.getIsotopeCountMax(isotopes[i]);
+		}
+		decomposer = new MassDecomposer(masses, minCounts, maxCounts);
+	}
 
-		for(int i = 0; i < matrix.length ; i++){
-			
-			/*constructing initial combinations*/
-			int[] value_In = new int[numberElements];
-			for(int j= 0; j < numberElements ; j++){
-				if(matrix[i][j] == 0)
-					value_In[j] = 0;
+	/**
+	 * Whether the element counts pass all rules.
+	 *
+	 * @param rules   Rules which validate element counts
+	 * @param counts  The count of each isotope
+	 * @return        true, if no rule fails
+	 */
+	private boolean accept(List<IRule> rules, int[] counts) {
+		try {
+			for(IRule rule : rules){
+				double valid;
+				if(rule instanceof NitrogenRule)
+					valid = ((NitrogenRule) rule).validate(isotopes, counts);
+				else if(rule instanceof RDBERule)
+					valid = ((RDBERule) rule).validate(isotopes, counts);
 				else
-					value_In[j] = 1;
-			}
-			
-			/*find number of element to combine*/
-			int count_E = 0;
-			ArrayList<Integer> elem_Pos = new ArrayList<Integer>();
-			for(int j= 0 ; j< matrix[1].length; j++)
-				if(value_In[j] != 0){
-					count_E++;
-					elem_Pos.add(j);
-				}
-			
-			
-			boolean flag = true;
-			/*first position those first starting at the left*/
-			int possChan = 0; 
-			String lastMFString = "";
-			while(flag){
-				
-//				// print all combinations --------------------------------------------------
-//				System.out.print(elem_Pos.get(possChan).intValue()+">");
-//				for(int j= 0 ; j< matrix[1].length; j++)
-//					System.out.print(isotopes_TO.get(j).getSymbol()+value_In[j]+"-");
-//				System.out.println();
-//				// print all combinations --------------------------------------------------
-				
-				// control if some of the element is contained. E.g. C(1-3)H(1-3) 
-				// the matrix 01 or 10 can not exist
-				boolean flagBreak = false;
-				for(int j= 0 ; j< matrix[1].length; j++){
-					int min = mfRange.getIsotopeCountMin(isotopes_TO.get(j));
-					if(value_In[j] == 0)
-						if(min != 0)
-							flagBreak = true;
-				}
-				if(flagBreak)
-					break;
-				
-				
-				/*Find max occurence given a mass for a element with minimal elements*/
-				int occurence = getMaxOccurence(mass, elem_Pos.get(possChan).intValue(),value_In,isotopes_TO);
-
-				/*at least one*/
-				if (occurence == 0)
-					break;
-				
-				int maxx = mfRange.getIsotopeCountMax(isotopes_TO.get(elem_Pos.get(possChan).intValue()));
-				int minn = mfRange.getIsotopeCountMin(isotopes_TO.get(elem_Pos.get(possChan).intValue()));
-				
-				/*restriction of the number of max and min number for a element*/
-				if(occurence < minn | maxx < occurence){
-					/* when is not in the occurrence that means that we have to
-					 * restart one value to the predecessor.*/
-					
-					if (possChan < elem_Pos.size()-1){
-						/*Means that is possible to fit the next*/
-						if (maxx < occurence)
-							value_In[elem_Pos.get(possChan).intValue()] = maxx;
-						possChan++;
-						
-					}else{
-						boolean foundZ = false;
-						for(int z= possChan-1; z >= 0 ; z--){
-							if (value_In[elem_Pos.get(z).intValue()] != 1){
-								possChan = z;
-								foundZ = true;
-								int newValue = value_In[elem_Pos.get(possChan).intValue()]-1;
-								
-								value_In[elem_Pos.get(possChan).intValue()] = newValue;
-								for(int j= possChan+1; j < elem_Pos.size() ; j++){
-									int p = elem_Pos.get(j).intValue();
-									value_In[p] = 1;
-								}
-								possChan++;
-								break;
-							}
-						}
-						if(!foundZ)
-							break;
-						
-					}
-					
-					continue;
-				} /*final not occurrence*/
-				
-				/*set the occurrence into the matrix*/
-				value_In[elem_Pos.get(possChan).intValue()] = occurence;
-					
-				double massT = calculateMassT(isotopes_TO,value_In);
-				double diff_new = Math.abs(mass - (massT));
-				
-				if(diff_new < tolerance){
-					IMolecularFormula myMF = getFormula(isotopes_TO,value_In);
-					String newMFString = MolecularFormulaManipulator.getString(myMF);
-
-					if(!newMFString.equals(lastMFString)){
-						molecularFormulaSet.addMolecularFormula(myMF);
-						lastMFString = newMFString;
-					}
-				}
-				
-				if(count_E == 1)/*only valid for the first random 1000*/
-					break;
-				
-				if (possChan < elem_Pos.size()-1){
-					/*Means that is possible to fit the next*/
-//					value_In[elem_Pos.get(possChan).intValue()] = maxx;
-					possChan++;
-					
-				}else{
-					boolean foundZ = false;
-					for(int z= possChan-1; z >= 0 ; z--){
-						if (value_In[elem_Pos.get(z).intValue()] != 1){
-							possChan = z;
-							foundZ = true;
-							int newValue = value_In[elem_Pos.get(possChan).intValue()]-1;
-							
-							value_In[elem_Pos.get(possChan).intValue()] = newValue;
-							for(int j= possChan+1; j < elem_Pos.size() ; j++){
-								int p = elem_Pos.get(j).intValue();
-								value_In[p] = 1;
-							}
-							possChan++;
-							break;
-						}
-					}
-					if(!foundZ)
-						break;
-					
-				}
+					valid = ((MMElementRule) rule).validate(isotopes, counts);
+				if(valid != 1.0)
+					return false;
 			}
-			
+		} catch (CDKException e) {
+			logger.debug(e);
+			return false;
 		}
-		
-		return returnOrdered(mass, molecularFormulaSet);
+		return true;
 	}
+
 	/**
 	 * Put the order the List of IIsotope according the probability occurrence.
 	 * 
@@ -475,174 +434,18 @@ public class MassToFormulaTool {
 				    "Th", "Pa", "U", "Np", "Pu"};
 		return listElements;
 	}
-	/**
-	 * Get the maximal occurrence of this List.
-	 * 
-	 * @param massTo
-	 * @param element_pos
-	 * @param matrix
-	 * @param elemToCond_new
-	 * @return                 The occurrence value
-	 */
-	private int getMaxOccurence(double massTo, int element_pos, int[] matrix,List<IIsotope> isoToCond_new) {
-		double massIn = isoToCond_new.get(element_pos).getExactMass();
-		double massToM = massTo;
-		for(int i = 0; i < matrix.length ; i++)
-			if (i != element_pos)
-				if(matrix[i] != 0)
-					massToM -= isoToCond_new.get(i).getExactMass()*matrix[i];
-				
-		
-		int value = (int)((massToM+1)/massIn);
-		return value;
-	}
-
 	/**
 	 * Set the formula molecular as IMolecularFormula object.
 	 *   
-	 * @param elemToCond_new   List with IIsotope
-	 * @param value_In         Array matrix with occurrences
+	 * @param value_In         Array with the occurrence of each isotope
 	 * @return                 The IMolecularFormula
 	 */
-	private IMolecularFormula getFormula(List<IIsotope> isoToCond_new, int[] value_In) {
+	private IMolecularFormula getFormula(int[] value_In) {
 		IMolecularFormula mf = builder.newInstance(IMolecularFormula.class);
-		for(int i = 0; i < isoToCond_new.size() ; i++){
-			if(value_In[i] != 0){
-				for(int j = 0 ; j < value_In[i] ; j ++)
-					mf.addIsotope(isoToCond_new.get(i));
-				
-			}
+		for(int i = 0; i < isotopes.length ; i++){
+			if(value_In[i] != 0)
+				mf.addIsotope(isotopes[i], value_In[i]);
 		}
-		mf = putInOrder(mf);
 		return mf;
 	}
-
-	/**
-	 * Put in order the elements of the molecular formula. 
-	 * 
-	 * @param formula The IMolecularFormula to put in order
-	 * @return        IMolecularFormula object
-	 */
-	private IMolecularFormula putInOrder(IMolecularFormula formula) {
-		IMolecularFormula new_formula = formula.getBuilder().newInstance(IMolecularFormula.class);
-		for(int i = 0 ; i < orderElements.length; i++){
-			IElement element = builder.newInstance(IElement.class, orderElements[i]);
-			if(MolecularFormulaManipulator.containsElement(formula,element)){
-				Iterator<IIsotope> isotopes = MolecularFormulaManipulator.getIsotopes(formula, element).iterator();
-				while(isotopes.hasNext()){
-					IIsotope isotope = isotopes.next();
-					new_formula.addIsotope(isotope,formula.getIsotopeCount(isotope));
-				}
-			}
-		}
-//		new_mf.setCharge(charge);
-		return new_formula;
-	}
-	/**
-	 * Calculate the mass total given the elements and their respective occurrences.
-	 * 
-	 * @param elemToCond_new  The IIsotope to calculate
-	 * @param value_In        Array matrix with occurrences
-	 * @return                The sum total
-	 */
-	private double calculateMassT(List<IIsotope> isoToCond_new, int[] value_In) {
-		double result = 0;
-		for(int i = 0; i < isoToCond_new.size() ; i++){
-			if(value_In[i] != 0){
-				result += isoToCond_new.get(i).getExactMass()*value_In[i];
-			}
-		}
-		return result;
-	}
-	
-	
-	
-	/**
-	 * Return all molecular formulas but ordered according the tolerance difference between masses.
-	 * 
-	 * @param  mass        The mass to analyze
-	 * @param  formulaSet  The IMolecularFormulaSet to order
-	 * @return             The IMolecularFormulaSet ordered
-	 */
-	private IMolecularFormulaSet returnOrdered(double mass, IMolecularFormulaSet formulaSet){
-		IMolecularFormulaSet solutions_new = null;
-		
-		if(formulaSet.size() != 0){
-
-			double valueMin = 100;
-			int i_final = 0;
-	        solutions_new = formulaSet.getBuilder().newInstance(IMolecularFormulaSet.class);
-			List<Integer> listI = new ArrayList<Integer>();
-			for (int j = 0; j < formulaSet.size() ; j++){
-				for (int i = 0; i < formulaSet.size() ; i++){
-					if(listI.contains(i))
-						continue;
-					
-					double value = MolecularFormulaManipulator.getTotalExactMass(formulaSet.getMolecularFormula(i));
-					double diff = Math.abs(mass - Math.abs(value));
-					if (valueMin > diff){
-						valueMin = diff;
-						i_final = i;
-					}
-	
-				}
-				valueMin = 100;
-				solutions_new.addMolecularFormula(formulaSet.getMolecularFormula(i_final));
-				listI.add(i_final);
-			}
-		}
-		
-		return solutions_new;
-	}
-	/**
-	 * Get the corresponding matrix and create it.
-	 *  
-	 * @param size Size of the matrix to be created
-	 * @return     the matrix with the permutations
-	 */
-	private int[][] getMatrix(int size){
-        logger.info("Creating matrix for isotopes combination");
-        int lengthM = (int) Math.pow(2, size); 
-        lengthM--;// less 1 because the matrix 00000 we don't need
-        
-		int[][] matrix = new int[lengthM][size];
-
-		int[] combi = new int[size];
-		for(int j = 0 ; j < size ; j ++){
-			combi[j] = 0;
-		}
-		int posChang = size - 1;
-		int posRemov = size - 1;
-		for(int i = 0 ; i < lengthM; i++){ 
-			// cleaning to zeros
-			for(int j = posRemov ; j < size ; j ++){
-				combi[j] = 0;
-			}
-			
-			combi[posChang] = 1;
-
-			for(int j = 0 ; j < size ; j ++)
-				matrix[i][j] = combi[j];
-
-			if(posChang == size - 1){
-				//find where is zero position, place to change
-				for(int j = posChang ; j >= 0 ; j --){
-					if(combi[j] == 0){
-						posChang = j;
-						posRemov = j+1;
-						break;
-					}
-				}
-			}else{
-				//look for the last zero
-				for(int j = posChang ; j < size ; j ++){
-					if(combi[j] == 0){
-						posChang = j;
-					}
-				}
-			}
-		}
-		
-		return matrix;
-	}
 }
@@ -27,9 +27,9 @@ import java.io.IOException;
 import java.util.List;
 
 import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.formula.ConvolutionIsotopePatternGenerator;
 import org.openscience.cdk.formula.IsotopeContainer;
 import org.openscience.cdk.formula.IsotopePattern;
-import org.openscience.cdk.formula.IsotopePatternGenerator;
 import org.openscience.cdk.formula.IsotopePatternManipulator;
 import org.openscience.cdk.formula.IsotopePatternSimilarity;
 import org.openscience.cdk.interfaces.IMolecularFormula;
@@ -69,7 +69,7 @@ public class IsotopePatternRule implements IRule{
 
 	private IsotopePattern  pattern;
 
-	IsotopePatternGenerator isotopeGe;
+	ConvolutionIsotopePatternGenerator isotopeGe;
 
 	private IsotopePatternSimilarity is;
 	
@@ -80,7 +80,7 @@ public class IsotopePatternRule implements IRule{
      *  @throws ClassNotFoundException If an error occurs during tom typing
      */
     public IsotopePatternRule() {
-    	isotopeGe = new IsotopePatternGenerator(0.01);
+    	isotopeGe = new ConvolutionIsotopePatternGenerator(0.1);
     	is = new IsotopePatternSimilarity();
 		is.seTolerance(toleranceMass);
     }
@@ -140,7 +140,6 @@ public class IsotopePatternRule implements IRule{
     	logger.info("Start validation of ",formula);
     	
     	
-    	IsotopePatternGenerator isotopeGe = new IsotopePatternGenerator(0.1);
 		IsotopePattern patternIsoPredicted = isotopeGe.getIsotopes(formula);
 		IsotopePattern patternIsoNormalize = IsotopePatternManipulator.normalize(patternIsoPredicted);
 		
@@ -29,6 +29,7 @@ import java.util.Iterator;
 
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IElement;
+import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.interfaces.IMolecularFormula;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
@@ -178,7 +179,7 @@ public class MMElementRule implements IRule{
     	 while(itElem.hasNext()){
     		 IElement element = itElem.next();
     	 	 int occur = MolecularFormulaManipulator.getElementCount(formula, element);
-    		 if(occur > hashMap.get(element.getSymbol())){
+    		 if(!isValid(element.getSymbol(), occur)){
     		    isValid = 0.0;
     			break;
     	 	 }
@@ -186,6 +187,43 @@ public class MMElementRule implements IRule{
     	
         return isValid;
     }
+
+    /**
+     * Validate the occurrence of the elements of a molecular formula given as
+     * isotopes and their counts, without building an IMolecularFormula. This
+     * gives the same result as {@link #validate(IMolecularFormula)}.
+     *
+     * @param isotopes  The isotopes of the formula
+     * @param counts    The number of each isotope
+     * @return          A double value meaning 1.0 True, 0.0 False
+     */
+    public double validate(IIsotope[] isotopes, int[] counts) throws CDKException {
+    	 for(int i = 0; i < isotopes.length; i++){
+    		 if(counts[i] == 0)
+    			 continue;
+    		 String symbol = isotopes[i].getSymbol();
+    		 int occur = 0;
+    		 for(int j = 0; j < isotopes.length; j++)
+    			 if(isotopes[j].getSymbol().equals(symbol))
+    				 occur += counts[j];
+    		 if(!isValid(symbol, occur))
+    			 return 0.0;
+    	 }
+    	 return 1.0;
+    }
+
+    /**
+     * Whether the occurrence of an element is within its maximal limit.
+     * Elements which are not in the matrix are jumped.
+     *
+     * @param symbol The element symbol
+     * @param occur  The occurrence of the element
+     * @return       True, if the occurrence is allowed
+     */
+    private boolean isValid(String symbol, int occur) {
+    	 Integer maximum = hashMap.get(symbol);
+    	 return maximum == null || occur <= maximum;
+    }
     
     /**
      * Get the map linking the symbol of the element and number maximum of occurrence.
@@ -23,8 +23,12 @@
  */
 package org.openscience.cdk.formula.rules;
 
+import java.io.IOException;
+
+import org.openscience.cdk.config.IsotopeFactory;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IElement;
+import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.interfaces.IMolecularFormula;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
@@ -60,6 +64,9 @@ public class NitrogenRule implements IRule{
 	private static ILoggingTool logger =
 	    LoggingToolFactory.createLoggingTool(NitrogenRule.class);
 
+	/** Other elements which affect the calculation of the nominal mass.*/
+	private static final String[] OTHERS = {"Co","Hg","Pt","As"};
+
     /**
      *  Constructor for the NitrogenRule object.
      */
@@ -108,7 +115,45 @@ public class NitrogenRule implements IRule{
     	int numberN = MolecularFormulaManipulator.getElementCount(formula, formula.getBuilder().newInstance(IElement.class,"N"));
     	numberN += getOthers(formula);
     	
-    	if(formula.getCharge() == null || formula.getCharge() == 0 || !isOdd(Math.abs(formula.getCharge()))){
+    	return validate(mass, numberN, formula.getCharge());
+    }
+
+    /**
+     * Validate the nitrogen rule of an uncharged molecular formula given as
+     * isotopes and their counts, without building an IMolecularFormula.
+     * This gives the same result as {@link #validate(IMolecularFormula)}.
+     *
+     * @param isotopes  The isotopes of the formula
+     * @param counts    The number of each isotope
+     * @return          A double value meaning 1.0 True, 0.0 False
+     */
+    public double validate(IIsotope[] isotopes, int[] counts) throws CDKException {
+    	double mass = 0;
+    	int numberN = 0;
+    	for(int i = 0; i < isotopes.length; i++){
+    		if(counts[i] == 0)
+    			continue;
+    		String symbol = isotopes[i].getSymbol();
+    		try {
+    			mass += IsotopeFactory.getInstance(isotopes[i].getBuilder()).getMajorIsotope(symbol).getMassNumber() * counts[i];
+    		} catch (IOException e) {
+    			throw new CDKException("Could not read the isotope data: " + e.getMessage(), e);
+    		}
+    		if(symbol.equals("N") || isOther(symbol))
+    			numberN += counts[i];
+    	}
+    	if(mass == 0)
+    		return 0.0;
+    	
+    	return validate(mass, numberN, null);
+    }
+
+    /**
+     * Validate the nitrogen rule given the nominal mass, the number of
+     * nitrogen like atoms and the charge.
+     */
+    private double validate(double mass, int numberN, Integer charge) {
+    	if(charge == null || charge == 0 || !isOdd(Math.abs(charge))){
 	    	if(isOdd(mass) && isOdd(numberN)) {
 	    		return 1.0;
 	    	} else if(!isOdd(mass) && ( numberN == 0 || !isOdd(numberN))){
@@ -133,13 +178,25 @@ public class NitrogenRule implements IRule{
      */
     private int getOthers(IMolecularFormula formula) {
 		int number = 0;
-		String[] elements = {"Co","Hg","Pt","As"};
-		for(int i = 0 ; i < elements.length; i++)
-			number += MolecularFormulaManipulator.getElementCount(formula, formula.getBuilder().newInstance(IElement.class,elements[i]));
+		for(int i = 0 ; i < OTHERS.length; i++)
+			number += MolecularFormulaManipulator.getElementCount(formula, formula.getBuilder().newInstance(IElement.class,OTHERS[i]));
     	
 		return number;
 	}
 
+    /**
+     * Whether the element is one of those which affect the calculation of the nominal mass.
+     *
+     * @param symbol The element symbol
+     * @return       True, if it is one of the other elements
+     */
+    private boolean isOther(String symbol) {
+		for(int i = 0 ; i < OTHERS.length; i++)
+			if(OTHERS[i].equals(symbol))
+				return true;
+		return false;
+	}
+
 	/**
      * Determine if a integer is odd.
      * 
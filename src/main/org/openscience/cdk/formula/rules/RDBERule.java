@@ -31,13 +31,10 @@ import java.util.Map;
 
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.interfaces.IAtom;
-import org.openscience.cdk.interfaces.IElement;
 import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.interfaces.IMolecularFormula;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
-import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
 
 /**
  * <p>Ring Double Bond Equivalents (RDBE) or 
@@ -142,6 +139,30 @@ public class RDBERule implements IRule{
     	return 0.0;
     	
     }
+
+    /**
+     * Validate the RDBRule of an uncharged molecular formula given as isotopes
+     * and their counts, without building an IMolecularFormula. This gives the
+     * same result as {@link #validate(IMolecularFormula)}.
+     *
+     * @param isotopes  The isotopes of the formula
+     * @param counts    The number of each isotope
+     * @return          A double value meaning 1.0 True, 0.0 False
+     */
+    public double validate(IIsotope[] isotopes, int[] counts) throws CDKException {
+    	String[] symbols = new String[isotopes.length];
+    	for(int i = 0; i < isotopes.length; i++)
+    		symbols[i] = isotopes[i].getSymbol();
+    	
+    	for(double RDBE : getRDBEValue(symbols, counts)){
+    		if(min <= RDBE && RDBE <= 30)
+    			if(validate(RDBE, 0.0))
+    				return 1.0;
+    	}
+    	
+    	return 0.0;
+    }
+
     /**
      * Validate the ion state. It takes into account that neutral, nonradical compounds
      * always have an even-numbered pair-wiser arrangement of binding electrons signilizaded
@@ -159,6 +180,13 @@ public class RDBERule implements IRule{
     	if(formula.getCharge() != CDKConstants.UNSET)
     		charge = formula.getCharge();
     	
+    	return validate(value, charge);
+    }
+
+    /**
+     * Validate the ion state given the RDBE value and the charge.
+     */
+    private boolean validate(double value, double charge) {
     	long iPart = (long) value;
         double fPart = value - iPart;
         
@@ -180,38 +208,63 @@ public class RDBERule implements IRule{
      * @see           #createTable()
      */
 	public List<Double> getRDBEValue(IMolecularFormula formula) {
+		String[] symbols = new String[formula.getIsotopeCount()];
+		int[] counts = new int[symbols.length];
+		int i = 0;
+		for(IIsotope isotope : formula.isotopes()){
+			symbols[i] = isotope.getSymbol();
+			counts[i] = formula.getIsotopeCount(isotope);
+			i++;
+		}
+		return getRDBEValue(symbols, counts);
+	}
+
+	/**
+	 * Extract the Ring Double Bond Equivalents (RDB) values of the isotopes
+	 * given by their element symbols and counts.
+	 * 
+	 * @param symbols The element symbol of each isotope
+	 * @param counts  The number of each isotope
+	 * @return        The RDBE value
+	 */
+	private List<Double> getRDBEValue(String[] symbols, int[] counts) {
 		List<Double> RDBEList = new ArrayList<Double>();
 		// The number of combinations with repetition
 		// (v+n-1)!/[n!(v-1)!]
 		int nE = 0; // number of elements to change
 		List<Integer> nV = new ArrayList<Integer>(); // number of valence changing
-		for(Iterator<IIsotope> it = formula.isotopes().iterator(); it.hasNext();){
-    		IIsotope isotope = it.next();
-    		int[] valence = getOxidationState(formula.getBuilder().newInstance(IAtom.class,isotope.getSymbol()));
+		for(int i = 0; i < symbols.length; i++){
+			if(counts[i] == 0)
+				continue;
+    		int[] valence = getOxidationState(symbols[i]);
     		if(valence.length != 1){
-    			for(int i = 0; i < valence.length; i++){
-    				nV.add(valence[i]);
+    			for(int j = 0; j < valence.length; j++){
+    				nV.add(valence[j]);
     			}
-    			nE += MolecularFormulaManipulator.getElementCount(formula, formula.getBuilder().newInstance(IElement.class,isotope.getSymbol()));
+    			for(int j = 0; j < symbols.length; j++)
+    				if(symbols[j].equals(symbols[i]))
+    					nE += counts[j];
     		}
 		}
 		
 		double RDBE = 0;
 		if(nE == 0){
-			for(Iterator<IIsotope> it = formula.isotopes().iterator(); it.hasNext();){
-	    		IIsotope isotope = it.next();
-	    		int[] valence = getOxidationState(formula.getBuilder().newInstance(IAtom.class,isotope.getSymbol()));
-	    		double value = (valence[0]-2)*formula.getIsotopeCount(isotope)/2.0;
+			for(int i = 0; i < symbols.length; i++){
+				if(counts[i] == 0)
+					continue;
+	    		int[] valence = getOxidationState(symbols[i]);
+	    		double value = (valence[0]-2)*counts[i]/2.0;
 	    		RDBE += value;
 	    	}	
 			RDBE += 1;
 	    	RDBEList.add(RDBE);
 		}else{
 			double RDBE_1 = 0;
-			for(Iterator<IIsotope> it = formula.isotopes().iterator(); it.hasNext();){
-	    		IIsotope isotope = it.next();
-	    		int[] valence = getOxidationState(formula.getBuilder().newInstance(IAtom.class,isotope.getSymbol()));
-	    		double value = (valence[0]-2)*formula.getIsotopeCount(isotope)*0.5;
+			for(int i = 0; i < symbols.length; i++){
+				if(counts[i] == 0)
+					continue;
+	    		int[] valence = getOxidationState(symbols[i]);
+	    		double value = (valence[0]-2)*counts[i]*0.5;
 	    		RDBE_1 += value;
 	    	}
 			String[] valences = new String[nV.size()];
@@ -236,11 +289,11 @@ public class RDBERule implements IRule{
 	/**
 	 * Get the common oxidation state given a atom.
 	 * 
-	 * @param newAtom The IAtom
+	 * @param symbol  The element symbol
 	 * @return        The oxidation state value
 	 */
-	private int[] getOxidationState(IAtom newAtom) {
-		return oxidationStateTable.get(newAtom.getSymbol());
+	private int[] getOxidationState(String symbol) {
+		return oxidationStateTable.get(symbol);
 	}
 	/**
      * Create the table with the common oxidation states
@@ -0,0 +1,403 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.geometry;
+
+import java.util.Arrays;
+
+import javax.vecmath.Point3d;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * A uniform grid of cubic cells over a set of 3D points, to find the
+ * points near a position without comparing it to all points.
+ *
+ * <p>The points are given as one array of x, y and z coordinates, and are
+ * referred to by their index. The grid keeps the points of each cell in
+ * one array of indices, in index order, with the offset of each cell in a
+ * second array. When the box around the points has few cells compared to
+ * the number of points, the cells are indexed by their position in the
+ * box; otherwise only the occupied cells are kept, as a sorted array of
+ * cell keys which is searched by bisection.
+ *
+ * <p>The grid does not change after it is made, and the queries which fill
+ * a given array make no objects, so one grid can be queried by several
+ * threads at the same time. The coordinates are not copied, and must not
+ * change while the grid is used.
+ *
+ * <p>Queries are fastest when the cell size is about the query radius:
+ * <pre>
+ *   SpatialGrid grid = new SpatialGrid(SpatialGrid.getCoordinates(atoms), 2.0);
+ *   int[] found = new int[grid.size()];
+ *   int count = grid.getNeighbors(x, y, z, 2.0, found);
+ * </pre>
+ *
+ * @cdk.module  standard
+ * @cdk.githash
+ * @cdk.keyword neighbor list
+ */
+@TestClass("org.openscience.cdk.geometry.SpatialGridTest")
+public final class SpatialGrid {
+
+    /** The maximum number of cells along an axis, so that cell keys fit in a long. */
+    private static final int MAX_CELLS = 1 << 20;
+
+    private final double[] coordinates;
+    private final int size;
+    private final double cellSize;
+    private final double minX, minY, minZ;
+    private final int nx, ny, nz;
+    /** The keys of the occupied cells, in order, or null if all cells of the box are indexed. */
+    private final long[] keys;
+    /** The points of cell c are members[start[c]] to members[start[c + 1] - 1]. */
+    private final int[] start;
+    private final int[] members;
+
+    /**
+     * Makes a grid over the points.
+     *
+     * @param coordinates the x, y and z coordinates of each point
+     * @param cellSize    the edge length of the cells
+     * @throws IllegalArgumentException if the cell size is not positive, or
+     *                                  the coordinates are not triples
+     */
+    @TestMethod("testSpatialGrid_arraydouble_double")
+    public SpatialGrid(double[] coordinates, double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize))
+            throw new IllegalArgumentException("The cell size must be positive: " + cellSize);
+        if (coordinates.length % 3 != 0)
+            throw new IllegalArgumentException("The coordinates must have three values per point");
+        this.coordinates = coordinates;
+        this.size = coordinates.length / 3;
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int i = 0; i < coordinates.length; i += 3) {
+            minX = Math.min(minX, coordinates[i]);
+            minY = Math.min(minY, coordinates[i + 1]);
+            minZ = Math.min(minZ, coordinates[i + 2]);
+            maxX = Math.max(maxX, coordinates[i]);
+            maxY = Math.max(maxY, coordinates[i + 1]);
+            maxZ = Math.max(maxZ, coordinates[i + 2]);
+        }
+        if (size == 0) minX = minY = minZ = maxX = maxY = maxZ = 0;
+        double extent = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+        this.cellSize = Math.max(cellSize, extent / (MAX_CELLS - 1));
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.nx = (int) ((maxX - minX) / this.cellSize) + 1;
+        this.ny = (int) ((maxY - minY) / this.cellSize) + 1;
+        this.nz = (int) ((maxZ - minZ) / this.cellSize) + 1;
+
+        long[] pointKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            pointKeys[i] = key(cell(coordinates[3 * i], minX, nx), cell(coordinates[3 * i + 1], minY, ny),
+                               cell(coordinates[3 * i + 2], minZ, nz));
+        }
+        int cellCount;
+        int[] cells = new int[size];
+        if ((long) nx * ny * nz <= 4L * size + 1024) {
+            keys = null;
+            cellCount = nx * ny * nz;
+            for (int i = 0; i < size; i++) cells[i] = (int) pointKeys[i];
+        } else {
+            long[] sorted = pointKeys.clone();
+            Arrays.sort(sorted);
+            cellCount = 0;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) sorted[cellCount++] = sorted[i];
+            }
+            keys = new long[cellCount];
+            System.arraycopy(sorted, 0, keys, 0, cellCount);
+            for (int i = 0; i < size; i++) cells[i] = Arrays.binarySearch(keys, pointKeys[i]);
+        }
+
+        // counting sort of the points by cell
+        start = new int[cellCount + 1];
+        for (int i = 0; i < size; i++) start[cells[i] + 1]++;
+        for (int c = 0; c < cellCount; c++) start[c + 1] += start[c];
+        int[] next = new int[cellCount];
+        System.arraycopy(start, 0, next, 0, cellCount);
+        members = new int[size];
+        for (int i = 0; i < size; i++) members[next[cells[i]]++] = i;
+    }
+
+    /**
+     * Returns the coordinates of the atoms, as used by the grid.
+     *
+     * @param  atoms the atoms, with 3D coordinates
+     * @return       the x, y and z coordinates of each atom
+     * @throws IllegalArgumentException if an atom has no 3D coordinates
+     */
+    @TestMethod("testGetCoordinates_arrayIAtom")
+    public static double[] getCoordinates(IAtom[] atoms) {
+        double[] coordinates = new double[3 * atoms.length];
+        for (int i = 0; i < atoms.length; i++) {
+            Point3d point = atoms[i].getPoint3d();
+            if (point == null) throw new IllegalArgumentException("Atom " + i + " has no 3D coordinates");
+            coordinates[3 * i] = point.x;
+            coordinates[3 * i + 1] = point.y;
+            coordinates[3 * i + 2] = point.z;
+        }
+        return coordinates;
+    }
+
+    /**
+     * Returns the coordinates of the atoms of a container, as used by the grid.
+     *
+     * @param  container the atoms, with 3D coordinates
+     * @return           the x, y and z coordinates of each atom, in container order
+     * @throws IllegalArgumentException if an atom has no 3D coordinates
+     */
+    @TestMethod("testGetCoordinates_IAtomContainer")
+    public static double[] getCoordinates(IAtomContainer container) {
+        IAtom[] atoms = new IAtom[container.getAtomCount()];
+        for (int i = 0; i < atoms.length; i++) atoms[i] = container.getAtom(i);
+        return getCoordinates(atoms);
+    }
+
+    /**
+     * Returns the number of points.
+     *
+     * @return the number of points in the grid
+     */
+    @TestMethod("testSpatialGrid_arraydouble_double")
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the edge length of the cells. This is larger than the size
+     * given when the points are spread so widely that the grid would
+     * otherwise have more than 2<sup>20</sup> cells along an axis.
+     *
+     * @return the cell size
+     */
+    @TestMethod("testSpatialGrid_arraydouble_double")
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Finds the points within a distance of a position, including points
+     * at exactly that distance. The points are stored in the given array,
+     * which must be large enough; an array of {@link #size()} is.
+     *
+     * @param  x      the x coordinate of the position
+     * @param  y      the y coordinate of the position
+     * @param  z      the z coordinate of the position
+     * @param  radius the distance
+     * @param  found  the array to store the indices of the points in
+     * @return        the number of points found
+     */
+    @TestMethod("testGetNeighbors_double_double_double_double_arrayint")
+    public int getNeighbors(double x, double y, double z, double radius, int[] found) {
+        if (size == 0 || !(radius >= 0)) return 0;
+        int x0 = clamp(x - radius, minX, nx), x1 = clamp(x + radius, minX, nx);
+        int y0 = clamp(y - radius, minY, ny), y1 = clamp(y + radius, minY, ny);
+        int z0 = clamp(z - radius, minZ, nz), z1 = clamp(z + radius, minZ, nz);
+        if (x0 >= nx || x1 < 0 || y0 >= ny || y1 < 0 || z0 >= nz || z1 < 0) return 0;
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        z0 = Math.max(z0, 0);
+        x1 = Math.min(x1, nx - 1);
+        y1 = Math.min(y1, ny - 1);
+        z1 = Math.min(z1, nz - 1);
+
+        double radius2 = radius * radius;
+        int count = 0;
+        for (int ix = x0; ix <= x1; ix++) {
+            for (int iy = y0; iy <= y1; iy++) {
+                for (int iz = z0; iz <= z1; iz++) {
+                    int c = index(ix, iy, iz);
+                    if (c < 0) continue;
+                    for (int m = start[c]; m < start[c + 1]; m++) {
+                        int point = members[m];
+                        double dx = coordinates[3 * point] - x;
+                        double dy = coordinates[3 * point + 1] - y;
+                        double dz = coordinates[3 * point + 2] - z;
+                        if (dx * dx + dy * dy + dz * dz <= radius2) found[count++] = point;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the other points within a distance of a point, including
+     * points at exactly that distance.
+     *
+     * @param  point  the index of the point
+     * @param  radius the distance
+     * @return        the indices of the points found, by cell and then in index order
+     */
+    @TestMethod("testGetNeighbors_int_double")
+    public int[] getNeighbors(int point, double radius) {
+        double x = coordinates[3 * point], y = coordinates[3 * point + 1], z = coordinates[3 * point + 2];
+        int[] found = new int[getCandidateCount(x, y, z, radius)];
+        int count = getNeighbors(x, y, z, radius, found);
+        int neighbors = 0;
+        for (int i = 0; i < count; i++) {
+            if (found[i] != point) found[neighbors++] = found[i];
+        }
+        int[] result = new int[neighbors];
+        System.arraycopy(found, 0, result, 0, neighbors);
+        return result;
+    }
+
+    /**
+     * The number of points in the cells which a query of the distance
+     * around the position searches, the most points it can find.
+     */
+    private int getCandidateCount(double x, double y, double z, double radius) {
+        if (size == 0 || !(radius >= 0)) return 0;
+        int x0 = Math.max(clamp(x - radius, minX, nx), 0), x1 = Math.min(clamp(x + radius, minX, nx), nx - 1);
+        int y0 = Math.max(clamp(y - radius, minY, ny), 0), y1 = Math.min(clamp(y + radius, minY, ny), ny - 1);
+        int z0 = Math.max(clamp(z - radius, minZ, nz), 0), z1 = Math.min(clamp(z + radius, minZ, nz), nz - 1);
+        int count = 0;
+        for (int ix = x0; ix <= x1; ix++) {
+            for (int iy = y0; iy <= y1; iy++) {
+                for (int iz = z0; iz <= z1; iz++) {
+                    int c = index(ix, iy, iz);
+                    if (c >= 0) count += start[c + 1] - start[c];
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the points nearest to a position. The cells are searched in
+     * shells around the cell of the position, until no point in the next
+     * shell can be nearer than the points found.
+     *
+     * @param  x the x coordinate of the position
+     * @param  y the y coordinate of the position
+     * @param  z the z coordinate of the position
+     * @param  k the number of points to find
+     * @return   the indices of the k nearest points, or of all points if there
+     *           are fewer, nearest first and in index order at equal distance
+     */
+    @TestMethod("testGetNearest_double_double_double_int")
+    public int[] getNearest(double x, double y, double z, int k) {
+        k = Math.max(0, Math.min(k, size));
+        int[] nearest = new int[k];
+        double[] distances = new double[k];
+        if (k == 0) return nearest;
+
+        long hx = (long) Math.floor((x - minX) / cellSize);
+        long hy = (long) Math.floor((y - minY) / cellSize);
+        long hz = (long) Math.floor((z - minZ) / cellSize);
+        // the first shell which reaches the grid, and the shell which covers it
+        long first = Math.max(Math.max(outside(hx, nx), outside(hy, ny)), outside(hz, nz));
+        long last = Math.max(Math.max(cover(hx, nx), cover(hy, ny)), cover(hz, nz));
+        int count = 0;
+        for (long r = first; r <= last; r++) {
+            int x0 = (int) Math.max(hx - r, 0), x1 = (int) Math.min(hx + r, nx - 1);
+            int y0 = (int) Math.max(hy - r, 0), y1 = (int) Math.min(hy + r, ny - 1);
+            int z0 = (int) Math.max(hz - r, 0), z1 = (int) Math.min(hz + r, nz - 1);
+            for (int ix = x0; ix <= x1; ix++) {
+                boolean xFace = Math.abs(ix - hx) == r;
+                for (int iy = y0; iy <= y1; iy++) {
+                    boolean face = xFace || Math.abs(iy - hy) == r;
+                    // inside the shell only the two z faces are on it
+                    int step = face ? 1 : (int) Math.max(1, 2 * r);
+                    for (long iz = face ? z0 : hz - r; iz <= (face ? z1 : hz + r); iz += step) {
+                        if (iz < z0 || iz > z1) continue;
+                        int c = index(ix, iy, (int) iz);
+                        if (c < 0) continue;
+                        for (int m = start[c]; m < start[c + 1]; m++) {
+                            count = insert(members[m], x, y, z, nearest, distances, count);
+                        }
+                    }
+                }
+            }
+            // the points outside the shell are at least r cells away
+            double bound = r * cellSize;
+            if (count == k && distances[k - 1] <= bound * bound) break;
+        }
+        return nearest;
+    }
+
+    /**
+     * Adds a point to the nearest points found, kept in order of distance
+     * and then index.
+     */
+    private int insert(int point, double x, double y, double z, int[] nearest, double[] distances, int count) {
+        double dx = coordinates[3 * point] - x;
+        double dy = coordinates[3 * point + 1] - y;
+        double dz = coordinates[3 * point + 2] - z;
+        double distance = dx * dx + dy * dy + dz * dz;
+        int k = nearest.length;
+        if (count == k && !before(distance, point, distances[k - 1], nearest[k - 1])) return count;
+        int i = count == k ? k - 1 : count++;
+        while (i > 0 && before(distance, point, distances[i - 1], nearest[i - 1])) {
+            nearest[i] = nearest[i - 1];
+            distances[i] = distances[i - 1];
+            i--;
+        }
+        nearest[i] = point;
+        distances[i] = distance;
+        return count;
+    }
+
+    private static boolean before(double distance, int point, double otherDistance, int other) {
+        return distance < otherDistance || (distance == otherDistance && point < other);
+    }
+
+    /** The cell of a coordinate along an axis, unbounded. */
+    private int cell(double value, double min, int n) {
+        return Math.min((int) ((value - min) / cellSize), n - 1);
+    }
+
+    /** The cell of a coordinate along an axis, -1 or n if outside the grid. */
+    private int clamp(double value, double min, int n) {
+        double cell = Math.floor((value - min) / cellSize);
+        return (int) Math.max(-1, Math.min(n, cell));
+    }
+
+    /** The number of shells from a cell to the grid along an axis. */
+    private static long outside(long cell, int n) {
+        return cell < 0 ? -cell : Math.max(0, cell - (n - 1));
+    }
+
+    /** The number of shells around a cell which cover the grid along an axis. */
+    private static long cover(long cell, int n) {
+        return Math.max(Math.abs(cell), Math.abs(cell - (n - 1)));
+    }
+
+    private long key(int ix, int iy, int iz) {
+        return ((long) ix * ny + iy) * nz + iz;
+    }
+
+    /** The index of a cell in the grid, or a negative number if it has no points. */
+    private int index(int ix, int iy, int iz) {
+        long key = key(ix, iy, iz);
+        return keys == null ? (int) key : Arrays.binarySearch(keys, key);
+    }
+}
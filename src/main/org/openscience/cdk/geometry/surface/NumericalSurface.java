@@ -21,6 +21,7 @@
 package org.openscience.cdk.geometry.surface;
 
 import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.geometry.SpatialGrid;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.tools.ILoggingTool;
@@ -30,7 +31,15 @@ import org.openscience.cdk.tools.periodictable.PeriodicTable;
 
 import javax.vecmath.Point3d;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * A class representing the solvent acessible surface area surface of a molecule.
@@ -49,6 +58,12 @@ import java.util.Iterator;
  * Van der Waals surface. The accuracy can be increased by increasing the tessellation 
  * level, though the default of 4 is a good balance between accuracy and speed.
  *
+ * <p>The tessellation of each level is made once and shared by all surfaces.
+ * The atoms which can bury the points of an atom are looked up in a
+ * {@link SpatialGrid}, and the points are kept as arrays of coordinates.
+ * The surfaces of the atoms are independent, and can be calculated by
+ * several threads with {@link #calculateSurface(int)}.
+ *
  * @author      Rajarshi Guha
  * @cdk.created 2005-05-08  
  * @cdk.module  qsarmolecular
@@ -58,10 +73,12 @@ import java.util.Iterator;
 public class NumericalSurface {
     private static ILoggingTool logger =
         LoggingToolFactory.createLoggingTool(NumericalSurface.class);
+    /** The points of the icosahedral tessellation of each level, as x, y and z coordinates. */
+    private static final ConcurrentMap<Integer,double[]> tessellations = new ConcurrentHashMap<Integer,double[]>();
     double solvent_radius = 1.4;
     int tesslevel = 4;
     IAtom[] atoms;
-    ArrayList[] surf_points;
+    double[][] surf_points;
     double[] areas;
     double[] volumes;
 
@@ -101,58 +118,115 @@ public class NumericalSurface {
      * as well as calculating the surface area of each atom
      */
     public void calculateSurface() {
+        try {
+            calculateSurface(1);
+        } catch (CDKException exception) {
+            // only thrown by the threads
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Evaluate the surface, with the atoms split over several threads. The
+     * results are the same as those of {@link #calculateSurface()}.
+     *
+     * @param threads the number of threads to calculate with
+     * @throws CDKException if the calculation was interrupted or failed in a thread
+     */
+    public void calculateSurface(int threads) throws CDKException {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed: " + threads);
 
         // get r_f and geometric center
-        Point3d cp = new Point3d(0,0,0);
+        final double[] coordinates = SpatialGrid.getCoordinates(atoms);
+        final double[] radii = new double[atoms.length];
+        final double[] cp = new double[3];
         double max_radius = 0;
         for (int i = 0; i < atoms.length; i++) {
-            double vdwr = PeriodicTable.getVdwRadius(atoms[i].getSymbol());
-            if (vdwr+solvent_radius > max_radius)
-                max_radius = PeriodicTable.getVdwRadius(atoms[i].getSymbol())+solvent_radius;
+            radii[i] = PeriodicTable.getVdwRadius(atoms[i].getSymbol()) + solvent_radius;
+            if (radii[i] > max_radius)
+                max_radius = radii[i];
 
-            cp.x = cp.x + atoms[i].getPoint3d().x;
-            cp.y = cp.y + atoms[i].getPoint3d().y;
-            cp.z = cp.z + atoms[i].getPoint3d().z;
+            cp[0] = cp[0] + coordinates[3 * i];
+            cp[1] = cp[1] + coordinates[3 * i + 1];
+            cp[2] = cp[2] + coordinates[3 * i + 2];
         }
-        cp.x = cp.x / atoms.length;
-        cp.y = cp.y / atoms.length;
-        cp.z = cp.z / atoms.length;
-
+        cp[0] = cp[0] / atoms.length;
+        cp[1] = cp[1] / atoms.length;
+        cp[2] = cp[2] / atoms.length;
 
         // do the tesselation
-        Tessellate tess = new Tessellate("ico",tesslevel);
-        tess.doTessellate();
-        logger.info("Got tesselation, number of triangles = "+tess.getNumberOfTriangles());
-
+        final double[] tess = getTessellation(tesslevel);
+        logger.info("Got tesselation, number of triangles = " + tess.length / 9);
 
-        // get neighbor list
-        NeighborList nbrlist = new NeighborList(atoms, max_radius+solvent_radius);
+        // only atoms closer than the sum of the radii bury points of each other
+        final double maxRadius = max_radius;
+        final SpatialGrid grid = new SpatialGrid(coordinates, Math.max(maxRadius, 0.1));
         logger.info("Got neighbor list");
 
-        /*
-           for (int i = 0; i < atoms.length; i++) {
-           int[] nlist = nbrlist.getNeighbors(i);
-           logger.debug("Atom "+i+": ");
-           for (int j = 0; j < nlist.length; j++)
-           logger.debug(j+" ");
-           logger.debug("");
-           }
-           */
-
         // loop over atoms and get surface points
-        this.surf_points = new ArrayList[ atoms.length ];
+        this.surf_points = new double[ atoms.length ][];
         this.areas = new double[ atoms.length ];
         this.volumes = new double[ atoms.length ];
 
-        for (int i = 0; i < atoms.length; i++) {
-            int point_density = tess.getNumberOfTriangles()*3;
-            Point3d[][] points = atomicSurfacePoints(nbrlist, i, atoms[i], tess);
-            translatePoints(i, points, point_density, atoms[i], cp);
+        int blocks = threads == 1 ? 1 : Math.min(atoms.length, 8 * threads);
+        if (blocks <= 1) {
+            atomicSurfacePoints(grid, coordinates, radii, maxRadius, tess, cp, 0, atoms.length);
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "NumericalSurface worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            try {
+                List<Future<Object>> results = new ArrayList<Future<Object>>();
+                for (int block = 0; block < blocks; block++) {
+                    final int from = (int) ((long) atoms.length * block / blocks);
+                    final int to = (int) ((long) atoms.length * (block + 1) / blocks);
+                    results.add(executor.submit(new Callable<Object>() {
+                        public Object call() {
+                            atomicSurfacePoints(grid, coordinates, radii, maxRadius, tess, cp, from, to);
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Object> result : results) result.get();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new CDKException("Interrupted while calculating the surface", exception);
+            } catch (ExecutionException exception) {
+                throw new CDKException("Could not calculate the surface: " + exception.getCause().getMessage(),
+                                       exception.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
         }
         logger.info("Obtained points, areas and volumes");
 
     }
 
+    /**
+     * The points of the tessellation of the unit sphere, shared by all
+     * surfaces of the same level.
+     */
+    private static double[] getTessellation(int level) {
+        double[] points = tessellations.get(level);
+        if (points == null) {
+            Tessellate tess = new Tessellate("ico", level);
+            tess.doTessellate();
+            Point3d[] tess_points = tess.getTessAsPoint3ds();
+            points = new double[3 * tess_points.length];
+            for (int i = 0; i < tess_points.length; i++) {
+                points[3 * i] = tess_points[i].x;
+                points[3 * i + 1] = tess_points[i].y;
+                points[3 * i + 2] = tess_points[i].z;
+            }
+            tessellations.putIfAbsent(level, points);
+        }
+        return points;
+    }
+
     /**
      * Get an array of all the points on the molecular surface.
      *
@@ -164,13 +238,13 @@ public class NumericalSurface {
     public Point3d[] getAllSurfacePoints() {
         int npt = 0;
         for (int i = 0; i < this.surf_points.length; i++)
-            npt += this.surf_points[i].size();
+            npt += this.surf_points[i].length / 3;
         Point3d[] ret = new Point3d[npt];
         int j = 0;
         for (int i = 0; i < this.surf_points.length; i++) {
-            ArrayList arl = this.surf_points[i];
-            for (Iterator it = arl.iterator(); it.hasNext();) {
-                ret[j] = (Point3d)it.next();
+            double[] points = this.surf_points[i];
+            for (int k = 0; k < points.length; k += 3) {
+                ret[j] = new Point3d(points[k], points[k + 1], points[k + 2]);
                 j++;
             }
         }
@@ -189,9 +263,9 @@ public class NumericalSurface {
         if (atomIdx >= this.surf_points.length) {
             throw new CDKException("Atom index was out of bounds");
         }
-        ArrayList arl = this.surf_points[atomIdx];
-        Point3d[] ret = new Point3d[arl.size()];
-        for (int i = 0; i < arl.size(); i++) ret[i] = (Point3d)arl.get(i);
+        double[] points = this.surf_points[atomIdx];
+        Point3d[] ret = new Point3d[points.length / 3];
+        for (int i = 0; i < ret.length; i++) ret[i] = new Point3d(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
         return(ret);
     }
     /**
@@ -229,95 +303,83 @@ public class NumericalSurface {
         return(ta);
     }
 
+    /**
+     * Calculates the surface points, area and volume of a block of atoms.
+     * The tessellation points of an atom are buried by the neighbors closer
+     * than the sum of their radii; consecutive points tend to be buried by
+     * the same neighbor, which is therefore tested first.
+     */
+    private void atomicSurfacePoints(SpatialGrid grid, double[] coordinates, double[] radii, double maxRadius,
+                                     double[] tess, double[] cp, int from, int to) {
+        int[] nlist = new int[atoms.length];
+        double[] data = new double[4 * atoms.length];
+        double[] points = new double[tess.length];
+        int point_density = tess.length / 3;
+
+        for (int atom = from; atom < to; atom++) {
+            double x = coordinates[3 * atom], y = coordinates[3 * atom + 1], z = coordinates[3 * atom + 2];
+            double total_radius = radii[atom];
+            double total_radius2 = total_radius*total_radius;
+            double twice_total_radius = 2*total_radius;
+
+            int found = grid.getNeighbors(x, y, z, total_radius + maxRadius, nlist);
+            int neighbors = 0;
+            for (int i = 0; i < found; i++) {
+                int j = nlist[i];
+                if (j == atom) continue;
+                double x12 = coordinates[3 * j] - x;
+                double y12 = coordinates[3 * j + 1] - y;
+                double z12 = coordinates[3 * j + 2] - z;
+
+                double d2 = x12*x12 + y12*y12 + z12*z12;
+                double tmp = radii[j] * radii[j];
+                double thresh = (d2 + total_radius2 - tmp) / twice_total_radius;
+
+                data[4 * neighbors] = x12;
+                data[4 * neighbors + 1] = y12;
+                data[4 * neighbors + 2] = z12;
+                data[4 * neighbors + 3] = thresh;
+                neighbors++;
+            }
 
-    private void translatePoints(int atmIdx, Point3d[][] points, int point_density, IAtom atom, Point3d cp) {
-        double total_radius = PeriodicTable.getVdwRadius(atom.getSymbol()) + solvent_radius;
-
-        double area = 4 * Math.PI * (total_radius*total_radius) * points.length / point_density;
-
-        double sumx = 0.0;
-        double sumy = 0.0;
-        double sumz = 0.0;
-        for (int i = 0; i < points.length; i++) {
-            Point3d p = points[i][1];
-            sumx += p.x;
-            sumy += p.y;
-            sumz += p.z;
-        }
-        double vconst = 4.0/3.0 * Math.PI / (double)point_density;
-        double dotp1 = (atom.getPoint3d().x - cp.x)*sumx +
-            (atom.getPoint3d().y - cp.y)*sumy +
-            (atom.getPoint3d().z - cp.z)*sumz;
-        double volume = vconst*(total_radius*total_radius) *dotp1 +
-            (total_radius*total_radius*total_radius)*points.length;
-
-        this.areas[atmIdx] = area;
-        this.volumes[atmIdx] = volume;
-
-        ArrayList tmp = new ArrayList();
-        for (int i = 0; i < points.length; i++) tmp.add( points[i][0] );
-        this.surf_points[atmIdx] =  tmp;
-    }
-
-    private Point3d[][] atomicSurfacePoints(NeighborList nbrlist, int currAtomIdx, IAtom atom, Tessellate tess) {
-
-        double total_radius = PeriodicTable.getVdwRadius(atom.getSymbol()) + solvent_radius;
-        double total_radius2 = total_radius*total_radius;
-        double twice_total_radius = 2*total_radius;
-
-        int[] nlist = nbrlist.getNeighbors(currAtomIdx);
-        double[][] data = new double[ nlist.length ][4];
-        for (int i = 0; i < nlist.length; i++) {
-            double x12 = atoms[nlist[i]].getPoint3d().x - atom.getPoint3d().x;
-            double y12 = atoms[nlist[i]].getPoint3d().y - atom.getPoint3d().y;
-            double z12 = atoms[nlist[i]].getPoint3d().z - atom.getPoint3d().z;
-
-            double d2 = x12*x12 + y12*y12 + z12*z12;
-            double tmp = PeriodicTable.getVdwRadius(atoms[nlist[i]].getSymbol()) + solvent_radius;
-            tmp = tmp * tmp;
-            double thresh = (d2 + total_radius2 - tmp) / twice_total_radius;
-
-            data[i][0] = x12;
-            data[i][1] = y12;
-            data[i][2] = z12;
-            data[i][3] = thresh;
-        }
-
-        Point3d[] tess_points = tess.getTessAsPoint3ds();
-        ArrayList points = new ArrayList();
-        for (int i = 0; i < tess_points.length; i++) {
-            Point3d pt = tess_points[i];
-            boolean buried = false;
-            for (int j = 0; j < data.length; j++) {
-                if (data[j][0] * pt.x + data[j][1] * pt.y + data[j][2] * pt.z > data[j][3]) {
-                    buried = true;
-                    break;
+            int count = 0;
+            int last = 0;
+            double sumx = 0.0;
+            double sumy = 0.0;
+            double sumz = 0.0;
+            for (int i = 0; i < tess.length; i += 3) {
+                double px = tess[i], py = tess[i + 1], pz = tess[i + 2];
+                boolean buried = false;
+                for (int n = 0; n < neighbors; n++) {
+                    // start at the neighbor which buried the last point
+                    int j = 4 * ((last + n) % neighbors);
+                    if (data[j] * px + data[j + 1] * py + data[j + 2] * pz > data[j + 3]) {
+                        buried = true;
+                        last = j / 4;
+                        break;
+                    }
+                }
+                if (!buried) {
+                    points[count++] = total_radius * px + x;
+                    points[count++] = total_radius * py + y;
+                    points[count++] = total_radius * pz + z;
+                    sumx += px;
+                    sumy += py;
+                    sumz += pz;
                 }
             }
-            if (buried == false) {
-                Point3d[] tmp = new Point3d[2];
-                tmp[0] =  new Point3d(
-                        total_radius * pt.x + atom.getPoint3d().x,
-                        total_radius * pt.y + atom.getPoint3d().y,
-                        total_radius * pt.z + atom.getPoint3d().z
-                        );
-                tmp[1] = pt;
-                points.add( tmp );
-            }
-        }
 
-        // the first column contains the transformed points
-        // and the second column contains the points from the
-        // original unit tesselation
-        Point3d[][] ret = new Point3d[ points.size() ][2];
-        for (int i = 0; i < points.size(); i++) {
-            Point3d[] tmp = (Point3d[])points.get(i);
-            ret[i][0] = tmp[0];
-            ret[i][1] = tmp[1];
+            int npoints = count / 3;
+            double area = 4 * Math.PI * (total_radius*total_radius) * npoints / point_density;
+            double vconst = 4.0/3.0 * Math.PI / (double)point_density;
+            double dotp1 = (x - cp[0])*sumx + (y - cp[1])*sumy + (z - cp[2])*sumz;
+            double volume = vconst*(total_radius*total_radius) *dotp1 +
+                (total_radius*total_radius*total_radius)*npoints;
+
+            this.areas[atom] = area;
+            this.volumes[atom] = volume;
+            this.surf_points[atom] = new double[count];
+            System.arraycopy(points, 0, this.surf_points[atom], 0, count);
         }
-        return(ret);
     }
 }
-
-
-
@@ -0,0 +1,314 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.graph;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+/**
+ * An immutable snapshot of the connection table of an {@link IAtomContainer},
+ * with the neighbours of each atom stored as <code>int</code> indices. For
+ * every atom it holds the indices of the neighbouring atoms and, in the same
+ * order, the indices of the bonds to these atoms. Looking up the neighbours of
+ * an atom takes time proportional to its degree, instead of the number of
+ * bonds in the container.
+ *
+ * <p>Atoms and bonds are numbered as in the container at the time the
+ * snapshot was made, and neighbours are listed in the order of the bonds.
+ * Only bonds between two different atoms of the container are included.
+ * Changes made to the container afterwards are not reflected by a snapshot;
+ * use {@link #isCurrent(IAtomContainer)} to check whether it still describes
+ * the container, or {@link #getAdjacencyList(IAtomContainer)} to obtain an
+ * up to date one:
+ * <pre>
+ *   AdjacencyList adjacency = AdjacencyList.getAdjacencyList(container);
+ *   for (int i = 0; i < adjacency.getAtomCount(); i++) {
+ *       for (int neighbour : adjacency.getNeighbours(i)) {
+ *           ...
+ *       }
+ *   }
+ * </pre>
+ *
+ * @cdk.module  core
+ * @cdk.githash
+ * @cdk.keyword adjacency list
+ * @see IAdjacencyListProvider
+ */
+@TestClass("org.openscience.cdk.graph.AdjacencyListTest")
+public final class AdjacencyList {
+
+    private final IAtom[] atoms;
+    private final IBond[] bonds;
+    /** The two atoms of each bond when the snapshot was made, null for bonds of another size. */
+    private final IAtom[] bondAtoms;
+    private final int[][] neighbours;
+    private final int[][] edges;
+    private final int edgeCount;
+    private final Map<IAtom, Integer> atomIndices;
+
+    /**
+     * Creates a snapshot of the connection table of the given container.
+     *
+     * @param container the container
+     */
+    @TestMethod("testAdjacencyList_IAtomContainer")
+    public AdjacencyList(IAtomContainer container) {
+        int atomCount = container.getAtomCount();
+        int bondCount = container.getBondCount();
+        atoms = new IAtom[atomCount];
+        bonds = new IBond[bondCount];
+        bondAtoms = new IAtom[2 * bondCount];
+        atomIndices = new IdentityHashMap<IAtom, Integer>(2 * atomCount);
+        for (int i = 0; i < atomCount; i++) {
+            atoms[i] = container.getAtom(i);
+            if (!atomIndices.containsKey(atoms[i])) atomIndices.put(atoms[i], i);
+        }
+
+        // count the degrees first, so that the arrays have their exact size
+        int[] ends = new int[2 * bondCount];
+        int[] degree = new int[atomCount];
+        int count = 0;
+        for (int j = 0; j < bondCount; j++) {
+            bonds[j] = container.getBond(j);
+            ends[2 * j] = -1;
+            if (bonds[j].getAtomCount() != 2) continue;
+            bondAtoms[2 * j] = bonds[j].getAtom(0);
+            bondAtoms[2 * j + 1] = bonds[j].getAtom(1);
+            Integer begin = atomIndices.get(bonds[j].getAtom(0));
+            Integer end = atomIndices.get(bonds[j].getAtom(1));
+            if (begin == null || end == null || begin.equals(end)) continue;
+            ends[2 * j] = begin;
+            ends[2 * j + 1] = end;
+            degree[begin]++;
+            degree[end]++;
+            count++;
+        }
+        edgeCount = count;
+
+        neighbours = new int[atomCount][];
+        edges = new int[atomCount][];
+        for (int i = 0; i < atomCount; i++) {
+            neighbours[i] = new int[degree[i]];
+            edges[i] = new int[degree[i]];
+            degree[i] = 0;
+        }
+        for (int j = 0; j < bondCount; j++) {
+            int begin = ends[2 * j];
+            if (begin < 0) continue;
+            int end = ends[2 * j + 1];
+            neighbours[begin][degree[begin]] = end;
+            edges[begin][degree[begin]++] = j;
+            neighbours[end][degree[end]] = begin;
+            edges[end][degree[end]++] = j;
+        }
+    }
+
+    /**
+     * Returns an up to date adjacency list of the given container. If the
+     * container implements {@link IAdjacencyListProvider} its cached adjacency
+     * list is used, otherwise a new one is created.
+     *
+     * @param container the container
+     * @return the adjacency list of the container
+     */
+    @TestMethod("testGetAdjacencyList_IAtomContainer")
+    public static AdjacencyList getAdjacencyList(IAtomContainer container) {
+        if (container instanceof IAdjacencyListProvider)
+            return ((IAdjacencyListProvider) container).getAdjacencyList();
+        return new AdjacencyList(container);
+    }
+
+    /**
+     * Checks whether this snapshot still describes the given container: the
+     * container has the same atoms and bonds in the same order, and the bonds
+     * have the same atoms. This takes time proportional to the number of atoms
+     * and bonds, but is cheaper than making a new snapshot.
+     *
+     * @param container the container
+     * @return true if the container did not change since the snapshot was made
+     */
+    @TestMethod("testIsCurrent_IAtomContainer")
+    public boolean isCurrent(IAtomContainer container) {
+        if (container.getAtomCount() != atoms.length || container.getBondCount() != bonds.length)
+            return false;
+        for (int i = 0; i < atoms.length; i++) {
+            if (container.getAtom(i) != atoms[i]) return false;
+        }
+        for (int j = 0; j < bonds.length; j++) {
+            IBond bond = container.getBond(j);
+            if (bond != bonds[j]) return false;
+            if (bond.getAtomCount() == 2) {
+                if (bond.getAtom(0) != bondAtoms[2 * j] || bond.getAtom(1) != bondAtoms[2 * j + 1])
+                    return false;
+            } else if (bondAtoms[2 * j] != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of atoms.
+     *
+     * @return the number of atoms
+     */
+    @TestMethod("testAdjacencyList_IAtomContainer")
+    public int getAtomCount() {
+        return atoms.length;
+    }
+
+    /**
+     * Returns the number of bonds, including the bonds that are not between
+     * two atoms of the container.
+     *
+     * @return the number of bonds
+     * @see #getEdgeCount()
+     */
+    @TestMethod("testAdjacencyList_IAtomContainer")
+    public int getBondCount() {
+        return bonds.length;
+    }
+
+    /**
+     * Returns the number of bonds that are between two atoms of the container,
+     * which are the bonds that are listed as edges.
+     *
+     * @return the number of edges
+     */
+    @TestMethod("testGetEdgeCount")
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the atom with the given index.
+     *
+     * @param index the index of the atom
+     * @return the atom
+     */
+    @TestMethod("testAdjacencyList_IAtomContainer")
+    public IAtom getAtom(int index) {
+        return atoms[index];
+    }
+
+    /**
+     * Returns the bond with the given index.
+     *
+     * @param index the index of the bond
+     * @return the bond
+     */
+    @TestMethod("testGetEdges_int")
+    public IBond getBond(int index) {
+        return bonds[index];
+    }
+
+    /**
+     * Returns the index of the given atom, or -1 if the atom is not in the
+     * adjacency list. This lookup does not scan the atoms.
+     *
+     * @param atom the atom
+     * @return the index of the atom
+     */
+    @TestMethod("testIndexOf_IAtom")
+    public int indexOf(IAtom atom) {
+        Integer index = atomIndices.get(atom);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the number of neighbours of the atom with the given index.
+     *
+     * @param atom the index of the atom
+     * @return the number of neighbours
+     */
+    @TestMethod("testGetNeighbours_int")
+    public int getDegree(int atom) {
+        return neighbours[atom].length;
+    }
+
+    /**
+     * Returns the indices of the neighbours of the atom with the given index.
+     * The returned array is shared and must not be modified.
+     *
+     * @param atom the index of the atom
+     * @return the indices of the neighbouring atoms
+     */
+    @TestMethod("testGetNeighbours_int")
+    public int[] getNeighbours(int atom) {
+        return neighbours[atom];
+    }
+
+    /**
+     * Returns the indices of the bonds of the atom with the given index, in
+     * the same order as {@link #getNeighbours(int)}. The returned array is
+     * shared and must not be modified.
+     *
+     * @param atom the index of the atom
+     * @return the indices of the bonds to the neighbouring atoms
+     */
+    @TestMethod("testGetEdges_int")
+    public int[] getEdges(int atom) {
+        return edges[atom];
+    }
+
+    /**
+     * Returns the neighbour indices of all atoms, indexed by atom. The
+     * returned arrays are shared and must not be modified.
+     *
+     * @return the neighbour indices of all atoms
+     */
+    @TestMethod("testToNeighbourArray")
+    public int[][] toNeighbourArray() {
+        return neighbours;
+    }
+
+    /**
+     * Returns the bond indices of all atoms, indexed by atom. The returned
+     * arrays are shared and must not be modified.
+     *
+     * @return the bond indices of all atoms
+     */
+    @TestMethod("testToEdgeArray")
+    public int[][] toEdgeArray() {
+        return edges;
+    }
+
+    /**
+     * Returns the index of the first bond between the two atoms with the given
+     * indices, or -1 if they are not bonded.
+     *
+     * @param atom1 the index of the first atom
+     * @param atom2 the index of the second atom
+     * @return the index of the bond
+     */
+    @TestMethod("testGetBondIndex_int_int")
+    public int getBondIndex(int atom1, int atom2) {
+        int[] atomNeighbours = neighbours[atom1];
+        for (int k = 0; k < atomNeighbours.length; k++) {
+            if (atomNeighbours[k] == atom2) return edges[atom1][k];
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,46 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.graph;
+
+/**
+ * Implemented by atom containers that keep an {@link AdjacencyList} of their
+ * atoms and bonds. The adjacency list is created when it is first asked for,
+ * and discarded when atoms or bonds are added, removed or replaced.
+ *
+ * <p>The atoms of a bond the container already holds may also be changed,
+ * with {@link org.openscience.cdk.interfaces.IBond#setAtom} or
+ * {@link org.openscience.cdk.interfaces.IBond#setAtoms}. A bond which
+ * notifies the container of its changes makes it discard the adjacency list
+ * at once; other bonds are caught because the kept adjacency list is checked
+ * with {@link AdjacencyList#isCurrent} before it is returned.
+ *
+ * @cdk.module  core
+ * @cdk.githash
+ * @see AdjacencyList#getAdjacencyList(org.openscience.cdk.interfaces.IAtomContainer)
+ */
+public interface IAdjacencyListProvider {
+
+    /**
+     * Returns the adjacency list of the current atoms and bonds.
+     *
+     * @return the adjacency list
+     */
+    public AdjacencyList getAdjacencyList();
+
+}
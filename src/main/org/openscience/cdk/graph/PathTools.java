@@ -453,6 +453,7 @@ public class PathTools {
      */
     @TestMethod("testGetShortestPath_IAtomContainer_IAtom_IAtom")
     public static List<IAtom> getShortestPath(IAtomContainer atomContainer, IAtom start, IAtom end) {
+        AdjacencyList adjacency = AdjacencyList.getAdjacencyList(atomContainer);
         int natom = atomContainer.getAtomCount();
         int endNumber = atomContainer.getAtomNumber(end);
         int startNumber = atomContainer.getAtomNumber(start);
@@ -485,9 +486,7 @@ public class PathTools {
             if (index == endNumber) break;
 
             // relaxation
-            List<IAtom> connected = atomContainer.getConnectedAtomsList(atomContainer.getAtom(index));
-            for (IAtom aConnected : connected) {
-                int anum = atomContainer.getAtomNumber(aConnected);
+            for (int anum : adjacency.getNeighbours(index)) {
                 if (dist[anum] > dist[index] + 1) { // all edges have equals weights
                     dist[anum] = dist[index] + 1;
                     previous[anum] = index;
@@ -523,11 +522,11 @@ public class PathTools {
     public static List<List<IAtom>> getAllPaths(IAtomContainer atomContainer, IAtom start, IAtom end) {
         List<List<IAtom>> allPaths = new ArrayList<List<IAtom>>();
         if (start.equals(end)) return allPaths;
-        findPathBetween(allPaths, atomContainer, start, end, new ArrayList<IAtom>());
+        findPathBetween(allPaths, AdjacencyList.getAdjacencyList(atomContainer), start, end, new ArrayList<IAtom>());
         return allPaths;
     }
 
-    private static void findPathBetween(List<List<IAtom>> allPaths, IAtomContainer atomContainer, IAtom start, IAtom end, List<IAtom> path) {
+    private static void findPathBetween(List<List<IAtom>> allPaths, AdjacencyList adjacency, IAtom start, IAtom end, List<IAtom> path) {
         if (start == end) {
             path.add(start);
             allPaths.add(new ArrayList<IAtom>(path));
@@ -537,8 +536,8 @@ public class PathTools {
         if (path.contains(start))
             return;
         path.add(start);
-        List<IAtom> nbrs = atomContainer.getConnectedAtomsList(start);
-        for (IAtom nbr : nbrs) findPathBetween(allPaths, atomContainer, nbr, end, path);
+        for (int nbr : getNeighbours(adjacency, start))
+            findPathBetween(allPaths, adjacency, adjacency.getAtom(nbr), end, path);
         path.remove(path.size() - 1);
     }
 
@@ -555,6 +554,7 @@ public class PathTools {
      */
     @TestMethod("testGetPathsOfLength_IAtomContainer_IAtom_int")
     public static List<List<IAtom>> getPathsOfLength(IAtomContainer atomContainer, IAtom start, int length) {
+        AdjacencyList adjacency = AdjacencyList.getAdjacencyList(atomContainer);
         List<IAtom> curPath = new ArrayList<IAtom>();
         List<List<IAtom>> paths = new ArrayList<List<IAtom>>();
         curPath.add(start);
@@ -564,8 +564,8 @@ public class PathTools {
             for (List<IAtom> path : paths) {
                 curPath = path;
                 IAtom lastVertex = curPath.get(curPath.size() - 1);
-                List<IAtom> neighbors = atomContainer.getConnectedAtomsList(lastVertex);
-                for (IAtom neighbor : neighbors) {
+                for (int neighborIndex : getNeighbours(adjacency, lastVertex)) {
+                    IAtom neighbor = adjacency.getAtom(neighborIndex);
                     List<IAtom> newPath = new ArrayList<IAtom>(curPath);
                     if (newPath.contains(neighbor)) continue;
                     newPath.add(neighbor);
@@ -591,6 +591,7 @@ public class PathTools {
      */
     @TestMethod("testGetPathsOfLengthUpto")
     public static List<List<IAtom>> getPathsOfLengthUpto(IAtomContainer atomContainer, IAtom start, int length) {
+        AdjacencyList adjacency = AdjacencyList.getAdjacencyList(atomContainer);
         List<IAtom> curPath = new ArrayList<IAtom>();
         List<List<IAtom>> paths = new ArrayList<List<IAtom>>();
         List<List<IAtom>> allpaths = new ArrayList<List<IAtom>>();
@@ -602,8 +603,8 @@ public class PathTools {
             for (List<IAtom> path : paths) {
                 curPath = path;
                 IAtom lastVertex = curPath.get(curPath.size() - 1);
-                List<IAtom> neighbors = atomContainer.getConnectedAtomsList(lastVertex);
-                for (IAtom neighbor : neighbors) {
+                for (int neighborIndex : getNeighbours(adjacency, lastVertex)) {
+                    IAtom neighbor = adjacency.getAtom(neighborIndex);
                     List<IAtom> newPath = new ArrayList<IAtom>(curPath);
                     if (newPath.contains(neighbor)) continue;
                     newPath.add(neighbor);
@@ -617,6 +618,12 @@ public class PathTools {
         return (allpaths);
     }
 
-
+    /**
+     * Returns the indices of the neighbours of the given atom, or an empty
+     * array if the atom is not in the adjacency list.
+     */
+    private static int[] getNeighbours(AdjacencyList adjacency, IAtom atom) {
+        int index = adjacency.indexOf(atom);
+        return index < 0 ? new int[0] : adjacency.getNeighbours(index);
+    }
 }
-
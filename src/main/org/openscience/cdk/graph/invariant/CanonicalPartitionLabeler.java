@@ -0,0 +1,299 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.graph.invariant;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.graph.AdjacencyList;
+import org.openscience.cdk.group.AtomDiscretePartitionRefiner;
+import org.openscience.cdk.group.Partition;
+import org.openscience.cdk.group.Permutation;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.smiles.InvPair;
+import org.openscience.cdk.tools.periodictable.PeriodicTable;
+
+/**
+ * Canonically labels an atom container with the algorithm of Weininger
+ * et al. {@cdk.cite WEI89}, like the {@link CanonicalLabeler}, but with
+ * canonical tie breaking.
+ *
+ * <p>The invariants and ranks are kept in primitive arrays, so no strings
+ * or {@link InvPair}s are made, and the labeler holds no state: one
+ * instance can label molecules in several threads at the same time.
+ * Atoms which are not told apart by their invariants get the same labels
+ * as from the {@link CanonicalLabeler}.
+ *
+ * <p>When the invariants leave ties, the {@link CanonicalLabeler} breaks
+ * them at the first tied atom in input order, which gives different
+ * labels for different atom orders unless the tied atoms are symmetry
+ * equivalent. Here the tied classes are refined to a canonical atom order
+ * with the {@link AtomDiscretePartitionRefiner}, which compares the bond
+ * orders and prunes the search with the automorphisms found, and the tie
+ * is broken at the tied atom which comes first in that order.
+ *
+ * @cdk.module  group
+ * @cdk.githash
+ * @cdk.keyword canonicalization
+ * @see         CanonicalLabeler
+ */
+@TestClass("org.openscience.cdk.graph.invariant.CanonicalPartitionLabelerTest")
+public class CanonicalPartitionLabeler {
+
+    /**
+     * Canonically label the atoms. The labels are set as atom property
+     * {@link InvPair#CANONICAL_LABEL} of type Long, like the
+     * {@link CanonicalLabeler} does.
+     *
+     * @param atomContainer the molecule to label
+     */
+    @TestMethod("testCanonLabel_IAtomContainer")
+    public void canonLabel(IAtomContainer atomContainer) {
+        long[] labels = getCanonicalLabels(atomContainer);
+        for (int i = 0; i < labels.length; i++) {
+            atomContainer.getAtom(i).setProperty(InvPair.CANONICAL_LABEL, Long.valueOf(labels[i]));
+        }
+    }
+
+    /**
+     * Calculate the canonical labels of the atoms, without changing the
+     * atom container.
+     *
+     * @param  atomContainer the molecule to label
+     * @return               the labels, from 1 to the atom count, indexed like the atoms
+     */
+    @TestMethod("testGetCanonicalLabels_IAtomContainer")
+    public long[] getCanonicalLabels(IAtomContainer atomContainer) {
+        int n = atomContainer.getAtomCount();
+        if (n == 0) return new long[0];
+
+        int[][] neighbours = new AdjacencyList(atomContainer).toNeighbourArray();
+        long[] curr = invariants(atomContainer, neighbours);
+        long[] last = new long[n];
+        int[] prime = new int[n];
+        int[] primes = primes(2 * n);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        int[] tmp = new int[n];
+        long[] ranks = new long[n];
+        int[] position = null;
+
+        while (true) {
+            // sort by last, then current invariant, and rank
+            sort(order, tmp, 0, n, last, curr);
+            long rank = 1;
+            for (int x = 0; x < n; x++) {
+                if (x > 0 && (last[order[x]] != last[order[x - 1]] || curr[order[x]] != curr[order[x - 1]]))
+                    rank++;
+                ranks[x] = rank;
+            }
+            for (int x = 0; x < n; x++) {
+                curr[order[x]] = ranks[x];
+                prime[order[x]] = primes[(int) ranks[x] - 1];
+            }
+
+            if (invariantPartition(order, last, curr)) {
+                if (curr[order[n - 1]] == n) break;
+                if (position == null) position = canonicalPositions(atomContainer, order, curr);
+                breakTies(order, curr, prime, primes, position);
+            }
+
+            // the product of the neighbouring primes
+            for (int i = 0; i < n; i++) {
+                long product = 1;
+                for (int neighbour : neighbours[i]) product *= prime[neighbour];
+                last[i] = curr[i];
+                curr[i] = product;
+            }
+        }
+        return curr;
+    }
+
+    /**
+     * The invariants of step 1: the connections including hydrogens, the
+     * heavy atom connections, atomic number, sign of the charge, absolute
+     * formal charge and hydrogen count, concatenated as decimal numbers.
+     */
+    private static long[] invariants(IAtomContainer atomContainer, int[][] neighbours) {
+        long[] invariants = new long[neighbours.length];
+        for (int i = 0; i < invariants.length; i++) {
+            IAtom atom = atomContainer.getAtom(i);
+            int hydrogens = atom.getImplicitHydrogenCount() == CDKConstants.UNSET ? 0 : atom.getImplicitHydrogenCount();
+            Integer atomicNumber = PeriodicTable.getAtomicNumber(atom.getSymbol());
+            Double charge = atom.getCharge();
+            Integer formalCharge = atom.getFormalCharge();
+            long invariant = neighbours[i].length + hydrogens;
+            invariant = append(invariant, neighbours[i].length);
+            invariant = append(invariant, atomicNumber == null ? 0 : atomicNumber);
+            invariant = append(invariant, charge != CDKConstants.UNSET && charge < 0 ? 1 : 0);
+            invariant = append(invariant, formalCharge == CDKConstants.UNSET ? 0 : Math.abs(formalCharge));
+            invariants[i] = append(invariant, hydrogens);
+        }
+        return invariants;
+    }
+
+    /** Append the decimal digits of a number to another. */
+    private static long append(long number, int digits) {
+        long shift = 10;
+        while (shift <= digits) shift *= 10;
+        return number * shift + digits;
+    }
+
+    /** The first count primes. */
+    private static int[] primes(int count) {
+        int[] primes = new int[count];
+        int found = 0;
+        for (int candidate = 2; found < count; candidate++) {
+            boolean prime = true;
+            for (int i = 0; i < found && primes[i] * primes[i] <= candidate; i++) {
+                if (candidate % primes[i] == 0) {
+                    prime = false;
+                    break;
+                }
+            }
+            if (prime) primes[found++] = candidate;
+        }
+        return primes;
+    }
+
+    /**
+     * Whether the ranks are discrete or did not change in the last
+     * iteration.
+     */
+    private static boolean invariantPartition(int[] order, long[] last, long[] curr) {
+        if (curr[order[order.length - 1]] == order.length) return true;
+        for (int i : order) {
+            if (curr[i] != last[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Break the first tie of the sorted ranks, at the tied atom which comes
+     * first in the canonical order.
+     */
+    private static void breakTies(int[] order, long[] curr, int[] prime, int[] primes, int[] position) {
+        int tie = -1;
+        for (int x = 0; x < order.length; x++) {
+            curr[order[x]] *= 2;
+            prime[order[x]] = primes[(int) curr[order[x]] - 1];
+            if (tie == -1 && x > 0 && curr[order[x]] == curr[order[x - 1]]) tie = x - 1;
+        }
+        int atom = order[tie];
+        for (int x = tie + 1; x < order.length && curr[order[x]] == curr[atom]; x++) {
+            if (position[order[x]] < position[atom]) atom = order[x];
+        }
+        curr[atom]--;
+        prime[atom] = primes[(int) curr[atom] - 1];
+    }
+
+    /**
+     * The position of each atom in the canonical order found by refining
+     * the partition of the atoms by rank.
+     */
+    private static int[] canonicalPositions(IAtomContainer atomContainer, int[] order, long[] curr) {
+        Partition partition = new Partition();
+        for (int start = 0, end = 1; start < order.length; start = end++) {
+            while (end < order.length && curr[order[end]] == curr[order[start]]) end++;
+            int[] cell = new int[end - start];
+            System.arraycopy(order, start, cell, 0, cell.length);
+            partition.addCell(cell);
+        }
+        AtomDiscretePartitionRefiner refiner = new BondOrderRefiner(atomContainer);
+        refiner.refine(atomContainer, partition);
+        Permutation best = refiner.getBest();
+        int[] position = new int[order.length];
+        for (int i = 0; i < position.length; i++) position[best.get(i)] = i;
+        return position;
+    }
+
+    /**
+     * A refiner which compares the bond orders, also of aromatic bonds, as
+     * the SMILES are written with them. Bonds without an order count as
+     * single or, if aromatic, as aromatic bonds.
+     */
+    private static final class BondOrderRefiner extends AtomDiscretePartitionRefiner {
+
+        private final int[][] neighbours;
+        private final int[][] orders;
+
+        BondOrderRefiner(IAtomContainer atomContainer) {
+            super(false, true);
+            int n = atomContainer.getAtomCount();
+            Map<IAtom, Integer> indices = new HashMap<IAtom, Integer>();
+            for (int i = 0; i < n; i++) indices.put(atomContainer.getAtom(i), i);
+            int[] degree = new int[n];
+            for (IBond bond : atomContainer.bonds()) {
+                degree[indices.get(bond.getAtom(0))]++;
+                degree[indices.get(bond.getAtom(1))]++;
+            }
+            neighbours = new int[n][];
+            orders = new int[n][];
+            for (int i = 0; i < n; i++) {
+                neighbours[i] = new int[degree[i]];
+                orders[i] = new int[degree[i]];
+                degree[i] = 0;
+            }
+            for (IBond bond : atomContainer.bonds()) {
+                int order = bond.getOrder() != null ? bond.getOrder().numeric()
+                                                    : bond.getFlag(CDKConstants.ISAROMATIC) ? 5 : 1;
+                int a = indices.get(bond.getAtom(0)), b = indices.get(bond.getAtom(1));
+                neighbours[a][degree[a]] = b;
+                orders[a][degree[a]++] = order;
+                neighbours[b][degree[b]] = a;
+                orders[b][degree[b]++] = order;
+            }
+        }
+
+        @Override
+        public int getConnectivity(int i, int j) {
+            for (int k = 0; k < neighbours[i].length; k++) {
+                if (neighbours[i][k] == j) return orders[i][k];
+            }
+            return 0;
+        }
+    }
+
+    /** A stable merge sort of order[from, to) by last, then curr. */
+    private static void sort(int[] order, int[] tmp, int from, int to, long[] last, long[] curr) {
+        if (to - from < 2) return;
+        int middle = (from + to) >>> 1;
+        sort(order, tmp, from, middle, last, curr);
+        sort(order, tmp, middle, to, last, curr);
+        if (!less(order[middle], order[middle - 1], last, curr)) return;
+        System.arraycopy(order, from, tmp, from, to - from);
+        for (int i = from, j = middle, k = from; k < to; k++) {
+            if (j == to || (i < middle && !less(tmp[j], tmp[i], last, curr))) order[k] = tmp[i++];
+            else order[k] = tmp[j++];
+        }
+    }
+
+    private static boolean less(int a, int b, long[] last, long[] curr) {
+        return last[a] < last[b] || (last[a] == last[b] && curr[a] < curr[b]);
+    }
+}
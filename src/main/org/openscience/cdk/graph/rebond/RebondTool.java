@@ -24,22 +24,36 @@
  */
 package org.openscience.cdk.graph.rebond;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.geometry.SpatialGrid;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 
-import java.util.Iterator;
-
 /**
  * Provides tools to rebond a molecule from 3D coordinates only.
- * The algorithm uses an efficient algorithm using a
- * Binary Space Partitioning Tree (Bspt). It requires that the 
+ * The algorithm looks up the atoms near each atom in a
+ * {@link SpatialGrid}. It requires that the 
  * atom types are configured such that the covalent bond radii
  * for all atoms are set. The AtomTypeFactory can be used for this.
  *
+ * <p>Each pair of atoms is only considered from the atom with the lower
+ * index, so the bonds found need not be looked up in the container, and
+ * they are added to it at once. The searches can be split over several
+ * threads, which gives the same bonds in the same order.
+ *
  * @cdk.keyword rebonding
  * @cdk.keyword bond, recalculation
  * @cdk.dictref blue-obelisk:rebondFrom3DCoordinates
@@ -49,7 +63,7 @@ import java.util.Iterator;
  * @cdk.module  standard
  * @cdk.githash
  *
- * @see org.openscience.cdk.graph.rebond.Bspt
+ * @see org.openscience.cdk.geometry.SpatialGrid
  */
 @TestClass("org.openscience.cdk.graph.rebond.RebondToolTest")
 public class RebondTool {
@@ -58,63 +72,140 @@ public class RebondTool {
   private double minBondDistance;
   private double bondTolerance;
     
-  private Bspt bspt;
-    
   public RebondTool(double maxCovalentRadius, double minBondDistance,
                     double bondTolerance) {
     this.maxCovalentRadius = maxCovalentRadius;
     this.bondTolerance = bondTolerance;
     this.minBondDistance = minBondDistance;    
-    this.bspt = null;
   }
     
   /**
-   * Rebonding using a Binary Space Partition Tree. Note, that any bonds
-   * defined will be deleted first. It assumes the unit of 3D space to
-   * be 1 &Acircle;ngstrom.
+   * Rebonding using a spatial grid with cells of the largest bond length.
+   * Note, that any bonds defined will be deleted first. It assumes the unit
+   * of 3D space to be 1 &Acircle;ngstrom.
    */
   @TestMethod("testRebond_IAtomContainer")
   public void rebond(IAtomContainer container) throws CDKException {
+    rebond(container, 1);
+  }
+
+  /**
+   * Rebonding like {@link #rebond(IAtomContainer)}, with the atoms near
+   * each atom searched for by several threads. The bonds are created and
+   * added to the container afterwards, in the same order as with one thread.
+   *
+   * @param  container the atoms to rebond
+   * @param  threads   the number of threads to search with
+   * @throws CDKException if an atom has no covalent radius, or a search failed
+   */
+  @TestMethod("testRebond_IAtomContainer_int")
+  public void rebond(IAtomContainer container, int threads) throws CDKException {
+    if (threads < 1) throw new IllegalArgumentException("At least one thread is needed: " + threads);
     container.removeAllBonds();
     maxCovalentRadius = 0.0;
-    // construct a new binary space partition tree
-    bspt = new Bspt(3);
-    Iterator<IAtom> atoms = container.atoms().iterator();
-    while (atoms.hasNext()) {
-      IAtom atom = atoms.next();
+    final IAtom[] atoms = new IAtom[container.getAtomCount()];
+    final double[] radii = new double[atoms.length];
+    for (int i = 0; i < atoms.length; i++) {
+      IAtom atom = container.getAtom(i);
       double myCovalentRadius = atom.getCovalentRadius();
       if (myCovalentRadius == 0.0) {
           throw new CDKException("Atom(s) does not have covalentRadius defined.");
       }
       if (myCovalentRadius > maxCovalentRadius)
         maxCovalentRadius = myCovalentRadius;
-      TupleAtom tupleAtom = new TupleAtom(atom);
-      bspt.addTuple(tupleAtom);
+      atoms[i] = atom;
+      radii[i] = myCovalentRadius;
+    }
+    if (atoms.length == 0) return;
+    final double[] coordinates = SpatialGrid.getCoordinates(atoms);
+    final SpatialGrid grid = new SpatialGrid(coordinates, 2 * maxCovalentRadius + bondTolerance);
+
+    // the bonded pairs found from each block of atoms
+    int blocks = threads == 1 ? 1 : Math.min(atoms.length, 8 * threads);
+    int[][] pairs = new int[blocks][];
+    if (blocks == 1) {
+      pairs[0] = bondAtoms(atoms, radii, coordinates, grid, 0, atoms.length);
+    } else {
+      ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "RebondTool worker");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      try {
+        List<Future<int[]>> results = new ArrayList<Future<int[]>>();
+        for (int block = 0; block < blocks; block++) {
+          final int from = (int) ((long) atoms.length * block / blocks);
+          final int to = (int) ((long) atoms.length * (block + 1) / blocks);
+          results.add(executor.submit(new Callable<int[]>() {
+            public int[] call() {
+              return bondAtoms(atoms, radii, coordinates, grid, from, to);
+            }
+          }));
+        }
+        for (int block = 0; block < blocks; block++) pairs[block] = results.get(block).get();
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        throw new CDKException("Interrupted while rebonding", exception);
+      } catch (ExecutionException exception) {
+        throw new CDKException("Could not rebond: " + exception.getCause().getMessage(), exception.getCause());
+      } finally {
+        executor.shutdownNow();
+      }
     }
-    // rebond all atoms
-    atoms = container.atoms().iterator();
-    while (atoms.hasNext()) {
-      bondAtom(container, (IAtom)atoms.next());
+
+    int count = 0;
+    for (int[] block : pairs) count += block.length / 2;
+    IBond[] bonds = new IBond[count];
+    int b = 0;
+    for (int[] block : pairs) {
+      for (int p = 0; p < block.length; p += 2) {
+        IAtom atom = atoms[block[p]];
+        bonds[b++] = atom.getBuilder().newInstance(IBond.class, atom, atoms[block[p + 1]], IBond.Order.SINGLE);
+      }
     }
+    container.setBonds(bonds);
+    container.notifyChanged();
   }
     
   /**
-   * Rebonds one atom by looking up nearby atom using the binary space partition tree.
+   * Rebonds a block of atoms by looking up nearby atoms in the spatial grid.
+   * Only the atoms of higher index are bonded, the others bond to these.
+   *
+   * @return the bonded pairs, as the indices of the two atoms of each bond
    */
-  private void bondAtom(IAtomContainer container, IAtom atom) {
-    double myCovalentRadius = atom.getCovalentRadius();
-    double searchRadius = myCovalentRadius + maxCovalentRadius + bondTolerance;
-    Point tupleAtom = new Point(atom.getPoint3d().x, atom.getPoint3d().y, atom.getPoint3d().z);
-    for (Bspt.EnumerateSphere e = bspt.enumHemiSphere(tupleAtom, searchRadius); e.hasMoreElements(); ) {
-      IAtom atomNear = ((TupleAtom)e.nextElement()).getAtom();
-      if (atomNear != atom && container.getBond(atom, atomNear) == null) {
-        boolean bonded = isBonded(myCovalentRadius,  atomNear.getCovalentRadius(), e.foundDistance2());
-        if (bonded) {
-          IBond bond = atom.getBuilder().newInstance(IBond.class,atom, atomNear, IBond.Order.SINGLE);
-          container.addBond(bond);
+  private int[] bondAtoms(IAtom[] atoms, double[] radii, double[] coordinates, SpatialGrid grid,
+                          int from, int to) {
+    int[] found = new int[atoms.length];
+    int[] pairs = new int[2 * (to - from)];
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      double searchRadius = radii[i] + maxCovalentRadius + bondTolerance;
+      double x = coordinates[3 * i], y = coordinates[3 * i + 1], z = coordinates[3 * i + 2];
+      int near = grid.getNeighbors(x, y, z, searchRadius, found);
+      Arrays.sort(found, 0, near);
+      for (int n = 0; n < near; n++) {
+        int j = found[n];
+        if (j <= i || atoms[j] == atoms[i]) continue;
+        double dx = coordinates[3 * j] - x, dy = coordinates[3 * j + 1] - y, dz = coordinates[3 * j + 2] - z;
+        if (isBonded(radii[i], radii[j], dx * dx + dy * dy + dz * dz)) {
+          if (count == pairs.length) pairs = resize(pairs, 2 * count + 2);
+          pairs[count++] = i;
+          pairs[count++] = j;
         }
       }
     }
+    return resize(pairs, count);
+  }
+
+  /**
+   * Copies the first elements of an array into an array of the given length.
+   */
+  private static int[] resize(int[] array, int length) {
+    int[] resized = new int[length];
+    System.arraycopy(array, 0, resized, 0, Math.min(array.length, length));
+    return resized;
   }
 
   /** 
@@ -134,30 +225,4 @@ public class RebondTool {
       return distance2 <= maxAcceptable2;
   }
 
-    
-  class TupleAtom implements Bspt.Tuple {
-    IAtom atom;
-        
-    TupleAtom(IAtom atom) {
-      this.atom = atom;
-    }
-        
-    public double getDimValue(int dim) {
-      if (dim == 0)
-        return atom.getPoint3d().x;
-      if (dim == 1)
-        return atom.getPoint3d().y;
-      return atom.getPoint3d().z;
-    }
-        
-    public IAtom getAtom() {
-      return this.atom;
-    }
-        
-    public String toString() {
-      return ("<" + atom.getPoint3d().x + "," + atom.getPoint3d().y + "," +
-              atom.getPoint3d().z + ">");
-    }
-  }
-    
 }
@@ -0,0 +1,279 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io;
+
+import java.util.NoSuchElementException;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+
+/**
+ * Parses the fixed width columns of MDL molfile lines directly from the
+ * characters of the line, without creating a substring for each field. Each
+ * method gives the same result, and throws the same exceptions, as the
+ * combination of {@link String#substring(int, int)}, {@link String#trim()}
+ * and {@link Integer#parseInt(String)} or {@link Double#parseDouble(String)}
+ * it replaces. Numbers that are not plain decimals, like <code>1E-5</code>,
+ * are handed to the JDK parsers.
+ *
+ * @cdk.module io
+ * @cdk.githash
+ */
+@TestClass("org.openscience.cdk.io.MDLColumnParserTest")
+final class MDLColumnParser {
+
+    /** Powers of ten that are exactly representable as a double. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private MDLColumnParser() {}
+
+    /**
+     * Parses an integer from the given columns, as
+     * <code>Integer.parseInt(line.substring(begin, end).trim())</code>.
+     *
+     * @param line  the line
+     * @param begin the first column, inclusive
+     * @param end   the last column, exclusive
+     * @return the value
+     * @throws NumberFormatException if the columns do not hold an integer
+     * @throws StringIndexOutOfBoundsException if the line is too short
+     */
+    @TestMethod("testParseInt_String_int_int")
+    static int parseInt(String line, int begin, int end) {
+        checkBounds(line, begin, end);
+        while (begin < end && line.charAt(begin) <= ' ') begin++;
+        while (end > begin && line.charAt(end - 1) <= ' ') end--;
+        int i = begin;
+        boolean negative = false;
+        if (i < end && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            negative = line.charAt(i) == '-';
+            i++;
+        }
+        // up to nine digits cannot overflow
+        if (i == end || end - i > 9) return Integer.parseInt(line.substring(begin, end));
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return Integer.parseInt(line.substring(begin, end));
+            value = 10 * value + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a double from the given columns, as
+     * <code>Double.parseDouble(line.substring(begin, end).trim())</code>.
+     *
+     * @param line  the line
+     * @param begin the first column, inclusive
+     * @param end   the last column, exclusive
+     * @return the value
+     * @throws NumberFormatException if the columns do not hold a number
+     * @throws StringIndexOutOfBoundsException if the line is too short
+     */
+    @TestMethod("testParseDouble_String_int_int")
+    static double parseDouble(String line, int begin, int end) {
+        checkBounds(line, begin, end);
+        while (begin < end && line.charAt(begin) <= ' ') begin++;
+        while (end > begin && line.charAt(end - 1) <= ' ') end--;
+        int i = begin;
+        boolean negative = false;
+        if (i < end && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            negative = line.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = 10 * mantissa + (c - '0');
+                digits++;
+                if (decimals >= 0) decimals++;
+                if (digits > 18) break;
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+        // a mantissa below 2^53 and a power of ten up to 10^22 are both exact
+        // doubles, so their quotient is the correctly rounded value
+        if (i < end || digits == 0 || mantissa > (1L << 53)
+            || decimals >= POWERS_OF_TEN.length)
+            return Double.parseDouble(line.substring(begin, end));
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the digits in the given columns, ignoring all other characters,
+     * as <code>Integer.parseInt</code> of the digits of
+     * <code>line.substring(begin, end)</code>.
+     *
+     * @param line  the line
+     * @param begin the first column, inclusive
+     * @param end   the last column, exclusive
+     * @return the value
+     * @throws NumberFormatException if the columns hold no digits
+     * @throws StringIndexOutOfBoundsException if the line is too short
+     */
+    @TestMethod("testParseDigits_String_int_int")
+    static int parseDigits(String line, int begin, int end) {
+        checkBounds(line, begin, end);
+        int value = 0;
+        int digits = 0;
+        for (int i = begin; i < end; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = 10 * value + (c - '0');
+                digits++;
+            } else if (Character.isDigit(c) || digits > 9) {
+                return parseDigits(line.substring(begin, end));
+            }
+        }
+        if (digits == 0 || digits > 9) return parseDigits(line.substring(begin, end));
+        return value;
+    }
+
+    private static int parseDigits(String columns) {
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < columns.length(); i++) {
+            if (Character.isDigit(columns.charAt(i))) digits.append(columns.charAt(i));
+        }
+        return Integer.parseInt(digits.toString());
+    }
+
+    /**
+     * Returns the index of the first character of the white space at the end
+     * of the line, or the length of the line if it does not end with white
+     * space. White space is as matched by <code>\s</code> in a regular
+     * expression.
+     *
+     * @param line the line
+     * @return the length of the line without trailing white space
+     */
+    @TestMethod("testTrailingSpace_String")
+    static int trailingSpace(String line) {
+        int end = line.length();
+        while (end > 0 && isSpace(line.charAt(end - 1))) end--;
+        return end;
+    }
+
+    /**
+     * Whether the line is an alias line, as matched by the regular expression
+     * <code>A\s{1,4}\d+</code>.
+     *
+     * @param line the line
+     * @return true for an alias line
+     */
+    @TestMethod("testIsAlias_String")
+    static boolean isAlias(String line) {
+        int length = line.length();
+        if (length < 3 || line.charAt(0) != 'A') return false;
+        int i = 1;
+        while (i < length && i <= 4 && isSpace(line.charAt(i))) i++;
+        if (i == 1 || i == length) return false;
+        for (; i < length; i++) {
+            // \d only matches ASCII digits
+            if (line.charAt(i) < '0' || line.charAt(i) > '9') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the atom number of an alias line, as
+     * <code>Integer.parseInt(line.replaceFirst("A\\s{1,4}", ""))</code>.
+     *
+     * @param line an alias line
+     * @return the atom number
+     * @see #isAlias(String)
+     */
+    @TestMethod("testIsAlias_String")
+    static int parseAlias(String line) {
+        int i = 1;
+        while (i < line.length() && i <= 4 && isSpace(line.charAt(i))) i++;
+        return Integer.parseInt(line.substring(i));
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static void checkBounds(String line, int begin, int end) {
+        if (begin < 0 || end > line.length() || begin > end)
+            throw new StringIndexOutOfBoundsException("Columns " + begin + " to " + end
+                                                      + " are not on a line of length "
+                                                      + line.length());
+    }
+
+    /**
+     * Reads the integers of a property line one by one, as a
+     * {@link java.util.StringTokenizer} on <code>line.substring(begin)</code>
+     * followed by {@link Integer#parseInt(String)} of each token.
+     */
+    static final class Tokens {
+
+        private final String line;
+        private int position;
+
+        /**
+         * @param line  the line
+         * @param begin the column at which the first token starts or is preceded
+         *              by white space
+         * @throws StringIndexOutOfBoundsException if the line is too short
+         */
+        @TestMethod("testTokens")
+        Tokens(String line, int begin) {
+            checkBounds(line, begin, line.length());
+            this.line = line;
+            this.position = begin;
+        }
+
+        /**
+         * Returns the value of the next token.
+         *
+         * @return the value
+         * @throws NoSuchElementException if there are no more tokens
+         * @throws NumberFormatException if the token is not an integer
+         */
+        @TestMethod("testTokens")
+        int nextInt() {
+            int length = line.length();
+            while (position < length && isDelimiter(line.charAt(position))) position++;
+            if (position == length) throw new NoSuchElementException();
+            int begin = position;
+            while (position < length && !isDelimiter(line.charAt(position))) position++;
+            return parseInt(line, begin, position);
+        }
+
+        /** The default delimiters of the StringTokenizer. */
+        private static boolean isDelimiter(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+        }
+    }
+}
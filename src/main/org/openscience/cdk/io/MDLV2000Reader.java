@@ -65,8 +65,6 @@ import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 /**
  * Reads content from MDL molfiles and SD files. 
  * It can read a {@link IAtomContainer} or {@link IChemModel} from an MDL molfile, and
@@ -113,8 +111,6 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
 
     //Keep track of atoms and the lines they were on in the atom block.
     private List<IAtom> atomsByLinePosition;
-    // Pattern to remove trailing space (String.trim() will remove leading space, which we don't want)
-    private static final Pattern TRAILING_SPACE = Pattern.compile("\\s+$");
     
     public MDLV2000Reader() {
         this(new StringReader(""));
@@ -436,11 +432,11 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
                 handleError("This file must be read with the MDLReader.");
             }
 
-            atoms = Integer.parseInt(line.substring(0, 3).trim());
+            atoms = MDLColumnParser.parseInt(line, 0, 3);
 		    List<IAtom> atomList = new ArrayList<IAtom>();
 
             logger.debug("Atomcount: " + atoms);
-            bonds = Integer.parseInt(line.substring(3, 6).trim());
+            bonds = MDLColumnParser.parseInt(line, 3, 6);
             logger.debug("Bondcount: " + bonds);
             List<IBond> bondList = new ArrayList<IBond>();
 
@@ -451,16 +447,16 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
             int atomBlockLineNumber=0;
             for (int f = 0; f < atoms; f++) {
                 line = input.readLine(); linecount++; atomBlockLineNumber++;
-                Matcher trailingSpaceMatcher = TRAILING_SPACE.matcher(line);
-                if(trailingSpaceMatcher.find()){
+                int trailingSpace = MDLColumnParser.trailingSpace(line);
+                if (trailingSpace < line.length()) {
                     handleError("Trailing space found",
                                 linecount,
-                                trailingSpaceMatcher.start(), trailingSpaceMatcher.end());
-                    line = trailingSpaceMatcher.replaceAll("");
+                                trailingSpace, line.length());
+                    line = line.substring(0, trailingSpace);
                 }
-                x = Double.parseDouble(line.substring(0, 10).trim());
-                y = Double.parseDouble(line.substring(10, 20).trim());
-                z = Double.parseDouble(line.substring(20, 30).trim());
+                x = MDLColumnParser.parseDouble(line, 0, 10);
+                y = MDLColumnParser.parseDouble(line, 10, 20);
+                z = MDLColumnParser.parseDouble(line, 20, 30);
                 // *all* values should be zero, not just the sum
                 totalX += Math.abs(x);
                 totalY += Math.abs(y);
@@ -524,11 +520,10 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
                 
                 // parse further fields
                 if(line.length() >= 36){
-                String massDiffString = line.substring(34,36).trim();
-                logger.debug("Mass difference: ", massDiffString);
                 if (!(atom instanceof IPseudoAtom)) {
                     try {
-                        int massDiff = Integer.parseInt(massDiffString);
+                        int massDiff = MDLColumnParser.parseInt(line, 34, 36);
+                        logger.debug("Mass difference: ", massDiff);
                         if (massDiff != 0) {
                             IIsotope major = IsotopeFactory.getInstance(molecule.getBuilder()).getMajorIsotope(element);
                             atom.setMassNumber(major.getMassNumber() + massDiff);
@@ -553,11 +548,10 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
                 atom.setStereoParity(parity);
                 
                 if (line.length() >= 51) {
-                    String valenceString = removeNonDigits(line.substring(48,51));
-                    logger.debug("Valence: ", valenceString);
                     if (!(atom instanceof IPseudoAtom)) {
                         try {
-                            int valence = Integer.parseInt(valenceString);
+                            int valence = MDLColumnParser.parseDigits(line, 48, 51);
+                            logger.debug("Valence: ", valence);
                             if (valence != 0) {
                                 //15 is defined as 0 in mol files
                                 if(valence==15)
@@ -578,9 +572,8 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
                 }
                 
                 if(line.length() >= 39){
-                String chargeCodeString = line.substring(36,39).trim();
-                logger.debug("Atom charge code: ", chargeCodeString);
-                int chargeCode = Integer.parseInt(chargeCodeString);
+                int chargeCode = MDLColumnParser.parseInt(line, 36, 39);
+                logger.debug("Atom charge code: ", chargeCode);
                 if (chargeCode == 0) {
                     // uncharged species
                 } else if (chargeCode == 1) {
@@ -601,31 +594,30 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
                     handleError("Atom charge is missing", linecount, 36, 39);
                 }
                 
-                try {
+                if (line.length() >= 63) {
                     // read the mmm field as position 61-63
-                    String reactionAtomIDString = line.substring(60,63).trim();
-                    logger.debug("Parsing mapping id: ", reactionAtomIDString);
                     try {
-                        int reactionAtomID = Integer.parseInt(reactionAtomIDString);
+                        int reactionAtomID = MDLColumnParser.parseInt(line, 60, 63);
+                        logger.debug("Parsing mapping id: ", reactionAtomID);
                         if (reactionAtomID != 0) {
                             atom.setProperty(CDKConstants.ATOM_ATOM_MAPPING, reactionAtomID);
                         }
                     } catch (Exception exception) {
-                        logger.error("Mapping number ", reactionAtomIDString, " is not an integer.");
+                        logger.error("Mapping number ", line.substring(60,63).trim(), " is not an integer.");
                         logger.debug(exception);
                     }
-                } catch (Exception exception) {
+                } else {
                     // older mol files don't have all these fields...
                     logger.warn("A few fields are missing. Older MDL MOL file?");
                 }
                 
                 //shk3: This reads shifts from after the molecule. I don't think this is an official format, but I saw it frequently 80=>78 for alk
                 if(line.length()>=78){
-                	double shift=Double.parseDouble(line.substring(69,80).trim());
+                	double shift=MDLColumnParser.parseDouble(line, 69, 80);
                 	atom.setProperty("first shift", shift);
                 }
                 if(line.length()>=87){
-                	double shift=Double.parseDouble(line.substring(79,87).trim());
+                	double shift=MDLColumnParser.parseDouble(line, 79, 87);
                 	atom.setProperty("second shift", shift);
                 }
                 atomList.add(atom);
@@ -658,13 +650,11 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
 		    int queryBondCount=0;
             for (int f = 0; f < bonds; f++) {
                 line = input.readLine(); linecount++;
-                atom1 = Integer.parseInt(line.substring(0, 3).trim());
-                atom2 = Integer.parseInt(line.substring(3, 6).trim());
-                order = Integer.parseInt(line.substring(6, 9).trim());
+                atom1 = MDLColumnParser.parseInt(line, 0, 3);
+                atom2 = MDLColumnParser.parseInt(line, 3, 6);
+                order = MDLColumnParser.parseInt(line, 6, 9);
                 if (line.length() >= 12) {
-                	int mdlStereo = line.length() > 12
-                		? Integer.parseInt(line.substring(9, 12).trim())
-                		: Integer.parseInt(line.substring(9).trim());
+                	int mdlStereo = MDLColumnParser.parseInt(line, 9, 12);
                     if (mdlStereo == 1) {
                         // MDL up bond
                         stereo = IBond.Stereo.UP;
@@ -771,20 +761,18 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
                 if (line.startsWith("M  CHG")) {
                     // FIXME: if this is encountered for the first time, all
                     // atom charges should be set to zero first!
-                    int infoCount = Integer.parseInt(line.substring(6,9).trim());
-                    StringTokenizer st = new StringTokenizer(line.substring(9));
+                    int infoCount = MDLColumnParser.parseInt(line, 6, 9);
+                    MDLColumnParser.Tokens tokens = new MDLColumnParser.Tokens(line, 9);
                     for (int i=1; i <= infoCount; i++) {
-                        String token = st.nextToken();
-                        int atomNumber = Integer.parseInt(token.trim());
-                        token = st.nextToken();
-                        int charge = Integer.parseInt(token.trim());
+                        int atomNumber = tokens.nextInt();
+                        int charge = tokens.nextInt();
                         outputContainer.getAtom(atomNumber - 1).setFormalCharge(charge);
                     }
-                }  else if (line.matches("A\\s{1,4}\\d+")) {
+                }  else if (MDLColumnParser.isAlias(line)) {
             		// Reads the pseudo atom property from the mol file
                 	
                 	// The atom number of the to replaced atom
-            		int aliasAtomNumber = Integer.parseInt(line.replaceFirst("A\\s{1,4}", "")) - RGroupCounter;
+            		int aliasAtomNumber = MDLColumnParser.parseAlias(line) - RGroupCounter;
             		line = input.readLine(); linecount++;
 					String[] aliasArray = line.split("\\\\");
 					// name of the alias atom like R1 or R2 etc. 
@@ -824,12 +812,11 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
 
                 } else if (line.startsWith("M  ISO")) {
                     try {
-                        String countString = line.substring(6,10).trim();
-                        int infoCount = Integer.parseInt(countString);
-                        StringTokenizer st = new StringTokenizer(line.substring(10));
+                        int infoCount = MDLColumnParser.parseInt(line, 6, 10);
+                        MDLColumnParser.Tokens tokens = new MDLColumnParser.Tokens(line, 10);
                         for (int i=1; i <= infoCount; i++) {
-                            int atomNumber = Integer.parseInt(st.nextToken().trim());
-                            int absMass = Integer.parseInt(st.nextToken().trim());
+                            int atomNumber = tokens.nextInt();
+                            int absMass = tokens.nextInt();
                             if (absMass != 0) { 
                                 IAtom isotope = outputContainer.getAtom(atomNumber - 1);
                                 isotope.setMassNumber(absMass);
@@ -847,12 +834,11 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
                     }
                 } else if (line.startsWith("M  RAD")) {
 					try {
-						String countString = line.substring(6, 9).trim();
-						int infoCount = Integer.parseInt(countString);
-						StringTokenizer st = new StringTokenizer(line.substring(9));
+						int infoCount = MDLColumnParser.parseInt(line, 6, 9);
+						MDLColumnParser.Tokens tokens = new MDLColumnParser.Tokens(line, 9);
 						for (int i = 1; i <= infoCount; i++) {
-							int atomNumber = Integer.parseInt(st.nextToken().trim());
-							int spinMultiplicity = Integer.parseInt(st.nextToken().trim());
+							int atomNumber = tokens.nextInt();
+							int spinMultiplicity = tokens.nextInt();
 							MDLV2000Writer.SPIN_MULTIPLICITY spin = MDLV2000Writer.SPIN_MULTIPLICITY.NONE;
 							if (spinMultiplicity > 0) {
 								IAtom radical = outputContainer.getAtom(atomNumber - 1);
@@ -1008,15 +994,5 @@ public class MDLV2000Reader extends DefaultChemObjectReader {
     public List<IAtom> getAtomsByLinePosition() {
         return atomsByLinePosition;
     }
-
-    private String removeNonDigits(String input) {
-        StringBuffer buffer = new StringBuffer();
-        for (int i=0; i<input.length(); i++) {
-            char inputChar = input.charAt(i);
-            if (Character.isDigit(inputChar))
-                buffer.append(inputChar);
-        }
-        return buffer.toString();
-    }
 }
 
@@ -0,0 +1,421 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.iterator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.io.formats.IResourceFormat;
+import org.openscience.cdk.io.formats.MDLFormat;
+import org.openscience.cdk.io.setting.BooleanIOSetting;
+import org.openscience.cdk.io.setting.IOSetting;
+import org.openscience.cdk.tools.ILoggingTool;
+import org.openscience.cdk.tools.LoggingToolFactory;
+
+/**
+ * Iterating MDL SDF reader that parses the molecules on several threads.
+ * One thread splits the input into records at the '$$$$' lines, and a pool
+ * of worker threads parses the records, each with its own
+ * {@link IteratingSDFReader}. The molecules are therefore the same as those
+ * of the {@link IteratingSDFReader}, including the SD tags.
+ *
+ * <p>By default the molecules are returned in the order of the file. If the
+ * order does not matter, molecules can be returned as soon as they are
+ * parsed, which keeps all workers busy when some records take much longer
+ * than others. At most a fixed number of records is read ahead of the
+ * molecule last returned, so memory use does not depend on the file size.
+ *
+ * <p>Example use:
+ * <pre>
+ * ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(
+ *   new FileInputStream(sdfFile), DefaultChemObjectBuilder.getInstance()
+ * );
+ * try {
+ *   while (reader.hasNext()) {
+ *     IAtomContainer molecule = reader.next();
+ *   }
+ * } finally {
+ *   reader.close();
+ * }
+ * </pre>
+ * The reader must be closed to stop its threads when not all molecules are
+ * read. The iterator itself should be used by one thread only.
+ *
+ * @cdk.module io
+ * @cdk.githash
+ *
+ * @see IteratingSDFReader
+ *
+ * @cdk.keyword    file format, SDF
+ * @cdk.keyword    multi-threading
+ * @cdk.iooptions
+ */
+@TestClass("org.openscience.cdk.io.iterator.ParallelIteratingSDFReaderTest")
+public class ParallelIteratingSDFReader extends DefaultIteratingChemObjectReader<IAtomContainer> {
+
+    private static ILoggingTool logger =
+        LoggingToolFactory.createLoggingTool(ParallelIteratingSDFReader.class);
+
+    /** Marks the end of the input in the queue of results. */
+    private static final Future<IAtomContainer> END = new FutureTask<IAtomContainer>(
+        new Callable<IAtomContainer>() {
+            public IAtomContainer call() {
+                return null;
+            }
+        });
+
+    private BufferedReader input;
+    private final IChemObjectBuilder builder;
+    private final int threads;
+    private final boolean ordered;
+    private final int readAhead;
+
+    private BooleanIOSetting forceReadAs3DCoords;
+
+    // if an error is encountered the reader will skip over the error
+    private boolean skip = false;
+
+    private Pipeline pipeline;
+    private boolean nextAvailableIsKnown;
+    private boolean hasNext;
+    private IAtomContainer nextMolecule;
+
+    /**
+     * Constructs a reader that parses the molecules on as many threads as
+     * there are processors, and returns them in the order of the input.
+     *
+     * @param in      the Reader to read from
+     * @param builder the builder
+     */
+    @TestMethod("testParallelIteratingSDFReader_Reader_IChemObjectBuilder")
+    public ParallelIteratingSDFReader(Reader in, IChemObjectBuilder builder) {
+        this(in, builder, Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    /**
+     * Constructs a reader that parses the molecules on as many threads as
+     * there are processors, and returns them in the order of the input.
+     *
+     * @param in      the InputStream to read from
+     * @param builder the builder
+     */
+    @TestMethod("testParallelIteratingSDFReader_InputStream_IChemObjectBuilder")
+    public ParallelIteratingSDFReader(InputStream in, IChemObjectBuilder builder) {
+        this(new InputStreamReader(in), builder);
+    }
+
+    /**
+     * Constructs a reader that parses the molecules on the given number of
+     * threads.
+     *
+     * @param in      the Reader to read from
+     * @param builder the builder
+     * @param threads the number of threads that parse molecules
+     * @param ordered whether the molecules are returned in the order of the
+     *                input, rather than in the order they are parsed in
+     */
+    @TestMethod("testParallelIteratingSDFReader_Reader_IChemObjectBuilder_int_boolean")
+    public ParallelIteratingSDFReader(Reader in, IChemObjectBuilder builder, int threads, boolean ordered) {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+        this.builder = builder;
+        this.threads = threads;
+        this.ordered = ordered;
+        this.readAhead = 16 * threads;
+        setReader(in);
+        initIOSettings();
+    }
+
+    @TestMethod("testGetFormat")
+    public IResourceFormat getFormat() {
+        return MDLFormat.getInstance();
+    }
+
+    /**
+     * Indicate whether the reader should skip over SDF records that cause
+     * problems. If false, the iteration stops at the first record that
+     * cannot be read; with unordered reading this is the first such record
+     * that is done, not necessarily the first in the input.
+     *
+     * @param skip ignore error molecules continue reading
+     */
+    @TestMethod("testSetSkip_boolean")
+    public void setSkip(boolean skip) {
+        this.skip = skip;
+    }
+
+    /**
+     * Returns true if another molecule can be read.
+     */
+    @TestMethod("testParallelIteratingSDFReader_Reader_IChemObjectBuilder")
+    public boolean hasNext() {
+        if (nextAvailableIsKnown) return hasNext;
+        if (pipeline == null) {
+            pipeline = new Pipeline(input);
+            pipeline.start();
+        }
+        nextMolecule = null;
+        hasNext = false;
+        IAtomContainer molecule;
+        while ((molecule = pipeline.take()) != null || pipeline.hasMore()) {
+            if (molecule != null) {
+                nextMolecule = molecule;
+                hasNext = true;
+                break;
+            }
+            if (!skip) break;
+        }
+        // all molecules are read, or reading stopped at an error
+        if (!hasNext) pipeline.stop();
+        nextAvailableIsKnown = true;
+        return hasNext;
+    }
+
+    /**
+     * Returns the next molecule.
+     */
+    @TestMethod("testParallelIteratingSDFReader_Reader_IChemObjectBuilder")
+    public IAtomContainer next() {
+        if (!nextAvailableIsKnown) hasNext();
+        nextAvailableIsKnown = false;
+        if (!hasNext) throw new NoSuchElementException();
+        return nextMolecule;
+    }
+
+    /**
+     * Stops the threads and closes the input.
+     */
+    @TestMethod("testClose")
+    public void close() throws IOException {
+        if (pipeline != null) pipeline.stop();
+        input.close();
+    }
+
+    @TestMethod("testSetReader_Reader")
+    public void setReader(Reader reader) {
+        if (pipeline != null) {
+            pipeline.stop();
+            pipeline = null;
+        }
+        if (reader instanceof BufferedReader) {
+            input = (BufferedReader) reader;
+        } else {
+            input = new BufferedReader(reader);
+        }
+        nextMolecule = null;
+        nextAvailableIsKnown = false;
+        hasNext = false;
+    }
+
+    @TestMethod("testSetReader_InputStream")
+    public void setReader(InputStream reader) {
+        setReader(new InputStreamReader(reader));
+    }
+
+    private void initIOSettings() {
+        forceReadAs3DCoords = new BooleanIOSetting("ForceReadAs3DCoordinates", IOSetting.Importance.LOW,
+          "Should coordinates always be read as 3D?",
+          "false");
+        addSetting(forceReadAs3DCoords);
+    }
+
+    @TestMethod("testCustomizeJob")
+    public void customizeJob() {
+        fireIOSettingQuestion(forceReadAs3DCoords);
+    }
+
+    /**
+     * Parses a single record with an {@link IteratingSDFReader} that is only
+     * used by the current thread.
+     */
+    private IAtomContainer parse(String record, ThreadLocal<IteratingSDFReader> readers) {
+        IteratingSDFReader reader = readers.get();
+        reader.setReader(new StringReader(record));
+        return reader.hasNext() ? reader.next() : null;
+    }
+
+    /**
+     * The threads and queues of one pass over the input.
+     */
+    private final class Pipeline implements Runnable {
+
+        private final BufferedReader input;
+        private final ExecutorService executor;
+        private final CompletionService<IAtomContainer> completion;
+        private final BlockingQueue<Future<IAtomContainer>> results =
+            new LinkedBlockingQueue<Future<IAtomContainer>>();
+        private final Semaphore permits = new Semaphore(readAhead);
+        private final Thread splitter;
+        private final ThreadLocal<IteratingSDFReader> readers = new ThreadLocal<IteratingSDFReader>() {
+            protected IteratingSDFReader initialValue() {
+                IteratingSDFReader reader = new IteratingSDFReader(new StringReader(""), builder);
+                reader.setReaderMode(mode);
+                reader.setErrorHandler(errorHandler);
+                reader.addSettings(getSettings());
+                return reader;
+            }
+        };
+
+        // the number of records, known once END was taken
+        private volatile int submitted = -1;
+        private int taken = 0;
+        private boolean ended = false;
+        private volatile boolean stopped = false;
+
+        Pipeline(BufferedReader input) {
+            this.input = input;
+            ThreadFactory factory = new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ParallelIteratingSDFReader worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            executor = Executors.newFixedThreadPool(threads, factory);
+            completion = ordered ? null
+                : new ExecutorCompletionService<IAtomContainer>(executor, results);
+            splitter = factory.newThread(this);
+            splitter.setName("ParallelIteratingSDFReader splitter");
+        }
+
+        void start() {
+            splitter.start();
+        }
+
+        /**
+         * Splits the input into records and submits them for parsing.
+         */
+        public void run() {
+            int count = 0;
+            try {
+                StringBuilder record = new StringBuilder(10000);
+                String line;
+                while (!stopped && (line = input.readLine()) != null) {
+                    record.append(line).append('\n');
+                    if (line.trim().equals("$$$$")) {
+                        submit(record.toString());
+                        record.setLength(0);
+                        count++;
+                    }
+                }
+                if (!stopped && record.toString().trim().length() > 0) {
+                    submit(record.toString());
+                    count++;
+                }
+            } catch (IOException exception) {
+                logger.error("Error while reading next molecule: " + exception.getMessage());
+                logger.debug(exception);
+            } catch (InterruptedException exception) {
+                logger.debug("Reading was stopped");
+            } catch (RuntimeException exception) {
+                // submitting fails once the executor is shut down
+                if (!stopped) {
+                    logger.error("Error while submitting next molecule: " + exception.getMessage());
+                    logger.debug(exception);
+                }
+            } finally {
+                submitted = count;
+                results.add(END);
+            }
+        }
+
+        private void submit(final String record) throws InterruptedException {
+            permits.acquire();
+            Callable<IAtomContainer> task = new Callable<IAtomContainer>() {
+                public IAtomContainer call() {
+                    return parse(record, readers);
+                }
+            };
+            if (ordered) results.put(executor.submit(task));
+            else completion.submit(task);
+        }
+
+        /**
+         * Returns the next parsed molecule, or null if the next record could
+         * not be read or there are no more records.
+         */
+        IAtomContainer take() {
+            while (hasMore()) {
+                Future<IAtomContainer> result;
+                try {
+                    result = results.take();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    stop();
+                    return null;
+                }
+                if (result == END) {
+                    ended = true;
+                    continue;
+                }
+                taken++;
+                permits.release();
+                try {
+                    return result.get();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    stop();
+                    return null;
+                } catch (ExecutionException exception) {
+                    logger.error("Error while reading next molecule: " + exception.getCause());
+                    logger.debug(exception.getCause());
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Whether there may be more records to take.
+         */
+        boolean hasMore() {
+            return !stopped && !(ended && taken == submitted);
+        }
+
+        void stop() {
+            stopped = true;
+            splitter.interrupt();
+            executor.shutdownNow();
+        }
+    }
+}
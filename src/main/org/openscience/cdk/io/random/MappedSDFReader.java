@@ -0,0 +1,563 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.random;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainerSet;
+import org.openscience.cdk.interfaces.IChemFile;
+import org.openscience.cdk.interfaces.IChemModel;
+import org.openscience.cdk.interfaces.IChemObject;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IChemSequence;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.io.formats.IResourceFormat;
+import org.openscience.cdk.io.formats.MDLFormat;
+import org.openscience.cdk.tools.ILoggingTool;
+import org.openscience.cdk.tools.LoggingToolFactory;
+
+/**
+ * Random access to the records of an SD file, using a memory mapped view of
+ * the file. The file is mapped in segments, so files larger than 2 GB are
+ * supported. The start of each record is kept in a binary index file, which
+ * is written next to the text index of the {@link RandomAccessReader} in the
+ * folder given by the "java.io.tmpdir" property, and reused as long as the
+ * size and modification time of the SD file do not change.
+ *
+ * <p>Unlike the {@link RandomAccessSDFReader}, {@link #readRecord(int)} is not
+ * synchronized: each call parses the record with its own
+ * {@link MDLV2000Reader}, so records can be read from many threads at the
+ * same time. The iterator methods share a current record and should be used
+ * by one thread only.
+ *
+ * <p>Records can also be looked up by the value of an SD tag, for example a
+ * catalogue identifier:
+ * <pre>
+ *   MappedSDFReader reader = new MappedSDFReader(file, builder);
+ *   IChemObject molecule = reader.readRecord("MDLNUMBER", "MFCD00000387");
+ * </pre>
+ * The index of tag values is built the first time the tag is used, by
+ * scanning the mapped bytes without parsing the molecules.
+ *
+ * @cdk.module  io
+ * @cdk.githash
+ * @cdk.keyword file format, SDF
+ * @cdk.keyword random access
+ * @see RandomAccessSDFReader
+ */
+@TestClass("org.openscience.cdk.io.random.MappedSDFReaderTest")
+public class MappedSDFReader extends DefaultRandomAccessChemObjectReader {
+
+    private static ILoggingTool logger =
+        LoggingToolFactory.createLoggingTool(MappedSDFReader.class);
+
+    /** Identifies the binary index files, the characters "CDKI". */
+    private static final int INDEX_MAGIC   = 0x43444B49;
+    private static final int INDEX_VERSION = 1;
+
+    private final String filename;
+    private final IChemObjectBuilder builder;
+    private final long fileLength;
+    private final long lastModified;
+    private final RandomAccessFile file;
+    private final int segmentSize;
+    private MappedByteBuffer[] segments;
+
+    /*
+     * offsets[record] is the offset of the first byte of a record and
+     * offsets[record+1] the offset after its last byte
+     */
+    private long[] offsets;
+    private int records;
+    private volatile int currentRecord = 0;
+
+    private final ConcurrentMap<String, Map<String, Integer>> tagIndices =
+        new ConcurrentHashMap<String, Map<String, Integer>>();
+
+    /**
+     * Maps the given SD file and loads its index, or creates the index if it
+     * does not exist yet or is out of date.
+     *
+     * @param file    the SD file
+     * @param builder the builder used to create the molecules
+     * @throws IOException if the file cannot be mapped or indexed
+     */
+    @TestMethod("testMappedSDFReader_File_IChemObjectBuilder")
+    public MappedSDFReader(File file, IChemObjectBuilder builder) throws IOException {
+        this(file, builder, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Maps the file in segments of at most the given number of bytes.
+     */
+    @TestMethod("testMappedSDFReader_File_IChemObjectBuilder_int")
+    MappedSDFReader(File file, IChemObjectBuilder builder, int segmentSize) throws IOException {
+        this.filename = file.getAbsolutePath();
+        this.builder = builder;
+        this.segmentSize = segmentSize;
+        this.lastModified = file.lastModified();
+        this.file = new RandomAccessFile(file, "r");
+        this.fileLength = this.file.length();
+        map();
+        File indexFile = getIndexFile(filename);
+        if (!loadIndex(indexFile)) {
+            long now = System.currentTimeMillis();
+            makeIndex();
+            logger.info("Index created in ", (System.currentTimeMillis() - now), " ms.");
+            try {
+                saveIndex(indexFile);
+            } catch (IOException exception) {
+                logger.warn("Could not save the index: ", exception.getMessage());
+            }
+        }
+    }
+
+    private void map() throws IOException {
+        FileChannel channel = file.getChannel();
+        int count = (int) ((fileLength + segmentSize - 1) / segmentSize);
+        segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long position = (long) i * segmentSize;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                      Math.min(segmentSize, fileLength - position));
+        }
+    }
+
+    /**
+     * Returns the binary index file <code>&lt;filename&gt;_cdk.bindex</code> in
+     * the folder given by the "java.io.tmpdir" property.
+     *
+     * @param filename the name of the file for which the index was generated
+     * @return a file object representing the index file
+     */
+    @TestMethod("testGetIndexFile_String")
+    public static File getIndexFile(String filename) {
+        return new File(System.getProperty("java.io.tmpdir"),
+                        new File(filename).getName() + "_cdk.bindex");
+    }
+
+    /**
+     * Finds the records by scanning for lines that are exactly '$$$$'. Text
+     * after the last such line is a record too, unless it is white space.
+     */
+    private void makeIndex() {
+        long[] starts = new long[1024];
+        int count = 0;
+        long start = 0;
+        int lineLength = 0;   // -1 once the line is known not to be '$$$$'
+        for (int s = 0; s < segments.length; s++) {
+            ByteBuffer segment = segments[s];
+            long base = (long) s * segmentSize;
+            int limit = segment.limit();
+            for (int i = 0; i < limit; i++) {
+                byte c = segment.get(i);
+                if (c == '\n') {
+                    if (lineLength == 4) {
+                        if (count + 2 > starts.length) starts = grow(starts);
+                        starts[count++] = start;
+                        start = base + i + 1;
+                    }
+                    lineLength = 0;
+                } else if (lineLength >= 0) {
+                    if (c == '$' && lineLength < 4) lineLength++;
+                    else if (c != '\r' || lineLength != 4) lineLength = -1;
+                }
+            }
+        }
+        if (lineLength == 4) {
+            // a last '$$$$' that is not followed by a newline
+            if (count + 2 > starts.length) starts = grow(starts);
+            starts[count++] = start;
+            start = fileLength;
+        } else if (!isBlank(start, fileLength)) {
+            if (count + 2 > starts.length) starts = grow(starts);
+            starts[count++] = start;
+            start = fileLength;
+        }
+        starts[count] = start;
+        records = count;
+        offsets = new long[count + 1];
+        System.arraycopy(starts, 0, offsets, 0, count + 1);
+    }
+
+    private static long[] grow(long[] array) {
+        long[] grown = new long[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private boolean isBlank(long from, long to) {
+        for (long position = from; position < to; position++) {
+            if (getByte(position) > ' ') return false;
+        }
+        return true;
+    }
+
+    private byte getByte(long position) {
+        return segments[(int) (position / segmentSize)].get((int) (position % segmentSize));
+    }
+
+    private void saveIndex(File indexFile) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(indexFile), 65536));
+        try {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeUTF(filename);
+            out.writeLong(fileLength);
+            out.writeLong(lastModified);
+            out.writeInt(records);
+            for (int i = 0; i <= records; i++) out.writeLong(offsets[i]);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Loads the index file, if it exists and belongs to the current version
+     * of the SD file.
+     *
+     * @return true if the index was loaded
+     */
+    private boolean loadIndex(File indexFile) {
+        if (!indexFile.exists()) return false;
+        try {
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(indexFile), 65536));
+            try {
+                if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                    logger.warn("Unknown index format in ", indexFile);
+                    return false;
+                }
+                if (!filename.equals(in.readUTF()) || in.readLong() != fileLength
+                    || in.readLong() != lastModified) {
+                    logger.info("Index ", indexFile, " is for another file, creating a new index.");
+                    return false;
+                }
+                int count = in.readInt();
+                long[] loaded = new long[count + 1];
+                for (int i = 0; i <= count; i++) loaded[i] = in.readLong();
+                offsets = loaded;
+                records = count;
+                return true;
+            } finally {
+                in.close();
+            }
+        } catch (IOException exception) {
+            logger.warn("Could not load the index: ", exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the text of a record, including the closing '$$$$' line.
+     *
+     * @param record the zero-based record number
+     * @return the text of the record
+     * @throws CDKException if there is no such record
+     */
+    @TestMethod("testReadContent_int")
+    public String readContent(int record) throws CDKException {
+        if (record < 0 || record >= records)
+            throw new CDKException("No such record " + record);
+        long start = offsets[record];
+        long length = offsets[record + 1] - start;
+        if (length > Integer.MAX_VALUE)
+            throw new CDKException("Record " + record + " is too large: " + length + " bytes");
+        byte[] bytes = new byte[(int) length];
+        read(start, bytes);
+        return new String(bytes);
+    }
+
+    /**
+     * Copies bytes from the given offset of the file, crossing segments when
+     * needed. Segments are accessed through duplicates, which have their own
+     * position, so that this is safe to call from several threads.
+     */
+    private void read(long position, byte[] bytes) {
+        int done = 0;
+        while (done < bytes.length) {
+            int s = (int) (position / segmentSize);
+            ByteBuffer segment = segments[s].duplicate();
+            segment.position((int) (position - (long) s * segmentSize));
+            int n = Math.min(segment.remaining(), bytes.length - done);
+            segment.get(bytes, done, n);
+            done += n;
+            position += n;
+        }
+    }
+
+    /**
+     * Returns the molecule of the given record. This method can be called
+     * from several threads at the same time.
+     *
+     * @param record the zero-based record number
+     * @return the molecule, with the SD tags as properties
+     * @throws CDKException if there is no such record or it cannot be parsed
+     */
+    @TestMethod("testReadRecord_int")
+    public IChemObject readRecord(int record) throws CDKException {
+        String content = readContent(record);
+        currentRecord = record;
+        MDLV2000Reader reader = new MDLV2000Reader(new StringReader(content), mode);
+        try {
+            // read(IAtomContainer) does not read the SD tags
+            IChemFile chemFile = reader.read(builder.newInstance(IChemFile.class));
+            return firstAtomContainer(chemFile);
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException exception) {
+                logger.debug("Error while closing the reader: ", exception.getMessage());
+            }
+        }
+    }
+
+    private static IChemObject firstAtomContainer(IChemFile chemFile) {
+        for (IChemSequence sequence : chemFile.chemSequences()) {
+            for (IChemModel model : sequence.chemModels()) {
+                IAtomContainerSet molecules = model.getMoleculeSet();
+                if (molecules != null && molecules.getAtomContainerCount() > 0)
+                    return molecules.getAtomContainer(0);
+            }
+        }
+        return chemFile;
+    }
+
+    /**
+     * Returns the number of the first record whose value of the given SD tag
+     * is the given value, or -1 if there is no such record. Only the first line
+     * of a value is indexed, without leading and trailing white space. The
+     * index of a tag is built when the tag is first used.
+     *
+     * @param tag   the name of the SD tag, without the angle brackets
+     * @param value the value of the tag
+     * @return the zero-based record number
+     */
+    @TestMethod("testIndexOf_String_String")
+    public int indexOf(String tag, String value) {
+        Map<String, Integer> values = tagIndices.get(tag);
+        if (values == null) {
+            values = indexTag(tag);
+            Map<String, Integer> existing = tagIndices.putIfAbsent(tag, values);
+            if (existing != null) values = existing;
+        }
+        Integer record = values.get(value);
+        return record == null ? -1 : record;
+    }
+
+    /**
+     * Returns the molecule of the first record whose value of the given SD tag
+     * is the given value.
+     *
+     * @param tag   the name of the SD tag, without the angle brackets
+     * @param value the value of the tag
+     * @return the molecule, or null if there is no such record
+     * @throws CDKException if the record cannot be parsed
+     * @see #indexOf(String, String)
+     */
+    @TestMethod("testReadRecord_String_String")
+    public IChemObject readRecord(String tag, String value) throws CDKException {
+        int record = indexOf(tag, value);
+        return record < 0 ? null : readRecord(record);
+    }
+
+    /**
+     * Scans the data items of all records for the given tag. A data header is
+     * a line that starts with '&gt;' and has the tag name in angle brackets.
+     */
+    private Map<String, Integer> indexTag(String tag) {
+        long now = System.currentTimeMillis();
+        byte[] name = tag.getBytes();
+        Map<String, Integer> values = new HashMap<String, Integer>();
+        for (int record = 0; record < records; record++) {
+            long position = offsets[record];
+            long end = offsets[record + 1];
+            boolean inBlock = false;   // past the 'M  END' line
+            while (position < end) {
+                long lineEnd = position;
+                while (lineEnd < end && getByte(lineEnd) != '\n') lineEnd++;
+                if (!inBlock) {
+                    inBlock = startsWith(position, lineEnd, "M  END".getBytes());
+                } else if (getByte(position) == '>' && hasTag(position, lineEnd, name)) {
+                    long valueStart = lineEnd + 1;
+                    long valueEnd = valueStart;
+                    while (valueEnd < end && getByte(valueEnd) != '\n') valueEnd++;
+                    String value = text(valueStart, valueEnd).trim();
+                    if (!values.containsKey(value)) values.put(value, record);
+                    break;
+                }
+                position = lineEnd + 1;
+            }
+        }
+        logger.info("Index of tag ", tag, " created in ", (System.currentTimeMillis() - now), " ms.");
+        return values;
+    }
+
+    private boolean startsWith(long from, long to, byte[] prefix) {
+        if (to - from < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (getByte(from + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether the first '&lt;...&gt;' on the line encloses the given name.
+     */
+    private boolean hasTag(long from, long to, byte[] name) {
+        long open = from;
+        while (open < to && getByte(open) != '<') open++;
+        if (open == to) return false;
+        long close = open + 1;
+        while (close < to && getByte(close) != '>') close++;
+        if (close == to || close - open - 1 != name.length) return false;
+        return startsWith(open + 1, close, name);
+    }
+
+    private String text(long from, long to) {
+        if (from >= to) return "";
+        byte[] bytes = new byte[(int) (to - from)];
+        read(from, bytes);
+        return new String(bytes);
+    }
+
+    /**
+     * Releases the file. The mapped segments are released by the garbage
+     * collector.
+     */
+    @TestMethod("testClose")
+    public void close() throws IOException {
+        file.close();
+    }
+
+    @TestMethod("testGetFormat")
+    public IResourceFormat getFormat() {
+        return MDLFormat.getInstance();
+    }
+
+    @TestMethod("testMappedSDFReader_File_IChemObjectBuilder")
+    public int size() {
+        return records;
+    }
+
+    @TestMethod("testIterator")
+    public IChemObject first() {
+        try {
+            return readRecord(0);
+        } catch (Exception x) {
+            logger.error(x);
+            return null;
+        }
+    }
+
+    @TestMethod("testIterator")
+    public IChemObject last() {
+        try {
+            return readRecord(records - 1);
+        } catch (Exception x) {
+            logger.error(x);
+            return null;
+        }
+    }
+
+    @TestMethod("testIterator")
+    public boolean hasNext() {
+        return currentRecord < (records - 1);
+    }
+
+    @TestMethod("testIterator")
+    public boolean hasPrevious() {
+        return currentRecord > 0;
+    }
+
+    @TestMethod("testIterator")
+    public IChemObject next() {
+        try {
+            return readRecord(currentRecord + 1);
+        } catch (Exception x) {
+            logger.error(x);
+            return null;
+        }
+    }
+
+    @TestMethod("testIterator")
+    public IChemObject previous() {
+        try {
+            return readRecord(currentRecord - 1);
+        } catch (Exception x) {
+            logger.error(x);
+            return null;
+        }
+    }
+
+    @TestMethod("testIterator")
+    public int nextIndex() {
+        return currentRecord + 1;
+    }
+
+    @TestMethod("testIterator")
+    public int previousIndex() {
+        return currentRecord - 1;
+    }
+
+    @TestMethod("testSet_IChemObject")
+    public void set(IChemObject object) {
+        throw new UnsupportedOperationException("Cannot change entries with the MappedSDFReader");
+    }
+
+    @TestMethod("testAdd_IChemObject")
+    public void add(IChemObject object) {
+        throw new UnsupportedOperationException("Cannot add entries with the MappedSDFReader");
+    }
+
+    @TestMethod("testRemove")
+    public void remove() {
+        throw new UnsupportedOperationException("Cannot remove entries with the MappedSDFReader");
+    }
+
+    @TestMethod("testToString")
+    @Override
+    public String toString() {
+        return filename;
+    }
+}
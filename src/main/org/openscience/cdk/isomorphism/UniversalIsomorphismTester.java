@@ -255,6 +255,23 @@ public class UniversalIsomorphismTester {
     return search(g1, g2, new BitSet(), getBitSet(g2), true, true);
   }
 
+  /**
+   * Returns at most <code>maxMaps</code> subgraph 'bond mappings' found for g2 in g1.
+   * The search stops as soon as the requested number of mappings has been found,
+   * which is much cheaper than {@link #getSubgraphMaps(IAtomContainer, IAtomContainer)}
+   * when only the presence (or a bounded count) of the substructure is of interest.
+   *
+   * @param  g1       first molecule. Must not be an {@link IQueryAtomContainer}.
+   * @param  g2       second molecule. May be an {@link IQueryAtomContainer}.
+   * @param  maxMaps  the maximum number of mappings to return, or -1 for all mappings
+   * @return          at most <code>maxMaps</code> 'mappings' found projected of g1
+   *
+   * @see #getSubgraphMaps(IAtomContainer, IAtomContainer)
+   */
+  public List<List<RMap>> getSubgraphMaps(IAtomContainer g1, IAtomContainer g2, int maxMaps)  throws CDKException{
+    return search(g1, g2, new BitSet(), getBitSet(g2), true, true, maxMaps);
+  }
+
 
   /**
    * Returns the first subgraph 'bond mapping' found for g2 in g1.
@@ -445,6 +462,27 @@ public class UniversalIsomorphismTester {
    */
   public List<List<RMap>> search(IAtomContainer g1, IAtomContainer g2, BitSet c1,
 		  BitSet c2, boolean findAllStructure, boolean findAllMap)  throws CDKException{
+      return search(g1, g2, c1, c2, findAllStructure, findAllMap, -1);
+  }
+
+  /**
+   * General {@link RGraph} parsing method (usually not used directly)
+   * with a limit on the number of solutions.
+   *
+   * @param  g1                first molecule. Must not be an {@link IQueryAtomContainer}.
+   * @param  g2                second molecule. May be an {@link IQueryAtomContainer}.
+   * @param  c1                initial condition ( bonds from g1 that
+   *                           must be contains in the solution )
+   * @param  c2                initial condition ( bonds from g2 that
+   *                           must be contains in the solution )
+   * @param  findAllStructure  if false stop at the first structure found
+   * @param  findAllMap        if true search all the 'mappings' for one same
+   *                           structure
+   * @param  maxSolutions      stop once this number of solutions is found, -1 for no limit
+   * @return                   a List of Lists of {@link RMap} objects that represent the search solutions
+   */
+  private List<List<RMap>> search(IAtomContainer g1, IAtomContainer g2, BitSet c1,
+		  BitSet c2, boolean findAllStructure, boolean findAllMap, int maxSolutions)  throws CDKException{
 	  // remember start time
 	  start = System.currentTimeMillis();
 	  
@@ -457,6 +495,7 @@ public class UniversalIsomorphismTester {
           if (queryAtom instanceof IQueryAtom) {
               IQueryAtom qAtom = (IQueryAtom) queryAtom;
               for (IAtom atom : g1.atoms()) {
+                  if (maxSolutions != -1 && matches.size() >= maxSolutions) break;
                   if (qAtom.matches(atom)) {
                       List<RMap> lmap = new ArrayList<RMap>();
                       lmap.add(new RMap(g1.getAtomNumber(atom), 0));
@@ -465,6 +504,7 @@ public class UniversalIsomorphismTester {
               }
           } else {
               for (IAtom atom : g1.atoms()) {
+                  if (maxSolutions != -1 && matches.size() >= maxSolutions) break;
                   if (queryAtom.getSymbol().equals(atom.getSymbol())) {
                       List<RMap> lmap = new ArrayList<RMap>();
                       lmap.add(new RMap(g1.getAtomNumber(atom), 0));
@@ -483,6 +523,7 @@ public class UniversalIsomorphismTester {
 	  // Set time data
 	  rGraph.setTimeout(timeout);
 	  rGraph.setStart(start);
+	  rGraph.setMaxSolutions(maxSolutions);
 	  // parse the RGraph with the given constrains and options
 	  rGraph.parse(c1, c2, findAllStructure, findAllMap);
 	  List<BitSet> solutionList = rGraph.getSolutions();
@@ -104,6 +104,10 @@ public class RGraph
     // maximal number of iterations before
     // search break
     int maxIteration = -1;
+
+    // maximal number of solutions before
+    // search break
+    int maxSolutions = -1;
     
     // dimensions of the compared graphs
     int firstGraphSize = 0;
@@ -387,6 +391,13 @@ public class RGraph
                 solutionList.add(traversed);
             }
 
+            if(maxSolutions != -1 && solutionList.size() >= maxSolutions)
+            {
+                // we have as many solutions as we were
+                // asked for, stop the search process
+                stop = true;
+            }
+
             if(!findAllStructure)
             {
                 // if we need only one solution
@@ -543,6 +554,18 @@ public class RGraph
     {
         this.maxIteration = it;
     }
+
+    /**
+     * Sets the maximum number of solutions for the RGraph parsing. The
+     * search stops as soon as this number of solutions has been found.
+     * If set to -1, then all solutions are generated.
+     *
+     * @param  max  The new maxSolutions value
+     */
+    public void setMaxSolutions(int max)
+    {
+        this.maxSolutions = max;
+    }
     
    /**
     *  Returns a string representation of the RGraph.
@@ -25,6 +25,8 @@
 package org.openscience.cdk.modeling.builder3d;
 
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -58,6 +60,11 @@ import org.openscience.cdk.tools.manipulator.RingSetManipulator;
  *  <p>MM2 and MMFF94 force field are implemented 
  *  With force field data it configures the cdk atom (assign atomtype, van der Waals radius, charge...)
  *
+ *  <p>The parameter files are read once and their tables are shared, read
+ *  only, by all configurators. Once the force field is set, assigning atom
+ *  types only reads the configurator, so one instance can be used by
+ *  several threads.
+ *
  * @author     chhoppe
  * @cdk.created    2004-09-07
  * @cdk.module     forcefield
@@ -70,10 +77,18 @@ public class ForceFieldConfigurator {
 	private String ffName = "mmff94";
 	private List<IAtomType> atomTypes;
 	private Map<String, Object> parameterSet=null;
-	private MM2BasedParameterSetReader mm2 = null;
-	private MMFF94BasedParameterSetReader mmff94= null;
 	private InputStream ins = null;
 	private String[] fftypes = {"mm2","mmff94"};
+
+	/** The parameter sets of each force field, read once and shared by all configurators. */
+	private static final Map<String, Map<String, Object>> sharedParameterSets = new HashMap<String, Map<String, Object>>();
+	private static final Map<String, List<IAtomType>> sharedAtomTypes = new HashMap<String, List<IAtomType>>();
+
+	/** The compiled atom type patterns, which are immutable. */
+	private static final List<Pattern> mm2AtomTypePatterns =
+		Collections.unmodifiableList(new MM2BasedAtomTypePattern().getAtomTypePatterns());
+	private static final List<Pattern> mmff94AtomTypePatterns =
+		Collections.unmodifiableList(new MMFF94BasedAtomTypePattern().getAtomTypePatterns());
 	
 	/**
 	 *Constructor for the ForceFieldConfigurator object
@@ -131,32 +146,17 @@ public class ForceFieldConfigurator {
 		ffname=ffname.toLowerCase();
 		boolean check=false;
 		
-		if (ffname==ffName && parameterSet!=null){
+		if (ffname.equals(ffName) && parameterSet!=null){
 		}else{
 			check=this.checkForceFieldType(ffname);
 			ffName=ffname;
 			if (ffName.equals("mm2")) {
-				//logger.debug("ForceFieldConfigurator: open Force Field mm2");
-				//f = new File(mm2File);
-				//readFile(f);
-				ins = this.getClass().getClassLoader().getResourceAsStream("org/openscience/cdk/modeling/forcefield/data/mm2.prm");
-				//logger.debug("ForceFieldConfigurator: open Force Field mm2 ... READY");
-				mm2 = new MM2BasedParameterSetReader();
-				mm2.setInputStream(ins);
-				//logger.debug("ForceFieldConfigurator: mm2 set input stream ... READY");
 				try{
 					this.setMM2Parameters();
 				}catch (Exception ex1){
 					throw new CDKException("Problems with set MM2Parameters due to "+ex1.toString(), ex1);	
 				}
 			}else if (ffName.equals("mmff94") || !check) {
-				//logger.debug("ForceFieldConfigurator: open Force Field mmff94");
-				//f = new File(mmff94File);
-				//readFile(f);
-				ins = this.getClass().getClassLoader().getResourceAsStream("org/openscience/cdk/modeling/forcefield/data/mmff94.prm");
-				mmff94= new MMFF94BasedParameterSetReader();
-				
-				mmff94.setInputStream(ins);
 				try{
 					this.setMMFF94Parameters();
 				}catch (Exception ex2){
@@ -192,18 +192,49 @@ public class ForceFieldConfigurator {
 	@TestMethod("testSetMM2Parameters")
 	public void setMM2Parameters() throws CDKException{
 		try{
-			mm2.readParameterSets();
+			setSharedParameters("mm2");
 		}catch(Exception ex1){
 			throw new CDKException("Problem within readParameterSets due to:"+ex1.toString(), ex1);
 		}
-		parameterSet = mm2.getParamterSet();
-		atomTypes = mm2.getAtomTypes();
   }
 	@TestMethod("testSetMMFF94Parameters")
 	public void setMMFF94Parameters() throws Exception{
-		mmff94.readParameterSets();
-		parameterSet = mmff94.getParamterSet();
-		atomTypes = mmff94.getAtomTypes();
+		setSharedParameters("mmff94");
+	}
+
+	/**
+	 *  Sets the parameters and atom types of a force field, reading its
+	 *  parameter file the first time they are needed. The shared tables are
+	 *  unmodifiable.
+	 *
+	 * @param  ffname  mm2 or mmff94
+	 */
+	private void setSharedParameters(String ffname) throws Exception {
+		synchronized (sharedParameterSets) {
+			if (!sharedParameterSets.containsKey(ffname)) {
+				InputStream in = this.getClass().getClassLoader().getResourceAsStream(
+					"org/openscience/cdk/modeling/forcefield/data/" + ffname + ".prm");
+				Map<String, Object> parameters;
+				List<IAtomType> types;
+				if (ffname.equals("mm2")) {
+					MM2BasedParameterSetReader reader = new MM2BasedParameterSetReader();
+					reader.setInputStream(in);
+					reader.readParameterSets();
+					parameters = reader.getParamterSet();
+					types = reader.getAtomTypes();
+				} else {
+					MMFF94BasedParameterSetReader reader = new MMFF94BasedParameterSetReader();
+					reader.setInputStream(in);
+					reader.readParameterSets();
+					parameters = reader.getParamterSet();
+					types = reader.getAtomTypes();
+				}
+				sharedParameterSets.put(ffname, Collections.unmodifiableMap(parameters));
+				sharedAtomTypes.put(ffname, Collections.unmodifiableList(types));
+			}
+			parameterSet = sharedParameterSets.get(ffname);
+			atomTypes = sharedAtomTypes.get(ffname);
+		}
 	}
 	
 	/**
@@ -413,9 +444,7 @@ public class ForceFieldConfigurator {
 	 */
 	public IAtom configureMM2BasedAtom(IAtom atom, String hoseCode,boolean hetRing) throws NoSuchAtomTypeException {
 		//logger.debug("CONFIGURE MM2 ATOM");
-		List<Pattern> atomTypePattern = null;
-		MM2BasedAtomTypePattern atp = new MM2BasedAtomTypePattern();
-		atomTypePattern = atp.getAtomTypePatterns();
+		List<Pattern> atomTypePattern = mm2AtomTypePatterns;
 		Double d_tmp = null;
 		Pattern p = null;
 		String ID = "";
@@ -573,9 +602,7 @@ public class ForceFieldConfigurator {
 	@TestMethod("testConfigureMMFF94BasedAtom")
 	public IAtom configureMMFF94BasedAtom(IAtom atom, String hoseCode, boolean isInHetRing) throws NoSuchAtomTypeException {
 		//logger.debug("****** Configure MMFF94 AtomType ******");
-		List<Pattern> atomTypePattern = null;
-		MMFF94BasedAtomTypePattern atp = new MMFF94BasedAtomTypePattern();
-		atomTypePattern = atp.getAtomTypePatterns();
+		List<Pattern> atomTypePattern = mmff94AtomTypePatterns;
 		Pattern p = null;
 		Pattern p2 = null;
 		String ID = "";
@@ -25,9 +25,17 @@
 package org.openscience.cdk.modeling.builder3d;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
@@ -55,6 +63,12 @@ import org.openscience.cdk.tools.manipulator.RingSetManipulator;
  *  IMolecule molecule = mb3d.generate3DCoordinates(molecule, false);
  *  </pre>
  *
+ *  <p>The builder keeps no state between calls: the atom placers are created
+ *  for each molecule, and the force field parameters and templates are
+ *  shared read only. An instance can therefore lay out several molecules
+ *  at the same time, and {@link #generate3DCoordinates(Iterable, int)} does
+ *  so for a series of molecules with a pool of threads.
+ *
  *  <p>Standing problems:
  *  <ul>
  *    <li>condensed ring systems which are unknown for the template class 
@@ -97,7 +111,7 @@ public class ModelBuilder3D {
 		setForceField(ffname);
 	}
 
-	public static ModelBuilder3D getInstance(TemplateHandler3D templateHandler, String ffname) throws CDKException {
+	public static synchronized ModelBuilder3D getInstance(TemplateHandler3D templateHandler, String ffname) throws CDKException {
 		if (ffname == null || ffname.length() == 0) throw new CDKException("The given ffname is null or empty!");
 		if (templateHandler == null) throw new CDKException("The given template handler is null!");
 		
@@ -242,7 +256,69 @@ public class ModelBuilder3D {
 		return molecule;
 	}
 
-
+	/**
+	 * Generate 3D coordinates for a series of molecules, using the given
+	 * number of threads. Each molecule is laid out in place, as by
+	 * {@link #generate3DCoordinates(IAtomContainer, boolean)} without
+	 * cloning, so the molecules must be distinct objects. The molecules are
+	 * taken from the iterator as the threads become available.
+	 *
+	 * <p>A molecule which cannot be laid out does not stop the others; it is
+	 * returned in the list of failed molecules and may be left with some of
+	 * its atoms placed.
+	 *
+	 * @param  molecules    the molecules to lay out
+	 * @param  threads      the number of threads to lay out with
+	 * @return              the molecules for which no coordinates could be generated
+	 * @throws CDKException if the thread was interrupted or a worker failed with an error
+	 */
+	public List<IAtomContainer> generate3DCoordinates(Iterable<IAtomContainer> molecules, int threads)
+	    throws CDKException {
+		if (threads < 1) throw new IllegalArgumentException("At least one thread is needed: " + threads);
+
+		final List<IAtomContainer> failed = Collections.synchronizedList(new ArrayList<IAtomContainer>());
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "ModelBuilder3D worker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// only read a few molecules ahead of the threads
+		final Semaphore permits = new Semaphore(4 * threads);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		try {
+			for (final IAtomContainer molecule : molecules) {
+				permits.acquire();
+				if (failure.get() != null) break;
+				executor.execute(new Runnable() {
+					public void run() {
+						try {
+							if (failure.get() == null) generate3DCoordinates(molecule, false);
+						} catch (Exception exception) {
+							logger.debug("Could not generate 3D coordinates: ", exception.getMessage());
+							failed.add(molecule);
+						} catch (Throwable throwable) {
+							failure.compareAndSet(null, throwable);
+						} finally {
+							permits.release();
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new CDKException("Interrupted while generating 3D coordinates", exception);
+		} finally {
+			executor.shutdownNow();
+		}
+		Throwable throwable = failure.get();
+		if (throwable != null)
+			throw new CDKException("Could not generate 3D coordinates: " + throwable.getMessage(), throwable);
+		return new ArrayList<IAtomContainer>(failed);
+	}
 
 	/**
 	 * Gets the ringSetOfAtom attribute of the ModelBuilder3D object.
@@ -23,15 +23,21 @@ package org.openscience.cdk.modeling.builder3d;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.zip.GZIPInputStream;
 
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.fingerprint.HybridizationFingerprinter;
@@ -493,6 +499,45 @@ public class TemplateExtractor {
 		}
 	}
 
+	/**
+	 * Compiles the template structures and their fingerprints into the
+	 * binary store which {@link TemplateHandler3D} loads at startup. Files
+	 * ending in .gz are read as gzipped files.
+	 *
+	 * @param structuresFile   SD file with the template structures
+	 * @param fingerprintsFile file with the fingerprint of each template, one per line
+	 * @param storeFile        the store to write
+	 */
+	public void makeTemplateStore(String structuresFile, String fingerprintsFile,
+			String storeFile) throws Exception {
+		IAtomContainerSet templates = builder.newInstance(IAtomContainerSet.class);
+		IteratingSDFReader imdl = new IteratingSDFReader(open(structuresFile), builder);
+		while (imdl.hasNext()) {
+			templates.addAtomContainer((IAtomContainer) imdl.next());
+		}
+		imdl.close();
+
+		List<BitSet> fingerprints = new ArrayList<BitSet>();
+		BufferedReader fin = new BufferedReader(new InputStreamReader(open(fingerprintsFile)));
+		String line;
+		while ((line = fin.readLine()) != null) {
+			fingerprints.add(TemplateHandler3D.getBitSetFromFile(new StringTokenizer(line, "\t ;{, }")));
+		}
+		fin.close();
+		if (fingerprints.size() != templates.getAtomContainerCount())
+			throw new IllegalArgumentException("Found " + templates.getAtomContainerCount()
+			                                   + " templates but " + fingerprints.size() + " fingerprints");
+
+		OutputStream out = new FileOutputStream(storeFile);
+		TemplateHandler3D.writeTemplateStore(templates, fingerprints, out);
+		System.out.println("Templates:" + fingerprints.size() + " are written...ready");
+	}
+
+	private InputStream open(String file) throws Exception {
+		InputStream in = new FileInputStream(file);
+		return file.endsWith(".gz") ? new GZIPInputStream(in) : in;
+	}
+
 	public IAtomContainer removeLoopBonds(IAtomContainer molecule, int position) {
 		for (int i = 0; i < molecule.getBondCount(); i++) {
 			IBond bond = molecule.getBond(i);
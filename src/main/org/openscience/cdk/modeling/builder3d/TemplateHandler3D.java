@@ -23,16 +23,26 @@
  */
 package org.openscience.cdk.modeling.builder3d;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.vecmath.Point3d;
 
@@ -43,6 +53,7 @@ import org.openscience.cdk.fingerprint.HybridizationFingerprinter;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IAtomContainerSet;
+import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IRingSet;
 import org.openscience.cdk.io.iterator.IteratingSDFReader;
@@ -58,6 +69,15 @@ import org.openscience.cdk.tools.manipulator.RingSetManipulator;
  * Helper class for ModelBuilder3D. Handles templates. This is
  * our layout solution for 3D ring systems
  *
+ * <p>The templates are read once, from a precompiled binary store if it is
+ * on the classpath and from the SD file otherwise, and are indexed by atom
+ * count and by a key of the ring system graph. A ring system which matches
+ * a template exactly is found with a hash lookup; only ring systems without
+ * an exact template are screened with fingerprints against all templates
+ * of the same size. The handler is not modified by
+ * {@link #mapTemplates(IAtomContainer, double)} and can be used by several
+ * threads at once.
+ *
  * @author      cho
  * @author      steinbeck
  * @cdk.created 2004-09-21
@@ -71,22 +91,32 @@ public class TemplateHandler3D {
 	private static final ILoggingTool logger =
         LoggingToolFactory.createLoggingTool(TemplateHandler3D.class);
 	
+	private static final String TEMPLATE_STORE =
+	    "org/openscience/cdk/modeling/builder3d/data/ringTemplateStore.bin.gz";
+
+	/** Version of the binary template store format. */
+	private static final int STORE_VERSION = 1;
+
 	IAtomContainer molecule;
     IRingSet sssr;
     IAtomContainerSet templates = null;
     List<BitSet> fingerprintData = null;
-    private boolean templatesLoaded = false;
+    private volatile boolean templatesLoaded = false;
+
+    /** Indices of the templates, in file order, by atom count. */
+    private Map<Integer, List<Integer>> templatesByAtomCount = null;
+
+    /** Indices of the templates, in file order, by {@link #getRingSystemKey(IAtomContainer)}. */
+    private Map<String, List<Integer>> templatesByKey = null;
 
     private static TemplateHandler3D self = null;
 
-    private UniversalIsomorphismTester universalIsomorphismTester = new UniversalIsomorphismTester();
-    
     private TemplateHandler3D() {
         templates = builder.newInstance(IAtomContainerSet.class);
         fingerprintData = new ArrayList<BitSet>();
     }
 
-    public static TemplateHandler3D getInstance() throws CDKException {
+    public static synchronized TemplateHandler3D getInstance() throws CDKException {
     	if (self == null) {
     		self = new TemplateHandler3D();
     	}
@@ -94,11 +124,52 @@ public class TemplateHandler3D {
     }
 
     /**
-     * Loads all existing templates into memory. 
-     * Template file is a mdl file. Creates a Object Set of Molecules
+     * Loads all existing templates into memory and indexes them, unless this
+     * is already done. The precompiled template store is used if present.
+     *
      * @throws CDKException The template file cannot be loaded
      */
-    private void loadTemplates() throws CDKException{
+    private synchronized void loadTemplates() throws CDKException {
+        if (templatesLoaded) return;
+        InputStream ins = this.getClass().getClassLoader().getResourceAsStream(TEMPLATE_STORE);
+        if (ins != null) {
+            logger.debug("Loading template store...");
+            try {
+                readTemplateStore(ins, templates, fingerprintData);
+                ins.close();
+            } catch (IOException exception) {
+                throw new CDKException("Problems loading file ringTemplateStore.bin.gz", exception);
+            }
+        } else {
+            loadTemplatesFromFiles();
+        }
+
+        templatesByAtomCount = new HashMap<Integer, List<Integer>>();
+        templatesByKey = new HashMap<String, List<Integer>>();
+        for (int i = 0; i < templates.getAtomContainerCount(); i++) {
+            IAtomContainer template = templates.getAtomContainer(i);
+            index(templatesByAtomCount, template.getAtomCount(), i);
+            index(templatesByKey, getRingSystemKey(template), i);
+        }
+        templatesLoaded = true;
+    }
+
+    private static <K> void index(Map<K, List<Integer>> map, K key, int i) {
+        List<Integer> list = map.get(key);
+        if (list == null) {
+            list = new ArrayList<Integer>(1);
+            map.put(key, list);
+        }
+        list.add(i);
+    }
+
+    /**
+     * Loads the templates from the SD file and the fingerprints from the
+     * fingerprint file.
+     *
+     * @throws CDKException The template file cannot be loaded
+     */
+    private void loadTemplatesFromFiles() throws CDKException{
         logger.debug("Loading templates...");
         IteratingSDFReader imdl;
         InputStream ins;
@@ -148,7 +219,198 @@ public class TemplateHandler3D {
             }
         }
         //logger.debug("Fingerprints are read in:"+fingerprintData.size());
-        templatesLoaded = true;
+    }
+
+    /**
+     * Writes templates and their fingerprints in the binary template store
+     * format. The store keeps the atom symbols, 3D coordinates and aromaticity
+     * and the bond orders and aromaticity.
+     *
+     * @param templates    the templates
+     * @param fingerprints the fingerprint of each template
+     * @param out          the stream to write the gzipped store to
+     * @throws IOException the store cannot be written
+     */
+    static void writeTemplateStore(IAtomContainerSet templates, List<BitSet> fingerprints,
+                                   OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(out)));
+        data.writeInt(STORE_VERSION);
+        data.writeInt(templates.getAtomContainerCount());
+        for (int i = 0; i < templates.getAtomContainerCount(); i++) {
+            IAtomContainer template = templates.getAtomContainer(i);
+            data.writeShort(template.getAtomCount());
+            for (IAtom atom : template.atoms()) {
+                data.writeUTF(atom.getSymbol());
+                data.writeDouble(atom.getPoint3d().x);
+                data.writeDouble(atom.getPoint3d().y);
+                data.writeDouble(atom.getPoint3d().z);
+                data.writeBoolean(atom.getFlag(CDKConstants.ISAROMATIC));
+            }
+            data.writeShort(template.getBondCount());
+            for (IBond bond : template.bonds()) {
+                data.writeShort(template.getAtomNumber(bond.getAtom(0)));
+                data.writeShort(template.getAtomNumber(bond.getAtom(1)));
+                data.writeUTF(bond.getOrder().name());
+                data.writeBoolean(bond.getFlag(CDKConstants.ISAROMATIC));
+            }
+            BitSet fingerprint = fingerprints.get(i);
+            data.writeShort(fingerprint.cardinality());
+            for (int bit = fingerprint.nextSetBit(0); bit >= 0; bit = fingerprint.nextSetBit(bit + 1)) {
+                data.writeShort(bit);
+            }
+        }
+        data.close();
+    }
+
+    /**
+     * Reads a template store written by
+     * {@link #writeTemplateStore(IAtomContainerSet, List, OutputStream)}.
+     *
+     * @param in           the gzipped store
+     * @param templates    the set to add the templates to
+     * @param fingerprints the list to add the fingerprints to
+     * @throws IOException the store cannot be read
+     */
+    static void readTemplateStore(InputStream in, IAtomContainerSet templates,
+                                  List<BitSet> fingerprints) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+        if (data.readInt() != STORE_VERSION)
+            throw new IOException("Unsupported template store version");
+        // cloning is much faster than creating the objects through the builder
+        Map<String, IAtom> prototypes = new HashMap<String, IAtom>();
+        IBond bondPrototype = builder.newInstance(IBond.class);
+        int count = data.readInt();
+        try {
+            for (int i = 0; i < count; i++) {
+                IAtomContainer template = builder.newInstance(IAtomContainer.class);
+                int atomCount = data.readShort();
+                IAtom[] atoms = new IAtom[atomCount];
+                for (int j = 0; j < atomCount; j++) {
+                    String symbol = data.readUTF();
+                    IAtom prototype = prototypes.get(symbol);
+                    if (prototype == null) {
+                        prototype = builder.newInstance(IAtom.class, symbol);
+                        prototypes.put(symbol, prototype);
+                    }
+                    atoms[j] = (IAtom) prototype.clone();
+                    atoms[j].setPoint3d(new Point3d(data.readDouble(), data.readDouble(), data.readDouble()));
+                    atoms[j].setFlag(CDKConstants.ISAROMATIC, data.readBoolean());
+                }
+                template.setAtoms(atoms);
+                int bondCount = data.readShort();
+                IBond[] bonds = new IBond[bondCount];
+                for (int j = 0; j < bondCount; j++) {
+                    bonds[j] = (IBond) bondPrototype.clone();
+                    bonds[j].setAtoms(new IAtom[]{atoms[data.readShort()], atoms[data.readShort()]});
+                    bonds[j].setOrder(IBond.Order.valueOf(data.readUTF()));
+                    bonds[j].setFlag(CDKConstants.ISAROMATIC, data.readBoolean());
+                }
+                template.setBonds(bonds);
+                templates.addAtomContainer(template);
+                BitSet fingerprint = new BitSet(1024);
+                for (int bits = data.readShort(); bits > 0; bits--) {
+                    fingerprint.set(data.readShort());
+                }
+                fingerprints.add(fingerprint);
+            }
+        } catch (CloneNotSupportedException exception) {
+            throw new IllegalStateException("Atoms and bonds must be cloneable");
+        }
+    }
+
+    /**
+     * Returns a key of the ring system graph with the atom symbols, the bond
+     * orders and the aromaticity of the bonds. Ring systems which are
+     * isomorphic have the same key, so the templates which match a ring
+     * system exactly all have its key. Different ring systems usually, but
+     * not always, have different keys.
+     *
+     * @param  ringSystem the ring system
+     * @return            the key
+     */
+    static String getRingSystemKey(IAtomContainer ringSystem) {
+        int atomCount = ringSystem.getAtomCount();
+        Map<IAtom, Integer> index = new IdentityHashMap<IAtom, Integer>();
+        long[] labels = new long[atomCount];
+        for (int i = 0; i < atomCount; i++) {
+            IAtom atom = ringSystem.getAtom(i);
+            index.put(atom, i);
+            labels[i] = atom.getSymbol() == null ? 0 : atom.getSymbol().hashCode();
+        }
+
+        // the neighbours of each atom with the label of the connecting bond
+        int[] degree = new int[atomCount];
+        List<IBond> bonds = new ArrayList<IBond>();
+        for (IBond bond : ringSystem.bonds()) {
+            if (bond.getAtomCount() != 2) continue;
+            Integer u = index.get(bond.getAtom(0)), v = index.get(bond.getAtom(1));
+            if (u == null || v == null) continue;
+            degree[u]++;
+            degree[v]++;
+            bonds.add(bond);
+        }
+        int[][] neighbours = new int[atomCount][];
+        long[][] bondLabels = new long[atomCount][];
+        for (int i = 0; i < atomCount; i++) {
+            neighbours[i] = new int[degree[i]];
+            bondLabels[i] = new long[degree[i]];
+            degree[i] = 0;
+        }
+        for (IBond bond : bonds) {
+            int u = index.get(bond.getAtom(0)), v = index.get(bond.getAtom(1));
+            // as for the isomorphism tester, aromatic bonds match whatever their order
+            long label = bond.getFlag(CDKConstants.ISAROMATIC) ? -1
+                         : bond.getOrder() == null ? -2 : bond.getOrder().ordinal();
+            neighbours[u][degree[u]] = v;
+            bondLabels[u][degree[u]++] = label;
+            neighbours[v][degree[v]] = u;
+            bondLabels[v][degree[v]++] = label;
+        }
+
+        // refine the labels by those of the neighbours until the number of
+        // different labels no longer grows
+        int classes = countClasses(labels);
+        long[] next = new long[atomCount];
+        for (int round = 0; round < atomCount; round++) {
+            for (int i = 0; i < atomCount; i++) {
+                long[] around = new long[neighbours[i].length];
+                for (int j = 0; j < around.length; j++) {
+                    around[j] = mix(bondLabels[i][j], labels[neighbours[i][j]]);
+                }
+                Arrays.sort(around);
+                long label = labels[i];
+                for (long value : around) label = mix(label, value);
+                next[i] = label;
+            }
+            long[] tmp = labels;
+            labels = next;
+            next = tmp;
+            int refined = countClasses(labels);
+            if (refined == classes) break;
+            classes = refined;
+        }
+
+        long[] sorted = labels.clone();
+        Arrays.sort(sorted);
+        long hash = atomCount;
+        for (long label : sorted) hash = mix(hash, label);
+        return atomCount + ":" + bonds.size() + ":" + Long.toHexString(hash);
+    }
+
+    private static int countClasses(long[] labels) {
+        if (labels.length == 0) return 0;
+        long[] sorted = labels.clone();
+        Arrays.sort(sorted);
+        int classes = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[i - 1]) classes++;
+        }
+        return classes;
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 31);
     }
 
     public static BitSet getBitSetFromFile(StringTokenizer st) throws Exception {
@@ -197,19 +459,40 @@ public class TemplateHandler3D {
      * @throws CloneNotSupportedException The atomcontainer cannot be cloned.
      */
     public void mapTemplates(IAtomContainer ringSystems, double NumberOfRingAtoms) throws CDKException, CloneNotSupportedException{
-		if (!templatesLoaded) self.loadTemplates();
+		if (!templatesLoaded) loadTemplates();
+		UniversalIsomorphismTester universalIsomorphismTester = new UniversalIsomorphismTester();
 
         //logger.debug("Map Template...START---Number of Ring Atoms:"+NumberOfRingAtoms);
+        //an exact match has the key of the ring system, the first one in file
+        //order is the template the search below would end with
+        if (NumberOfRingAtoms == ringSystems.getAtomCount()) {
+            List<Integer> exact = templatesByKey.get(getRingSystemKey(ringSystems));
+            if (exact != null) {
+                for (int i : exact) {
+                    IAtomContainer template = templates.getAtomContainer(i);
+                    if (universalIsomorphismTester.isSubgraph(ringSystems, template)) {
+                        List<RMap> list = universalIsomorphismTester.getSubgraphAtomsMap(ringSystems, template);
+                        if (list.size() == ringSystems.getAtomCount()) {
+                            assignCoordinates(ringSystems, template, list);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        //if the atom count is different, it can't be right anyway
+        List<Integer> candidates = templatesByAtomCount.get(ringSystems.getAtomCount());
+        if (candidates == null) {
+            logger.warn("Maybe RingTemplateError!");
+            return;
+        }
         IAtomContainer ringSystemAnyBondAnyAtom = AtomContainerManipulator.createAllCarbonAllSingleNonAromaticBondAtomContainer(ringSystems);
         BitSet ringSystemFingerprint = new HybridizationFingerprinter().getBitFingerprint(ringSystemAnyBondAnyAtom).asBitSet();
         boolean flagMaxSubstructure = false;
         boolean flagSecondbest=false;
-        for (int i = 0; i < fingerprintData.size(); i++) {
+        for (int i : candidates) {
             IAtomContainer template = templates.getAtomContainer(i);
-            //if the atom count is different, it can't be right anyway
-            if (template.getAtomCount() != ringSystems.getAtomCount()) {
-                continue;
-            }
             //we compare the fingerprint with any atom and any bond
             if (FingerprinterTool.isSubset(fingerprintData.get(i),ringSystemFingerprint)) {
                 IAtomContainer templateAnyBondAnyAtom = AtomContainerManipulator.createAllCarbonAllSingleNonAromaticBondAtomContainer(template);
@@ -232,14 +515,7 @@ public class TemplateHandler3D {
                     }
                     
                     if(!flagSecondbest || flagMaxSubstructure || flagwritefromsecondbest){
-	                    for (int j = 0; j < list.size(); j++) {
-	                        RMap map = (RMap) list.get(j);
-	                        IAtom atom1 = ringSystems.getAtom(map.getId1());
-	                        IAtom atom2 = template.getAtom(map.getId2());
-	                        if (atom1.getFlag(CDKConstants.ISINRING)) {
-	                        	atom1.setPoint3d(new Point3d(atom2.getPoint3d()));
-	                        }
-	                    }//for j
+                        assignCoordinates(ringSystems, template, list);
                     }
 
                     if (flagMaxSubstructure) {
@@ -250,7 +526,22 @@ public class TemplateHandler3D {
             }//if fingerprint
         }//for i
         if (!flagMaxSubstructure) {
-            System.out.println("WARNING: Maybe RingTemplateError!");
+            logger.warn("Maybe RingTemplateError!");
+        }
+    }
+
+    /**
+     * Copies the coordinates of the mapped template atoms to the ring atoms
+     * of the ring system.
+     */
+    private static void assignCoordinates(IAtomContainer ringSystems, IAtomContainer template, List<RMap> list) {
+        for (int j = 0; j < list.size(); j++) {
+            RMap map = list.get(j);
+            IAtom atom1 = ringSystems.getAtom(map.getId1());
+            IAtom atom2 = template.getAtom(map.getId2());
+            if (atom1.getFlag(CDKConstants.ISINRING)) {
+                atom1.setPoint3d(new Point3d(atom2.getPoint3d()));
+            }
         }
     }
 
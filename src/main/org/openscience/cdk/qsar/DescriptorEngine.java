@@ -46,6 +46,16 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -67,6 +77,15 @@ import java.util.jar.JarFile;
  * descriptorEngine.process(someMolecule);
  * </pre>
  * <p/>
+ * <p>A series of molecules can be processed with several threads, after which the time spent in each
+ * descriptor shows which descriptors dominate the runtime
+ * <pre>
+ * descriptorEngine.process(someMolecules, 4);
+ * for (int i = 0; i &lt; descriptorEngine.getDescriptorInstances().size(); i++)
+ *     System.out.println(descriptorEngine.getDescriptorClassNames().get(i) + " "
+ *                        + descriptorEngine.getCalculationTime(i) / 1000000 + " ms");
+ * </pre>
+ * <p/>
  * <p>The class allows the user to obtain a List of all the available descriptors in terms of their
  * Java class names as well as instances of each descriptor class.   For each descriptor, it is possible to
  * obtain its classification as described in the CDK descriptor-algorithms OWL dictionary.
@@ -92,6 +111,8 @@ public class DescriptorEngine {
     private List<String> classNames = null;
     private List<IDescriptor> descriptors = null;
     private List<IImplementationSpecification> speclist = null;
+    private AtomicLongArray times = new AtomicLongArray(0);
+    private AtomicIntegerArray failures = new AtomicIntegerArray(0);
     private static ILoggingTool logger =
         LoggingToolFactory.createLoggingTool(DescriptorEngine.class);
 
@@ -122,6 +143,7 @@ public class DescriptorEngine {
         this.classNames = classNames;
         descriptors = instantiateDescriptors(classNames);
         speclist = initializeSpecifications(descriptors);
+        resetStatistics();
 
         // get the dictionary for the descriptors
         DictionaryDatabase dictDB = new DictionaryDatabase();
@@ -174,6 +196,7 @@ public class DescriptorEngine {
         }
         descriptors = instantiateDescriptors(classNames);
         speclist = initializeSpecifications(descriptors);
+        resetStatistics();
         logger.debug("Found #descriptors: ", classNames.size());
         
         // get the dictionary for the descriptors
@@ -188,57 +211,223 @@ public class DescriptorEngine {
      * The results for a given descriptor as well as associated parameters and
      * specifications are used to create a <code>DescriptorValue</code>
      * object which is then added to the molecule as a property keyed
-     * on the <code>DescriptorSpecification</code> object for that descriptor
+     * on the <code>DescriptorSpecification</code> object for that descriptor.
+     * While the descriptors are calculated a {@link PerceptionCache} is attached to the
+     * molecule, so that atom types, aromaticity, rings and distances are only perceived once.
      *
      * @param molecule The molecule for which we want to calculate descriptors
      * @throws CDKException if an error occured during descriptor calculation or the descriptors and/or
      *                      specifications have not been initialized
      */
+    @TestMethod("testProcess_IAtomContainer")
     public void process(IAtomContainer molecule) throws CDKException {
+        checkDescriptors();
+        calculate(descriptors, molecule);
+    }
+
+    /**
+     * Calculates all available (or only those specified) descriptors for a series of
+     * molecules, using the given number of threads.
+     * <p/>
+     * The values are added to the molecules, atoms and bonds in the same way as by
+     * {@link #process(IAtomContainer)}, so the molecules must be distinct objects. Each
+     * thread calculates with its own copies of the descriptor instances, created with
+     * the no-argument constructor and the parameters of the original instance, so that
+     * descriptors which are not thread-safe can be used. The molecules are taken from the
+     * iterator as the threads become available.
+     *
+     * @param molecules The molecules for which we want to calculate descriptors
+     * @param threads   The number of threads to calculate with
+     * @throws CDKException if the descriptors could not be copied, a calculation threw
+     *                      an exception, or the descriptors and/or specifications have not
+     *                      been initialized
+     * @see #getCalculationTime(int)
+     * @see #getFailureCount(int)
+     */
+    @TestMethod("testProcess_Iterable_int")
+    public void process(Iterable<IAtomContainer> molecules, int threads) throws CDKException {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed: " + threads);
+        checkDescriptors();
+
+        final BlockingQueue<List<IDescriptor>> copies = new ArrayBlockingQueue<List<IDescriptor>>(threads);
+        for (int i = 0; i < threads; i++) copies.add(copyDescriptors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "DescriptorEngine worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // only read a few molecules ahead of the threads
+        final Semaphore permits = new Semaphore(4 * threads);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        try {
+            for (final IAtomContainer molecule : molecules) {
+                permits.acquire();
+                if (failure.get() != null) break;
+                executor.execute(new Runnable() {
+                    public void run() {
+                        List<IDescriptor> instances = copies.poll();
+                        try {
+                            if (failure.get() == null) calculate(instances, molecule);
+                        } catch (Throwable throwable) {
+                            failure.compareAndSet(null, throwable);
+                        } finally {
+                            copies.add(instances);
+                            permits.release();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new CDKException("Interrupted while calculating descriptors", exception);
+        } finally {
+            executor.shutdownNow();
+        }
+        Throwable throwable = failure.get();
+        if (throwable instanceof CDKException) throw (CDKException) throwable;
+        if (throwable != null)
+            throw new CDKException("Could not calculate descriptors: " + throwable.getMessage(), throwable);
+    }
+
+    /**
+     * Returns the total time spent by a descriptor in {@link #process(IAtomContainer)}
+     * and {@link #process(Iterable, int)} since the descriptor instances were set or the
+     * statistics were last reset. In the batch mode this is the sum of the time of all
+     * threads.
+     *
+     * @param index The index of the descriptor in {@link #getDescriptorInstances()}
+     * @return The time in nanoseconds
+     */
+    @TestMethod("testProcess_Iterable_int")
+    public long getCalculationTime(int index) {
+        return times.get(index);
+    }
 
+    /**
+     * Returns the number of values a descriptor could not calculate, or calculations
+     * that ended with an exception, since the descriptor instances were set or the
+     * statistics were last reset. For atomic and bond descriptors each atom or bond
+     * counts.
+     *
+     * @param index The index of the descriptor in {@link #getDescriptorInstances()}
+     * @return The number of failures
+     */
+    @TestMethod("testGetFailureCount_int")
+    public int getFailureCount(int index) {
+        return failures.get(index);
+    }
+
+    /**
+     * Sets the calculation times and failure counts of all descriptors to zero.
+     */
+    @TestMethod("testResetStatistics")
+    public void resetStatistics() {
+        int count = descriptors == null ? 0 : descriptors.size();
+        times = new AtomicLongArray(count);
+        failures = new AtomicIntegerArray(count);
+    }
+
+    private void checkDescriptors() throws CDKException {
         if (descriptors == null || speclist == null) throw new CDKException("Descriptors have not been instantiated");
         if (speclist.size() != descriptors.size())
             throw new CDKException("Number of specs and descriptors do not match");
+        if (times.length() != descriptors.size()) resetStatistics();
+    }
+
+    private List<IDescriptor> copyDescriptors() throws CDKException {
+        List<IDescriptor> copies = new ArrayList<IDescriptor>(descriptors.size());
+        for (IDescriptor descriptor : descriptors) {
+            try {
+                IDescriptor copy = descriptor.getClass().newInstance();
+                Object[] parameters = descriptor.getParameters();
+                if (parameters != null && parameters.length > 0) copy.setParameters(parameters.clone());
+                copies.add(copy);
+            } catch (InstantiationException exception) {
+                throw new CDKException("Could not copy descriptor: " + descriptor.getClass().getName(), exception);
+            } catch (IllegalAccessException exception) {
+                throw new CDKException("Could not copy descriptor: " + descriptor.getClass().getName(), exception);
+            }
+        }
+        return copies;
+    }
 
+    private void calculate(List<IDescriptor> descriptors, IAtomContainer molecule) {
+        // the statistics may be reset while calculating
+        AtomicLongArray times = this.times;
+        AtomicIntegerArray failures = this.failures;
+        // the descriptors share the atom types, rings and so on they perceive
+        boolean attached = PerceptionCache.attach(molecule);
+        try {
+            for (int i = 0; i < descriptors.size(); i++) {
+                IDescriptor descriptor = descriptors.get(i);
+                long start = System.nanoTime();
+                int failed = 0;
+                boolean completed = false;
+                try {
+                    failed = calculate(descriptor, speclist.get(i), molecule);
+                    completed = true;
+                } finally {
+                    times.addAndGet(i, System.nanoTime() - start);
+                    if (!completed) failed++;
+                    if (failed > 0) failures.addAndGet(i, failed);
+                }
+            }
+        } finally {
+            if (attached) PerceptionCache.detach(molecule);
+        }
+    }
 
-        for (int i = 0; i < descriptors.size(); i++) {
-            IDescriptor descriptor = descriptors.get(i);
-            if (descriptor instanceof IMolecularDescriptor) {
-                DescriptorValue value = ((IMolecularDescriptor) descriptor).calculate(molecule);
-                if (value.getException() == null) molecule.setProperty(speclist.get(i), value);
+    /**
+     * Adds the values of one descriptor to the molecule, its atoms or its bonds.
+     *
+     * @return the number of values that could not be calculated
+     */
+    private int calculate(IDescriptor descriptor, IImplementationSpecification specification,
+                          IAtomContainer molecule) {
+        int failed = 0;
+        if (descriptor instanceof IMolecularDescriptor) {
+            DescriptorValue value = ((IMolecularDescriptor) descriptor).calculate(molecule);
+            if (value.getException() == null) molecule.setProperty(specification, value);
+            else {
+                failed++;
+                logger.error("Could not calculate descriptor value for: ", descriptor.getClass().getName());
+                logger.debug(value.getException());
+            }
+            logger.debug("Calculated molecular descriptors...");
+        } else if (descriptor instanceof IAtomicDescriptor) {
+            Iterator atoms = molecule.atoms().iterator();
+            while (atoms.hasNext()) {
+                IAtom atom = (IAtom) atoms.next();
+                DescriptorValue value = ((IAtomicDescriptor) descriptor).calculate(atom, molecule);
+                if (value.getException() == null) atom.setProperty(specification, value);
                 else {
+                    failed++;
                     logger.error("Could not calculate descriptor value for: ", descriptor.getClass().getName());
                     logger.debug(value.getException());
                 }
-                logger.debug("Calculated molecular descriptors...");
-            } else if (descriptor instanceof IAtomicDescriptor) {
-                Iterator atoms = molecule.atoms().iterator();
-                while (atoms.hasNext()) {
-                    IAtom atom = (IAtom) atoms.next();
-                    DescriptorValue value = ((IAtomicDescriptor) descriptor).calculate(atom, molecule);
-                    if (value.getException() == null) atom.setProperty(speclist.get(i), value);
-                    else {
-                        logger.error("Could not calculate descriptor value for: ", descriptor.getClass().getName());
-                        logger.debug(value.getException());
-                    }
-                }
-                logger.debug("Calculated atomic descriptors...");
-            } else if (descriptor instanceof IBondDescriptor) {
-                Iterator bonds = molecule.bonds().iterator();
-                while (bonds.hasNext()) {
-                    IBond bond = (IBond) bonds.next();
-                    DescriptorValue value = ((IBondDescriptor) descriptor).calculate(bond, molecule);
-                    if (value.getException() == null) bond.setProperty(speclist.get(i), value);
-                    else {
-                        logger.error("Could not calculate descriptor value for: ", descriptor.getClass().getName());
-                        logger.debug(value.getException());
-                    }
+            }
+            logger.debug("Calculated atomic descriptors...");
+        } else if (descriptor instanceof IBondDescriptor) {
+            Iterator bonds = molecule.bonds().iterator();
+            while (bonds.hasNext()) {
+                IBond bond = (IBond) bonds.next();
+                DescriptorValue value = ((IBondDescriptor) descriptor).calculate(bond, molecule);
+                if (value.getException() == null) bond.setProperty(specification, value);
+                else {
+                    failed++;
+                    logger.error("Could not calculate descriptor value for: ", descriptor.getClass().getName());
+                    logger.debug(value.getException());
                 }
-                logger.debug("Calculated bond descriptors...");
-            } else {
-                logger.debug("Unknown descriptor type for: ", descriptor.getClass().getName());
             }
+            logger.debug("Calculated bond descriptors...");
+        } else {
+            logger.debug("Unknown descriptor type for: ", descriptor.getClass().getName());
         }
+        return failed;
     }
 
     /**
@@ -529,6 +718,7 @@ public class DescriptorEngine {
      */
     public void setDescriptorInstances(List<IDescriptor> descriptors) {
         this.descriptors = descriptors;
+        resetStatistics();
     }
 
     /**
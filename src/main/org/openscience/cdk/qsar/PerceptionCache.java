@@ -0,0 +1,509 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.qsar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
+import org.openscience.cdk.atomtype.CDKAtomTypeMatcher;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.AdjacencyList;
+import org.openscience.cdk.graph.PathTools;
+import org.openscience.cdk.graph.matrix.AdjacencyMatrix;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IAtomType;
+import org.openscience.cdk.interfaces.IAtomType.Hybridization;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IPseudoAtom;
+import org.openscience.cdk.interfaces.IRing;
+import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.interfaces.ISingleElectron;
+import org.openscience.cdk.ringsearch.AllRingsFinder;
+import org.openscience.cdk.ringsearch.SSSRFinder;
+import org.openscience.cdk.tools.CDKHydrogenAdder;
+import org.openscience.cdk.tools.manipulator.AtomTypeManipulator;
+
+/**
+ * Remembers the results of the perception steps that many molecular descriptors
+ * run on their own copy of the same molecule: atom typing, aromaticity detection,
+ * adding implicit hydrogens, ring perception and the topological distance matrix.
+ *
+ * <p>The {@link DescriptorEngine} attaches a cache to a molecule as a property
+ * while it calculates the descriptors, and descriptors ask for it with
+ * {@link #getInstance(IAtomContainer)}. Because clones share the properties of
+ * the original, a descriptor finds the cache on its own clone as well:
+ * <pre>
+ * IAtomContainer clone = (IAtomContainer) container.clone();
+ * PerceptionCache cache = PerceptionCache.getInstance(container);
+ * cache.percieveAtomTypesAndConfigureAtoms(clone);
+ * cache.detectAromaticity(clone);
+ * </pre>
+ *
+ * <p>Each step is calculated for real the first time, and its result is stored
+ * together with a snapshot of everything the step reads from the container:
+ * the connection table and, for the steps that depend on them, the atom
+ * symbols, charges, hydrogen counts, atom types, bond orders and the ring and
+ * aromaticity flags. When a later container has the same snapshot the stored
+ * result is copied onto it, which gives the same outcome as running the step
+ * again. Any other container is processed without the cache. If no cache is
+ * attached, {@link #getInstance(IAtomContainer)} returns an instance that
+ * always calculates, so descriptors behave the same outside the engine.
+ *
+ * @cdk.module qsarmolecular
+ * @cdk.githash
+ * @see DescriptorEngine#process(IAtomContainer)
+ */
+@TestClass("org.openscience.cdk.qsar.PerceptionCacheTest")
+public class PerceptionCache {
+
+    /** The property under which the cache is attached to a molecule. */
+    public static final String PERCEPTION_CACHE = "cdk:PerceptionCache";
+
+    /** The number of differently prepared containers remembered for each step. */
+    private static final int MAX_ENTRIES = 4;
+
+    private static final PerceptionCache NONE = new PerceptionCache(false);
+
+    private final boolean enabled;
+    private final List<Entry> atomTypes = new ArrayList<Entry>();
+    private final List<Entry> aromaticity = new ArrayList<Entry>();
+    private final List<Entry> hydrogens = new ArrayList<Entry>();
+    private final List<Entry> allRings = new ArrayList<Entry>();
+    private final List<Entry> smallestRings = new ArrayList<Entry>();
+    private final List<Entry> distances = new ArrayList<Entry>();
+
+    private PerceptionCache(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Creates an empty cache, which is not attached to any molecule.
+     */
+    @TestMethod("testPerceptionCache")
+    public PerceptionCache() {
+        this(true);
+    }
+
+    /**
+     * Returns the cache attached to the container, or to the molecule it was
+     * cloned from. If there is none, an instance is returned that calculates
+     * everything without caching.
+     *
+     * @param container the container a descriptor was given
+     * @return the cache to use
+     */
+    @TestMethod("testGetInstance_IAtomContainer")
+    public static PerceptionCache getInstance(IAtomContainer container) {
+        Object cache = container.getProperty(PERCEPTION_CACHE);
+        return cache instanceof PerceptionCache ? (PerceptionCache) cache : NONE;
+    }
+
+    /**
+     * Attaches a new cache to the molecule, unless it already has one.
+     *
+     * @param molecule the molecule
+     * @return true if a cache was attached, false if the molecule already had one
+     * @see #detach(IAtomContainer)
+     */
+    @TestMethod("testAttach_IAtomContainer")
+    public static boolean attach(IAtomContainer molecule) {
+        if (molecule.getProperty(PERCEPTION_CACHE) instanceof PerceptionCache) return false;
+        molecule.setProperty(PERCEPTION_CACHE, new PerceptionCache());
+        return true;
+    }
+
+    /**
+     * Removes the cache from the molecule.
+     *
+     * @param molecule the molecule
+     */
+    @TestMethod("testAttach_IAtomContainer")
+    public static void detach(IAtomContainer molecule) {
+        molecule.removeProperty(PERCEPTION_CACHE);
+    }
+
+    /**
+     * Gives the same result as
+     * {@link org.openscience.cdk.tools.manipulator.AtomContainerManipulator#percieveAtomTypesAndConfigureAtoms(IAtomContainer)}.
+     *
+     * @param container the container to configure
+     * @throws CDKException if the atom types could not be perceived
+     */
+    @TestMethod("testPercieveAtomTypesAndConfigureAtoms_IAtomContainer")
+    public void percieveAtomTypesAndConfigureAtoms(IAtomContainer container) throws CDKException {
+        Snapshot snapshot = enabled ? new Snapshot(container, true) : null;
+        IAtomType[] types = (IAtomType[]) find(atomTypes, snapshot);
+        if (types == null) {
+            types = new IAtomType[container.getAtomCount()];
+            CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(container.getBuilder());
+            for (int i = 0; i < types.length; i++) {
+                IAtom atom = container.getAtom(i);
+                if (!(atom instanceof IPseudoAtom)) {
+                    types[i] = matcher.findMatchingAtomType(container, atom);
+                    if (types[i] != null) AtomTypeManipulator.configure(atom, types[i]);
+                }
+            }
+            store(atomTypes, snapshot, types);
+        } else {
+            for (int i = 0; i < types.length; i++) {
+                IAtom atom = container.getAtom(i);
+                if (!(atom instanceof IPseudoAtom) && types[i] != null)
+                    AtomTypeManipulator.configure(atom, types[i]);
+            }
+        }
+    }
+
+    /**
+     * Gives the same result as
+     * {@link CDKHueckelAromaticityDetector#detectAromaticity(IAtomContainer)}.
+     *
+     * @param container the container to detect aromaticity in
+     * @return true if aromaticity was found
+     * @throws CDKException if the aromaticity could not be detected
+     */
+    @TestMethod("testDetectAromaticity_IAtomContainer")
+    public boolean detectAromaticity(IAtomContainer container) throws CDKException {
+        Snapshot snapshot = enabled ? new Snapshot(container, true) : null;
+        Flags flags = (Flags) find(aromaticity, snapshot);
+        if (flags == null) {
+            boolean aromatic = CDKHueckelAromaticityDetector.detectAromaticity(container);
+            store(aromaticity, snapshot, new Flags(container, aromatic));
+            return aromatic;
+        }
+        flags.apply(container);
+        return flags.result;
+    }
+
+    /**
+     * Gives the same result as
+     * {@link CDKHydrogenAdder#addImplicitHydrogens(IAtomContainer)}.
+     *
+     * @param container the container to add implicit hydrogens to
+     * @throws CDKException if the atoms are not typed
+     */
+    @TestMethod("testAddImplicitHydrogens_IAtomContainer")
+    public void addImplicitHydrogens(IAtomContainer container) throws CDKException {
+        Snapshot snapshot = enabled ? new Snapshot(container, true) : null;
+        Integer[] counts = (Integer[]) find(hydrogens, snapshot);
+        if (counts == null) {
+            CDKHydrogenAdder.getInstance(container.getBuilder()).addImplicitHydrogens(container);
+            if (snapshot != null) {
+                counts = new Integer[container.getAtomCount()];
+                for (int i = 0; i < counts.length; i++)
+                    counts[i] = container.getAtom(i).getImplicitHydrogenCount();
+                store(hydrogens, snapshot, counts);
+            }
+        } else {
+            for (int i = 0; i < counts.length; i++) {
+                IAtom atom = container.getAtom(i);
+                if (!(atom instanceof IPseudoAtom)) atom.setImplicitHydrogenCount(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Gives the same result as {@link AllRingsFinder#findAllRings(IAtomContainer)}
+     * with the default time out.
+     *
+     * @param container the container to search for rings
+     * @return a new ring set with the atoms and bonds of the container
+     * @throws CDKException if the time out was reached
+     */
+    @TestMethod("testFindAllRings_IAtomContainer")
+    public IRingSet findAllRings(IAtomContainer container) throws CDKException {
+        Snapshot snapshot = enabled ? new Snapshot(container, false) : null;
+        Rings rings = (Rings) find(allRings, snapshot);
+        if (rings == null) {
+            IRingSet ringSet = new AllRingsFinder().findAllRings(container);
+            store(allRings, snapshot, new Rings(container, ringSet));
+            return ringSet;
+        }
+        return rings.toRingSet(container);
+    }
+
+    /**
+     * Gives the same result as {@link SSSRFinder#findSSSR()}, including the
+     * {@link CDKConstants#ISINRING} flags it sets on the ring atoms.
+     *
+     * @param container the container to search for rings
+     * @return a new ring set with the atoms and bonds of the container
+     */
+    @TestMethod("testFindSSSR_IAtomContainer")
+    public IRingSet findSSSR(IAtomContainer container) {
+        Snapshot snapshot = enabled ? new Snapshot(container, false) : null;
+        Rings rings = (Rings) find(smallestRings, snapshot);
+        if (rings == null) {
+            IRingSet ringSet = new SSSRFinder(container).findSSSR();
+            store(smallestRings, snapshot, new Rings(container, ringSet));
+            return ringSet;
+        }
+        IRingSet ringSet = rings.toRingSet(container);
+        for (IAtomContainer ring : ringSet.atomContainers()) {
+            for (IAtom atom : ring.atoms()) atom.setFlag(CDKConstants.ISINRING, true);
+        }
+        return ringSet;
+    }
+
+    /**
+     * Gives the same result as
+     * <code>PathTools.computeFloydAPSP(AdjacencyMatrix.getMatrix(container))</code>,
+     * the number of bonds on the shortest path between each pair of atoms.
+     *
+     * @param container the container
+     * @return a new matrix, which the caller may modify
+     */
+    @TestMethod("testGetTopologicalMatrix_IAtomContainer")
+    public int[][] getTopologicalMatrix(IAtomContainer container) {
+        Snapshot snapshot = enabled ? new Snapshot(container, false) : null;
+        int[][] matrix = (int[][]) find(distances, snapshot);
+        if (matrix == null) {
+            matrix = PathTools.computeFloydAPSP(AdjacencyMatrix.getMatrix(container));
+            if (snapshot == null || !snapshot.cacheable) return matrix;
+            store(distances, snapshot, matrix);
+        }
+        int[][] copy = new int[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) copy[i] = matrix[i].clone();
+        return copy;
+    }
+
+    private static Object find(List<Entry> entries, Snapshot snapshot) {
+        if (snapshot == null) return null;
+        synchronized (entries) {
+            for (Entry entry : entries) {
+                if (entry.snapshot.equals(snapshot)) return entry.result;
+            }
+        }
+        return null;
+    }
+
+    private static void store(List<Entry> entries, Snapshot snapshot, Object result) {
+        if (snapshot == null || !snapshot.cacheable) return;
+        synchronized (entries) {
+            if (entries.size() < MAX_ENTRIES) entries.add(new Entry(snapshot, result));
+        }
+    }
+
+    private static final class Entry {
+
+        private final Snapshot snapshot;
+        private final Object result;
+
+        private Entry(Snapshot snapshot, Object result) {
+            this.snapshot = snapshot;
+            this.result = result;
+        }
+    }
+
+    /**
+     * The part of a container that the perception steps read: the connection
+     * table and atom symbols, and optionally the properties of the atoms and
+     * bonds that atom typing and aromaticity detection depend on.
+     */
+    private static final class Snapshot {
+
+        private boolean cacheable = true;
+        private final String[] symbols;
+        private final boolean[] pseudo;
+        private final int[] bondAtoms;
+        private final Integer[] charges;
+        private final Integer[] hydrogens;
+        private final String[] typeNames;
+        private final Hybridization[] hybridizations;
+        private final Object[] lonePairs;
+        private final int[] singleElectrons;
+        private final int[] atomFlags;
+        private final IBond.Order[] orders;
+        private final int[] bondFlags;
+
+        private Snapshot(IAtomContainer container, boolean properties) {
+            AdjacencyList adjacency = AdjacencyList.getAdjacencyList(container);
+            int atomCount = container.getAtomCount();
+            int bondCount = container.getBondCount();
+            symbols = new String[atomCount];
+            pseudo = new boolean[atomCount];
+            for (int i = 0; i < atomCount; i++) {
+                IAtom atom = container.getAtom(i);
+                symbols[i] = atom.getSymbol();
+                pseudo[i] = atom instanceof IPseudoAtom;
+            }
+            bondAtoms = new int[2 * bondCount];
+            for (int i = 0; i < bondCount; i++) {
+                IBond bond = container.getBond(i);
+                if (bond.getAtomCount() == 2) {
+                    bondAtoms[2 * i] = adjacency.indexOf(bond.getAtom(0));
+                    bondAtoms[2 * i + 1] = adjacency.indexOf(bond.getAtom(1));
+                    if (bondAtoms[2 * i] < 0 || bondAtoms[2 * i + 1] < 0) cacheable = false;
+                } else {
+                    cacheable = false;
+                }
+            }
+            if (!properties) {
+                charges = hydrogens = null;
+                typeNames = null;
+                hybridizations = null;
+                lonePairs = null;
+                singleElectrons = atomFlags = bondFlags = null;
+                orders = null;
+                return;
+            }
+            charges = new Integer[atomCount];
+            hydrogens = new Integer[atomCount];
+            typeNames = new String[atomCount];
+            hybridizations = new Hybridization[atomCount];
+            lonePairs = new Object[atomCount];
+            atomFlags = new int[atomCount];
+            for (int i = 0; i < atomCount; i++) {
+                IAtom atom = container.getAtom(i);
+                charges[i] = atom.getFormalCharge();
+                hydrogens[i] = atom.getImplicitHydrogenCount();
+                typeNames[i] = atom.getAtomTypeName();
+                hybridizations[i] = atom.getHybridization();
+                lonePairs[i] = atom.getProperty(CDKConstants.LONE_PAIR_COUNT);
+                atomFlags[i] = flags(atom.getFlag(CDKConstants.ISAROMATIC),
+                                     atom.getFlag(CDKConstants.ISINRING),
+                                     atom.getFlag(CDKConstants.SINGLE_OR_DOUBLE));
+            }
+            singleElectrons = new int[atomCount];
+            for (ISingleElectron electron : container.singleElectrons()) {
+                int index = adjacency.indexOf(electron.getAtom());
+                if (index >= 0) singleElectrons[index]++;
+            }
+            orders = new IBond.Order[bondCount];
+            bondFlags = new int[bondCount];
+            for (int i = 0; i < bondCount; i++) {
+                IBond bond = container.getBond(i);
+                orders[i] = bond.getOrder();
+                bondFlags[i] = flags(bond.getFlag(CDKConstants.ISAROMATIC),
+                                     bond.getFlag(CDKConstants.ISINRING),
+                                     bond.getFlag(CDKConstants.SINGLE_OR_DOUBLE));
+            }
+        }
+
+        private static int flags(boolean aromatic, boolean ring, boolean singleOrDouble) {
+            return (aromatic ? 1 : 0) | (ring ? 2 : 0) | (singleOrDouble ? 4 : 0);
+        }
+
+        public boolean equals(Object object) {
+            if (!(object instanceof Snapshot)) return false;
+            Snapshot that = (Snapshot) object;
+            return cacheable && that.cacheable
+                && Arrays.equals(bondAtoms, that.bondAtoms)
+                && Arrays.equals(symbols, that.symbols)
+                && Arrays.equals(pseudo, that.pseudo)
+                && Arrays.equals(charges, that.charges)
+                && Arrays.equals(hydrogens, that.hydrogens)
+                && Arrays.equals(typeNames, that.typeNames)
+                && Arrays.equals(hybridizations, that.hybridizations)
+                && Arrays.equals(lonePairs, that.lonePairs)
+                && Arrays.equals(singleElectrons, that.singleElectrons)
+                && Arrays.equals(atomFlags, that.atomFlags)
+                && Arrays.equals(orders, that.orders)
+                && Arrays.equals(bondFlags, that.bondFlags);
+        }
+
+        public int hashCode() {
+            return Arrays.hashCode(bondAtoms);
+        }
+    }
+
+    /** The ring and aromaticity flags after aromaticity detection. */
+    private static final class Flags {
+
+        private final boolean result;
+        private final boolean[] atomAromatic;
+        private final boolean[] atomInRing;
+        private final boolean[] bondAromatic;
+        private final boolean[] bondInRing;
+
+        private Flags(IAtomContainer container, boolean result) {
+            this.result = result;
+            atomAromatic = new boolean[container.getAtomCount()];
+            atomInRing = new boolean[container.getAtomCount()];
+            for (int i = 0; i < atomAromatic.length; i++) {
+                atomAromatic[i] = container.getAtom(i).getFlag(CDKConstants.ISAROMATIC);
+                atomInRing[i] = container.getAtom(i).getFlag(CDKConstants.ISINRING);
+            }
+            bondAromatic = new boolean[container.getBondCount()];
+            bondInRing = new boolean[container.getBondCount()];
+            for (int i = 0; i < bondAromatic.length; i++) {
+                bondAromatic[i] = container.getBond(i).getFlag(CDKConstants.ISAROMATIC);
+                bondInRing[i] = container.getBond(i).getFlag(CDKConstants.ISINRING);
+            }
+        }
+
+        private void apply(IAtomContainer container) {
+            for (int i = 0; i < atomAromatic.length; i++) {
+                container.getAtom(i).setFlag(CDKConstants.ISAROMATIC, atomAromatic[i]);
+                container.getAtom(i).setFlag(CDKConstants.ISINRING, atomInRing[i]);
+            }
+            for (int i = 0; i < bondAromatic.length; i++) {
+                container.getBond(i).setFlag(CDKConstants.ISAROMATIC, bondAromatic[i]);
+                container.getBond(i).setFlag(CDKConstants.ISINRING, bondInRing[i]);
+            }
+        }
+    }
+
+    /** A ring set, as the indices of the atoms and bonds of each ring. */
+    private static final class Rings {
+
+        private final int[][] atoms;
+        private final int[][] bonds;
+
+        private Rings(IAtomContainer container, IRingSet ringSet) {
+            AdjacencyList adjacency = AdjacencyList.getAdjacencyList(container);
+            Map<IBond, Integer> bondIndices = new IdentityHashMap<IBond, Integer>();
+            for (int i = 0; i < container.getBondCount(); i++) bondIndices.put(container.getBond(i), i);
+            int count = ringSet.getAtomContainerCount();
+            atoms = new int[count][];
+            bonds = new int[count][];
+            for (int i = 0; i < count; i++) {
+                IAtomContainer ring = ringSet.getAtomContainer(i);
+                atoms[i] = new int[ring.getAtomCount()];
+                for (int j = 0; j < atoms[i].length; j++)
+                    atoms[i][j] = adjacency.indexOf(ring.getAtom(j));
+                bonds[i] = new int[ring.getBondCount()];
+                for (int j = 0; j < bonds[i].length; j++)
+                    bonds[i][j] = bondIndices.get(ring.getBond(j));
+            }
+        }
+
+        private IRingSet toRingSet(IAtomContainer container) {
+            IRingSet ringSet = container.getBuilder().newInstance(IRingSet.class);
+            for (int i = 0; i < atoms.length; i++) {
+                IRing ring = container.getBuilder().newInstance(IRing.class);
+                for (int atom : atoms[i]) ring.addAtom(container.getAtom(atom));
+                for (int bond : bonds[i]) ring.addBond(container.getBond(bond));
+                ringSet.addAtomContainer(ring);
+            }
+            return ringSet;
+        }
+    }
+}
@@ -35,10 +35,10 @@ import org.openscience.cdk.interfaces.IRingSet;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.DoubleArrayResult;
 import org.openscience.cdk.qsar.result.DoubleArrayResultType;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
-import org.openscience.cdk.ringsearch.AllRingsFinder;
 import org.openscience.cdk.tools.AtomicProperties;
 import org.openscience.cdk.tools.CDKHydrogenAdder;
 import org.openscience.cdk.tools.ILoggingTool;
@@ -1995,9 +1995,8 @@ public class ALOGPDescriptor implements IMolecularDescriptor {
         IAtomContainer container;
         try {
             container = (IAtomContainer) atomContainer.clone();
-            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(container);
-            CDKHydrogenAdder hAdder = CDKHydrogenAdder.getInstance(container.getBuilder());
-            hAdder.addImplicitHydrogens(container);
+            PerceptionCache.getInstance(container).percieveAtomTypesAndConfigureAtoms(container);
+            PerceptionCache.getInstance(container).addImplicitHydrogens(container);
             AtomContainerManipulator.convertImplicitToExplicitHydrogens(container);
         } catch (CloneNotSupportedException e) {
             return getDummyDescriptorValue(new CDKException("Error during clone"));
@@ -2007,8 +2006,7 @@ public class ALOGPDescriptor implements IMolecularDescriptor {
 
         IRingSet rs;
         try {
-            AllRingsFinder arf = new AllRingsFinder();
-            rs = arf.findAllRings(container);
+            rs = PerceptionCache.getInstance(container).findAllRings(container);
         } catch (Exception e) {
             return getDummyDescriptorValue(new CDKException("Could not find all rings: " + e.getMessage()));
         }
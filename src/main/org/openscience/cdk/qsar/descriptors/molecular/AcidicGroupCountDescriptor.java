@@ -23,17 +23,16 @@ import java.util.List;
 
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
-import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.qsar.result.IntegerResult;
 import org.openscience.cdk.qsar.result.IntegerResultType;
 import org.openscience.cdk.smiles.smarts.SMARTSQueryTool;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 
 /**
  * Returns the number of acidic groups. The list of acidic groups is defined
@@ -118,12 +117,9 @@ public class AcidicGroupCountDescriptor implements IMolecularDescriptor {
         // do aromaticity detection
         if (this.checkAromaticity) {
             try {
-                AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(
-                    atomContainer
-                );
-                CDKHueckelAromaticityDetector.detectAromaticity(
-                    atomContainer
-                );
+                PerceptionCache cache = PerceptionCache.getInstance(atomContainer);
+                cache.percieveAtomTypesAndConfigureAtoms(atomContainer);
+                cache.detectAromaticity(atomContainer);
             } catch (CDKException exception) {
                 return getDummyDescriptorValue(exception);
             }
@@ -27,15 +27,14 @@ package org.openscience.cdk.qsar.descriptors.molecular;
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
-import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.qsar.result.IntegerResult;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 
 /**
  *  Class that returns the number of aromatic atoms in an atom container.
@@ -169,14 +168,14 @@ public class AromaticAtomsCountDescriptor implements IMolecularDescriptor {
         int aromaticAtomsCount = 0;
         if (checkAromaticity) {
             try {
-                AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(ac);
+                PerceptionCache.getInstance(ac).percieveAtomTypesAndConfigureAtoms(ac);
             } catch (CDKException e) {
                 return new DescriptorValue(getSpecification(), getParameterNames(), getParameters(),
                         new IntegerResult((int) Double.NaN), getDescriptorNames(),
                         new CDKException("Error during atom type perception"));
             }
             try {
-                CDKHueckelAromaticityDetector.detectAromaticity(ac);
+                PerceptionCache.getInstance(ac).detectAromaticity(ac);
             } catch (CDKException e) {
                 return new DescriptorValue(getSpecification(), getParameterNames(), getParameters(),
                         new IntegerResult((int) Double.NaN), getDescriptorNames(),
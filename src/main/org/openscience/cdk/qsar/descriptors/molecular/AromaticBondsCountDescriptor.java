@@ -27,16 +27,15 @@ package org.openscience.cdk.qsar.descriptors.molecular;
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
-import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.qsar.result.IntegerResult;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 
 import java.util.Iterator;
 
@@ -171,14 +170,14 @@ public class AromaticBondsCountDescriptor implements IMolecularDescriptor {
         int aromaticBondsCount = 0;
         if (checkAromaticity) {
             try {
-                AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(ac);
+                PerceptionCache.getInstance(ac).percieveAtomTypesAndConfigureAtoms(ac);
             } catch (CDKException e) {
                 return new DescriptorValue(getSpecification(), getParameterNames(), getParameters(),
                         new IntegerResult((int) Double.NaN), getDescriptorNames(),
                         new CDKException("Error during atom type perception"));
             }
             try {
-                CDKHueckelAromaticityDetector.detectAromaticity(ac);
+                PerceptionCache.getInstance(ac).detectAromaticity(ac);
             } catch (CDKException e) {
                 return new DescriptorValue(getSpecification(), getParameterNames(), getParameters(),
                         new IntegerResult((int) Double.NaN), getDescriptorNames(),
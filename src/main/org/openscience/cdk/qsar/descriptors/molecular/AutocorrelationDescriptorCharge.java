@@ -32,6 +32,7 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.DoubleArrayResult;
 import org.openscience.cdk.qsar.result.DoubleArrayResultType;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
@@ -91,7 +92,7 @@ public class AutocorrelationDescriptorCharge implements IMolecularDescriptor{
         try {
             double[] w = listcharges(container);
             int natom = container.getAtomCount();
-            int[][] distancematrix = TopologicalMatrix.getMatrix(container);
+            int[][] distancematrix = PerceptionCache.getInstance(atomContainer).getTopologicalMatrix(container);
 
             double[] chargeSum = new double[5];
 
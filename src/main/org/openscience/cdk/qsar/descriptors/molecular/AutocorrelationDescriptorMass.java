@@ -30,6 +30,7 @@ import org.openscience.cdk.interfaces.IElement;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.DoubleArrayResult;
 import org.openscience.cdk.qsar.result.DoubleArrayResultType;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
@@ -93,7 +94,7 @@ public class AutocorrelationDescriptorMass implements IMolecularDescriptor{
         try {
             double[] w = listConvertion(container);
             int natom = container.getAtomCount();
-            int[][] distancematrix = TopologicalMatrix.getMatrix(container);
+            int[][] distancematrix = PerceptionCache.getInstance(atomContainer).getTopologicalMatrix(container);
             double[] masSum = new double[5];
 
             for (int k = 0; k < 5; k++) {
@@ -23,22 +23,19 @@ package org.openscience.cdk.qsar.descriptors.molecular;
 
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
-import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.atomtype.CDKAtomTypeMatcher;
 import org.openscience.cdk.charges.Polarizability;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.graph.PathTools;
-import org.openscience.cdk.graph.matrix.AdjacencyMatrix;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IAtomType;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.DoubleArrayResult;
 import org.openscience.cdk.qsar.result.DoubleArrayResultType;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
-import org.openscience.cdk.tools.CDKHydrogenAdder;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 import org.openscience.cdk.tools.manipulator.AtomTypeManipulator;
 
@@ -98,8 +95,7 @@ public class AutocorrelationDescriptorPolarizability implements IMolecularDescri
                 IAtomType type = matcher.findMatchingAtomType(molecule, atom);
                 AtomTypeManipulator.configure(atom, type);
             }
-            CDKHydrogenAdder hAdder = CDKHydrogenAdder.getInstance(molecule.getBuilder());
-            hAdder.addImplicitHydrogens(molecule);
+            PerceptionCache.getInstance(molecule).addImplicitHydrogens(molecule);
             AtomContainerManipulator.convertImplicitToExplicitHydrogens(molecule);
         } catch (Exception e) {
             return getDummyDescriptorValue(new CDKException("Could not add hydrogens: " + e.getMessage(), e));
@@ -107,18 +103,18 @@ public class AutocorrelationDescriptorPolarizability implements IMolecularDescri
 
         // do aromaticity detecttion for calculating polarizability later on
         try {
-            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(molecule);
+            PerceptionCache.getInstance(molecule).percieveAtomTypesAndConfigureAtoms(molecule);
         } catch (CDKException e) {
             return getDummyDescriptorValue(new CDKException("Could not percieve atom types: " + e.getMessage(), e));
         }
         try {
-            CDKHueckelAromaticityDetector.detectAromaticity(molecule);
+            PerceptionCache.getInstance(molecule).detectAromaticity(molecule);
         } catch (CDKException e) {
            return getDummyDescriptorValue(new CDKException("Could not percieve aromaticity: " + e.getMessage(), e));
         }
 
         // get the distance matrix for pol calcs as well as for later on
-        int[][] distancematrix = PathTools.computeFloydAPSP(AdjacencyMatrix.getMatrix(molecule));
+        int[][] distancematrix = PerceptionCache.getInstance(molecule).getTopologicalMatrix(molecule);
 
         try {
             double[] w = listpolarizability(molecule, distancematrix);
@@ -28,23 +28,20 @@ import Jama.Matrix;
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
-import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.charges.GasteigerMarsiliPartialCharges;
 import org.openscience.cdk.charges.GasteigerPEPEPartialCharges;
 import org.openscience.cdk.charges.Polarizability;
 import org.openscience.cdk.config.IsotopeFactory;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.graph.PathTools;
-import org.openscience.cdk.graph.matrix.AdjacencyMatrix;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.DoubleArrayResult;
 import org.openscience.cdk.qsar.result.DoubleArrayResultType;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
-import org.openscience.cdk.tools.CDKHydrogenAdder;
 import org.openscience.cdk.tools.ILoggingTool;
 import org.openscience.cdk.tools.LoggingToolFactory;
 import org.openscience.cdk.tools.LonePairElectronChecker;
@@ -328,9 +325,8 @@ public class BCUTDescriptor implements IMolecularDescriptor {
 
         // add H's in case they're not present
         try {
-            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(molecule);
-            CDKHydrogenAdder hAdder = CDKHydrogenAdder.getInstance(molecule.getBuilder());
-            hAdder.addImplicitHydrogens(molecule);
+            PerceptionCache.getInstance(molecule).percieveAtomTypesAndConfigureAtoms(molecule);
+            PerceptionCache.getInstance(molecule).addImplicitHydrogens(molecule);
             AtomContainerManipulator.convertImplicitToExplicitHydrogens(molecule);
         } catch (Exception e) {
             return getDummyDescriptorValue(new CDKException("Could not add hydrogens: " + e.getMessage(), e));
@@ -339,12 +335,12 @@ public class BCUTDescriptor implements IMolecularDescriptor {
         // do aromaticity detecttion for calculating polarizability later on
         if (this.checkAromaticity) {
             try {
-                AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(molecule);
+                PerceptionCache.getInstance(molecule).percieveAtomTypesAndConfigureAtoms(molecule);
             } catch (CDKException e) {
                 return getDummyDescriptorValue(new CDKException("Error in atom typing: " + e.getMessage(), e));
             }
             try {
-                CDKHueckelAromaticityDetector.detectAromaticity(molecule);
+                PerceptionCache.getInstance(molecule).detectAromaticity(molecule);
             } catch (CDKException e) {
                 return getDummyDescriptorValue(new CDKException("Error in aromaticity perception: " + e.getMessage()));
             }
@@ -413,7 +409,7 @@ public class BCUTDescriptor implements IMolecularDescriptor {
         double[] eval2 = eigenDecomposition.getRealEigenvalues();
 
 
-        int[][] topoDistance = PathTools.computeFloydAPSP(AdjacencyMatrix.getMatrix(molecule));
+        int[][] topoDistance = PerceptionCache.getInstance(molecule).getTopologicalMatrix(molecule);
 
         // get polarizability weighted BCUT
         Polarizability pol = new Polarizability();
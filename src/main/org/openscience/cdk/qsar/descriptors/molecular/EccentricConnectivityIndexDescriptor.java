@@ -22,12 +22,11 @@ package org.openscience.cdk.qsar.descriptors.molecular;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.graph.PathTools;
-import org.openscience.cdk.graph.matrix.AdjacencyMatrix;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.qsar.result.IntegerResult;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
@@ -147,8 +146,7 @@ public class EccentricConnectivityIndexDescriptor implements IMolecularDescripto
         IAtomContainer local = AtomContainerManipulator.removeHydrogens(container);
 
         int natom = local.getAtomCount();
-        int[][] admat = AdjacencyMatrix.getMatrix(local);
-        int[][] distmat = PathTools.computeFloydAPSP(admat);
+        int[][] distmat = PerceptionCache.getInstance(container).getTopologicalMatrix(local);
         
         int eccenindex = 0;
         for (int i = 0; i < natom; i++) {
@@ -27,16 +27,15 @@ package org.openscience.cdk.qsar.descriptors.molecular;
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
-import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.qsar.result.IntegerResult;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 
 /**
  * This descriptor calculates the number of hydrogen bond acceptors using a slightly simplified version of the
@@ -167,8 +166,8 @@ public class HBondAcceptorCountDescriptor implements IMolecularDescriptor {
 
         if (checkAromaticity) {
             try {
-                AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(ac);
-                CDKHueckelAromaticityDetector.detectAromaticity(ac);
+                PerceptionCache.getInstance(ac).percieveAtomTypesAndConfigureAtoms(ac);
+                PerceptionCache.getInstance(ac).detectAromaticity(ac);
             } catch (CDKException e) {
                 return getDummyDescriptorValue(e);
             }
@@ -30,9 +30,9 @@ import org.openscience.cdk.interfaces.IAtomType.Hybridization;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.DoubleResult;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 
 /**
  * {@link IMolecularDescriptor} that reports the fraction of sp3 carbons to sp2 carbons.
@@ -127,7 +127,7 @@ public class HybridizationRatioDescriptor implements IMolecularDescriptor {
     public DescriptorValue calculate(IAtomContainer container) {
         try {
             IAtomContainer clone = (IAtomContainer) container.clone();
-            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(clone);
+            PerceptionCache.getInstance(clone).percieveAtomTypesAndConfigureAtoms(clone);
             int nsp2 = 0;
             int nsp3 = 0;
             for (IAtom atom : clone.atoms()) {
@@ -21,7 +21,6 @@ package org.openscience.cdk.qsar.descriptors.molecular;
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
-import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.exception.NoSuchAtomException;
 import org.openscience.cdk.graph.SpanningTree;
@@ -32,6 +31,7 @@ import org.openscience.cdk.interfaces.IRingSet;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.qsar.result.IntegerResult;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
@@ -203,8 +203,8 @@ public class LargestChainDescriptor implements IMolecularDescriptor {
         
         if (checkAromaticity) {
             try {
-                AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(container);
-                CDKHueckelAromaticityDetector.detectAromaticity(container);
+                PerceptionCache.getInstance(container).percieveAtomTypesAndConfigureAtoms(container);
+                PerceptionCache.getInstance(container).detectAromaticity(container);
             } catch (CDKException e) {
                 return getDummyDescriptorValue(e);
             }
@@ -23,13 +23,12 @@ import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
-import org.openscience.cdk.graph.PathTools;
-import org.openscience.cdk.graph.matrix.AdjacencyMatrix;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.DoubleArrayResult;
 import org.openscience.cdk.qsar.result.DoubleArrayResultType;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
@@ -205,9 +204,10 @@ public class MDEDescriptor implements IMolecularDescriptor {
 
         IAtomContainer local = AtomContainerManipulator.removeHydrogens(container);
 
+        int[][] tdist = PerceptionCache.getInstance(container).getTopologicalMatrix(local);
         DoubleArrayResult retval = new DoubleArrayResult(19);
         for (int i = 0; i < 19; i++) {
-            retval.add(dedge(local, i));
+            retval.add(dedge(local, tdist, i));
         }
 
         return new DescriptorValue(getSpecification(),
@@ -230,10 +230,7 @@ public class MDEDescriptor implements IMolecularDescriptor {
         return new DoubleArrayResultType(19);
     }
 
-    private double dedge(IAtomContainer atomContainer, int which) {
-        int[][] adjMatrix = AdjacencyMatrix.getMatrix(atomContainer);
-        int[][] tdist = PathTools.computeFloydAPSP(adjMatrix);
-
+    private double dedge(IAtomContainer atomContainer, int[][] tdist, int which) {
         int[][] atypes = null;
 
         switch (which) {
@@ -21,7 +21,6 @@ package org.openscience.cdk.qsar.descriptors.molecular;
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
-import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
@@ -31,9 +30,9 @@ import org.openscience.cdk.interfaces.IRingSet;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.DoubleResult;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
-import org.openscience.cdk.ringsearch.AllRingsFinder;
 import org.openscience.cdk.tools.CDKHydrogenAdder;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 
@@ -237,15 +236,15 @@ public class TPSADescriptor implements IMolecularDescriptor {
         // calculate the set of all rings
         IRingSet rs;
         try {
-            rs = (new AllRingsFinder()).findAllRings(ac);
+            rs = PerceptionCache.getInstance(ac).findAllRings(ac);
         } catch (CDKException e) {
             return getDummyDescriptorValue(e);
         }
         // check aromaticity if the descriptor parameter is set to true
         if (checkAromaticity) {
             try {
-                AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(ac);
-                CDKHueckelAromaticityDetector.detectAromaticity(ac);
+                PerceptionCache.getInstance(ac).percieveAtomTypesAndConfigureAtoms(ac);
+                PerceptionCache.getInstance(ac).detectAromaticity(ac);
             } catch (CDKException e) {
                 return getDummyDescriptorValue(e);
             }
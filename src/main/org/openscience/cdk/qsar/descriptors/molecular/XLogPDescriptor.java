@@ -24,7 +24,6 @@ import org._3pq.jgrapht.graph.SimpleGraph;
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
-import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.graph.BFSShortestPath;
 import org.openscience.cdk.graph.MoleculeGraphs;
@@ -39,10 +38,10 @@ import org.openscience.cdk.isomorphism.mcss.RMap;
 import org.openscience.cdk.qsar.DescriptorSpecification;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IMolecularDescriptor;
+import org.openscience.cdk.qsar.PerceptionCache;
 import org.openscience.cdk.qsar.result.DoubleResult;
 import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.ringsearch.SSSRFinder;
-import org.openscience.cdk.tools.CDKHydrogenAdder;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 import org.openscience.cdk.tools.manipulator.RingSetManipulator;
 
@@ -209,9 +208,8 @@ public class XLogPDescriptor implements IMolecularDescriptor {
         IAtomContainer ac;
         try {
             ac = (IAtomContainer) atomContainer.clone();
-            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(ac);
-            CDKHydrogenAdder hAdder = CDKHydrogenAdder.getInstance(ac.getBuilder());
-            hAdder.addImplicitHydrogens(ac);
+            PerceptionCache.getInstance(ac).percieveAtomTypesAndConfigureAtoms(ac);
+            PerceptionCache.getInstance(ac).addImplicitHydrogens(ac);
             AtomContainerManipulator.convertImplicitToExplicitHydrogens(ac);
         } catch (CloneNotSupportedException e) {
             return getDummyDescriptorValue(e);
@@ -219,11 +217,11 @@ public class XLogPDescriptor implements IMolecularDescriptor {
             return getDummyDescriptorValue(e);
         }
 
-        IRingSet rs = (IRingSet) new SSSRFinder(ac).findSSSR();
+        IRingSet rs = PerceptionCache.getInstance(ac).findSSSR(ac);
         IRingSet atomRingSet=null;
         if (checkAromaticity) {
             try {                
-                CDKHueckelAromaticityDetector.detectAromaticity(ac);
+                PerceptionCache.getInstance(ac).detectAromaticity(ac);
             } catch (CDKException e) {
                 return getDummyDescriptorValue(e);
             }
@@ -32,6 +32,7 @@ import java.util.List;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.AdjacencyList;
 import org.openscience.cdk.graph.ConnectivityChecker;
 import org.openscience.cdk.graph.SpanningTree;
 import org.openscience.cdk.interfaces.IAtom;
@@ -80,6 +81,7 @@ public class AllRingsFinder
 	 *  reference purposes (printing)
 	 */
 	IAtomContainer originalAc = null;
+	AdjacencyList originalAdjacency = null;
 	List<Path> newPaths = new ArrayList<Path>();
 	List<Path> potentialRings = new ArrayList<Path>();
 	List<Path> removePaths = new ArrayList<Path>();
@@ -169,6 +171,7 @@ public class AllRingsFinder
         IRingSet ringSet = atomContainer.getBuilder().newInstance(IRingSet.class);
         IAtomContainer ac = atomContainer.getBuilder().newInstance(IAtomContainer.class);
         originalAc = atomContainer;
+        originalAdjacency = AdjacencyList.getAdjacencyList(atomContainer);
         ac.add(atomContainer);
         doSearch(ac, paths, ringSet, maxRingSize);
         return ringSet;
@@ -312,7 +315,7 @@ public class AllRingsFinder
                     a1 = (IAtom) path.elementAt(g);
                     a2 = (IAtom) path.elementAt(g + 1);
                     ring.addAtom(a1);
-                    bondNum = ac.getBondNumber(a1, a2);
+                    bondNum = getBondNumber(a1, a2);
                     //logger.debug("bondNum " + bondNum);
                     ring.addBond(ac.getBond(bondNum));
                 }
@@ -320,7 +323,7 @@ public class AllRingsFinder
                 a1 = (IAtom) path.elementAt(0);
                 a2 = (IAtom) path.elementAt(path.size() - 1);
                 ring.addAtom(a1);
-                bondNum = ac.getBondNumber(a1, a2);
+                bondNum = getBondNumber(a1, a2);
                 //logger.debug("bondNum " + bondNum);
                 ring.addBond(ac.getBond(bondNum));
 
@@ -343,6 +346,19 @@ public class AllRingsFinder
 	}
 
 
+	/**
+	 *  Returns the position of the bond between two atoms of the original
+	 *  structure, or -1 if they are not bonded.
+	 */
+	private int getBondNumber(IAtom atom1, IAtom atom2)
+	{
+		int index1 = originalAdjacency.indexOf(atom1);
+		int index2 = originalAdjacency.indexOf(atom2);
+		if (index1 < 0 || index2 < 0) return originalAc.getBondNumber(atom1, atom2);
+		return originalAdjacency.getBondIndex(index1, index2);
+	}
+
+
 	/**
 	 *  Initialized the path graph
 	 *  See {@cdk.cite HAN96} for details
@@ -379,10 +395,11 @@ public class AllRingsFinder
 		int degree;
 		IAtom minAtom = null;
 		IAtom atom;
+		AdjacencyList adjacency = AdjacencyList.getAdjacencyList(ac);
 		for (int f = 0; f < ac.getAtomCount(); f++)
 		{
 			atom = ac.getAtom(f);
-			degree = ac.getConnectedBondsCount(atom);
+			degree = adjacency.getDegree(f);
 
 			if (degree < minDegree)
 			{
@@ -0,0 +1,422 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.ringsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.AdjacencyList;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IRing;
+import org.openscience.cdk.interfaces.IRingSet;
+
+/**
+ * Finds the set of all rings, with the path graph reduction of
+ * {@cdk.cite HAN96} as in {@link AllRingsFinder}, but with the paths stored
+ * as bit sets over the atoms and bonds of a ring system. Checking whether
+ * two paths can be joined then takes a few word operations, independent of
+ * the length of the paths.
+ *
+ * <p>Instead of a timeout, the search has a budget: the number of paths it
+ * may hold at one time plus the number of rings found so far. When the
+ * budget is exceeded a {@link CDKException} is thrown, so a molecule either
+ * always or never completes, independent of the speed of the machine. With
+ * a maximum ring size, paths that are longer than that size are never
+ * created, which usually keeps the search well within the budget.
+ *
+ * <pre>
+ * HanserRingFinder finder = new HanserRingFinder();
+ * IRingSet rings = finder.findAllRings(molecule, 8);
+ * </pre>
+ *
+ * <p>As {@link AllRingsFinder}, the finder marks all atoms that are part of
+ * a ring system with the {@link CDKConstants#ISINRING} flag. Instances hold
+ * no state between searches and can be shared between threads.
+ *
+ * @cdk.module    standard
+ * @cdk.githash
+ * @cdk.keyword   ring, all rings
+ * @see AllRingsFinder
+ */
+@TestClass("org.openscience.cdk.ringsearch.HanserRingFinderTest")
+public class HanserRingFinder {
+
+    /** The default budget of paths and rings. */
+    public static final int DEFAULT_BUDGET = 100000;
+
+    private int budget = DEFAULT_BUDGET;
+
+    /**
+     * Creates a finder with the default budget.
+     */
+    @TestMethod("testFindAllRings_IAtomContainer")
+    public HanserRingFinder() {
+    }
+
+    /**
+     * Sets the largest number of paths the search may hold at one time plus
+     * the number of rings it may find.
+     *
+     * @param  budget the budget
+     * @return this finder
+     * @throws IllegalArgumentException if the budget is not positive
+     */
+    @TestMethod("testSetBudget_int")
+    public HanserRingFinder setBudget(int budget) {
+        if (budget < 1) throw new IllegalArgumentException("The budget must be positive: " + budget);
+        this.budget = budget;
+        return this;
+    }
+
+    /**
+     * Returns the largest number of paths the search may hold at one time
+     * plus the number of rings it may find.
+     *
+     * @return the budget
+     */
+    @TestMethod("testSetBudget_int")
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns a ring set with all rings in the given container.
+     *
+     * @param  atomContainer the container to search for rings
+     * @return               the rings
+     * @throws CDKException  if the search exceeds the budget
+     */
+    @TestMethod("testFindAllRings_IAtomContainer")
+    public IRingSet findAllRings(IAtomContainer atomContainer) throws CDKException {
+        return findAllRings(atomContainer, null);
+    }
+
+    /**
+     * Returns a ring set with all rings up to the given size in the given
+     * container.
+     *
+     * @param  atomContainer the container to search for rings
+     * @param  maxRingSize   the largest ring size to find, or null for all rings
+     * @return               the rings
+     * @throws CDKException  if the search exceeds the budget
+     */
+    @TestMethod("testFindAllRings_IAtomContainer_Integer")
+    public IRingSet findAllRings(IAtomContainer atomContainer, Integer maxRingSize) throws CDKException {
+        AdjacencyList adjacency = AdjacencyList.getAdjacencyList(atomContainer);
+        IRingSet ringSet = atomContainer.getBuilder().newInstance(IRingSet.class);
+        int maxLength = maxRingSize == null ? Integer.MAX_VALUE : maxRingSize;
+
+        boolean[] bridges = findBridges(adjacency);
+        int atomCount = adjacency.getAtomCount();
+        // the index of each atom within its ring system, or -1 if not visited yet
+        int[] local = new int[atomCount];
+        Arrays.fill(local, -1);
+        int[] stack = new int[atomCount];
+        for (int root = 0; root < atomCount; root++) {
+            if (local[root] >= 0) continue;
+            // collect the atoms and bonds connected by bonds that are not bridges
+            List<Integer> atoms = new ArrayList<Integer>();
+            List<Integer> bonds = new ArrayList<Integer>();
+            List<Integer> ends = new ArrayList<Integer>();
+            local[root] = 0;
+            atoms.add(root);
+            int size = 0;
+            stack[size++] = root;
+            while (size > 0) {
+                int atom = stack[--size];
+                int[] neighbours = adjacency.getNeighbours(atom);
+                int[] edges = adjacency.getEdges(atom);
+                for (int i = 0; i < neighbours.length; i++) {
+                    if (bridges[edges[i]]) continue;
+                    int neighbour = neighbours[i];
+                    if (local[neighbour] < 0) {
+                        local[neighbour] = atoms.size();
+                        atoms.add(neighbour);
+                        stack[size++] = neighbour;
+                    }
+                    // each bond is seen from both atoms, take it from the first
+                    if (atom < neighbour) {
+                        bonds.add(edges[i]);
+                        ends.add(local[atom]);
+                        ends.add(local[neighbour]);
+                    }
+                }
+            }
+            if (bonds.isEmpty()) continue;
+            for (int atom : atoms) adjacency.getAtom(atom).setFlag(CDKConstants.ISINRING, true);
+            new RingSystem(adjacency, toArray(atoms), toArray(bonds), toArray(ends),
+                           maxLength, budget - ringSet.getAtomContainerCount()).search(ringSet);
+        }
+        return ringSet;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) array[i] = list.get(i);
+        return array;
+    }
+
+    /**
+     * Marks the bonds that are not part of any cycle, with an iterative
+     * version of Tarjan's bridge finding depth first search.
+     */
+    private static boolean[] findBridges(AdjacencyList adjacency) {
+        int atomCount = adjacency.getAtomCount();
+        boolean[] bridges = new boolean[adjacency.getBondCount()];
+        int[] order = new int[atomCount];
+        int[] low = new int[atomCount];
+        int[] parentEdge = new int[atomCount];
+        int[] next = new int[atomCount];
+        int[] stack = new int[atomCount];
+        int visited = 0;
+        for (int root = 0; root < atomCount; root++) {
+            if (order[root] > 0) continue;
+            int size = 0;
+            stack[size++] = root;
+            order[root] = low[root] = ++visited;
+            parentEdge[root] = -1;
+            while (size > 0) {
+                int atom = stack[size - 1];
+                int[] neighbours = adjacency.getNeighbours(atom);
+                int[] edges = adjacency.getEdges(atom);
+                if (next[atom] < neighbours.length) {
+                    int i = next[atom]++;
+                    // compare bonds rather than atoms, so that a double
+                    // connection between two atoms is seen as a cycle
+                    if (edges[i] == parentEdge[atom]) continue;
+                    int neighbour = neighbours[i];
+                    if (order[neighbour] == 0) {
+                        order[neighbour] = low[neighbour] = ++visited;
+                        parentEdge[neighbour] = edges[i];
+                        stack[size++] = neighbour;
+                    } else {
+                        low[atom] = Math.min(low[atom], order[neighbour]);
+                    }
+                } else {
+                    size--;
+                    if (size > 0) {
+                        int parent = stack[size - 1];
+                        low[parent] = Math.min(low[parent], low[atom]);
+                        if (low[atom] > order[parent]) bridges[parentEdge[atom]] = true;
+                    }
+                }
+            }
+        }
+        return bridges;
+    }
+
+    /**
+     * A path between two atoms of the path graph, with bit sets of the atoms
+     * and bonds on the path, both numbered within the ring system.
+     */
+    private static final class Path {
+
+        final int begin;
+        final int end;
+        final int length;
+        final long[] atoms;
+        final long[] bonds;
+        boolean removed;
+
+        Path(int begin, int end, int length, long[] atoms, long[] bonds) {
+            this.begin = begin;
+            this.end = end;
+            this.length = length;
+            this.atoms = atoms;
+            this.bonds = bonds;
+        }
+
+        int other(int atom) {
+            return atom == begin ? end : begin;
+        }
+    }
+
+    /**
+     * A set of atoms connected by bonds that are all part of a cycle. The
+     * path graph reduction runs on each ring system separately.
+     */
+    private static final class RingSystem {
+
+        private final AdjacencyList adjacency;
+        private final int[] atoms;
+        private final int[] bonds;
+        /** Both atoms of each bond, as indices within the ring system. */
+        private final int[] ends;
+        private final int maxLength;
+        private final int budget;
+
+        RingSystem(AdjacencyList adjacency, int[] atoms, int[] bonds, int[] ends,
+                   int maxLength, int budget) {
+            this.adjacency = adjacency;
+            this.atoms = atoms;
+            this.bonds = bonds;
+            this.ends = ends;
+            this.maxLength = maxLength;
+            this.budget = budget;
+        }
+
+        void search(IRingSet ringSet) throws CDKException {
+            int atomCount = atoms.length;
+            int bondCount = bonds.length;
+            // a ring system with as many bonds as atoms is a single ring
+            if (bondCount == atomCount) {
+                if (bondCount >= 3 && bondCount <= maxLength) {
+                    long[] all = new long[words(bondCount)];
+                    for (int i = 0; i < bondCount; i++) all[i >>> 6] |= 1L << i;
+                    ringSet.addAtomContainer(toRing(all, bondCount, ringSet));
+                }
+                return;
+            }
+
+            List<List<Path>> paths = new ArrayList<List<Path>>(atomCount);
+            int[] degree = new int[atomCount];
+            for (int i = 0; i < atomCount; i++) paths.add(new ArrayList<Path>());
+            for (int i = 0; i < bondCount; i++) {
+                long[] pathAtoms = new long[words(atomCount)];
+                long[] pathBonds = new long[words(bondCount)];
+                int begin = ends[2 * i], end = ends[2 * i + 1];
+                pathAtoms[begin >>> 6] |= 1L << begin;
+                pathAtoms[end >>> 6] |= 1L << end;
+                pathBonds[i >>> 6] |= 1L << i;
+                Path path = new Path(begin, end, 1, pathAtoms, pathBonds);
+                paths.get(begin).add(path);
+                paths.get(end).add(path);
+                degree[begin]++;
+                degree[end]++;
+            }
+            int live = bondCount;
+            int found = 0;
+            boolean[] removed = new boolean[atomCount];
+
+            while (true) {
+                // remove the atom with the fewest paths first
+                int atom = -1;
+                for (int i = 0; i < atomCount; i++) {
+                    if (!removed[i] && (atom < 0 || degree[i] < degree[atom])) atom = i;
+                }
+                if (atom < 0) break;
+                removed[atom] = true;
+
+                List<Path> incident = new ArrayList<Path>();
+                for (Path path : paths.get(atom)) {
+                    if (path.removed) continue;
+                    path.removed = true;
+                    degree[path.other(atom)]--;
+                    live--;
+                    incident.add(path);
+                }
+                paths.set(atom, null);
+
+                for (int i = 0; i < incident.size(); i++) {
+                    Path path1 = incident.get(i);
+                    int end1 = path1.other(atom);
+                    for (int j = i + 1; j < incident.size(); j++) {
+                        Path path2 = incident.get(j);
+                        int length = path1.length + path2.length;
+                        if (length > maxLength) continue;
+                        int end2 = path2.other(atom);
+                        int common = intersection(path1.atoms, path2.atoms);
+                        if (common == 1) {
+                            Path joined = new Path(end1, end2, length,
+                                                   or(path1.atoms, path2.atoms),
+                                                   or(path1.bonds, path2.bonds));
+                            paths.get(end1).add(joined);
+                            paths.get(end2).add(joined);
+                            degree[end1]++;
+                            degree[end2]++;
+                            live++;
+                        } else if (common == 2 && end1 == end2 && length >= 3) {
+                            ringSet.addAtomContainer(toRing(or(path1.bonds, path2.bonds), length, ringSet));
+                            found++;
+                        } else {
+                            continue;
+                        }
+                        if (live + found > budget)
+                            throw new CDKException("Search for all rings exceeded the budget of "
+                                                   + budget + " paths and rings");
+                    }
+                }
+                // drop the removed paths, so the lists do not keep growing
+                for (Path path : incident) {
+                    List<Path> list = paths.get(path.other(atom));
+                    if (list.size() > 2 * degree[path.other(atom)] + 8) {
+                        List<Path> compact = new ArrayList<Path>(degree[path.other(atom)]);
+                        for (Path p : list) if (!p.removed) compact.add(p);
+                        paths.set(path.other(atom), compact);
+                    }
+                }
+            }
+        }
+
+        /** The number of atoms both paths share, counted up to three. */
+        private static int intersection(long[] atoms1, long[] atoms2) {
+            int count = 0;
+            for (int i = 0; i < atoms1.length && count < 3; i++) {
+                count += Long.bitCount(atoms1[i] & atoms2[i]);
+            }
+            return count;
+        }
+
+        private static long[] or(long[] bits1, long[] bits2) {
+            long[] bits = new long[bits1.length];
+            for (int i = 0; i < bits.length; i++) bits[i] = bits1[i] | bits2[i];
+            return bits;
+        }
+
+        private static int words(int bits) {
+            return (bits + 63) >>> 6;
+        }
+
+        /** Creates a ring with its atoms and bonds in the order around the ring. */
+        private IRing toRing(long[] ringBonds, int length, IRingSet ringSet) {
+            // the two ring bonds of each atom
+            int[] first = new int[atoms.length];
+            int[] second = new int[atoms.length];
+            Arrays.fill(first, -1);
+            int start = -1;
+            for (int i = 0; i < bonds.length; i++) {
+                if ((ringBonds[i >>> 6] & (1L << i)) == 0) continue;
+                if (start < 0) start = i;
+                for (int end = 2 * i; end <= 2 * i + 1; end++) {
+                    if (first[ends[end]] < 0) first[ends[end]] = i;
+                    else second[ends[end]] = i;
+                }
+            }
+            IRing ring = ringSet.getBuilder().newInstance(IRing.class);
+            int atom = ends[2 * start];
+            int bond = start;
+            for (int i = 0; i < length; i++) {
+                ring.addAtom(adjacency.getAtom(atoms[atom]));
+                ring.addBond(adjacency.getBond(bonds[bond]));
+                atom = ends[2 * bond] == atom ? ends[2 * bond + 1] : ends[2 * bond];
+                bond = first[atom] == bond ? second[atom] : first[atom];
+            }
+            return ring;
+        }
+    }
+}
@@ -0,0 +1,500 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.ringsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+
+/**
+ * Finds a minimum cycle basis (the SSSR), the relevant cycles and the
+ * essential cycles of a graph given as an adjacency list of vertex indices.
+ *
+ * <p>Candidate cycles are generated as in {@cdk.cite Vismara97}: each cycle
+ * is built from two shortest paths that start at the vertex of the cycle
+ * with the highest index, and only use vertices with lower indices. The
+ * candidates are then sorted by length and checked for linear independence
+ * by Gaussian elimination over GF(2), on their bonds stored as
+ * <code>long[]</code> bit sets. A candidate that is independent of all
+ * shorter cycles is relevant, together with all cycles formed from the
+ * other shortest paths between the same vertices. A relevant cycle is
+ * essential when it can not be replaced by any other relevant cycle of the
+ * same length.
+ *
+ * <p>Cycles are returned as the vertices in the order around the cycle,
+ * sorted by length. All results are computed in the constructor, so an
+ * instance can be shared between threads.
+ *
+ * @cdk.module standard
+ * @cdk.githash
+ * @cdk.keyword smallest-set-of-rings
+ * @cdk.keyword relevant rings
+ * @cdk.keyword essential rings
+ * @see SSSRFinder
+ */
+@TestClass("org.openscience.cdk.ringsearch.RelevantCyclesTest")
+public final class RelevantCycles {
+
+    private final List<int[]> minimumBasis = new ArrayList<int[]>();
+    private final List<int[]> relevant = new ArrayList<int[]>();
+    private final List<int[]> essential = new ArrayList<int[]>();
+
+    /** The graph, without vertices that can not be in a cycle. */
+    private final int[][] neighbours;
+    private final int[][] edges;
+    private final int[] vertices;
+    private final int edgeCount;
+
+    /**
+     * Finds the cycles of the given graph. Vertices are the indices of the
+     * outer array, and their neighbours are listed in the inner arrays.
+     * Loops and repeated neighbours are ignored.
+     *
+     * @param graph the adjacency list of an undirected graph
+     */
+    @TestMethod("testRelevantCycles_intArrayArray")
+    public RelevantCycles(int[][] graph) {
+        // only vertices with at least two neighbours that are in turn on a
+        // cycle can be on a cycle, so remove the others one by one
+        int n = graph.length;
+        int[] degree = new int[n];
+        boolean[][] unique = new boolean[n][];
+        for (int v = 0; v < n; v++) {
+            unique[v] = new boolean[graph[v].length];
+            for (int i = 0; i < graph[v].length; i++) {
+                int w = graph[v][i];
+                if (w == v) continue;
+                boolean repeated = false;
+                for (int j = 0; j < i && !repeated; j++) repeated = graph[v][j] == w;
+                if (!repeated) {
+                    unique[v][i] = true;
+                    degree[v]++;
+                }
+            }
+        }
+        boolean[] removed = new boolean[n];
+        int[] stack = new int[n];
+        int size = 0;
+        for (int v = 0; v < n; v++) {
+            if (degree[v] < 2) {
+                removed[v] = true;
+                stack[size++] = v;
+            }
+        }
+        while (size > 0) {
+            int v = stack[--size];
+            for (int i = 0; i < graph[v].length; i++) {
+                int w = graph[v][i];
+                if (unique[v][i] && !removed[w] && --degree[w] < 2) {
+                    removed[w] = true;
+                    stack[size++] = w;
+                }
+            }
+        }
+
+        // renumber the remaining vertices and number their edges
+        int[] local = new int[n];
+        int count = 0;
+        for (int v = 0; v < n; v++) local[v] = removed[v] ? -1 : count++;
+        vertices = new int[count];
+        neighbours = new int[count][];
+        edges = new int[count][];
+        int edgeNumber = 0;
+        for (int v = 0; v < n; v++) {
+            if (removed[v]) continue;
+            int u = local[v];
+            vertices[u] = v;
+            neighbours[u] = new int[degree[v]];
+            edges[u] = new int[degree[v]];
+            int k = 0;
+            for (int i = 0; i < graph[v].length; i++) {
+                int w = graph[v][i];
+                if (!unique[v][i] || removed[w]) continue;
+                neighbours[u][k] = local[w];
+                // number each edge from its vertex with the lower index
+                if (local[w] > u) {
+                    edges[u][k] = edgeNumber++;
+                } else {
+                    int[] other = neighbours[local[w]];
+                    for (int j = 0; j < other.length; j++) {
+                        if (other[j] == u) edges[u][k] = edges[local[w]][j];
+                    }
+                }
+                k++;
+            }
+        }
+        edgeCount = edgeNumber;
+
+        if (edgeCount > 0) findCycles();
+    }
+
+    /**
+     * Returns a minimum cycle basis, also known as the smallest set of
+     * smallest rings. The basis is not unique, but the lengths of its cycles
+     * are.
+     *
+     * @return the cycles of the basis, as vertex indices in the order around
+     *         the cycle
+     */
+    @TestMethod("testMinimumBasis")
+    public int[][] minimumBasis() {
+        return copy(minimumBasis);
+    }
+
+    /**
+     * Returns the relevant cycles: all cycles that are in at least one
+     * minimum cycle basis.
+     *
+     * @return the relevant cycles, as vertex indices in the order around the
+     *         cycle
+     */
+    @TestMethod("testRelevant")
+    public int[][] relevant() {
+        return copy(relevant);
+    }
+
+    /**
+     * Returns the essential cycles: the cycles that are in every minimum
+     * cycle basis.
+     *
+     * @return the essential cycles, as vertex indices in the order around
+     *         the cycle
+     */
+    @TestMethod("testEssential")
+    public int[][] essential() {
+        return copy(essential);
+    }
+
+    private static int[][] copy(List<int[]> cycles) {
+        int[][] copy = new int[cycles.size()][];
+        for (int i = 0; i < copy.length; i++) copy[i] = cycles.get(i).clone();
+        return copy;
+    }
+
+    /**
+     * A candidate cycle: two shortest paths from the root to the vertices
+     * <code>y</code> and <code>z</code>, closed by the edge between them, or
+     * by the vertex <code>x</code> next to both.
+     */
+    private static final class Candidate {
+
+        final ShortestPaths paths;
+        final int y;
+        final int z;
+        final int x;
+        final int length;
+        final long[] edges;
+
+        Candidate(ShortestPaths paths, int y, int z, int x, int length, long[] edges) {
+            this.paths = paths;
+            this.y = y;
+            this.z = z;
+            this.x = x;
+            this.length = length;
+            this.edges = edges;
+        }
+    }
+
+    /**
+     * The shortest paths from a root vertex to the vertices with a lower
+     * index, which only pass through vertices with a lower index.
+     */
+    private final class ShortestPaths {
+
+        final int root;
+        final int[] distance;
+        /** All neighbours that precede a vertex on a shortest path. */
+        final int[][] predecessors;
+        final int[] predecessorCount;
+        /** The vertices and edges of one shortest path to each vertex. */
+        final long[][] pathVertices;
+        final long[][] pathEdges;
+
+        ShortestPaths(int root) {
+            int n = neighbours.length;
+            this.root = root;
+            distance = new int[root + 1];
+            Arrays.fill(distance, -1);
+            predecessors = new int[root + 1][];
+            predecessorCount = new int[root + 1];
+            pathVertices = new long[root + 1][];
+            pathEdges = new long[root + 1][];
+
+            int[] queue = new int[root + 1];
+            int head = 0, tail = 0;
+            queue[tail++] = root;
+            distance[root] = 0;
+            pathVertices[root] = new long[words(n)];
+            pathVertices[root][root >>> 6] |= 1L << root;
+            pathEdges[root] = new long[words(edgeCount)];
+            while (head < tail) {
+                int v = queue[head++];
+                for (int i = 0; i < neighbours[v].length; i++) {
+                    int w = neighbours[v][i];
+                    if (w > root) continue;
+                    if (distance[w] < 0) {
+                        distance[w] = distance[v] + 1;
+                        queue[tail++] = w;
+                        predecessors[w] = new int[neighbours[w].length];
+                        pathVertices[w] = pathVertices[v].clone();
+                        pathVertices[w][w >>> 6] |= 1L << w;
+                        pathEdges[w] = pathEdges[v].clone();
+                        int e = edges[v][i];
+                        pathEdges[w][e >>> 6] |= 1L << e;
+                    }
+                    if (distance[w] == distance[v] + 1) {
+                        predecessors[w][predecessorCount[w]++] = v;
+                    }
+                }
+            }
+        }
+
+        boolean disjoint(int y, int z) {
+            long[] a = pathVertices[y], b = pathVertices[z];
+            for (int i = 0; i < a.length; i++) {
+                long common = a[i] & b[i];
+                if (i == root >>> 6) common &= ~(1L << root);
+                if (common != 0) return false;
+            }
+            return true;
+        }
+
+        /** Appends all shortest paths from the root to the vertex, each ending at the vertex. */
+        void allPaths(int vertex, int[] path, int depth, List<int[]> paths) {
+            path[depth] = vertex;
+            if (vertex == root) {
+                int[] found = new int[depth + 1];
+                for (int i = 0; i <= depth; i++) found[i] = path[depth - i];
+                paths.add(found);
+                return;
+            }
+            for (int i = 0; i < predecessorCount[vertex]; i++) {
+                allPaths(predecessors[vertex][i], path, depth + 1, paths);
+            }
+        }
+    }
+
+    private void findCycles() {
+        int n = neighbours.length;
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        for (int r = 0; r < n; r++) {
+            ShortestPaths paths = new ShortestPaths(r);
+            for (int y = 0; y < r; y++) {
+                if (paths.distance[y] < 0) continue;
+                // odd cycles, closed by an edge between vertices at the same distance
+                for (int i = 0; i < neighbours[y].length; i++) {
+                    int z = neighbours[y][i];
+                    if (z < y && paths.distance[z] == paths.distance[y] && paths.disjoint(y, z)) {
+                        long[] cycle = or(paths.pathEdges[y], paths.pathEdges[z]);
+                        int e = edges[y][i];
+                        cycle[e >>> 6] |= 1L << e;
+                        candidates.add(new Candidate(paths, y, z, -1, 2 * paths.distance[y] + 1, cycle));
+                    }
+                }
+                // even cycles, closed by a vertex next to two vertices at the same distance
+                for (int i = 0; i < paths.predecessorCount[y]; i++) {
+                    for (int j = i + 1; j < paths.predecessorCount[y]; j++) {
+                        int p = paths.predecessors[y][i], q = paths.predecessors[y][j];
+                        if (!paths.disjoint(p, q)) continue;
+                        long[] cycle = or(paths.pathEdges[p], paths.pathEdges[q]);
+                        int e = edge(p, y), f = edge(q, y);
+                        cycle[e >>> 6] |= 1L << e;
+                        cycle[f >>> 6] |= 1L << f;
+                        candidates.add(new Candidate(paths, p, q, y, 2 * paths.distance[y], cycle));
+                    }
+                }
+            }
+        }
+        Collections.sort(candidates, new Comparator<Candidate>() {
+            public int compare(Candidate a, Candidate b) {
+                return a.length - b.length;
+            }
+        });
+
+        List<long[]> basis = new ArrayList<long[]>();
+        List<Integer> pivots = new ArrayList<Integer>();
+        int begin = 0;
+        while (begin < candidates.size()) {
+            int length = candidates.get(begin).length;
+            int end = begin;
+            while (end < candidates.size() && candidates.get(end).length == length) end++;
+            // the basis of all cycles shorter than this length
+            int shorter = basis.size();
+
+            List<long[]> reduced = new ArrayList<long[]>();
+            List<int[]> relevantOfLength = new ArrayList<int[]>();
+            for (int c = begin; c < end; c++) {
+                Candidate candidate = candidates.get(c);
+                long[] vector = reduce(candidate.edges.clone(), basis, pivots, shorter);
+                if (vector == null) continue;
+                List<int[]> family = family(candidate);
+                for (int[] cycle : family) {
+                    relevantOfLength.add(cycle);
+                    reduced.add(vector);
+                }
+                // the cycle is needed in the basis if it is also independent
+                // of the cycles of the same length already in it
+                long[] independent = reduce(candidate.edges.clone(), basis, pivots, basis.size());
+                if (independent != null) {
+                    basis.add(independent);
+                    pivots.add(pivot(independent));
+                    minimumBasis.add(family.get(0));
+                }
+            }
+            relevant.addAll(relevantOfLength);
+
+            // essential cycles can not be replaced by other relevant cycles of the same length
+            int rank = basis.size() - shorter;
+            if (rank == relevantOfLength.size()) {
+                essential.addAll(relevantOfLength);
+            } else {
+                for (int i = 0; i < relevantOfLength.size(); i++) {
+                    List<long[]> others = new ArrayList<long[]>(reduced);
+                    others.remove(i);
+                    if (rank(others) < rank) essential.add(relevantOfLength.get(i));
+                }
+            }
+            begin = end;
+        }
+    }
+
+    /**
+     * All cycles made of shortest paths between the same vertices as the
+     * candidate, which starts the list. As the candidate is relevant, they
+     * are all simple cycles.
+     */
+    private List<int[]> family(Candidate candidate) {
+        ShortestPaths paths = candidate.paths;
+        int[] buffer = new int[neighbours.length];
+        List<int[]> pathsToY = new ArrayList<int[]>();
+        List<int[]> pathsToZ = new ArrayList<int[]>();
+        paths.allPaths(candidate.y, buffer, 0, pathsToY);
+        paths.allPaths(candidate.z, buffer, 0, pathsToZ);
+
+        List<int[]> family = new ArrayList<int[]>();
+        int[] first = null;
+        for (int[] toY : pathsToY) {
+            for (int[] toZ : pathsToZ) {
+                int[] cycle = cycle(toY, toZ, candidate.x);
+                if (cycle == null) continue;
+                if (isPrototype(candidate, toY, toZ)) first = cycle;
+                else family.add(cycle);
+            }
+        }
+        family.add(0, first);
+        return family;
+    }
+
+    /** Whether the two paths are the ones the candidate was built from. */
+    private boolean isPrototype(Candidate candidate, int[] toY, int[] toZ) {
+        return Arrays.equals(toBits(toY), candidate.paths.pathVertices[candidate.y])
+            && Arrays.equals(toBits(toZ), candidate.paths.pathVertices[candidate.z]);
+    }
+
+    private long[] toBits(int[] path) {
+        long[] bits = new long[words(neighbours.length)];
+        for (int v : path) bits[v >>> 6] |= 1L << v;
+        return bits;
+    }
+
+    /**
+     * Joins two paths from the same root into a cycle, through the vertex x
+     * if it is not -1. Returns null if the paths meet before their ends.
+     */
+    private int[] cycle(int[] toY, int[] toZ, int x) {
+        int length = toY.length + toZ.length - 1 + (x < 0 ? 0 : 1);
+        int[] cycle = new int[length];
+        long[] seen = new long[words(neighbours.length)];
+        int k = 0;
+        for (int v : toY) {
+            cycle[k++] = vertices[v];
+            seen[v >>> 6] |= 1L << v;
+        }
+        if (x >= 0) cycle[k++] = vertices[x];
+        for (int i = toZ.length - 1; i > 0; i--) {
+            int v = toZ[i];
+            if ((seen[v >>> 6] & (1L << v)) != 0) return null;
+            cycle[k++] = vertices[v];
+        }
+        return cycle;
+    }
+
+    private int edge(int v, int w) {
+        for (int i = 0; i < neighbours[v].length; i++) {
+            if (neighbours[v][i] == w) return edges[v][i];
+        }
+        throw new IllegalArgumentException("No edge between " + v + " and " + w);
+    }
+
+    /**
+     * Reduces the vector with the first rows of the basis, and returns it,
+     * or null if it is in the span of these rows. Each row has no bits set at
+     * the pivots of the rows before it, so a single pass is enough.
+     */
+    private static long[] reduce(long[] vector, List<long[]> basis, List<Integer> pivots, int rows) {
+        for (int i = 0; i < rows; i++) {
+            int pivot = pivots.get(i);
+            if ((vector[pivot >>> 6] & (1L << pivot)) != 0) {
+                long[] row = basis.get(i);
+                for (int j = 0; j < vector.length; j++) vector[j] ^= row[j];
+            }
+        }
+        return pivot(vector) < 0 ? null : vector;
+    }
+
+    private static int rank(List<long[]> vectors) {
+        List<long[]> basis = new ArrayList<long[]>();
+        List<Integer> pivots = new ArrayList<Integer>();
+        for (long[] vector : vectors) {
+            long[] row = reduce(vector.clone(), basis, pivots, basis.size());
+            if (row != null) {
+                basis.add(row);
+                pivots.add(pivot(row));
+            }
+        }
+        return basis.size();
+    }
+
+    /** The lowest set bit, or -1. */
+    private static int pivot(long[] vector) {
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] != 0) return 64 * i + Long.numberOfTrailingZeros(vector[i]);
+        }
+        return -1;
+    }
+
+    private static long[] or(long[] a, long[] b) {
+        long[] bits = new long[a.length];
+        for (int i = 0; i < bits.length; i++) bits[i] = a[i] | b[i];
+        return bits;
+    }
+
+    private static int words(int bits) {
+        return Math.max(1, (bits + 63) >>> 6);
+    }
+}
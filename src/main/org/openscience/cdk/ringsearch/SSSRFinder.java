@@ -28,6 +28,7 @@ import org._3pq.jgrapht.UndirectedGraph;
 import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.annotations.TestClass;
 import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.graph.AdjacencyList;
 import org.openscience.cdk.graph.MoleculeGraphs;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
@@ -66,6 +67,8 @@ public class SSSRFinder {
 
 	private IAtomContainer atomContainer;
 	private CycleBasis cycleBasis;
+	private RelevantCycles relevantCycles;
+	private AdjacencyList adjacency;
 	
 	/**
 	 * Constructs a SSSRFinder for a specified molecule.
@@ -87,7 +90,7 @@ public class SSSRFinder {
 		if (atomContainer==null) {
 			return null;
 		}
-		IRingSet ringSet = toRingSet(atomContainer, cycleBasis().cycles());
+		IRingSet ringSet = toRingSet(relevantCycles().minimumBasis());
 //		atomContainer.setProperty(CDKConstants.SMALLEST_RINGS, ringSet);
 		return ringSet;	  
 
@@ -104,7 +107,7 @@ public class SSSRFinder {
 		if (atomContainer==null) {
 			return null;
 		}
-		IRingSet ringSet = toRingSet(atomContainer, cycleBasis().essentialCycles());
+		IRingSet ringSet = toRingSet(relevantCycles().essential());
 //		atomContainer.setProperty(CDKConstants.ESSENTIAL_RINGS, ringSet);
 		return ringSet;
 	}
@@ -121,7 +124,7 @@ public class SSSRFinder {
 			return null;
 		}
 		
-		IRingSet ringSet = toRingSet(atomContainer, cycleBasis().relevantCycles().keySet());
+		IRingSet ringSet = toRingSet(relevantCycles().relevant());
 //		atomContainer.setProperty(CDKConstants.RELEVANT_RINGS, ringSet);
 		return ringSet;	  
 	}
@@ -151,7 +154,10 @@ public class SSSRFinder {
 	 * @return An <code>int[]</code> containing the length of the rings in a SSSR
 	 */
 	public int[] getSSSRWeightVector() {
-		return cycleBasis().weightVector();
+		int[][] basis = relevantCycles().minimumBasis();
+		int[] result = new int[basis.length];
+		for (int i = 0; i < basis.length; i++) result[i] = basis[i].length;
+		return result;
 	}
 	
 	/**
@@ -178,6 +184,31 @@ public class SSSRFinder {
 		return cycleBasis;
 	}
 	
+	private RelevantCycles relevantCycles() {
+		if (relevantCycles == null) {
+			adjacency = new AdjacencyList(atomContainer);
+			relevantCycles = new RelevantCycles(adjacency.toNeighbourArray());
+		}
+		return relevantCycles;
+	}
+
+	private IRingSet toRingSet(int[][] cycles) {
+		IRingSet ringSet = atomContainer.getBuilder().newInstance(IRingSet.class);
+		for (int[] cycle : cycles) {
+			IRing ring = atomContainer.getBuilder().newInstance(IRing.class);
+			IAtom[] atoms = new IAtom[cycle.length];
+			for (int i = 0; i < cycle.length; i++) {
+				atoms[i] = adjacency.getAtom(cycle[i]);
+				atoms[i].setFlag(CDKConstants.ISINRING, true);
+				int next = cycle[(i + 1) % cycle.length];
+				ring.addElectronContainer(adjacency.getBond(adjacency.getBondIndex(cycle[i], next)));
+			}
+			ring.setAtoms(atoms);
+			ringSet.addAtomContainer(ring);
+		}
+		return ringSet;
+	}
+
 	private static IRingSet toRingSet(IAtomContainer container, Collection cycles) {
 		
 		IRingSet ringSet = container.getBuilder().newInstance(IRingSet.class);
@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.graph.AdjacencyList;
+import org.openscience.cdk.graph.IAdjacencyListProvider;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
@@ -56,7 +58,8 @@ import org.openscience.cdk.interfaces.IBond.Order;
  * @cdk.created 2000-10-02
  */
 public class AtomContainer extends ChemObject 
-  implements IAtomContainer, IChemObjectListener, Serializable, Cloneable {
+  implements IAtomContainer, IChemObjectListener, IAdjacencyListProvider,
+             Serializable, Cloneable {
 
 	/**
      * Determines if a de-serialized object is compatible with this class.
@@ -119,6 +122,13 @@ public class AtomContainer extends ChemObject
      */
     protected List<IStereoElement> stereoElements;
 
+    /**
+     * Adjacency list of the atoms and bonds, created on demand and discarded
+     * when atoms or bonds are added, removed or replaced.
+     */
+    private transient AdjacencyList adjacency;
+
+
 
 	/**
 	 *  Constructs an empty AtomContainer.
@@ -219,6 +229,7 @@ public class AtomContainer extends ChemObject
 	 *@see           #getAtom
 	 */
 	public void setAtoms(IAtom[] atoms) {
+		adjacency = null;
 		this.atoms = atoms;
 		this.atomCount = atoms.length;
 	}
@@ -232,6 +243,7 @@ public class AtomContainer extends ChemObject
 	 */
 	public void setBonds(IBond[] bonds)
 	{
+		adjacency = null;
 		this.bonds = bonds;
 		this.bondCount = bonds.length;
 	}
@@ -264,6 +276,7 @@ public class AtomContainer extends ChemObject
 	 */
 	public void setAtom(int number, IAtom atom)
 	{
+		adjacency = null;
 		atoms[number] = atom;
 	}
 
@@ -574,6 +587,11 @@ public class AtomContainer extends ChemObject
 	 */
 	public int getAtomNumber(IAtom atom)
 	{
+		AdjacencyList adjacency = this.adjacency;
+		if (adjacency != null && adjacency.getAtomCount() == atomCount) {
+			int index = adjacency.indexOf(atom);
+			if (index >= 0 && atoms[index] == atom) return index;
+		}
 		for (int f = 0; f < atomCount; f++)
 		{
 			if (atoms[f] == atom) return f;
@@ -1015,6 +1033,7 @@ public class AtomContainer extends ChemObject
 		{
 			return;
 		}
+		adjacency = null;
 
 		if (atomCount + 1 >= atoms.length)
 		{
@@ -1032,6 +1051,7 @@ public class AtomContainer extends ChemObject
 	 */
 	public void addBond(IBond bond)
 	{
+		adjacency = null;
 		if (bondCount >= bonds.length) growBondArray();
 		bonds[bondCount] = bond;
 		++bondCount;
@@ -1109,6 +1129,7 @@ public class AtomContainer extends ChemObject
 	 */
 	public void removeAtom(int position)
 	{
+		adjacency = null;
 		for (int i = position; i < atomCount - 1; i++)
 		{
 			atoms[i] = atoms[i + 1];
@@ -1140,6 +1161,7 @@ public class AtomContainer extends ChemObject
 	 */
 	public IBond removeBond(int position)
 	{
+		adjacency = null;
 		IBond bond = bonds[position];
 		bond.removeListener(this);
 		for (int i = position; i < bondCount - 1; i++)
@@ -1306,6 +1328,7 @@ public class AtomContainer extends ChemObject
 	 */
     @Override
 	public void removeAllElements() {
+		adjacency = null;
 		removeAllElectronContainers();
         atoms = new IAtom[growArraySize];
         atomCount = 0;
@@ -1329,6 +1352,7 @@ public class AtomContainer extends ChemObject
      *  Removes all Bonds from this container.
      */
     public void removeAllBonds() {
+    	adjacency = null;
     	bonds = new IBond[growArraySize];
     	bondCount = 0;
     }
@@ -1510,6 +1534,24 @@ public class AtomContainer extends ChemObject
 	}
 
 
+	/**
+	 * Returns an adjacency list of the current atoms and bonds. It is kept
+	 * until atoms or bonds are added, removed or replaced, and is checked
+	 * against the bonds before it is returned, as silent bonds do not notify
+	 * this container when their atoms are set.
+	 *
+	 * @return the adjacency list of this container
+	 */
+	@TestMethod("testGetAdjacencyList")
+	public AdjacencyList getAdjacencyList() {
+		AdjacencyList adjacency = this.adjacency;
+		if (adjacency == null || !adjacency.isCurrent(this)) {
+			adjacency = new AdjacencyList(this);
+			this.adjacency = adjacency;
+		}
+		return adjacency;
+	}
+
 	/**
 	 * Clones this AtomContainer object and its content.
 	 *
@@ -0,0 +1,518 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.similarity;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.fingerprint.IBitFingerprint;
+
+/**
+ * Stores a set of fixed size bit fingerprints for fast Tanimoto similarity
+ * searches. The fingerprints are packed one after the other in a single
+ * <code>long[]</code>, together with the number of bits set in each of them,
+ * so comparing a query with a stored fingerprint needs no objects and only a
+ * few word operations.
+ *
+ * <p>Because the Tanimoto coefficient of two fingerprints with <i>a</i> and
+ * <i>b</i> bits set can not be larger than <i>min(a, b) / max(a, b)</i>, the
+ * searches only compare the query with fingerprints whose bit count can
+ * reach the threshold, or for the nearest neighbours, whose bit count can
+ * still beat the neighbours found so far. Both searches can be split over
+ * several threads.
+ *
+ * <pre>
+ * Fingerprinter fingerprinter = new Fingerprinter();
+ * FingerprintDatabase database = new FingerprintDatabase(fingerprinter.getSize());
+ * for (IAtomContainer molecule : molecules)
+ *     database.add(fingerprinter.getBitFingerprint(molecule));
+ * IBitFingerprint query = fingerprinter.getBitFingerprint(queryMolecule);
+ * for (FingerprintDatabase.Hit hit : database.findSimilar(query, 0.8))
+ *     System.out.println(hit.getIndex() + " " + hit.getSimilarity());
+ * </pre>
+ *
+ * <p>Similarities are calculated as by
+ * {@link Tanimoto#calculate(IBitFingerprint, IBitFingerprint)}, except that
+ * two fingerprints without any bits set have a similarity of 0. Several
+ * threads may search the database at the same time, but adding
+ * fingerprints must not happen at the same time as a search.
+ *
+ * @cdk.module fingerprint
+ * @cdk.githash
+ * @cdk.keyword similarity, tanimoto
+ * @cdk.keyword fingerprint
+ */
+@TestClass("org.openscience.cdk.similarity.FingerprintDatabaseTest")
+public class FingerprintDatabase {
+
+    /** Number of bits in each fingerprint. */
+    private final int size;
+
+    /** Number of longs used for each fingerprint. */
+    private final int words;
+
+    private long[] bits;
+    private int[] cardinalities;
+    private int count;
+
+    /**
+     * The fingerprints ordered by the number of bits set. Made by the first
+     * search after fingerprints were added, and shared by all searches until
+     * more fingerprints are added.
+     */
+    private volatile Order order;
+
+    /**
+     * Creates an empty database for fingerprints of the given size.
+     *
+     * @param size the number of bits in each fingerprint
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    @TestMethod("testFingerprintDatabase_int")
+    public FingerprintDatabase(int size) {
+        if (size < 1)
+            throw new IllegalArgumentException("Fingerprint size must be positive: " + size);
+        this.size = size;
+        this.words = (size + 63) >>> 6;
+        this.bits = new long[16 * words];
+        this.cardinalities = new int[16];
+    }
+
+    /**
+     * Returns the number of bits in each fingerprint.
+     *
+     * @return the fingerprint size
+     */
+    @TestMethod("testFingerprintDatabase_int")
+    public int getFingerprintSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of fingerprints in the database.
+     *
+     * @return the number of fingerprints
+     */
+    @TestMethod("testAdd_IBitFingerprint")
+    public int getFingerprintCount() {
+        return count;
+    }
+
+    /**
+     * Adds a fingerprint to the database.
+     *
+     * @param fingerprint the fingerprint
+     * @return the index of the fingerprint, as reported by the searches
+     * @throws IllegalArgumentException if the fingerprint has bits set beyond
+     *         the fingerprint size of this database
+     */
+    @TestMethod("testAdd_IBitFingerprint")
+    public int add(IBitFingerprint fingerprint) {
+        return add(fingerprint.asBitSet());
+    }
+
+    /**
+     * Adds a fingerprint, given as a bit set, to the database.
+     *
+     * @param fingerprint the fingerprint
+     * @return the index of the fingerprint, as reported by the searches
+     * @throws IllegalArgumentException if the fingerprint has bits set beyond
+     *         the fingerprint size of this database
+     */
+    @TestMethod("testAdd_BitSet")
+    public int add(BitSet fingerprint) {
+        long[] packed = pack(fingerprint);
+        if (count == cardinalities.length) {
+            long[] newBits = new long[2 * bits.length];
+            System.arraycopy(bits, 0, newBits, 0, bits.length);
+            bits = newBits;
+            int[] newCardinalities = new int[2 * cardinalities.length];
+            System.arraycopy(cardinalities, 0, newCardinalities, 0, count);
+            cardinalities = newCardinalities;
+        }
+        System.arraycopy(packed, 0, bits, count * words, words);
+        cardinalities[count] = fingerprint.cardinality();
+        order = null;
+        return count++;
+    }
+
+    /**
+     * Calculates the Tanimoto coefficient of a fingerprint with a fingerprint
+     * in the database.
+     *
+     * @param fingerprint the fingerprint
+     * @param index       the index of the fingerprint in the database
+     * @return the Tanimoto coefficient
+     * @throws IllegalArgumentException if the fingerprint has bits set beyond
+     *         the fingerprint size of this database
+     * @throws IndexOutOfBoundsException if there is no fingerprint with the
+     *         given index
+     */
+    @TestMethod("testCalculate_IBitFingerprint_int")
+    public double calculate(IBitFingerprint fingerprint, int index) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("No fingerprint " + index + " in a database of " + count);
+        BitSet query = fingerprint.asBitSet();
+        return similarity(pack(query), query.cardinality(), index);
+    }
+
+    /**
+     * Finds all fingerprints with a Tanimoto coefficient to the query of at
+     * least the given threshold.
+     *
+     * @param query     the query fingerprint
+     * @param threshold the smallest similarity to report
+     * @return the hits, most similar first, and in the order in which they
+     *         were added for equal similarities
+     * @throws IllegalArgumentException if the query has bits set beyond the
+     *         fingerprint size of this database
+     */
+    @TestMethod("testFindSimilar_IBitFingerprint_double")
+    public List<Hit> findSimilar(IBitFingerprint query, double threshold) {
+        return findSimilar(query, threshold, 1);
+    }
+
+    /**
+     * Finds all fingerprints with a Tanimoto coefficient to the query of at
+     * least the given threshold, comparing the fingerprints on the given
+     * number of threads.
+     *
+     * @param query     the query fingerprint
+     * @param threshold the smallest similarity to report
+     * @param threads   the number of threads to use
+     * @return the hits, most similar first, and in the order in which they
+     *         were added for equal similarities
+     * @throws IllegalArgumentException if the query has bits set beyond the
+     *         fingerprint size of this database, or if the number of
+     *         threads is smaller than one
+     */
+    @TestMethod("testFindSimilar_IBitFingerprint_double_int")
+    public List<Hit> findSimilar(IBitFingerprint query, final double threshold, int threads) {
+        final Search search = new Search(query, threads);
+        List<Hit> hits = search.run(new Callable<List<Hit>>() {
+            public List<Hit> call() {
+                List<Hit> hits = new ArrayList<Hit>();
+                int cardinality;
+                while ((cardinality = search.nextCardinality()) >= 0) {
+                    // the bounds only decrease, so no later fingerprint can reach the threshold
+                    if (search.bound(cardinality) < threshold) break;
+                    for (int i = search.start[cardinality]; i < search.start[cardinality + 1]; i++) {
+                        double similarity = search.similarity(search.order[i]);
+                        if (similarity >= threshold) hits.add(new Hit(search.order[i], similarity));
+                    }
+                }
+                return hits;
+            }
+        });
+        Collections.sort(hits);
+        return hits;
+    }
+
+    /**
+     * Finds the fingerprints with the largest Tanimoto coefficients to the
+     * query.
+     *
+     * @param query the query fingerprint
+     * @param k     the number of fingerprints to find
+     * @return at most <code>k</code> hits, most similar first, and in the
+     *         order in which they were added for equal similarities
+     * @throws IllegalArgumentException if the query has bits set beyond the
+     *         fingerprint size of this database
+     */
+    @TestMethod("testFindNearest_IBitFingerprint_int")
+    public List<Hit> findNearest(IBitFingerprint query, int k) {
+        return findNearest(query, k, 1);
+    }
+
+    /**
+     * Finds the fingerprints with the largest Tanimoto coefficients to the
+     * query, comparing the fingerprints on the given number of threads.
+     *
+     * @param query   the query fingerprint
+     * @param k       the number of fingerprints to find
+     * @param threads the number of threads to use
+     * @return at most <code>k</code> hits, most similar first, and in the
+     *         order in which they were added for equal similarities
+     * @throws IllegalArgumentException if the query has bits set beyond the
+     *         fingerprint size of this database, or if the number of
+     *         threads is smaller than one
+     */
+    @TestMethod("testFindNearest_IBitFingerprint_int_int")
+    public List<Hit> findNearest(IBitFingerprint query, final int k, int threads) {
+        if (k < 1) {
+            if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+            return new ArrayList<Hit>();
+        }
+        final Search search = new Search(query, threads);
+        final AtomicBoolean done = new AtomicBoolean();
+        List<Hit> hits = search.run(new Callable<List<Hit>>() {
+            public List<Hit> call() {
+                // the worst of the best k hits is at the head
+                PriorityQueue<Hit> best = new PriorityQueue<Hit>(k + 1, Collections.reverseOrder());
+                int cardinality;
+                while (!done.get() && (cardinality = search.nextCardinality()) >= 0) {
+                    // the bounds only decrease, so when this thread already has k
+                    // better hits no later fingerprint can make it into the result
+                    if (best.size() == k && search.bound(cardinality) < best.peek().getSimilarity()) {
+                        done.set(true);
+                        break;
+                    }
+                    for (int i = search.start[cardinality]; i < search.start[cardinality + 1]; i++) {
+                        Hit hit = new Hit(search.order[i], search.similarity(search.order[i]));
+                        if (best.size() < k) {
+                            best.add(hit);
+                        } else if (hit.compareTo(best.peek()) < 0) {
+                            best.poll();
+                            best.add(hit);
+                        }
+                    }
+                }
+                return new ArrayList<Hit>(best);
+            }
+        });
+        Collections.sort(hits);
+        return hits.size() > k ? new ArrayList<Hit>(hits.subList(0, k)) : hits;
+    }
+
+    private long[] pack(BitSet fingerprint) {
+        if (fingerprint.length() > size)
+            throw new IllegalArgumentException("Fingerprint has bit " + (fingerprint.length() - 1)
+                                               + " set, but the fingerprint size is " + size);
+        long[] packed = new long[words];
+        for (int i = fingerprint.nextSetBit(0); i >= 0; i = fingerprint.nextSetBit(i + 1)) {
+            packed[i >>> 6] |= 1L << i;
+        }
+        return packed;
+    }
+
+    private double similarity(long[] query, int cardinality, int index) {
+        int offset = index * words;
+        int common = 0;
+        for (int i = 0; i < words; i++) {
+            common += Long.bitCount(query[i] & bits[offset + i]);
+        }
+        int union = cardinality + cardinalities[index] - common;
+        return union == 0 ? 0 : (double) common / union;
+    }
+
+    /**
+     * Returns the fingerprints ordered by bit count, making the order once
+     * when several searches start at the same time.
+     */
+    private Order getOrder() {
+        Order current = order;
+        if (current == null) {
+            synchronized (this) {
+                current = order;
+                if (current == null) {
+                    current = new Order();
+                    order = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * The indices of the fingerprints sorted by bit count with a counting
+     * sort, and the position in that order of the first fingerprint with
+     * each bit count.
+     */
+    private final class Order {
+
+        private final int[] indices;
+        private final int[] start;
+
+        Order() {
+            start = new int[size + 2];
+            for (int i = 0; i < count; i++) start[cardinalities[i] + 1]++;
+            for (int c = 0; c <= size; c++) start[c + 1] += start[c];
+            int[] position = new int[size + 1];
+            System.arraycopy(start, 0, position, 0, size + 1);
+            indices = new int[count];
+            for (int i = 0; i < count; i++) indices[position[cardinalities[i]]++] = i;
+        }
+    }
+
+    /**
+     * The state of a single search: the packed query and the bit counts of
+     * the stored fingerprints, in the order of decreasing upper bound of their
+     * similarity to the query. Threads take the bit counts one by one.
+     */
+    private class Search {
+
+        private final long[] query;
+        private final int cardinality;
+        private final int threads;
+        private final int[] cardinalities;
+        private final AtomicInteger next = new AtomicInteger();
+        /** The fingerprint indices ordered by bit count, see {@link Order}. */
+        final int[] order;
+        final int[] start;
+
+        Search(IBitFingerprint fingerprint, int threads) {
+            if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+            BitSet bitset = fingerprint.asBitSet();
+            this.query = pack(bitset);
+            this.cardinality = bitset.cardinality();
+            this.threads = threads;
+            Order sorted = getOrder();
+            this.order = sorted.indices;
+            this.start = sorted.start;
+            // walk away from the bit count of the query in both directions
+            this.cardinalities = new int[size + 1];
+            int lower = Math.min(cardinality, size), upper = lower + 1, n = 0;
+            while (lower >= 0 || upper <= size) {
+                if (upper > size || (lower >= 0 && bound(lower) >= bound(upper)))
+                    cardinalities[n++] = lower--;
+                else
+                    cardinalities[n++] = upper++;
+            }
+        }
+
+        /** The largest possible similarity with a fingerprint of the given bit count. */
+        double bound(int other) {
+            int max = Math.max(cardinality, other);
+            return max == 0 ? 0 : (double) Math.min(cardinality, other) / max;
+        }
+
+        double similarity(int index) {
+            return FingerprintDatabase.this.similarity(query, cardinality, index);
+        }
+
+        /** Returns the next bit count with stored fingerprints, or -1. */
+        int nextCardinality() {
+            int i;
+            while ((i = next.getAndIncrement()) < cardinalities.length) {
+                int c = cardinalities[i];
+                if (start[c] < start[c + 1]) return c;
+            }
+            return -1;
+        }
+
+        List<Hit> run(Callable<List<Hit>> worker) {
+            if (threads == 1 || count < 2) {
+                try {
+                    return worker.call();
+                } catch (Exception exception) {
+                    throw new IllegalStateException(exception);
+                }
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FingerprintDatabase worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            try {
+                List<Future<List<Hit>>> results = new ArrayList<Future<List<Hit>>>();
+                for (int i = 0; i < threads; i++) results.add(executor.submit(worker));
+                List<Hit> hits = new ArrayList<Hit>();
+                for (Future<List<Hit>> result : results) hits.addAll(result.get());
+                return hits;
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while searching", exception);
+            } catch (ExecutionException exception) {
+                throw new IllegalStateException(exception.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * A fingerprint found by a search, with its similarity to the query.
+     * Hits are ordered by decreasing similarity, and by increasing index for
+     * equal similarities.
+     */
+    public static final class Hit implements Comparable<Hit> {
+
+        private final int index;
+        private final double similarity;
+
+        @TestMethod("testFindSimilar_IBitFingerprint_double")
+        Hit(int index, double similarity) {
+            this.index = index;
+            this.similarity = similarity;
+        }
+
+        /**
+         * Returns the index of the fingerprint in the database.
+         *
+         * @return the index, as returned by {@link FingerprintDatabase#add(IBitFingerprint)}
+         */
+        @TestMethod("testFindSimilar_IBitFingerprint_double")
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the Tanimoto coefficient of the fingerprint with the query.
+         *
+         * @return the similarity
+         */
+        @TestMethod("testFindSimilar_IBitFingerprint_double")
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        @TestMethod("testFindSimilar_IBitFingerprint_double")
+        public int compareTo(Hit other) {
+            if (similarity != other.similarity) return similarity > other.similarity ? -1 : 1;
+            return index < other.index ? -1 : index == other.index ? 0 : 1;
+        }
+
+        @TestMethod("testFindSimilar_IBitFingerprint_double")
+        public boolean equals(Object object) {
+            if (!(object instanceof Hit)) return false;
+            Hit other = (Hit) object;
+            return index == other.index && similarity == other.similarity;
+        }
+
+        @TestMethod("testFindSimilar_IBitFingerprint_double")
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(similarity);
+            return 31 * index + (int) (bits ^ (bits >>> 32));
+        }
+
+        @TestMethod("testFindSimilar_IBitFingerprint_double")
+        public String toString() {
+            return "Hit(" + index + ", " + similarity + ")";
+        }
+    }
+}
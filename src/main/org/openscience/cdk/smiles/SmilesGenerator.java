@@ -32,7 +32,7 @@ import org.openscience.cdk.config.IsotopeFactory;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.geometry.BondTools;
 import org.openscience.cdk.graph.ConnectivityChecker;
-import org.openscience.cdk.graph.invariant.CanonicalLabeler;
+import org.openscience.cdk.graph.invariant.CanonicalPartitionLabeler;
 import org.openscience.cdk.graph.invariant.MorganNumbersTools;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
@@ -118,7 +118,7 @@ public class SmilesGenerator
 	/**
 	 *  The canonical labler
 	 */
-	private CanonicalLabeler canLabler = new CanonicalLabeler();
+	private CanonicalPartitionLabeler canLabler = new CanonicalPartitionLabeler();
 	private final String RING_CONFIG = "stereoconfig";
 	private final String UP = "up";
 	private final String DOWN = "down";
@@ -195,7 +195,7 @@ public class SmilesGenerator
      *  assign the SAR.
      *
      * @param  molecule  The molecule to evaluate
-     * @see              org.openscience.cdk.graph.invariant.CanonicalLabeler#canonLabel(IAtomContainer)
+     * @see              org.openscience.cdk.graph.invariant.CanonicalPartitionLabeler#canonLabel(IAtomContainer)
      * @return the SMILES representation of the molecule
      */
     @TestMethod("testCisResorcinol,testEthylPropylPhenantren,testAlanin")
@@ -279,7 +279,7 @@ public class SmilesGenerator
      *                                  possible, but note the coordinates might be arbitrary).
 	 * @exception  CDKException         At least one atom has no Point2D;
 	 *      coordinates are needed for creating the chiral smiles.
-	 * @see                             org.openscience.cdk.graph.invariant.CanonicalLabeler#canonLabel(IAtomContainer)
+	 * @see                             org.openscience.cdk.graph.invariant.CanonicalPartitionLabeler#canonLabel(IAtomContainer)
      * @return the SMILES representation of the molecule
 	 */
     @TestMethod("testAlaSMILES,testSugarSMILES")
@@ -311,7 +311,7 @@ public class SmilesGenerator
      *      can only be thrown if chiral smiles is created, ignore it if you want a
      *      non-chiral smiles (createSMILES(AtomContainer) does not throw an
      *      exception).
-     * @see                             org.openscience.cdk.graph.invariant.CanonicalLabeler#canonLabel(IAtomContainer)
+     * @see                             org.openscience.cdk.graph.invariant.CanonicalPartitionLabeler#canonLabel(IAtomContainer)
      * @return the SMILES representation of the molecule
      */
 	public synchronized String createSMILES(IAtomContainer molecule, boolean chiral, boolean doubleBondConfiguration[]) throws CDKException
@@ -361,7 +361,7 @@ public class SmilesGenerator
 	 *      can only be thrown if chiral smiles is created, ignore it if you want a
 	 *      non-chiral smiles (createSMILES(AtomContainer) does not throw an
 	 *      exception).
-	 *@see                             org.openscience.cdk.graph.invariant.CanonicalLabeler#canonLabel(IAtomContainer)
+	 *@see                             org.openscience.cdk.graph.invariant.CanonicalPartitionLabeler#canonLabel(IAtomContainer)
      * @return the SMILES representation of the molecule
 	 */
 	@TestMethod("testCreateSMILESWithoutCheckForMultipleMolecules_withDetectAromaticity,testCreateSMILESWithoutCheckForMultipleMolecules_withoutDetectAromaticity")
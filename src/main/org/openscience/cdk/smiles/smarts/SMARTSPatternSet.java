@@ -0,0 +1,253 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smiles.smarts;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.isomorphism.matchers.QueryAtomContainer;
+import org.openscience.cdk.isomorphism.matchers.smarts.AliphaticSymbolAtom;
+import org.openscience.cdk.isomorphism.matchers.smarts.AromaticSymbolAtom;
+import org.openscience.cdk.isomorphism.matchers.smarts.AtomicNumberAtom;
+import org.openscience.cdk.isomorphism.matchers.smarts.LogicalOperatorAtom;
+import org.openscience.cdk.isomorphism.matchers.smarts.OrderQueryBond;
+import org.openscience.cdk.smiles.smarts.parser.SMARTSParser;
+import org.openscience.cdk.smiles.smarts.parser.TokenMgrError;
+import org.openscience.cdk.tools.periodictable.PeriodicTable;
+
+/**
+ * An immutable, precompiled set of SMARTS patterns that are matched together against a molecule. <p/> This class is
+ * meant for substructure fingerprints and filtering, where the same (and often large) list of patterns is matched
+ * against many molecules. Compared to calling {@link SMARTSQueryTool#setSmarts(String)} and {@link
+ * SMARTSQueryTool#matches(IAtomContainer)} for each pattern it:
+ * <ul>
+ * <li>parses every pattern only once,</li>
+ * <li>prepares the target molecule (ring perception, aromaticity, valences) once for all patterns,</li>
+ * <li>skips patterns that cannot possibly match, because the molecule has fewer atoms, bonds, triple bonds or atoms
+ * of a required element than the pattern,</li>
+ * <li>stops at the first match of each pattern.</li>
+ * </ul>
+ * Example usage:
+ * <pre>
+ * SMARTSPatternSet patterns = new SMARTSPatternSet(new String[]{"O=CO", "c1ccccc1"});
+ * BitSet bits = patterns.match(atomContainer);
+ * </pre>
+ * A pattern set can be shared between threads. Because parsed SMARTS queries keep per-molecule state (for recursive
+ * SMARTS), every thread gets its own copy of the parsed queries, which is parsed the first time that thread matches.
+ * The molecules themselves are modified during preparation and must not be matched concurrently.
+ *
+ * @cdk.module  smarts
+ * @cdk.githash
+ * @cdk.keyword SMARTS
+ * @cdk.keyword substructure search
+ * @see SMARTSQueryTool
+ */
+@TestClass("org.openscience.cdk.smiles.smarts.SMARTSPatternSetTest")
+public final class SMARTSPatternSet {
+
+    private final String[] smarts;
+
+    /** Number of atoms in the pattern that have to be mapped onto distinct atoms. */
+    private final int[] atomCounts;
+    /** Number of bonds in the pattern. */
+    private final int[] bondCounts;
+    /** Number of non-aromatic triple bonds in the pattern. */
+    private final int[] tripleBondCounts;
+    /** Element symbols required by the pattern, and how often they are required. */
+    private final String[][] elements;
+    private final int[][] elementCounts;
+
+    /** The parsed queries, one copy per thread. */
+    private final ThreadLocal<QueryAtomContainer[]> queries = new ThreadLocal<QueryAtomContainer[]>() {
+        protected QueryAtomContainer[] initialValue() {
+            return parse(smarts);
+        }
+    };
+
+    /**
+     * Compiles a set of SMARTS patterns.
+     *
+     * @param smarts the SMARTS patterns
+     * @throws IllegalArgumentException if one of the SMARTS patterns can not be handled
+     */
+    @TestMethod("testSize")
+    public SMARTSPatternSet(String[] smarts) {
+        this.smarts = new String[smarts.length];
+        System.arraycopy(smarts, 0, this.smarts, 0, smarts.length);
+
+        QueryAtomContainer[] parsed = parse(this.smarts);
+        atomCounts = new int[parsed.length];
+        bondCounts = new int[parsed.length];
+        tripleBondCounts = new int[parsed.length];
+        elements = new String[parsed.length][];
+        elementCounts = new int[parsed.length][];
+        for (int i = 0; i < parsed.length; i++) {
+            compileFilter(i, parsed[i]);
+        }
+        queries.set(parsed);
+    }
+
+    /**
+     * Returns the number of patterns in this set.
+     *
+     * @return the number of patterns
+     */
+    @TestMethod("testSize")
+    public int size() {
+        return smarts.length;
+    }
+
+    /**
+     * Returns the SMARTS pattern at the given position.
+     *
+     * @param index the position of the pattern
+     * @return the SMARTS pattern
+     */
+    @TestMethod("testGetSmarts_int")
+    public String getSmarts(int index) {
+        return smarts[index];
+    }
+
+    /**
+     * Determines which patterns are present in the molecule. <p/> The molecule is prepared for matching (ring
+     * perception, aromaticity detection etc.) once, as done by {@link SMARTSQueryTool#matches(IAtomContainer)}.
+     *
+     * @param atomContainer the target molecule
+     * @return a BitSet in which bit <i>i</i> is set if pattern <i>i</i> was found in the molecule
+     * @throws CDKException if there is an error in ring, aromaticity or isomorphism perception
+     */
+    @TestMethod("testMatch_IAtomContainer,testMatch_Prefilter")
+    public BitSet match(IAtomContainer atomContainer) throws CDKException {
+        SMARTSQueryTool.initializeMolecule(atomContainer);
+
+        // count the labels used by the prefilter
+        Map<String, int[]> symbolCounts = new HashMap<String, int[]>();
+        for (IAtom atom : atomContainer.atoms()) {
+            int[] count = symbolCounts.get(atom.getSymbol());
+            if (count == null) symbolCounts.put(atom.getSymbol(), new int[]{1});
+            else count[0]++;
+        }
+        int tripleBondCount = 0;
+        for (IBond bond : atomContainer.bonds()) {
+            if (isTripleBond(bond)) tripleBondCount++;
+        }
+        int atomCount = atomContainer.getAtomCount();
+        int bondCount = atomContainer.getBondCount();
+
+        QueryAtomContainer[] threadQueries = queries.get();
+        BitSet result = new BitSet(smarts.length);
+        for (int i = 0; i < smarts.length; i++) {
+            if (atomCounts[i] > atomCount || bondCounts[i] > bondCount
+                || tripleBondCounts[i] > tripleBondCount) continue;
+            boolean possible = true;
+            for (int j = 0; j < elements[i].length && possible; j++) {
+                int[] count = symbolCounts.get(elements[i][j]);
+                possible = count != null && count[0] >= elementCounts[i][j];
+            }
+            if (!possible) continue;
+
+            if (!SMARTSQueryTool.findMatches(threadQueries[i], atomContainer, 1).isEmpty())
+                result.set(i);
+        }
+        return result;
+    }
+
+    /**
+     * Derives the cheap necessary conditions for the pattern at the given index.
+     */
+    private void compileFilter(int index, QueryAtomContainer query) {
+        Map<String, Integer> required = new HashMap<String, Integer>();
+        int atomCount = 0;
+        for (IAtom atom : query.atoms()) {
+            // the isomorphism search maps bonds, so only atoms in bonds count
+            // for multi atom queries
+            if (query.getAtomCount() > 1 && query.getConnectedBondsCount(atom) == 0) continue;
+            atomCount++;
+            String symbol = requiredSymbol(atom);
+            if (symbol == null) continue;
+            Integer count = required.get(symbol);
+            required.put(symbol, count == null ? 1 : count + 1);
+        }
+        int tripleBondCount = 0;
+        for (IBond bond : query.bonds()) {
+            if (bond instanceof OrderQueryBond && isTripleBond(bond)) tripleBondCount++;
+        }
+
+        atomCounts[index] = atomCount;
+        bondCounts[index] = query.getBondCount();
+        tripleBondCounts[index] = tripleBondCount;
+        elements[index] = new String[required.size()];
+        elementCounts[index] = new int[required.size()];
+        int j = 0;
+        for (Map.Entry<String, Integer> entry : required.entrySet()) {
+            elements[index][j] = entry.getKey();
+            elementCounts[index][j] = entry.getValue();
+            j++;
+        }
+    }
+
+    /**
+     * Returns the element symbol any atom matched by the given query atom must have, or null if the query atom can
+     * match more than one element.
+     */
+    private static String requiredSymbol(IAtom atom) {
+        if (atom instanceof AliphaticSymbolAtom || atom instanceof AromaticSymbolAtom) {
+            return atom.getSymbol();
+        } else if (atom instanceof AtomicNumberAtom) {
+            return PeriodicTable.getSymbol(atom.getAtomicNumber());
+        } else if (atom instanceof LogicalOperatorAtom) {
+            LogicalOperatorAtom operator = (LogicalOperatorAtom) atom;
+            if (operator.getRight() == null) {
+                return "not".equals(operator.getOperator()) ? null : requiredSymbol(operator.getLeft());
+            }
+            String left = requiredSymbol(operator.getLeft());
+            String right = requiredSymbol(operator.getRight());
+            if ("and".equals(operator.getOperator())) {
+                return left != null ? left : right;
+            } else if ("or".equals(operator.getOperator())) {
+                return left != null && left.equals(right) ? left : null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isTripleBond(IBond bond) {
+        return bond.getOrder() == IBond.Order.TRIPLE && !bond.getFlag(CDKConstants.ISAROMATIC);
+    }
+
+    private static QueryAtomContainer[] parse(String[] smarts) {
+        QueryAtomContainer[] parsed = new QueryAtomContainer[smarts.length];
+        for (int i = 0; i < smarts.length; i++) {
+            try {
+                parsed[i] = SMARTSParser.parse(smarts[i]);
+            } catch (TokenMgrError error) {
+                throw new IllegalArgumentException("Error parsing SMARTS: " + smarts[i], error);
+            }
+        }
+        return parsed;
+    }
+}
@@ -69,6 +69,9 @@ import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
  *    }
  * }
  * </pre>
+ * When only the presence of the pattern is of interest, {@link #hasMatch(IAtomContainer)} stops at the first match
+ * instead of enumerating all mappings, and {@link #countMatches(IAtomContainer, int)} stops after a given number of
+ * mappings.
  * <h3>Unsupported Features</h3> <ul> <li>Component level grouping <li>Stereochemistry <li>Reaction support </ul>
  * <h3>SMARTS Extensions</h3>
  * <p/>
@@ -119,6 +122,53 @@ public class SMARTSQueryTool {
 
     private List<List<Integer>> matchingAtoms = null;
 
+    // Code copied from
+    // org.openscience.cdk.qsar.descriptors.atomic.AtomValenceDescriptor;
+    private static final Map<String, Integer> VALENCES = new HashMap<String, Integer>();
+    static {
+        VALENCES.put("H", 1);
+        VALENCES.put("Li", 1);
+        VALENCES.put("Be", 2);
+        VALENCES.put("B", 3);
+        VALENCES.put("C", 4);
+        VALENCES.put("N", 5);
+        VALENCES.put("O", 6);
+        VALENCES.put("F", 7);
+        VALENCES.put("Na", 1);
+        VALENCES.put("Mg", 2);
+        VALENCES.put("Al", 3);
+        VALENCES.put("Si", 4);
+        VALENCES.put("P", 5);
+        VALENCES.put("S", 6);
+        VALENCES.put("Cl", 7);
+        VALENCES.put("K", 1);
+        VALENCES.put("Ca", 2);
+        VALENCES.put("Ga", 3);
+        VALENCES.put("Ge", 4);
+        VALENCES.put("As", 5);
+        VALENCES.put("Se", 6);
+        VALENCES.put("Br", 7);
+        VALENCES.put("Rb", 1);
+        VALENCES.put("Sr", 2);
+        VALENCES.put("In", 3);
+        VALENCES.put("Sn", 4);
+        VALENCES.put("Sb", 5);
+        VALENCES.put("Te", 6);
+        VALENCES.put("I", 7);
+        VALENCES.put("Cs", 1);
+        VALENCES.put("Ba", 2);
+        VALENCES.put("Tl", 3);
+        VALENCES.put("Pb", 4);
+        VALENCES.put("Bi", 5);
+        VALENCES.put("Po", 6);
+        VALENCES.put("At", 7);
+        VALENCES.put("Fr", 1);
+        VALENCES.put("Ra", 2);
+        VALENCES.put("Cu", 2);
+        VALENCES.put("Mn", 2);
+        VALENCES.put("Co", 2);
+    }
+
     // a simplistic cache to store parsed SMARTS queries
     private int MAX_ENTRIES = 20;
     Map<String, QueryAtomContainer> cache = new LinkedHashMap<String, QueryAtomContainer>(MAX_ENTRIES + 1, .75F, true) {
@@ -213,16 +263,100 @@ public class SMARTSQueryTool {
      */
     @TestMethod("testQueryTool, testQueryToolSingleAtomCase, testQuery")
     public boolean matches(IAtomContainer atomContainer, boolean forceInitialization) throws CDKException {
+        return match(atomContainer, forceInitialization, -1);
+    }
+
+    /**
+     * Check whether the query is present in the target molecule, stopping at the first embedding that is found. <p/>
+     * Unlike {@link #matches(org.openscience.cdk.interfaces.IAtomContainer)} this method does not enumerate all the
+     * mappings of the query onto the target molecule, which makes it considerably faster when only a yes/no answer is
+     * required (e.g. for fingerprints or filtering). After this call, {@link #getMatchingAtoms()} holds at most one
+     * mapping. The same caching of the target molecule as in {@link #matches(IAtomContainer)} is applied.
+     *
+     * @param atomContainer The target molecule
+     * @return true if the pattern is found in the target molecule, false otherwise
+     * @throws CDKException if there is an error in ring, aromaticity or isomorphism perception
+     * @see #hasMatch(org.openscience.cdk.interfaces.IAtomContainer, boolean)
+     */
+    @TestMethod("testHasMatch_IAtomContainer")
+    public boolean hasMatch(IAtomContainer atomContainer) throws CDKException {
+        return hasMatch(atomContainer, false);
+    }
+
+    /**
+     * Check whether the query is present in the target molecule, stopping at the first embedding that is found.
+     *
+     * @param atomContainer       The target molecule
+     * @param forceInitialization If true, then the molecule is initialized (ring perception, aromaticity etc). If
+     *                            false, the molecule is only initialized if it is different (in terms of object
+     *                            reference) than one supplied in a previous call to this method.
+     * @return true if the pattern is found in the target molecule, false otherwise
+     * @throws CDKException if there is an error in ring, aromaticity or isomorphism perception
+     * @see #hasMatch(org.openscience.cdk.interfaces.IAtomContainer)
+     */
+    @TestMethod("testHasMatch_IAtomContainer,testHasMatch_IAtomContainer_boolean")
+    public boolean hasMatch(IAtomContainer atomContainer, boolean forceInitialization) throws CDKException {
+        return match(atomContainer, forceInitialization, 1);
+    }
+
+    /**
+     * Returns the number of times the pattern is found in the target molecule, counting at most <code>limit</code>
+     * mappings. <p/> The search stops as soon as <code>limit</code> mappings have been found, so this is the method to
+     * use when a threshold on the number of occurrences is all that is needed. After this call, {@link
+     * #getMatchingAtoms()} holds the (at most <code>limit</code>) mappings that were found.
+     *
+     * @param atomContainer The target molecule
+     * @param limit         The maximum number of mappings to look for, must be at least 1
+     * @return The number of times the pattern was found, but not more than <code>limit</code>
+     * @throws CDKException if there is an error in ring, aromaticity or isomorphism perception
+     * @throws IllegalArgumentException if <code>limit</code> is smaller than 1
+     * @see #countMatches()
+     */
+    @TestMethod("testCountMatches_IAtomContainer_int")
+    public int countMatches(IAtomContainer atomContainer, int limit) throws CDKException {
+        if (limit < 1) throw new IllegalArgumentException("The limit must be at least 1");
+        match(atomContainer, false, limit);
+        return matchingAtoms.size();
+    }
+
+    /**
+     * Performs the actual matching, storing at most <code>limit</code> mappings.
+     *
+     * @param atomContainer       The target molecule
+     * @param forceInitialization If true, then the molecule is always initialized
+     * @param limit               The maximum number of mappings to find, -1 to find all of them
+     * @return true if the pattern is found in the target molecule, false otherwise
+     * @throws CDKException if there is an error in ring, aromaticity or isomorphism perception
+     */
+    private boolean match(IAtomContainer atomContainer, boolean forceInitialization, int limit) throws CDKException {
 
         if (this.atomContainer == atomContainer) {
-            if (forceInitialization) initializeMolecule();
+            if (forceInitialization) initializeMolecule(this.atomContainer);
         } else {
             this.atomContainer = atomContainer;
-            initializeMolecule();
+            initializeMolecule(this.atomContainer);
         }
 
+        matchingAtoms = findMatches(query, this.atomContainer, limit);
+        return matchingAtoms.size() != 0;
+    }
+
+    /**
+     * Finds at most <code>limit</code> atom mappings of the query in a target molecule that has already been
+     * initialized with {@link #initializeMolecule(IAtomContainer)}.
+     *
+     * @param query         The parsed SMARTS query
+     * @param atomContainer The initialized target molecule
+     * @param limit         The maximum number of mappings to find, -1 to find all of them
+     * @return A List of List of atom indices in the target molecule
+     * @throws CDKException if there is an error in isomorphism perception
+     */
+    static List<List<Integer>> findMatches(QueryAtomContainer query, IAtomContainer atomContainer,
+                                           int limit) throws CDKException {
         // First calculate the recursive smarts
-        initializeRecursiveSmarts(this.atomContainer);
+        initializeRecursiveSmarts(query, atomContainer);
+
+        List<List<Integer>> matchingAtoms;
 
         // lets see if we have a single atom query
         if (query.getAtomCount() == 1) {
@@ -230,19 +364,24 @@ public class SMARTSQueryTool {
             IQueryAtom queryAtom = (IQueryAtom) query.getAtom(0);
 
             matchingAtoms = new ArrayList<List<Integer>>();
-            for (IAtom atom : this.atomContainer.atoms()) {
+            for (IAtom atom : atomContainer.atoms()) {
+                if (limit != -1 && matchingAtoms.size() >= limit) break;
                 if (queryAtom.matches(atom)) {
                     List<Integer> tmp = new ArrayList<Integer>();
-                    tmp.add(this.atomContainer.getAtomNumber(atom));
+                    tmp.add(atomContainer.getAtomNumber(atom));
                     matchingAtoms.add(tmp);
                 }
             }
         } else {
-            List bondMapping = new UniversalIsomorphismTester().getSubgraphMaps(this.atomContainer, query);
-            matchingAtoms = getAtomMappings(bondMapping, this.atomContainer);
+            List bondMapping = new UniversalIsomorphismTester().getSubgraphMaps(atomContainer, query, limit);
+            matchingAtoms = getAtomMappings(bondMapping, atomContainer);
+            // a single bond query may give two atom mappings per bond mapping
+            if (limit != -1 && matchingAtoms.size() > limit) {
+                matchingAtoms = new ArrayList<List<Integer>>(matchingAtoms.subList(0, limit));
+            }
         }
 
-        return matchingAtoms.size() != 0;
+        return matchingAtoms;
     }
 
     /**
@@ -308,58 +447,14 @@ public class SMARTSQueryTool {
 
     /**
      * Prepare the target molecule for analysis. <p/> We perform ring perception and aromaticity detection and set up
-     * the appropriate properties. Right now, this function is called each time we need to do a query and this is
-     * inefficient.
+     * the appropriate properties. The molecule needs to be prepared only once, after which any number of queries can
+     * be matched against it.
      *
+     * @param atomContainer The target molecule
      * @throws CDKException if there is a problem in ring perception or aromaticity detection, which is usually related
      *                      to a timeout in the ring finding code.
      */
-    private void initializeMolecule() throws CDKException {
-        // Code copied from
-        // org.openscience.cdk.qsar.descriptors.atomic.AtomValenceDescriptor;
-        Map<String, Integer> valencesTable = new HashMap<String, Integer>();
-        valencesTable.put("H", 1);
-        valencesTable.put("Li", 1);
-        valencesTable.put("Be", 2);
-        valencesTable.put("B", 3);
-        valencesTable.put("C", 4);
-        valencesTable.put("N", 5);
-        valencesTable.put("O", 6);
-        valencesTable.put("F", 7);
-        valencesTable.put("Na", 1);
-        valencesTable.put("Mg", 2);
-        valencesTable.put("Al", 3);
-        valencesTable.put("Si", 4);
-        valencesTable.put("P", 5);
-        valencesTable.put("S", 6);
-        valencesTable.put("Cl", 7);
-        valencesTable.put("K", 1);
-        valencesTable.put("Ca", 2);
-        valencesTable.put("Ga", 3);
-        valencesTable.put("Ge", 4);
-        valencesTable.put("As", 5);
-        valencesTable.put("Se", 6);
-        valencesTable.put("Br", 7);
-        valencesTable.put("Rb", 1);
-        valencesTable.put("Sr", 2);
-        valencesTable.put("In", 3);
-        valencesTable.put("Sn", 4);
-        valencesTable.put("Sb", 5);
-        valencesTable.put("Te", 6);
-        valencesTable.put("I", 7);
-        valencesTable.put("Cs", 1);
-        valencesTable.put("Ba", 2);
-        valencesTable.put("Tl", 3);
-        valencesTable.put("Pb", 4);
-        valencesTable.put("Bi", 5);
-        valencesTable.put("Po", 6);
-        valencesTable.put("At", 7);
-        valencesTable.put("Fr", 1);
-        valencesTable.put("Ra", 2);
-        valencesTable.put("Cu", 2);
-        valencesTable.put("Mn", 2);
-        valencesTable.put("Co", 2);
-
+    static void initializeMolecule(IAtomContainer atomContainer) throws CDKException {
         // do all ring perception
         AllRingsFinder arf = new AllRingsFinder();
         IRingSet allRings;
@@ -411,9 +506,9 @@ public class SMARTSQueryTool {
             atom.setProperty(CDKConstants.TOTAL_CONNECTIONS, total);
             atom.setProperty(CDKConstants.TOTAL_H_COUNT, hCount);
 
-            if (valencesTable.get(atom.getSymbol()) != null) {
+            if (VALENCES.get(atom.getSymbol()) != null) {
                 int formalCharge = atom.getFormalCharge() == CDKConstants.UNSET ? 0 : atom.getFormalCharge();
-                atom.setValency(valencesTable.get(atom.getSymbol()) - formalCharge);
+                atom.setValency(VALENCES.get(atom.getSymbol()) - formalCharge);
             }
         }
 
@@ -456,7 +551,8 @@ public class SMARTSQueryTool {
      * @param atomContainer
      * @throws CDKException
      */
-    private void initializeRecursiveSmarts(IAtomContainer atomContainer) throws CDKException {
+    private static void initializeRecursiveSmarts(QueryAtomContainer query,
+                                                  IAtomContainer atomContainer) throws CDKException {
         for (IAtom atom : query.atoms()) {
             initializeRecursiveSmartsAtom(atom, atomContainer);
         }
@@ -469,7 +565,7 @@ public class SMARTSQueryTool {
      * @param atomContainer
      * @throws CDKException
      */
-    private void initializeRecursiveSmartsAtom(IAtom atom, IAtomContainer atomContainer) throws CDKException {
+    private static void initializeRecursiveSmartsAtom(IAtom atom, IAtomContainer atomContainer) throws CDKException {
         if (atom instanceof LogicalOperatorAtom) {
             initializeRecursiveSmartsAtom(((LogicalOperatorAtom) atom).getLeft(), atomContainer);
             if (((LogicalOperatorAtom) atom).getRight() != null) {
@@ -492,7 +588,7 @@ public class SMARTSQueryTool {
     }
 
 
-    private List<List<Integer>> getAtomMappings(List bondMapping, IAtomContainer atomContainer) {
+    private static List<List<Integer>> getAtomMappings(List bondMapping, IAtomContainer atomContainer) {
         List<List<Integer>> atomMapping = new ArrayList<List<Integer>>();
 
         // loop over each mapping
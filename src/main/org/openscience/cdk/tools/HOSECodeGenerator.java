@@ -27,6 +27,7 @@ package org.openscience.cdk.tools;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -37,6 +38,7 @@ import org.openscience.cdk.annotations.TestMethod;
 import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
 import org.openscience.cdk.config.IsotopeFactory;
 import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.AdjacencyList;
 import org.openscience.cdk.graph.invariant.CanonicalLabeler;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
@@ -105,6 +107,18 @@ public class HOSECodeGenerator implements java.io.Serializable
 	 */
 	protected IAtomContainer atomContainer;
 
+	/**
+	 *  The neighbours of the atoms in the molecular structure
+	 */
+	private AdjacencyList adjacency;
+
+	/**
+	 *  The canonical labels and the visited state of the atoms, indexed like
+	 *  the adjacency list
+	 */
+	private long[] labels;
+	private boolean[] visited;
+
 	/**
 	 *  Delimiters used to separate spheres in the output string. Bremser uses the
 	 *  sequence"(//)" for the first four spheres.
@@ -199,15 +213,14 @@ public class HOSECodeGenerator implements java.io.Serializable
 		ensureIsotopeFactory(ac.getBuilder());
 		centerCode = "";
 		this.atomContainer = ac;
+		this.adjacency = AdjacencyList.getAdjacencyList(ac);
+		this.labels = getCanonicalLabels(adjacency);
 		maxSphere = noOfSpheres;
 		spheres = new List[noOfSpheres + 1];
 		spheresWithAtoms = new List[noOfSpheres + 1];
-		for (int i = 0; i < ac.getAtomCount(); i++)
-		{
-			ac.getAtom(i).setFlag(CDKConstants.VISITED, false);
-		}
-		root.setFlag(CDKConstants.VISITED, true);
-		rootNode = new TreeNode(root.getSymbol(), null, root, (double)0, atomContainer.getConnectedBondsCount(root), 0);
+		visited = new boolean[adjacency.getAtomCount()];
+		setVisited(root);
+		rootNode = new TreeNode(root.getSymbol(), null, root, (double)0, getDegree(root), 0);
 		/*
 		 *  All we need to observe is how the ranking of substituents
 		 *  in the subsequent spheres of the root nodes influences the
@@ -215,7 +228,7 @@ public class HOSECodeGenerator implements java.io.Serializable
 		 *  depends on the order the preceding node in its branch
 		 */
 		HOSECode = new StringBuffer();
-		createCenterCode(root,ac,ringsize);
+		createCenterCode(root, ringsize ? getRingcode(root, ac) : "");
 		breadthFirstSearch(root, false);
 		createCode();
 		fillUpSphereDelimiters();
@@ -271,16 +284,79 @@ public class HOSECodeGenerator implements java.io.Serializable
 		ensureIsotopeFactory(ac.getBuilder());
     CanonicalLabeler canLabler = new CanonicalLabeler();
     canLabler.canonLabel(ac);
-		centerCode = "";
 		this.atomContainer = ac;
-		maxSphere = noOfSpheres;
-		spheres = new List[noOfSpheres + 1];
-		for (int i = 0; i < ac.getAtomCount(); i++)
+		this.adjacency = AdjacencyList.getAdjacencyList(ac);
+		this.labels = getCanonicalLabels(adjacency);
+		return createHOSECode(root, noOfSpheres, ringsize ? getRingcode(root, ac) : "");
+	}
+
+	/**
+	 * Produces the HOSE codes of all atoms of the {@link IAtomContainer} <code>ac</code>, in
+	 * the order of the atoms. The codes are the ones {@link #getHOSECode(IAtomContainer, IAtom, int)}
+	 * gives, but the molecule is canonically labelled only once, instead of once
+	 * for each atom. The same IMPORTANT notes apply.
+	 *
+	 * @param  ac  The {@link IAtomContainer} for which to produce the HOSE codes
+	 * @param  noOfSpheres  The number of spheres to look at
+	 * @return The HOSE codes, indexed like the atoms
+	 * @exception  org.openscience.cdk.exception.CDKException  Thrown if something is wrong
+	 */
+	@TestMethod("testGetHOSECodes_IAtomContainer_int")
+	public String[] getHOSECodes(IAtomContainer ac, int noOfSpheres) throws CDKException
+	{
+		return getHOSECodes(ac, noOfSpheres, false);
+	}
+
+	/**
+	 * Produces the HOSE codes of all atoms of the {@link IAtomContainer} <code>ac</code>, in
+	 * the order of the atoms, like {@link #getHOSECode(IAtomContainer, IAtom, int, boolean)}.
+	 * The molecule is canonically labelled once and, if the ring sizes are
+	 * asked for, its SSSR is found once.
+	 *
+	 * <p>The search keeps its state in arrays made for the call, not in atom
+	 * flags or in this generator, so one generator can produce the codes of
+	 * different molecules in several threads at the same time. The
+	 * canonical labels are set as atom properties, as by <code>getHOSECode()</code>.
+	 *
+	 * @param  ac  The {@link IAtomContainer} for which to produce the HOSE codes
+	 * @param  noOfSpheres  The number of spheres to look at
+	 * @param  ringsize  The size of the ring(s) it is in is included in center atom code
+	 * @return The HOSE codes, indexed like the atoms
+	 * @exception  org.openscience.cdk.exception.CDKException  Thrown if something is wrong
+	 */
+	@TestMethod("testGetHOSECodes_IAtomContainer_int_boolean")
+	public String[] getHOSECodes(IAtomContainer ac, int noOfSpheres, boolean ringsize) throws CDKException
+	{
+		HOSECodeGenerator generator = new HOSECodeGenerator();
+		generator.sphereDelimiters = sphereDelimiters;
+		generator.bondSymbols = bondSymbols;
+		generator.ensureIsotopeFactory(ac.getBuilder());
+		new CanonicalLabeler().canonLabel(ac);
+		generator.atomContainer = ac;
+		generator.adjacency = AdjacencyList.getAdjacencyList(ac);
+		generator.labels = getCanonicalLabels(generator.adjacency);
+		IRingSet rings = ringsize ? new SSSRFinder(ac).findSSSR() : null;
+		String[] codes = new String[ac.getAtomCount()];
+		for (int i = 0; i < codes.length; i++)
 		{
-			ac.getAtom(i).setFlag(CDKConstants.VISITED, false);
+			IAtom root = ac.getAtom(i);
+			codes[i] = generator.createHOSECode(root, noOfSpheres, ringsize ? getRingcode(root, rings) : "");
 		}
-		root.setFlag(CDKConstants.VISITED, true);
-		rootNode = new TreeNode(root.getSymbol(), null, root, (double)0, atomContainer.getConnectedBondsCount(root), 0);
+		return codes;
+	}
+
+	/**
+	 *  Produces the HOSE code of an atom, once the adjacency list and labels
+	 *  of the atom container are set.
+	 */
+	private String createHOSECode(IAtom root, int noOfSpheres, String ringCode) throws CDKException
+	{
+		centerCode = "";
+		maxSphere = noOfSpheres;
+		spheres = new List[noOfSpheres + 1];
+		visited = new boolean[adjacency.getAtomCount()];
+		setVisited(root);
+		rootNode = new TreeNode(root.getSymbol(), null, root, (double)0, getDegree(root), 0);
 		/*
 		 *  All we need to observe is how the ranking of substituents
 		 *  in the subsequent spheres of the root nodes influences the
@@ -288,7 +364,7 @@ public class HOSECodeGenerator implements java.io.Serializable
 		 *  depends on the order the preceding node in its branch
 		 */
 		HOSECode = new StringBuffer();
-		createCenterCode(root, ac, ringsize);
+		createCenterCode(root, ringCode);
 		breadthFirstSearch(root,true);
 		createCode();
 		fillUpSphereDelimiters();
@@ -296,12 +372,45 @@ public class HOSECodeGenerator implements java.io.Serializable
 		return HOSECode.toString();
 	}
 
-	private void createCenterCode(IAtom root, IAtomContainer ac, boolean ringsize)
+	/**
+	 *  The canonical labels of the atoms, as set in the atom properties.
+	 */
+	private static long[] getCanonicalLabels(AdjacencyList adjacency)
+	{
+		long[] labels = new long[adjacency.getAtomCount()];
+		for (int i = 0; i < labels.length; i++)
+		{
+			// cast can be removed in master
+			Long label = (Long) adjacency.getAtom(i).getProperty(InvPair.CANONICAL_LABEL);
+			labels[i] = label == null ? Long.MIN_VALUE : label;
+		}
+		return labels;
+	}
+
+	private int getDegree(IAtom atom)
+	{
+		int index = adjacency.indexOf(atom);
+		return index < 0 ? 0 : adjacency.getDegree(index);
+	}
+
+	private boolean isVisited(IAtom atom)
+	{
+		int index = adjacency.indexOf(atom);
+		return index >= 0 && visited[index];
+	}
+
+	private void setVisited(IAtom atom)
+	{
+		int index = adjacency.indexOf(atom);
+		if (index >= 0) visited[index] = true;
+	}
+
+	private void createCenterCode(IAtom root, String ringCode)
 	{
 		int partnerCount = 0;
-		partnerCount = atomContainer.getConnectedBondsCount(root) +
+		partnerCount = getDegree(root) +
                 (root.getImplicitHydrogenCount() == CDKConstants.UNSET ? 0 : root.getImplicitHydrogenCount()); 
-		centerCode = root.getSymbol() + "-" + partnerCount + createChargeCode(root)+(ringsize ? getRingcode(root, ac) : "" )+";";
+		centerCode = root.getSymbol() + "-" + partnerCount + createChargeCode(root)+ringCode+";";
 	}
 	
 	
@@ -309,6 +418,10 @@ public class HOSECodeGenerator implements java.io.Serializable
 		if(ac!=acold){
 			soar=new SSSRFinder(ac).findSSSR();
 		}
+		return getRingcode(root, soar);
+	}
+
+	private static String getRingcode(IAtom root, IRingSet soar){
 		boolean[] bool=new boolean[1000];
 		StringBuffer sb=new StringBuffer();
 		for(int i=0;i<soar.getRings(root).getAtomContainerCount();i++){
@@ -361,27 +474,29 @@ public class HOSECodeGenerator implements java.io.Serializable
 	private void breadthFirstSearch(IAtom root,boolean addTreeNode) throws CDKException {
 		sphere = 0;
 		TreeNode tempNode = null;
-		List<IAtom> conAtoms = atomContainer.getConnectedAtomsList(root);
+		int rootIndex = adjacency.indexOf(root);
+		int[] conAtoms = rootIndex < 0 ? new int[0] : adjacency.getNeighbours(rootIndex);
+		int[] conBonds = rootIndex < 0 ? new int[0] : adjacency.getEdges(rootIndex);
 		IAtom atom;
 		IBond bond = null;
 		sphereNodes.clear();
 		sphereNodesWithAtoms.clear();
-		for (int i = 0; i < conAtoms.size(); i++){
+		for (int i = 0; i < conAtoms.length; i++){
 			try{
-				atom = conAtoms.get(i);
+				atom = adjacency.getAtom(conAtoms[i]);
 				if(atom.getSymbol().equals("H"))
 					continue;
-				bond = atomContainer.getBond(root, atom);
+				bond = adjacency.getBond(conBonds[i]);
 				/*
 				 *  In the first sphere the atoms are labeled with
 				 *  their own atom atom as source
 				 */
 				if (bond.getFlag(CDKConstants.ISAROMATIC))
 				{
-					tempNode = new TreeNode(atom.getSymbol(), new TreeNode(root.getSymbol(), null, root, (double) 0, 0, (long) 0), atom, 4, atomContainer.getConnectedBondsCount(atom), 0);
+					tempNode = new TreeNode(atom.getSymbol(), new TreeNode(root.getSymbol(), null, root, (double) 0, 0, (long) 0), atom, 4, adjacency.getDegree(conAtoms[i]), 0);
 				} else
 				{
-					tempNode = new TreeNode(atom.getSymbol(), new TreeNode(root.getSymbol(), null, root, (double) 0, 0, (long) 0), atom, bond.getOrder().numeric(), atomContainer.getConnectedBondsCount(atom), 0);
+					tempNode = new TreeNode(atom.getSymbol(), new TreeNode(root.getSymbol(), null, root, (double) 0, 0, (long) 0), atom, bond.getOrder().numeric(), adjacency.getDegree(conAtoms[i]), 0);
 				}
 				
 		        sphereNodes.add(tempNode);
@@ -389,7 +504,7 @@ public class HOSECodeGenerator implements java.io.Serializable
 		        	sphereNodesWithAtoms.add(atom);
 		        
 //		        rootNode.childs.addElement(tempNode);
-				atom.setFlag(CDKConstants.VISITED, true);
+				setVisited(atom);
 			} catch (Exception exc)
 			{
 				throw new CDKException("Error in HOSECodeGenerator->breadthFirstSearch.", exc);
@@ -418,7 +533,8 @@ public class HOSECodeGenerator implements java.io.Serializable
 		 */
         IAtom node = null;
         IAtom toNode = null;
-        List<IAtom> conAtoms = null;
+        int[] conAtoms = null;
+        int[] conBonds = null;
 		TreeNode treeNode = null;
 		nextSphereNodes = new ArrayList<TreeNode>();
 		IBond bond = null;
@@ -431,22 +547,24 @@ public class HOSECodeGenerator implements java.io.Serializable
 				if(node.getSymbol().equals("H"))
 					continue;
 				
-				conAtoms = atomContainer.getConnectedAtomsList(node);
-				if (conAtoms.size() == 1){
+				int nodeIndex = adjacency.indexOf(node);
+				conAtoms = nodeIndex < 0 ? new int[0] : adjacency.getNeighbours(nodeIndex);
+				conBonds = nodeIndex < 0 ? new int[0] : adjacency.getEdges(nodeIndex);
+				if (conAtoms.length == 1){
 					nextSphereNodes.add(new TreeNode(",", treeNode, null, 0, 0, treeNode.score));
 				}else{
-					for (int j = 0; j < conAtoms.size(); j++)
+					for (int j = 0; j < conAtoms.length; j++)
 					{
-						toNode = conAtoms.get(j);
+						toNode = adjacency.getAtom(conAtoms[j]);
 						if (toNode != treeNode.source.atom)
 						{
-							bond = atomContainer.getBond(node, toNode);
+							bond = adjacency.getBond(conBonds[j]);
 							if (bond.getFlag(CDKConstants.ISAROMATIC))
 							{
-								nextSphereNodes.add(new TreeNode(toNode.getSymbol(), treeNode, toNode, 4, atomContainer.getConnectedBondsCount(toNode), treeNode.score));
+								nextSphereNodes.add(new TreeNode(toNode.getSymbol(), treeNode, toNode, 4, adjacency.getDegree(conAtoms[j]), treeNode.score));
 							} else
 							{
-								nextSphereNodes.add(new TreeNode(toNode.getSymbol(), treeNode, toNode, bond.getOrder().numeric(), atomContainer.getConnectedBondsCount(toNode), treeNode.score));
+								nextSphereNodes.add(new TreeNode(toNode.getSymbol(), treeNode, toNode, bond.getOrder().numeric(), adjacency.getDegree(conAtoms[j]), treeNode.score));
 							}
 						}
 					}
@@ -481,10 +599,7 @@ public class HOSECodeGenerator implements java.io.Serializable
 	private void createCode() throws CDKException {
 		List<TreeNode> sphereNodes = null;
 		TreeNode tn = null;
-		for (int f = 0; f < atomContainer.getAtomCount(); f++)
-		{
-			atomContainer.getAtom(f).setFlag(CDKConstants.VISITED, false);
-		}
+		Arrays.fill(visited, false);
 
 		for (int f = 0; f < maxSphere; f++)
 		{
@@ -582,11 +697,11 @@ public class HOSECodeGenerator implements java.io.Serializable
 				{
 					throw new CDKException("Unknown bond type");
 				}
-				if (treeNode.atom != null && !treeNode.atom.getFlag(CDKConstants.VISITED))
+				if (treeNode.atom != null && !isVisited(treeNode.atom))
 				{
 					tempCode.append(getElementSymbol(treeNode.symbol));
 				}
-				else if (treeNode.atom != null && treeNode.atom.getFlag(CDKConstants.VISITED))
+				else if (treeNode.atom != null && isVisited(treeNode.atom))
 				{
 					tempCode.append("&");
 					treeNode.stopper = true;
@@ -594,7 +709,7 @@ public class HOSECodeGenerator implements java.io.Serializable
         code.append(tempCode+createChargeCode(treeNode.atom));
 				treeNode.hSymbol = tempCode.toString();
 			}
-			if (treeNode.atom != null) treeNode.atom.setFlag(CDKConstants.VISITED, true);
+			if (treeNode.atom != null) setVisited(treeNode.atom);
 			if (treeNode.source.stopper) treeNode.stopper = true;
 		}
 		code.append(sphereDelimiters[sphere - 1]);
@@ -686,26 +801,16 @@ public class HOSECodeGenerator implements java.io.Serializable
 	 */
 	private void sortNodesByScore(List<TreeNode> sphereNodes)
 	{
-		TreeNode obj;
-		boolean changed;
 		if (sphereNodes.size() == 0) return;
 		/*
-		 *  Now we sort by score
+		 *  Now we sort by score, highest first; the sort is stable, so nodes
+		 *  with the same score keep their order
 		 */
-		do
-		{
-			changed = false;
-			for (int i = 0; i < sphereNodes.size() - 1; i++)
-			{
-				if (((TreeNode) sphereNodes.get(i + 1)).stringscore.compareTo(((TreeNode) sphereNodes.get(i)).stringscore)>0)
-				{
-					obj = sphereNodes.get(i + 1);
-					sphereNodes.remove(i + 1);
-					sphereNodes.add(i, obj);
-					changed = true;
-				}
+		Collections.sort(sphereNodes, new Comparator<TreeNode>() {
+			public int compare(TreeNode a, TreeNode b) {
+				return b.stringscore.compareTo(a.stringscore);
 			}
-		} while (changed);
+		});
 		/* Having sorted a sphere, we label the nodes with their sort order */
 		TreeNode temp = null;
 		for (int i = 0; i < sphereNodes.size(); i++)
@@ -753,11 +858,10 @@ public class HOSECodeGenerator implements java.io.Serializable
         IAtom atom = node.getAtom();
         if(atom == null)
             return Long.MIN_VALUE;
-        // cast can be removed in master
-        Long label = (Long) atom.getProperty(InvPair.CANONICAL_LABEL);
-        if(label == null)
+        int index = adjacency.indexOf(atom);
+        if(index < 0)
             return Long.MIN_VALUE;
-        return label;
+        return labels[index];
     }
 
   }
@@ -0,0 +1,316 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.openscience.cdk.annotations.TestClass;
+import org.openscience.cdk.annotations.TestMethod;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * Predicts chemical shifts from an index of HOSE codes {@cdk.cite BRE78}
+ * with observed shifts, like the {@link BremserOneSphereHOSECodePredictor}
+ * but for codes of any number of spheres and with the data read from a file.
+ *
+ * <p>The file has one observation per line: a HOSE code as made by the
+ * {@link HOSECodeGenerator}, a tab and the shift. Empty lines and lines
+ * starting with <code>#</code> are skipped. A code of <i>n</i> spheres is
+ * indexed with its truncations to 1 to <i>n</i> spheres, each with the
+ * count, mean, standard deviation and range of the shifts seen for it.
+ * The index is kept as a sorted array of codes, searched by bisection.
+ *
+ * <p>A code is predicted from the longest truncation found in the index,
+ * so an atom gets the statistics of the atoms which share the most
+ * spheres with it:
+ * <pre>
+ *   HOSECodeShiftPredictor predictor = new HOSECodeShiftPredictor(new File("shifts.txt"));
+ *   HOSECodeShiftPredictor.Prediction[] predictions = predictor.predict(molecule);
+ * </pre>
+ * The codes of the molecule are made with as many spheres as the longest
+ * code in the file, so the file should be made with the same generator
+ * settings; the truncated codes are only compared with each other.
+ *
+ * @cdk.module  extra
+ * @cdk.githash
+ * @cdk.keyword HOSE code
+ * @cdk.keyword NMR
+ * @see         HOSECodeGenerator#getHOSECodes(IAtomContainer, int)
+ */
+@TestClass("org.openscience.cdk.tools.HOSECodeShiftPredictorTest")
+public class HOSECodeShiftPredictor {
+
+    /** The sphere delimiters of the {@link HOSECodeGenerator}. */
+    private static final String SPHERE_DELIMITERS = "(//)////////";
+
+    private final String[] codes;
+    private final byte[] spheres;
+    private final int[] counts;
+    private final double[] means;
+    private final double[] deviations;
+    private final double[] minima;
+    private final double[] maxima;
+    private final int maxSphere;
+
+    /**
+     * Reads the index from a file.
+     *
+     * @param  file        the file with HOSE codes and shifts
+     * @throws IOException if the file cannot be read or has a malformed line
+     */
+    @TestMethod("testHOSECodeShiftPredictor_File")
+    public HOSECodeShiftPredictor(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Reads the index from a stream, which is closed afterwards.
+     *
+     * @param  in          the HOSE codes and shifts
+     * @throws IOException if the stream cannot be read or has a malformed line
+     */
+    @TestMethod("testHOSECodeShiftPredictor_InputStream")
+    public HOSECodeShiftPredictor(InputStream in) throws IOException {
+        Map<String, double[]> sums = new HashMap<String, double[]>();
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        int max = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            int lineNumber = 0;
+            Set<String> truncations = new HashSet<String>();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.trim().length() == 0 || line.startsWith("#")) continue;
+                int tab = line.lastIndexOf('\t');
+                double shift;
+                try {
+                    if (tab <= 0) throw new NumberFormatException("no tab");
+                    shift = Double.parseDouble(line.substring(tab + 1).trim());
+                } catch (NumberFormatException exception) {
+                    throw new IOException("No HOSE code and shift on line " + lineNumber + ": " + line);
+                }
+                String code = line.substring(0, tab).trim();
+                int sphereCount = getSphereCount(code);
+                max = Math.max(max, sphereCount);
+                // a code with empty outer spheres truncates to itself
+                truncations.clear();
+                for (int sphere = 1; sphere <= sphereCount; sphere++) {
+                    String truncated = truncate(code, sphere);
+                    if (!truncations.add(truncated)) continue;
+                    double[] sum = sums.get(truncated);
+                    if (sum == null) {
+                        sum = new double[]{0, 0, 0, Double.MAX_VALUE, -Double.MAX_VALUE};
+                        sums.put(truncated, sum);
+                        levels.put(truncated, sphere);
+                    }
+                    sum[0]++;
+                    sum[1] += shift;
+                    sum[2] += shift * shift;
+                    sum[3] = Math.min(sum[3], shift);
+                    sum[4] = Math.max(sum[4], shift);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        codes = sums.keySet().toArray(new String[sums.size()]);
+        Arrays.sort(codes);
+        spheres = new byte[codes.length];
+        counts = new int[codes.length];
+        means = new double[codes.length];
+        deviations = new double[codes.length];
+        minima = new double[codes.length];
+        maxima = new double[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            double[] sum = sums.get(codes[i]);
+            spheres[i] = (byte) levels.get(codes[i]).intValue();
+            counts[i] = (int) sum[0];
+            means[i] = sum[1] / sum[0];
+            deviations[i] = Math.sqrt(Math.max(0, sum[2] / sum[0] - means[i] * means[i]));
+            minima[i] = sum[3];
+            maxima[i] = sum[4];
+        }
+        maxSphere = max;
+    }
+
+    /**
+     * Returns the number of codes in the index, counting the truncations.
+     *
+     * @return the number of indexed codes
+     */
+    @TestMethod("testHOSECodeShiftPredictor_InputStream")
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Returns the number of spheres of the longest code in the index.
+     *
+     * @return the maximum number of spheres
+     */
+    @TestMethod("testGetMaximumSphereCount")
+    public int getMaximumSphereCount() {
+        return maxSphere;
+    }
+
+    /**
+     * Predicts the shift for a HOSE code from the longest truncation of the
+     * code that is in the index.
+     *
+     * @param  hoseCode the HOSE code, as made by the {@link HOSECodeGenerator}
+     * @return          the prediction, or null if not even the first sphere is known
+     */
+    @TestMethod("testPredict_String")
+    public Prediction predict(String hoseCode) {
+        if (hoseCode == null) return null;
+        for (int sphere = Math.min(getSphereCount(hoseCode), maxSphere); sphere > 0; sphere--) {
+            int index = Arrays.binarySearch(codes, truncate(hoseCode, sphere));
+            if (index >= 0) return new Prediction(index);
+        }
+        return null;
+    }
+
+    /**
+     * Predicts the shifts of all atoms of a molecule. The HOSE codes are
+     * made with {@link HOSECodeGenerator#getHOSECodes(IAtomContainer, int)},
+     * with as many spheres as the longest code in the index. The same
+     * requirements on the molecule apply: it must have its hydrogens and,
+     * for aromatic codes, its aromaticity perceived.
+     *
+     * @param  molecule     the molecule
+     * @return              the predictions, indexed like the atoms, null for atoms
+     *                      without a prediction
+     * @throws CDKException if the HOSE codes cannot be made
+     */
+    @TestMethod("testPredict_IAtomContainer")
+    public Prediction[] predict(IAtomContainer molecule) throws CDKException {
+        Prediction[] predictions = new Prediction[molecule.getAtomCount()];
+        if (maxSphere == 0) return predictions;
+        String[] hoseCodes = new HOSECodeGenerator().getHOSECodes(molecule, maxSphere);
+        for (int i = 0; i < hoseCodes.length; i++) predictions[i] = predict(hoseCodes[i]);
+        return predictions;
+    }
+
+    /**
+     * Returns the number of spheres of a HOSE code, that is the number of
+     * sphere delimiters after the center atom. Codes of less than four
+     * spheres have four delimiters, and are counted as four spheres.
+     *
+     * @param  hoseCode the HOSE code
+     * @return          the number of spheres
+     */
+    @TestMethod("testGetSphereCount_String")
+    public static int getSphereCount(String hoseCode) {
+        int count = 0;
+        for (int i = hoseCode.indexOf(';') + 1; i < hoseCode.length(); i++) {
+            if (SPHERE_DELIMITERS.indexOf(hoseCode.charAt(i)) >= 0) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Truncates a HOSE code to the given number of spheres. The truncated
+     * code has the delimiters of a code made with that number of spheres.
+     *
+     * @param  hoseCode the HOSE code
+     * @param  spheres  the number of spheres to keep
+     * @return          the truncated code, or the code if it has no more spheres
+     */
+    @TestMethod("testTruncate_String_int")
+    public static String truncate(String hoseCode, int spheres) {
+        int sphere = 0;
+        for (int i = hoseCode.indexOf(';') + 1; i < hoseCode.length(); i++) {
+            if (SPHERE_DELIMITERS.indexOf(hoseCode.charAt(i)) >= 0 && ++sphere == spheres) {
+                StringBuilder truncated = new StringBuilder(hoseCode.substring(0, i + 1));
+                for (int f = spheres; f < 4; f++) truncated.append(SPHERE_DELIMITERS.charAt(f));
+                return truncated.toString();
+            }
+        }
+        return hoseCode;
+    }
+
+    /**
+     * The shift statistics of the code that matched a prediction.
+     */
+    public final class Prediction {
+
+        private final int index;
+
+        private Prediction(int index) {
+            this.index = index;
+        }
+
+        /** @return the matched code, the longest truncation in the index */
+        public String getHOSECode() {
+            return codes[index];
+        }
+
+        /** @return the number of spheres of the matched code */
+        public int getSphereCount() {
+            return spheres[index];
+        }
+
+        /** @return the predicted shift, the mean shift of the matched code */
+        public double getShift() {
+            return means[index];
+        }
+
+        /** @return the standard deviation of the shifts of the matched code */
+        public double getStandardDeviation() {
+            return deviations[index];
+        }
+
+        /** @return the lowest shift of the matched code */
+        public double getMinimumShift() {
+            return minima[index];
+        }
+
+        /** @return the highest shift of the matched code */
+        public double getMaximumShift() {
+            return maxima[index];
+        }
+
+        /** @return the number of shifts of the matched code */
+        public int getCount() {
+            return counts[index];
+        }
+
+        public String toString() {
+            return "delta: " + getShift() + " for code " + getHOSECode() + " with standard deviation "
+                   + getStandardDeviation() + " in shift range " + getMinimumShift() + "-" + getMaximumShift()
+                   + " from " + getCount() + " shifts";
+        }
+    }
+}
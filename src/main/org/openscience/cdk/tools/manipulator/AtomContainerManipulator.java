@@ -777,11 +777,10 @@ public class AtomContainerManipulator {
     @TestMethod("testPerceiveAtomTypesAndConfigureAtoms")
     public static void percieveAtomTypesAndConfigureAtoms(IAtomContainer container) throws CDKException {
 		CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(container.getBuilder());
-        for (IAtom atom : container.atoms()) {
-            if (!(atom instanceof IPseudoAtom)) {
-                IAtomType matched = matcher.findMatchingAtomType(container, atom);
-                if (matched != null) AtomTypeManipulator.configure(atom, matched);
-            }
+        IAtomType[] types = matcher.findMatchingAtomType(container);
+        for (int i = 0; i < types.length; i++) {
+            IAtom atom = container.getAtom(i);
+            if (!(atom instanceof IPseudoAtom) && types[i] != null) AtomTypeManipulator.configure(atom, types[i]);
         }
 	}
 
@@ -799,9 +798,9 @@ public class AtomContainerManipulator {
       @TestMethod("testPerceiveAtomTypesAndConfigureAtoms")
       public static void percieveAtomTypesAndConfigureUnsetProperties(IAtomContainer container) throws CDKException {
       CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(container.getBuilder());
-          for (IAtom atom : container.atoms()) {
-              IAtomType matched = matcher.findMatchingAtomType(container, atom);
-              if (matched != null) AtomTypeManipulator.configureUnsetProperties(atom, matched);
+          IAtomType[] types = matcher.findMatchingAtomType(container);
+          for (int i = 0; i < types.length; i++) {
+              if (types[i] != null) AtomTypeManipulator.configureUnsetProperties(container.getAtom(i), types[i]);
           }
     }
 
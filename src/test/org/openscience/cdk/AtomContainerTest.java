@@ -23,6 +23,7 @@ package org.openscience.cdk;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.openscience.cdk.graph.AdjacencyList;
 import org.openscience.cdk.interfaces.AbstractAtomContainerTest;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
@@ -96,4 +97,71 @@ public class AtomContainerTest extends AbstractAtomContainerTest {
         Assert.assertEquals(4, container.getAtomCount());
         Assert.assertEquals(3, container.getBondCount());
     }
+
+    @Test public void testGetAdjacencyList() {
+        AtomContainer container = (AtomContainer)newChemObject();
+        IAtom c1 = container.getBuilder().newInstance(IAtom.class,"C");
+        IAtom c2 = container.getBuilder().newInstance(IAtom.class,"C");
+        IAtom o = container.getBuilder().newInstance(IAtom.class,"O");
+        container.addAtom(c1);
+        container.addAtom(c2);
+        container.addAtom(o);
+        container.addBond(container.getBuilder().newInstance(IBond.class,c1, c2, IBond.Order.SINGLE));
+
+        AdjacencyList adjacency = container.getAdjacencyList();
+        Assert.assertSame(adjacency, container.getAdjacencyList());
+        Assert.assertEquals(1, adjacency.getDegree(1));
+        Assert.assertEquals(1, container.getConnectedAtomsCount(c2));
+
+        // adding a bond replaces the adjacency list
+        IBond b2 = container.getBuilder().newInstance(IBond.class,c2, o, IBond.Order.DOUBLE);
+        container.addBond(b2);
+        Assert.assertNotSame(adjacency, container.getAdjacencyList());
+        Assert.assertEquals(2, container.getAdjacencyList().getDegree(1));
+        Assert.assertEquals(2, container.getConnectedAtomsList(c2).size());
+        Assert.assertSame(b2, container.getBond(o, c2));
+
+        // and so does removing an atom
+        container.removeAtomAndConnectedElectronContainers(c1);
+        Assert.assertEquals(2, container.getAdjacencyList().getAtomCount());
+        Assert.assertEquals(1, container.getConnectedBondsList(c2).size());
+        Assert.assertEquals(1, container.getAtomNumber(o));
+    }
+
+    /**
+     * The adjacency list does not survive a bond edit in place, as done by
+     * AtomContainerManipulator.replaceAtomByAtom.
+     */
+    @Test public void testGetAdjacencyList_SetAtom() {
+        AtomContainer container = (AtomContainer)newChemObject();
+        IAtom a = container.getBuilder().newInstance(IAtom.class,"C");
+        IAtom b = container.getBuilder().newInstance(IAtom.class,"C");
+        IAtom z = container.getBuilder().newInstance(IAtom.class,"O");
+        container.addAtom(a);
+        container.addAtom(b);
+        container.addAtom(z);
+        IBond bond = container.getBuilder().newInstance(IBond.class,a, b, IBond.Order.SINGLE);
+        container.addBond(bond);
+        Assert.assertEquals(0, container.getAdjacencyList().getDegree(2));
+        Assert.assertEquals(0, container.getConnectedAtomsList(z).size());
+
+        bond.setAtom(z, 1);
+        Assert.assertEquals(1, container.getAdjacencyList().getDegree(2));
+        Assert.assertEquals(1, container.getConnectedAtomsList(z).size());
+        Assert.assertEquals(1, container.getConnectedBondsCount(z));
+        Assert.assertEquals(0, container.getConnectedAtomsCount(b));
+        Assert.assertSame(bond, container.getBond(a, z));
+        Assert.assertNull(container.getBond(a, b));
+
+        // a bond that does not notify the container keeps the neighbour
+        // queries from using the adjacency list
+        bond.setNotification(false);
+        container.removeBond(bond);
+        container.addBond(bond);
+        Assert.assertEquals(1, container.getAdjacencyList().getDegree(2));
+        bond.setAtom(b, 1);
+        Assert.assertEquals(0, container.getConnectedAtomsList(z).size());
+        Assert.assertSame(bond, container.getBond(a, b));
+        Assert.assertEquals(1, container.getAdjacencyList().getDegree(1));
+    }
 }
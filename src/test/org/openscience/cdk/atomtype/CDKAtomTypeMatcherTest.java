@@ -106,6 +106,137 @@ public class CDKAtomTypeMatcherTest extends AbstractCDKAtomTypeTest {
         }
     }
 
+    /**
+     * Typing the whole container at once must give the same types as typing
+     * atom by atom, also for ring atoms and radicals.
+     */
+    @Test public void testFindMatchingAtomType_IAtomContainer_SameAsPerAtom() throws Exception {
+        IAtomContainer radical = new AtomContainer();
+        radical.addAtom(new Atom("C"));
+        radical.addAtom(new Atom("O"));
+        radical.addBond(0, 1, IBond.Order.SINGLE);
+        radical.addSingleElectron(0);
+        IAtomContainer furanolate = MoleculeFactory.makePyrrole();
+        furanolate.getAtom(0).setSymbol("O");
+        furanolate.getAtom(2).setFormalCharge(-1);
+
+        CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer[] molecules = {
+            MoleculeFactory.makeIndole(), MoleculeFactory.makeAzulene(), MoleculeFactory.makeAlphaPinene(),
+            MoleculeFactory.makeThiazole(), radical, furanolate
+        };
+        for (IAtomContainer mol : molecules) {
+            IAtomType[] types = matcher.findMatchingAtomType(mol);
+            Assert.assertEquals(mol.getAtomCount(), types.length);
+            for (int i = 0; i < types.length; i++) {
+                IAtomType type = matcher.findMatchingAtomType(mol, mol.getAtom(i));
+                Assert.assertEquals(type == null ? null : type.getAtomTypeName(),
+                                    types[i] == null ? null : types[i].getAtomTypeName());
+            }
+        }
+        Assert.assertEquals("C.radical.planar", matcher.findMatchingAtomType(radical)[0].getAtomTypeName());
+    }
+
+    @Test public void testSetCacheSize_int() throws Exception {
+        CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(SilentChemObjectBuilder.getInstance());
+        Assert.assertEquals(0, matcher.getCacheSize());
+        try {
+            matcher.setCacheSize(100);
+            Assert.assertEquals(100, matcher.getCacheSize());
+        } finally {
+            matcher.setCacheSize(0);
+        }
+        Assert.assertEquals(0, matcher.getCacheSize());
+    }
+
+    /**
+     * The cached types must be those perceived without cache, also for atoms
+     * which only differ in their ring membership or second sphere.
+     */
+    @Test public void testGetCacheHits() throws Exception {
+        IAtomContainer amide = MoleculeFactory.makeAlkane(3);
+        amide.getAtom(0).setSymbol("N");
+        amide.addAtom(new Atom("O"));
+        amide.addBond(1, 3, IBond.Order.DOUBLE);
+        IAtomContainer amine = MoleculeFactory.makeAlkane(3);
+        amine.getAtom(0).setSymbol("N");
+        IAtomContainer[] molecules = {
+            MoleculeFactory.makeIndole(), MoleculeFactory.makePyrrole(), MoleculeFactory.makeAzulene(),
+            MoleculeFactory.makeAlphaPinene(), MoleculeFactory.makeThiazole(), MoleculeFactory.makeBenzene(),
+            MoleculeFactory.makeCyclohexane(), MoleculeFactory.makeAlkane(6), amide, amine
+        };
+        CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(SilentChemObjectBuilder.getInstance());
+        IAtomType[][] expected = new IAtomType[molecules.length][];
+        for (int i = 0; i < molecules.length; i++) expected[i] = matcher.findMatchingAtomType(molecules[i]);
+        try {
+            matcher.setCacheSize(1000);
+            matcher.clearCache();
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < molecules.length; i++) {
+                    Assert.assertArrayEquals(expected[i], matcher.findMatchingAtomType(molecules[i]));
+                    for (int j = 0; j < expected[i].length; j++)
+                        Assert.assertSame(expected[i][j], matcher.findMatchingAtomType(molecules[i], molecules[i].getAtom(j)));
+                }
+            }
+            Assert.assertTrue(matcher.getCacheHits() > matcher.getCacheMisses());
+            Assert.assertNotSame(expected[8][0], expected[9][0]);
+        } finally {
+            matcher.setCacheSize(0);
+        }
+    }
+
+    /**
+     * Atoms typed from the cache must get the ring flag the ring perception
+     * sets on a cache miss.
+     */
+    @Test public void testGetCacheHits_RingFlag() throws Exception {
+        CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(SilentChemObjectBuilder.getInstance());
+        try {
+            matcher.setCacheSize(100);
+            matcher.clearCache();
+            matcher.findMatchingAtomType(MoleculeFactory.makeCyclohexane());
+            IAtomContainer cyclohexane = MoleculeFactory.makeCyclohexane();
+            IAtomContainer hexane = MoleculeFactory.makeAlkane(6);
+            matcher.findMatchingAtomType(cyclohexane);
+            Assert.assertEquals(1, matcher.getCacheMisses());
+            for (IAtom atom : cyclohexane.atoms())
+                Assert.assertTrue(atom.getFlag(CDKConstants.ISINRING));
+            matcher.findMatchingAtomType(hexane);
+            for (IAtom atom : hexane.atoms())
+                Assert.assertFalse(atom.getFlag(CDKConstants.ISINRING));
+        } finally {
+            matcher.setCacheSize(0);
+        }
+    }
+
+    @Test public void testClearCache() throws Exception {
+        CDKAtomTypeMatcher matcher = CDKAtomTypeMatcher.getInstance(SilentChemObjectBuilder.getInstance());
+        IAtomContainer ethanol = MoleculeFactory.makeAlkane(2);
+        ethanol.addAtom(new Atom("O"));
+        ethanol.addBond(1, 2, IBond.Order.SINGLE);
+        try {
+            matcher.setCacheSize(1);
+            matcher.clearCache();
+            // three different environments, so only one fits
+            matcher.findMatchingAtomType(ethanol);
+            matcher.findMatchingAtomType(ethanol);
+            Assert.assertEquals(0, matcher.getCacheHits());
+            Assert.assertEquals(6, matcher.getCacheMisses());
+            matcher.setCacheSize(3);
+            matcher.clearCache();
+            matcher.findMatchingAtomType(ethanol);
+            matcher.findMatchingAtomType(ethanol);
+            Assert.assertEquals(3, matcher.getCacheHits());
+            matcher.clearCache();
+            Assert.assertEquals(0, matcher.getCacheHits());
+            Assert.assertEquals(0, matcher.getCacheMisses());
+            matcher.findMatchingAtomType(ethanol);
+            Assert.assertEquals(3, matcher.getCacheMisses());
+        } finally {
+            matcher.setCacheSize(0);
+        }
+    }
+
     @Test public void testDummy() throws Exception {
         IAtomContainer mol = new AtomContainer();
         IAtom atom = new PseudoAtom("R");
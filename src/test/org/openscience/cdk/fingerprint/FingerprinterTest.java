@@ -128,6 +128,18 @@ public class FingerprinterTest extends AbstractFixedLengthFingerprinterTest {
 		Assert.assertTrue(FingerprinterTool.isSubset(bs, bs1));
 	}
 
+	@Test public void testFingerprinter_int_int_boolean() throws java.lang.Exception
+	{
+		Fingerprinter fingerprinter = new Fingerprinter(1024,7,true);
+		Assert.assertNotNull(fingerprinter);
+
+		IAtomContainer mol = MoleculeFactory.makeIndole();
+		BitSet bs = fingerprinter.getBitFingerprint(mol).asBitSet();
+		IAtomContainer frag1 = MoleculeFactory.makePyrrole();
+		BitSet bs1 = fingerprinter.getBitFingerprint(frag1).asBitSet();
+		Assert.assertTrue(FingerprinterTool.isSubset(bs, bs1));
+	}
+
   @Test public void testFingerprinterBitSetSize() throws Exception {
     Fingerprinter fingerprinter = new Fingerprinter(1024,7);
     Assert.assertNotNull(fingerprinter);
@@ -0,0 +1,196 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.fingerprint;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.PseudoAtom;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.graph.AtomContainerAtomPermutor;
+import org.openscience.cdk.graph.PathTools;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IPseudoAtom;
+import org.openscience.cdk.templates.MoleculeFactory;
+import org.openscience.cdk.tools.periodictable.PeriodicTable;
+
+/**
+ * @cdk.module test-standard
+ */
+public class PathHasherTest extends CDKTestCase {
+
+    private static IAtomContainer[] molecules() {
+        IAtomContainer chloroPyridine = MoleculeFactory.makePyridine();
+        chloroPyridine.addAtom(new Atom("Cl"));
+        chloroPyridine.addBond(2, 6, IBond.Order.SINGLE);
+        IAtomContainer pseudo = MoleculeFactory.makeAlkane(4);
+        pseudo.addAtom(new PseudoAtom("R"));
+        pseudo.addBond(3, 4, IBond.Order.SINGLE);
+        return new IAtomContainer[]{
+            MoleculeFactory.makeIndole(),
+            MoleculeFactory.makeSteran(),
+            MoleculeFactory.makeDiamantane(),
+            MoleculeFactory.makeSpiroRings(),
+            MoleculeFactory.makeAdenine(),
+            chloroPyridine,
+            pseudo
+        };
+    }
+
+    @Test
+    public void testHashes() throws CDKException {
+        Fingerprinter fingerprinter = new Fingerprinter();
+        for (IAtomContainer molecule : molecules()) {
+            for (int depth = 0; depth <= 8; depth++) {
+                Assert.assertEquals(stringHashes(fingerprinter, molecule, depth),
+                                    toSet(fingerprinter.findPathes(molecule, depth)));
+            }
+        }
+    }
+
+    @Test
+    public void testFastHashes() throws CDKException {
+        Fingerprinter fingerprinter = new Fingerprinter();
+        IAtomContainer molecule = MoleculeFactory.makeIndole();
+        Set<Integer> expected = toSet(fastHashes(fingerprinter, molecule));
+        // the number of paths up to depth 8 in indole, ignoring direction
+        Assert.assertEquals(stringHashes(fingerprinter, molecule, 8).size(), expected.size());
+
+        AtomContainerAtomPermutor permutor = new AtomContainerAtomPermutor(molecule);
+        for (int i = 0; i < 20 && permutor.hasNext(); i++) {
+            Assert.assertEquals(expected, toSet(fastHashes(fingerprinter, permutor.next())));
+        }
+    }
+
+    @Test
+    public void testRandomPosition() {
+        Random seeds = new Random(42);
+        int[] sizes = {1, 2, 3, 100, 166, 512, 1000, 1024, 881, Integer.MAX_VALUE};
+        for (int i = 0; i < 10000; i++) {
+            int seed = seeds.nextInt();
+            for (int size : sizes) {
+                Assert.assertEquals(new Random(seed).nextInt(size),
+                                    PathHasher.randomPosition(seed, size));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRandomPosition_InvalidSize() {
+        PathHasher.randomPosition(1, 0);
+    }
+
+    @Test
+    public void testMixedPosition() {
+        int[] counts = new int[64];
+        for (int hash = -5000; hash < 5000; hash++) {
+            int position = PathHasher.mixedPosition(hash, counts.length);
+            Assert.assertTrue(position >= 0 && position < counts.length);
+            counts[position]++;
+        }
+        // consecutive hashes should be spread over all positions
+        for (int count : counts) Assert.assertTrue(count > 0);
+    }
+
+    private static int[] fastHashes(Fingerprinter fingerprinter, IAtomContainer molecule) {
+        String[] labels = new String[molecule.getAtomCount()];
+        for (int i = 0; i < labels.length; i++) labels[i] = molecule.getAtom(i).getSymbol();
+        String[] bondLabels = new String[molecule.getBondCount()];
+        for (int j = 0; j < bondLabels.length; j++) {
+            bondLabels[j] = fingerprinter.getBondSymbol(molecule.getBond(j));
+        }
+        return new PathHasher(molecule, labels, labels, bondLabels, 8, true).fastHashes();
+    }
+
+    private static Set<Integer> toSet(int[] values) {
+        Set<Integer> set = new HashSet<Integer>();
+        for (int value : values) set.add(value);
+        return set;
+    }
+
+    private static final Map<String, String> queryReplace = new HashMap<String, String>();
+    static {
+        queryReplace.put("Cl", "X");    queryReplace.put("Br", "Z");
+        queryReplace.put("Si", "Y");    queryReplace.put("As", "D");
+        queryReplace.put("Li", "L");    queryReplace.put("Se", "E");
+        queryReplace.put("Na", "G");    queryReplace.put("Ca", "J");
+        queryReplace.put("Al", "A");
+    }
+
+    private static String convertSymbol(String symbol) {
+        String returnSymbol = queryReplace.get(symbol);
+        return returnSymbol == null ? symbol : returnSymbol;
+    }
+
+    /**
+     * The path string hashing as it was done by the Fingerprinter before the
+     * introduction of the {@link PathHasher}.
+     */
+    private static Set<Integer> stringHashes(Fingerprinter fingerprinter, IAtomContainer container,
+                                             int searchDepth) {
+        List<StringBuffer> allPaths = new ArrayList<StringBuffer>();
+        for (IAtom startAtom : container.atoms()) {
+            for (List<IAtom> path : PathTools.getPathsOfLengthUpto(container, startAtom, searchDepth)) {
+                StringBuffer sb = new StringBuffer();
+                IAtom x = path.get(0);
+                if (x instanceof IPseudoAtom)
+                    sb.append((char) PeriodicTable.getElementCount() + 1);
+                else {
+                    Integer atnum = PeriodicTable.getAtomicNumber(x.getSymbol());
+                    if (atnum != null) sb.append(convertSymbol(x.getSymbol()));
+                    else sb.append((char) PeriodicTable.getElementCount() + 1);
+                }
+                for (int i = 1; i < path.size(); i++) {
+                    IAtom y = path.get(i);
+                    sb.append(fingerprinter.getBondSymbol(container.getBond(x, y)));
+                    sb.append(convertSymbol(y.getSymbol()));
+                    x = y;
+                }
+                StringBuffer revForm = new StringBuffer(sb);
+                revForm.reverse();
+                if (sb.toString().compareTo(revForm.toString()) <= 0)
+                    allPaths.add(sb);
+                else allPaths.add(revForm);
+            }
+        }
+        Set<String> cleanPath = new HashSet<String>();
+        for (StringBuffer s : allPaths) {
+            String s1 = s.toString().trim();
+            if (s1.equals("")) continue;
+            if (cleanPath.contains(s1)) continue;
+            String s2 = s.reverse().toString().trim();
+            if (cleanPath.contains(s2)) continue;
+            cleanPath.add(s2);
+        }
+        Set<Integer> hashes = new HashSet<Integer>();
+        for (String s : cleanPath) hashes.add(s.hashCode());
+        return hashes;
+    }
+}
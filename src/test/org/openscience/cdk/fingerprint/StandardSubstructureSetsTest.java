@@ -30,6 +30,7 @@ package org.openscience.cdk.fingerprint;
 import org.junit.Assert;
 import org.junit.Test;
 import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.smiles.smarts.SMARTSPatternSet;
 
 /**
  * @cdk.module test-fingerprint
@@ -42,6 +43,13 @@ public class StandardSubstructureSetsTest extends CDKTestCase {
 		Assert.assertNotNull(smarts);
 		Assert.assertEquals(307, smarts.length);
     }
+
+	@Test public void testGetFunctionalGroupPatterns() throws Exception {
+		SMARTSPatternSet patterns = StandardSubstructureSets.getFunctionalGroupPatterns();
+		Assert.assertNotNull(patterns);
+		Assert.assertEquals(307, patterns.size());
+		Assert.assertSame(patterns, StandardSubstructureSets.getFunctionalGroupPatterns());
+    }
 	
 }
 
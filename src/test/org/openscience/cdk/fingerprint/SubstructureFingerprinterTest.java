@@ -28,6 +28,7 @@ import org.junit.Test;
 import org.openscience.cdk.DefaultChemObjectBuilder;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.smiles.smarts.SMARTSPatternSet;
 
 import java.util.BitSet;
 
@@ -68,6 +69,20 @@ public class SubstructureFingerprinterTest extends AbstractFixedLengthFingerprin
         Assert.assertFalse(fp.get(2));
     }
 
+    @Test public void testSubstructureFingerprinter_SMARTSPatternSet() throws Exception {
+        String[] smarts = {"c1ccccc1", "[CX4H3][#6]", "[CX2]#[CX2]"};
+        SMARTSPatternSet patterns = new SMARTSPatternSet(smarts);
+        SubstructureFingerprinter printer = new SubstructureFingerprinter(patterns);
+        Assert.assertEquals(3, printer.getSize());
+        Assert.assertEquals(smarts[2], printer.getSubstructure(2));
+
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IBitFingerprint fp = printer.getBitFingerprint(sp.parseSmiles("c1ccccc1CCC"));
+        Assert.assertTrue(fp.get(0));
+        Assert.assertTrue(fp.get(1));
+        Assert.assertFalse(fp.get(2));
+    }
+
     @Test
     public void testFingerprint() throws Exception {
         IFingerprinter printer = new SubstructureFingerprinter();
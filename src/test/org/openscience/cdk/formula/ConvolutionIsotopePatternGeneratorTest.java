@@ -0,0 +1,171 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.formula;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * @cdk.module test-formula
+ */
+public class ConvolutionIsotopePatternGeneratorTest extends CDKTestCase {
+
+    private final static IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+
+    private static IMolecularFormula formula(String formula) {
+        return MolecularFormulaManipulator.getMajorIsotopeMolecularFormula(formula, builder);
+    }
+
+    private static void assertSamePattern(IsotopePattern expected, IsotopePattern actual) {
+        Assert.assertEquals(expected.getNumberOfIsotopes(), actual.getNumberOfIsotopes());
+        for (int i = 0; i < expected.getNumberOfIsotopes(); i++) {
+            Assert.assertEquals(expected.getIsotope(i).getMass(), actual.getIsotope(i).getMass(), 0.0001);
+            Assert.assertEquals(expected.getIsotope(i).getIntensity(), actual.getIsotope(i).getIntensity(), 0.0001);
+        }
+        Assert.assertEquals(expected.getMonoIsotope().getMass(), actual.getMonoIsotope().getMass(), 0.0001);
+    }
+
+    @Test public void testConvolutionIsotopePatternGenerator() {
+        Assert.assertEquals(2, new ConvolutionIsotopePatternGenerator()
+                                   .getIsotopes(formula("C41H79N8O3P1")).getNumberOfIsotopes());
+    }
+
+    @Test public void testConvolutionIsotopePatternGenerator_double() {
+        Assert.assertEquals(6, new ConvolutionIsotopePatternGenerator(0.01)
+                                   .getIsotopes(formula("C41H79N8O3P")).getNumberOfIsotopes());
+    }
+
+    @Test public void testGetIsotopes_IMolecularFormula() {
+        // RESULTS ACCORDING PAGE: http://www2.sisweb.com/mstools/isotope.htm
+        double[] massResults = {133.097720, 134.094750, 134.101079, 134.103990, 135.101959, 135.104430};
+        double[] abundResults = {1.00, .006, .054, 0.002, 0.004, 0.001};
+
+        IMolecularFormula molFor = new MolecularFormula();
+        molFor.addIsotope(builder.newInstance(IIsotope.class, "C"), 5);
+        molFor.addIsotope(builder.newInstance(IIsotope.class, "H"), 13);
+        molFor.addIsotope(builder.newInstance(IIsotope.class, "N"), 2);
+        molFor.addIsotope(builder.newInstance(IIsotope.class, "O"), 2);
+
+        IsotopePattern pattern = new ConvolutionIsotopePatternGenerator(0.001).getIsotopes(molFor);
+        Assert.assertEquals(6, pattern.getNumberOfIsotopes());
+        for (int i = 0; i < massResults.length; i++) {
+            Assert.assertEquals(massResults[i], pattern.getIsotope(i).getMass(), 0.01);
+            Assert.assertEquals(abundResults[i], pattern.getIsotope(i).getIntensity(), 0.01);
+        }
+    }
+
+    @Test public void testGetIsotopes_Bromine() {
+        double[] massResults = {157.836669, 159.834630, 161.832580};
+        double[] abundResults = {.512, 1.00, .487};
+
+        IMolecularFormula molFor = new MolecularFormula();
+        molFor.addIsotope(builder.newInstance(IIsotope.class, "Br"));
+        molFor.addIsotope(builder.newInstance(IIsotope.class, "Br"));
+
+        IsotopePattern pattern = new ConvolutionIsotopePatternGenerator(.1).getIsotopes(molFor);
+        Assert.assertEquals(3, pattern.getNumberOfIsotopes());
+        for (int i = 0; i < massResults.length; i++) {
+            Assert.assertEquals(massResults[i], pattern.getIsotope(i).getMass(), 0.01);
+            Assert.assertEquals(abundResults[i], pattern.getIsotope(i).getIntensity(), 0.01);
+        }
+    }
+
+    @Test public void testGetIsotopes_Mn() {
+        IMolecularFormula molFor = new MolecularFormula();
+        molFor.addIsotope(builder.newInstance(IIsotope.class, "Mn"), 1);
+        Assert.assertEquals(1, new ConvolutionIsotopePatternGenerator(0.001)
+                                   .getIsotopes(molFor).getNumberOfIsotopes());
+    }
+
+    @Test public void testGetIsotopes_Empty() {
+        Assert.assertEquals(0, new ConvolutionIsotopePatternGenerator()
+                                   .getIsotopes(new MolecularFormula()).getNumberOfIsotopes());
+    }
+
+    /**
+     * The patterns match those of the atom by atom {@link IsotopePatternGenerator}.
+     */
+    @Test public void testGetIsotopes_SameAsIsotopePatternGenerator() {
+        String[] formulas = {"C10", "CI", "C5H13N2O2", "C41H79N8O3P", "C20H25BrClN3O2S", "C27H46O", "Br4"};
+        for (String mf : formulas) {
+            for (double minAbundance : new double[]{0.1, 0.01, 0.001}) {
+                assertSamePattern(new IsotopePatternGenerator(minAbundance).getIsotopes(formula(mf)),
+                                  new ConvolutionIsotopePatternGenerator(minAbundance).getIsotopes(formula(mf)));
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testGetIsotopes_LargeMolecule() {
+        IsotopePattern pattern = new ConvolutionIsotopePatternGenerator(0.01)
+                                     .getIsotopes(formula("C300H480N80O90S4"));
+        // the C-13 envelope of such a large molecule peaks above the monoisotopic mass
+        Assert.assertTrue(pattern.getNumberOfIsotopes() > 10);
+        Assert.assertTrue(pattern.getIsotope(0).getIntensity() < 1.0);
+        for (int i = 1; i < pattern.getNumberOfIsotopes(); i++) {
+            Assert.assertTrue(pattern.getIsotope(i - 1).getMass() < pattern.getIsotope(i).getMass());
+        }
+    }
+
+    @Test public void testGetResolution() {
+        Assert.assertEquals(ConvolutionIsotopePatternGenerator.DEFAULT_RESOLUTION,
+                            new ConvolutionIsotopePatternGenerator().getResolution(), 0.0);
+    }
+
+    @Test public void testSetResolution_double() {
+        ConvolutionIsotopePatternGenerator generator = new ConvolutionIsotopePatternGenerator(0.001);
+        Assert.assertSame(generator, generator.setResolution(0.5));
+        Assert.assertEquals(0.5, generator.getResolution(), 0.0);
+        // the fine structure of the M+1 and M+2 peaks is merged
+        Assert.assertEquals(3, generator.getIsotopes(formula("C5H13N2O2")).getNumberOfIsotopes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetResolution_Negative() {
+        new ConvolutionIsotopePatternGenerator().setResolution(-1);
+    }
+
+    @Test public void testGetPruning() {
+        Assert.assertEquals(ConvolutionIsotopePatternGenerator.DEFAULT_PRUNING,
+                            new ConvolutionIsotopePatternGenerator().getPruning(), 0.0);
+    }
+
+    @Test public void testSetPruning_double() {
+        ConvolutionIsotopePatternGenerator generator = new ConvolutionIsotopePatternGenerator(0.001);
+        Assert.assertSame(generator, generator.setPruning(0.01));
+        Assert.assertEquals(0.01, generator.getPruning(), 0.0);
+        // only the monoisotopic and the C-13 peak are above 1% of the highest
+        Assert.assertEquals(2, generator.getIsotopes(formula("C5H13N2O2")).getNumberOfIsotopes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetPruning_One() {
+        new ConvolutionIsotopePatternGenerator().setPruning(1);
+    }
+}
@@ -0,0 +1,130 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+
+/**
+ * @cdk.module test-formula
+ */
+public class MassDecomposerTest extends CDKTestCase {
+
+    private static final double[] CHNO = {12.0, 1.0078250321, 14.0030740052, 15.9949146221};
+
+    private static List<String> sorted(List<int[]> decompositions) {
+        List<String> result = new ArrayList<String>();
+        for (int[] counts : decompositions) result.add(Arrays.toString(counts));
+        Collections.sort(result);
+        return result;
+    }
+
+    /** All combinations within the tolerance, by enumeration. */
+    private static List<String> enumerate(double[] masses, int[] minCounts, int[] maxCounts,
+                                          double mass, double tolerance) {
+        List<int[]> result = new ArrayList<int[]>();
+        int[] counts = minCounts.clone();
+        while (true) {
+            double sum = 0;
+            boolean empty = true;
+            for (int i = 0; i < counts.length; i++) {
+                sum += masses[i] * counts[i];
+                if (counts[i] != 0) empty = false;
+            }
+            if (!empty && Math.abs(mass - sum) < tolerance) result.add(counts.clone());
+            int i = 0;
+            while (i < counts.length && counts[i] == maxCounts[i]) counts[i] = minCounts[i++];
+            if (i == counts.length) break;
+            counts[i]++;
+        }
+        return sorted(result);
+    }
+
+    @Test public void testMassDecomposer_arraydouble_arrayint_arrayint() {
+        Assert.assertNotNull(new MassDecomposer(CHNO, new int[4], new int[]{15, 15, 15, 15}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMassDecomposer_DifferentLength() {
+        new MassDecomposer(CHNO, new int[3], new int[]{15, 15, 15, 15});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMassDecomposer_InvalidRange() {
+        new MassDecomposer(CHNO, new int[]{0, 0, 2, 0}, new int[]{15, 15, 1, 15});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMassDecomposer_ZeroMass() {
+        new MassDecomposer(new double[]{12.0, 0.0}, new int[2], new int[]{1, 1});
+    }
+
+    @Test public void testDecompose_double_double() {
+        // the default range of the MassToFormulaTool
+        MassDecomposer decomposer = new MassDecomposer(CHNO, new int[4], new int[]{15, 15, 15, 15});
+        List<int[]> decompositions = decomposer.decompose(133.0968, 0.05);
+        Assert.assertEquals(37, decompositions.size());
+        Assert.assertTrue(sorted(decompositions).contains("[5, 13, 2, 2]"));
+        for (int[] counts : decompositions)
+            Assert.assertEquals(133.0968, decomposer.getMass(counts), 0.05);
+    }
+
+    @Test public void testDecompose_SameAsEnumeration() {
+        double[] masses = {12.0, 1.0078250321, 14.0030740052, 15.9949146221, 31.97207069, 30.97376151};
+        int[] minCounts = {2, 0, 0, 1, 0, 0};
+        int[] maxCounts = {12, 20, 4, 6, 1, 2};
+        MassDecomposer decomposer = new MassDecomposer(masses, minCounts, maxCounts);
+        for (double mass : new double[]{44.0, 133.0968, 180.0634, 250.5, 301.1, 20.0}) {
+            for (double tolerance : new double[]{0.001, 0.05, 0.5}) {
+                Assert.assertEquals(enumerate(masses, minCounts, maxCounts, mass, tolerance),
+                                    sorted(decomposer.decompose(mass, tolerance)));
+            }
+        }
+    }
+
+    @Test public void testDecompose_FixedCounts() {
+        // no free element: only the minimal counts can match
+        MassDecomposer decomposer = new MassDecomposer(CHNO, new int[]{6, 6, 0, 0}, new int[]{6, 6, 0, 0});
+        Assert.assertEquals(1, decomposer.decompose(78.047, 0.01).size());
+        Assert.assertEquals(0, decomposer.decompose(79.0, 0.01).size());
+    }
+
+    @Test public void testDecompose_Empty() {
+        MassDecomposer decomposer = new MassDecomposer(CHNO, new int[4], new int[]{15, 15, 15, 15});
+        Assert.assertEquals(0, decomposer.decompose(0.0, 0.5).size());
+        Assert.assertEquals(0, decomposer.decompose(-10.0, 0.5).size());
+        Assert.assertEquals(0, decomposer.decompose(10000.0, 0.5).size());
+    }
+
+    @Test public void testGetMass_arrayint() {
+        MassDecomposer decomposer = new MassDecomposer(CHNO, new int[4], new int[]{15, 15, 15, 15});
+        Assert.assertEquals(133.0977, decomposer.getMass(new int[]{5, 13, 2, 2}), 0.0001);
+        Assert.assertEquals(0.0, decomposer.getMass(new int[4]), 0.0);
+    }
+}
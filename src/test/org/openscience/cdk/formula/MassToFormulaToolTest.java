@@ -33,6 +33,7 @@ import org.openscience.cdk.formula.rules.ChargeRule;
 import org.openscience.cdk.formula.rules.ElementRule;
 import org.openscience.cdk.formula.rules.IRule;
 import org.openscience.cdk.formula.rules.IsotopePatternRule;
+import org.openscience.cdk.formula.rules.NitrogenRule;
 import org.openscience.cdk.formula.rules.ToleranceRangeRule;
 import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.interfaces.IMolecularFormula;
@@ -856,5 +857,52 @@ public class MassToFormulaToolTest extends CDKTestCase {
 		
 	}
 
+	/**
+	 * The batch gives the same formulas as one call per mass.
+	 */
+	@Test
+	public void testGenerate_arraydouble() throws Exception {
+		MassToFormulaTool mfTool = new MassToFormulaTool(builder);
+		double[] masses = {133.0968, 191.10318196, 0.0, 59.0};
+		IMolecularFormulaSet[] sets = mfTool.generate(masses);
+		Assert.assertEquals(masses.length, sets.length);
+		Assert.assertNull(sets[2]);
+		for (int i = 0; i < masses.length; i++) {
+			IMolecularFormulaSet expected = new MassToFormulaTool(builder).generate(masses[i]);
+			if (expected == null) {
+				Assert.assertNull(sets[i]);
+				continue;
+			}
+			Assert.assertEquals(expected.size(), sets[i].size());
+			for (int j = 0; j < expected.size(); j++)
+				Assert.assertEquals(MolecularFormulaManipulator.getString(expected.getMolecularFormula(j)),
+				                    MolecularFormulaManipulator.getString(sets[i].getMolecularFormula(j)));
+		}
+	}
+
+	/**
+	 * The nitrogen rule is applied while the formulas are generated.
+	 */
+	@Test
+	public void testGenerate_NitrogenRule() throws Exception {
+		MassToFormulaTool mfTool = new MassToFormulaTool(builder);
+		List<IRule> myRules = new ArrayList<IRule>();
+		IRule rule = new NitrogenRule();
+		myRules.add(rule);
+		mfTool.setRestrictions(myRules);
+
+		IMolecularFormulaSet mfSet = mfTool.generate(133.0968);
+		Assert.assertNotNull(mfSet);
+		Assert.assertTrue(mfSet.size() < 37);
+		List<String> formulas = new ArrayList<String>();
+		for (IMolecularFormula formula : mfSet.molecularFormulas()) {
+			Assert.assertEquals(1.0, rule.validate(formula), 0.0001);
+			formulas.add(MolecularFormulaManipulator.getString(formula));
+		}
+		// an odd mass needs an odd number of nitrogens
+		Assert.assertFalse(formulas.contains("C5H13N2O2"));
+		Assert.assertTrue(formulas.contains("C4H11N3O2"));
+	}
+
 }
 
@@ -26,6 +26,7 @@ import org.openscience.cdk.Isotope;
 import org.openscience.cdk.CDKTestCase;
 import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.formula.MolecularFormula;
+import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.interfaces.IMolecularFormula;
 
 /**
@@ -61,6 +62,28 @@ public abstract class FormulaRuleTest extends CDKTestCase {
 	 * 
 	 * </pre>
 	 */
+	/**
+	 * The isotopes of a formula, in the order of {@link #getCounts(IMolecularFormula)}.
+	 */
+	protected static IIsotope[] getIsotopes(IMolecularFormula formula) {
+		IIsotope[] isotopes = new IIsotope[formula.getIsotopeCount()];
+		int i = 0;
+		for (IIsotope isotope : formula.isotopes())
+			isotopes[i++] = isotope;
+		return isotopes;
+	}
+
+	/**
+	 * The count of each isotope of a formula, in the order of {@link #getIsotopes(IMolecularFormula)}.
+	 */
+	protected static int[] getCounts(IMolecularFormula formula) {
+		int[] counts = new int[formula.getIsotopeCount()];
+		int i = 0;
+		for (IIsotope isotope : formula.isotopes())
+			counts[i++] = formula.getIsotopeCount(isotope);
+		return counts;
+	}
+
 	@Test public void testHasSetSuperDotRule() {
     	Assert.assertNotNull("The extending class must set the super.rule in its setUp() method.", rule);    	
 	}
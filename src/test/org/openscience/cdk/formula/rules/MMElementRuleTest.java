@@ -31,6 +31,7 @@ import org.openscience.cdk.formula.MolecularFormula;
 import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.interfaces.IMolecularFormula;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
 
 /**
  * @cdk.module test-formula
@@ -125,4 +126,17 @@ public class MMElementRuleTest extends FormulaRuleTest {
 
 		Assert.assertEquals(1.0, rule.validate(formula),0.0001);
 	}
+
+	/**
+	 * The element counts give the same result as the molecular formula.
+	 */
+	@Test public void testValidate_arrayIIsotope_arrayint() throws Exception {
+		MMElementRule rule = new MMElementRule();
+		for (String mf : new String[]{"C2H6", "C10H20O5", "C10H200", "C2H6Ar"}) {
+			IMolecularFormula formula = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula(mf, builder);
+			Assert.assertEquals(mf, rule.validate(formula), rule.validate(getIsotopes(formula), getCounts(formula)), 0.0);
+		}
+		IMolecularFormula formula = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula("C10H200", builder);
+		Assert.assertEquals(0.0, rule.validate(getIsotopes(formula), getCounts(formula)), 0.0);
+	}
 }
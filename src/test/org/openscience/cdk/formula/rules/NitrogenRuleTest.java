@@ -302,4 +302,17 @@ public class NitrogenRuleTest extends FormulaRuleTest {
 		
 		Assert.assertEquals(1.0, rule.validate(formula),0.0001);
 	}
+
+	/**
+	 * The element counts give the same result as the molecular formula.
+	 */
+	@Test public void testValidate_arrayIIsotope_arrayint() throws Exception {
+		NitrogenRule rule = new NitrogenRule();
+		for (String mf : new String[]{"C45H75NO15", "C45H71N7O10", "C4H10", "CH4N", "C5H10N2", "C3H5NCo"}) {
+			IMolecularFormula formula = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula(mf, builder);
+			Assert.assertEquals(mf, rule.validate(formula), rule.validate(getIsotopes(formula), getCounts(formula)), 0.0);
+		}
+		IMolecularFormula formula = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula("CH4N", builder);
+		Assert.assertEquals(0.0, rule.validate(getIsotopes(formula), getCounts(formula)), 0.0);
+	}
 }
@@ -269,4 +269,17 @@ public class RDBERuleTest extends FormulaRuleTest {
 		
 		Assert.assertEquals(1.0, rule.validate(formula),0.0001);
 	}
+
+	/**
+	 * The element counts give the same result as the molecular formula.
+	 */
+	@Test public void testValidate_arrayIIsotope_arrayint() throws Exception {
+		RDBERule rule = new RDBERule();
+		for (String mf : new String[]{"C2H4", "C2H7", "CH5", "C6H6", "C3H8O3S2", "C5H11P", "CH2F10S2", "NH4"}) {
+			IMolecularFormula formula = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula(mf, builder);
+			Assert.assertEquals(mf, rule.validate(formula), rule.validate(getIsotopes(formula), getCounts(formula)), 0.0);
+		}
+		IMolecularFormula formula = MolecularFormulaManipulator.getMajorIsotopeMolecularFormula("C2H7", builder);
+		Assert.assertEquals(0.0, rule.validate(getIsotopes(formula), getCounts(formula)), 0.0);
+	}
 }
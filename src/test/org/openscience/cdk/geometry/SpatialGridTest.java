@@ -0,0 +1,184 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import javax.vecmath.Point3d;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+/**
+ * @cdk.module test-standard
+ */
+public class SpatialGridTest extends CDKTestCase {
+
+    /** Points in a box of the given edge length. */
+    private static double[] points(int count, double edge, long seed) {
+        Random random = new Random(seed);
+        double[] coordinates = new double[3 * count];
+        for (int i = 0; i < coordinates.length; i++) coordinates[i] = (random.nextDouble() - 0.5) * edge;
+        return coordinates;
+    }
+
+    private static double distance2(double[] coordinates, int i, double x, double y, double z) {
+        double dx = coordinates[3 * i] - x, dy = coordinates[3 * i + 1] - y, dz = coordinates[3 * i + 2] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /** The points within the radius, by comparing all points. */
+    private static int[] within(double[] coordinates, double x, double y, double z, double radius) {
+        List<Integer> found = new ArrayList<Integer>();
+        for (int i = 0; i < coordinates.length / 3; i++) {
+            if (distance2(coordinates, i, x, y, z) <= radius * radius) found.add(i);
+        }
+        int[] within = new int[found.size()];
+        for (int i = 0; i < within.length; i++) within[i] = found.get(i);
+        return within;
+    }
+
+    private static int[] sorted(int[] values, int count) {
+        int[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    @Test public void testSpatialGrid_arraydouble_double() {
+        SpatialGrid grid = new SpatialGrid(points(100, 10, 1), 2.0);
+        Assert.assertEquals(100, grid.size());
+        Assert.assertEquals(2.0, grid.getCellSize(), 0.0);
+        grid = new SpatialGrid(new double[0], 1.0);
+        Assert.assertEquals(0, grid.size());
+        Assert.assertEquals(0, grid.getNeighbors(0, 0, 0, 10, new int[0]));
+        Assert.assertEquals(0, grid.getNearest(0, 0, 0, 3).length);
+        // the cells grow so that the grid stays small
+        grid = new SpatialGrid(new double[]{0, 0, 0, 1e9, 0, 0}, 1.0);
+        Assert.assertTrue(grid.getCellSize() > 1.0);
+        Assert.assertArrayEquals(new int[]{1}, grid.getNearest(1e9, 1, 1, 1));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSpatialGrid_ZeroCellSize() {
+        new SpatialGrid(points(10, 10, 1), 0.0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSpatialGrid_NotTriples() {
+        new SpatialGrid(new double[4], 1.0);
+    }
+
+    @Test public void testGetCoordinates_arrayIAtom() {
+        IAtom[] atoms = {new Atom("C", new Point3d(1, 2, 3)), new Atom("O", new Point3d(4, 5, 6))};
+        Assert.assertArrayEquals(new double[]{1, 2, 3, 4, 5, 6}, SpatialGrid.getCoordinates(atoms), 0.0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testGetCoordinates_No3D() {
+        SpatialGrid.getCoordinates(new IAtom[]{new Atom("C")});
+    }
+
+    @Test public void testGetCoordinates_IAtomContainer() {
+        IAtomContainer container = new AtomContainer();
+        container.addAtom(new Atom("C", new Point3d(1, 2, 3)));
+        container.addAtom(new Atom("O", new Point3d(4, 5, 6)));
+        Assert.assertArrayEquals(new double[]{1, 2, 3, 4, 5, 6}, SpatialGrid.getCoordinates(container), 0.0);
+    }
+
+    @Test public void testGetNeighbors_double_double_double_double_arrayint() {
+        // a dense grid and, with small cells, a grid of the occupied cells only
+        double[] coordinates = points(2000, 20, 2);
+        Random random = new Random(3);
+        for (double cellSize : new double[]{3.0, 0.1}) {
+            SpatialGrid grid = new SpatialGrid(coordinates, cellSize);
+            int[] found = new int[grid.size()];
+            for (int q = 0; q < 200; q++) {
+                double x = (random.nextDouble() - 0.5) * 26, y = (random.nextDouble() - 0.5) * 26;
+                double z = (random.nextDouble() - 0.5) * 26, radius = random.nextDouble() * 5;
+                int count = grid.getNeighbors(x, y, z, radius, found);
+                Assert.assertArrayEquals(within(coordinates, x, y, z, radius), sorted(found, count));
+            }
+        }
+    }
+
+    @Test public void testGetNeighbors_Exact() {
+        double[] coordinates = {0, 0, 0, 1, 0, 0, 2, 0, 0};
+        SpatialGrid grid = new SpatialGrid(coordinates, 1.0);
+        Assert.assertArrayEquals(new int[0], grid.getNeighbors(0, 1.0 - 1e-9));
+        Assert.assertArrayEquals(new int[]{1}, grid.getNeighbors(0, 1.0));
+        Assert.assertArrayEquals(new int[]{0, 2}, grid.getNeighbors(1, 1.0));
+        Assert.assertEquals(0, grid.getNeighbors(10, 0, 0, 1.0, new int[3]));
+    }
+
+    @Test public void testGetNeighbors_int_double() {
+        double[] coordinates = points(500, 10, 4);
+        SpatialGrid grid = new SpatialGrid(coordinates, 2.0);
+        for (int i = 0; i < grid.size(); i++) {
+            List<Integer> expected = new ArrayList<Integer>();
+            for (int j : within(coordinates, coordinates[3 * i], coordinates[3 * i + 1], coordinates[3 * i + 2], 2.0))
+                if (j != i) expected.add(j);
+            int[] neighbors = grid.getNeighbors(i, 2.0);
+            Assert.assertEquals(expected.size(), neighbors.length);
+            Arrays.sort(neighbors);
+            for (int n = 0; n < neighbors.length; n++) Assert.assertEquals((int) expected.get(n), neighbors[n]);
+        }
+    }
+
+    @Test public void testGetNearest_double_double_double_int() {
+        final double[] coordinates = points(1000, 20, 5);
+        Random random = new Random(6);
+        for (double cellSize : new double[]{2.0, 0.05}) {
+            SpatialGrid grid = new SpatialGrid(coordinates, cellSize);
+            for (int q = 0; q < 100; q++) {
+                // also from outside the grid
+                final double x = (random.nextDouble() - 0.5) * 40, y = (random.nextDouble() - 0.5) * 40;
+                final double z = (random.nextDouble() - 0.5) * 40;
+                int k = 1 + random.nextInt(20);
+                List<Integer> all = new ArrayList<Integer>();
+                for (int i = 0; i < grid.size(); i++) all.add(i);
+                Collections.sort(all, new Comparator<Integer>() {
+                    public int compare(Integer a, Integer b) {
+                        int order = Double.compare(distance2(coordinates, a, x, y, z), distance2(coordinates, b, x, y, z));
+                        return order != 0 ? order : a.compareTo(b);
+                    }
+                });
+                int[] nearest = grid.getNearest(x, y, z, k);
+                Assert.assertEquals(k, nearest.length);
+                for (int i = 0; i < k; i++) Assert.assertEquals((int) all.get(i), nearest[i]);
+            }
+        }
+        SpatialGrid grid = new SpatialGrid(new double[]{0, 0, 0, 3, 0, 0, 1, 0, 0}, 1.0);
+        Assert.assertArrayEquals(new int[]{0, 2, 1}, grid.getNearest(-1, 0, 0, 5));
+        Assert.assertArrayEquals(new int[]{2, 0}, grid.getNearest(1.5, 0, 0, 2));
+    }
+}
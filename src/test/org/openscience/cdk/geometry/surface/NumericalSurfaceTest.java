@@ -0,0 +1,113 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.geometry.surface;
+
+import java.io.InputStream;
+
+import javax.vecmath.Point3d;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.ChemFile;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.io.HINReader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.ChemFileManipulator;
+
+/**
+ * @cdk.module test-qsarmolecular
+ */
+public class NumericalSurfaceTest extends CDKTestCase {
+
+    private static final IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+
+    private IAtomContainer benzene() throws Exception {
+        InputStream ins = this.getClass().getClassLoader().getResourceAsStream("data/hin/benzene.hin");
+        HINReader reader = new HINReader(ins);
+        ChemFile content = reader.read(new ChemFile());
+        reader.close();
+        return ChemFileManipulator.getAllAtomContainers(content).get(0);
+    }
+
+    @Test public void testCalculateSurface() throws Exception {
+        IAtomContainer container = builder.newInstance(IAtomContainer.class);
+        IAtom atom = builder.newInstance(IAtom.class, "C");
+        atom.setPoint3d(new Point3d(1, 2, 3));
+        container.addAtom(atom);
+        NumericalSurface surface = new NumericalSurface(container, 1.4, 2);
+        surface.calculateSurface();
+        // nothing buries the points of a lone atom
+        Assert.assertEquals(4 * Math.PI * 3.1 * 3.1, surface.getTotalSurfaceArea(), 0.0001);
+        Point3d[] points = surface.getSurfacePoints(0);
+        Assert.assertEquals(points.length, surface.getAllSurfacePoints().length);
+        for (Point3d point : points) Assert.assertEquals(3.1, point.distance(atom.getPoint3d()), 0.0001);
+    }
+
+    @Test public void testCalculateSurface_Buried() throws Exception {
+        IAtomContainer container = benzene();
+        NumericalSurface surface = new NumericalSurface(container);
+        surface.calculateSurface();
+        double total = 0;
+        int points = 0;
+        for (int i = 0; i < container.getAtomCount(); i++) {
+            double area = surface.getSurfaceArea(i);
+            Assert.assertTrue(area > 0);
+            Assert.assertTrue(area < 4 * Math.PI * 4 * 4);
+            total += area;
+            points += surface.getSurfacePoints(i).length;
+        }
+        Assert.assertEquals(total, surface.getTotalSurfaceArea(), 0.0001);
+        Assert.assertEquals(points, surface.getAllSurfacePoints().length);
+    }
+
+    @Test public void testCalculateSurface_int() throws Exception {
+        IAtomContainer container = benzene();
+        NumericalSurface expected = new NumericalSurface(container);
+        expected.calculateSurface();
+        Point3d[] expectedPoints = expected.getAllSurfacePoints();
+        for (int threads = 1; threads <= 4; threads++) {
+            NumericalSurface surface = new NumericalSurface(container);
+            surface.calculateSurface(threads);
+            Assert.assertArrayEquals(expected.getAllSurfaceAreas(), surface.getAllSurfaceAreas(), 0);
+            Point3d[] points = surface.getAllSurfacePoints();
+            Assert.assertEquals(expectedPoints.length, points.length);
+            for (int i = 0; i < points.length; i++) Assert.assertEquals(0, expectedPoints[i].distance(points[i]), 0);
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testCalculateSurface_NoThreads() throws Exception {
+        new NumericalSurface(benzene()).calculateSurface(0);
+    }
+
+    @Test(expected=org.openscience.cdk.exception.CDKException.class)
+    public void testGetSurfacePoints_OutOfBounds() throws Exception {
+        IAtomContainer container = benzene();
+        NumericalSurface surface = new NumericalSurface(container);
+        surface.calculateSurface();
+        surface.getSurfacePoints(container.getAtomCount());
+    }
+}
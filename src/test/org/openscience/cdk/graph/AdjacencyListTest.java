@@ -0,0 +1,172 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.graph;
+
+import static org.mockito.Mockito.mock;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.templates.MoleculeFactory;
+
+/**
+ * @cdk.module test-core
+ */
+public class AdjacencyListTest extends CDKTestCase {
+
+    /**
+     * Propane with the bonds C1-C2 and C2-C3.
+     */
+    private static IAtomContainer makePropane() {
+        IAtomContainer propane = MoleculeFactory.makeAlkane(3);
+        Assert.assertEquals(2, propane.getBondCount());
+        return propane;
+    }
+
+    @Test
+    public void testAdjacencyList_IAtomContainer() {
+        IAtomContainer propane = makePropane();
+        AdjacencyList adjacency = new AdjacencyList(propane);
+        Assert.assertEquals(3, adjacency.getAtomCount());
+        Assert.assertEquals(2, adjacency.getBondCount());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertSame(propane.getAtom(i), adjacency.getAtom(i));
+        }
+    }
+
+    @Test
+    public void testGetAdjacencyList_IAtomContainer() {
+        IAtomContainer propane = makePropane();
+        // the container keeps its adjacency list
+        AdjacencyList adjacency = AdjacencyList.getAdjacencyList(propane);
+        Assert.assertSame(adjacency, AdjacencyList.getAdjacencyList(propane));
+
+        // and replaces it when the bonds are changed
+        propane.removeBond(1);
+        AdjacencyList changed = AdjacencyList.getAdjacencyList(propane);
+        Assert.assertNotSame(adjacency, changed);
+        Assert.assertEquals(0, changed.getDegree(2));
+
+        // other containers get a new one
+        IAtomContainer container = mock(IAtomContainer.class);
+        Assert.assertNotSame(AdjacencyList.getAdjacencyList(container),
+                             AdjacencyList.getAdjacencyList(container));
+    }
+
+    @Test
+    public void testIsCurrent_IAtomContainer() {
+        IAtomContainer propane = makePropane();
+        AdjacencyList adjacency = new AdjacencyList(propane);
+        Assert.assertTrue(adjacency.isCurrent(propane));
+
+        // a bond edited in place
+        IBond bond = propane.getBond(1);
+        IAtom end = bond.getAtom(1);
+        bond.setAtom(propane.getAtom(0), 1);
+        Assert.assertFalse(adjacency.isCurrent(propane));
+        bond.setAtom(end, 1);
+        Assert.assertTrue(adjacency.isCurrent(propane));
+
+        // a bond or atom added
+        propane.addAtom(new Atom("O"));
+        Assert.assertFalse(adjacency.isCurrent(propane));
+        Assert.assertFalse(adjacency.isCurrent(makePropane()));
+    }
+
+    @Test
+    public void testGetEdgeCount() {
+        IAtomContainer propane = makePropane();
+        Assert.assertEquals(2, new AdjacencyList(propane).getEdgeCount());
+        // a bond to an atom outside the container is not an edge
+        propane.addBond(propane.getBuilder().newInstance(IBond.class, propane.getAtom(2), new Atom("O")));
+        AdjacencyList adjacency = new AdjacencyList(propane);
+        Assert.assertEquals(3, adjacency.getBondCount());
+        Assert.assertEquals(2, adjacency.getEdgeCount());
+        Assert.assertEquals(1, adjacency.getDegree(2));
+    }
+
+    @Test
+    public void testGetNeighbours_int() {
+        AdjacencyList adjacency = new AdjacencyList(makePropane());
+        Assert.assertArrayEquals(new int[]{1}, adjacency.getNeighbours(0));
+        Assert.assertArrayEquals(new int[]{0, 2}, adjacency.getNeighbours(1));
+        Assert.assertArrayEquals(new int[]{1}, adjacency.getNeighbours(2));
+        Assert.assertEquals(1, adjacency.getDegree(0));
+        Assert.assertEquals(2, adjacency.getDegree(1));
+    }
+
+    @Test
+    public void testGetEdges_int() {
+        IAtomContainer propane = makePropane();
+        AdjacencyList adjacency = new AdjacencyList(propane);
+        Assert.assertArrayEquals(new int[]{0}, adjacency.getEdges(0));
+        Assert.assertArrayEquals(new int[]{0, 1}, adjacency.getEdges(1));
+        Assert.assertArrayEquals(new int[]{1}, adjacency.getEdges(2));
+        Assert.assertSame(propane.getBond(1), adjacency.getBond(1));
+    }
+
+    @Test
+    public void testIndexOf_IAtom() {
+        IAtomContainer propane = makePropane();
+        AdjacencyList adjacency = new AdjacencyList(propane);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(i, adjacency.indexOf(propane.getAtom(i)));
+        }
+        Assert.assertEquals(-1, adjacency.indexOf(new Atom("C")));
+    }
+
+    @Test
+    public void testToNeighbourArray() {
+        IAtomContainer steran = MoleculeFactory.makeSteran();
+        int[][] neighbours = new AdjacencyList(steran).toNeighbourArray();
+        Assert.assertEquals(steran.getAtomCount(), neighbours.length);
+        for (int i = 0; i < neighbours.length; i++) {
+            IAtom atom = steran.getAtom(i);
+            Assert.assertEquals(steran.getConnectedAtomsCount(atom), neighbours[i].length);
+            for (int neighbour : neighbours[i]) {
+                Assert.assertNotNull(steran.getBond(atom, steran.getAtom(neighbour)));
+            }
+        }
+    }
+
+    @Test
+    public void testToEdgeArray() {
+        IAtomContainer steran = MoleculeFactory.makeSteran();
+        int[][] edges = new AdjacencyList(steran).toEdgeArray();
+        Assert.assertEquals(steran.getAtomCount(), edges.length);
+        for (int i = 0; i < edges.length; i++) {
+            for (int edge : edges[i]) {
+                Assert.assertTrue(steran.getBond(edge).contains(steran.getAtom(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testGetBondIndex_int_int() {
+        AdjacencyList adjacency = new AdjacencyList(makePropane());
+        Assert.assertEquals(0, adjacency.getBondIndex(0, 1));
+        Assert.assertEquals(0, adjacency.getBondIndex(1, 0));
+        Assert.assertEquals(1, adjacency.getBondIndex(2, 1));
+        Assert.assertEquals(-1, adjacency.getBondIndex(0, 2));
+    }
+}
@@ -0,0 +1,210 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.graph.invariant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.InvPair;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * @cdk.module test-group
+ */
+public class CanonicalPartitionLabelerTest extends CDKTestCase {
+
+    private static final IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+
+    private static final SmilesParser sp = new SmilesParser(builder);
+
+    private static final String[] ASYMMETRIC = {
+        "CC(=O)CBr", "CCO", "OC(=O)C1CCCCC1C", "CC(N)C(=O)O", "c1ccccc1CC(=O)N", "CN1C=NC2=C1C(=O)N(C(=O)N2C)C"
+    };
+
+    private static final String[] SYMMETRIC = {
+        "CC", "c1ccccc1", "C1=CC=CC=C1", "CC(C)(C)C(C)(C)C", "c1ccc2ccccc2c1", "C1CC2CCC1CC2",
+        "C12C3C4C1C5C2C3C45", "OC(=O)c1ccc(cc1)C(=O)O", "C1CCC2(CC1)CCCCC2", "FC(F)(F)C(F)(F)C(F)(F)F",
+        "C1CCCCCC1C1CCCCC1", "c1cc2ccc3cccc4ccc(c1)c2c34", "CC(C)C1CCC(C)CC1", "C1CC2CC1C1CCCC21",
+        // the invariants do not tell the rings apart, but the tied atoms are not equivalent
+        "C1CC1.C1CCC1", "C1CCCCC1.C1CCCCCCC1"
+    };
+
+    /** The molecule with its atoms and bonds in a random order. */
+    private static IAtomContainer shuffle(IAtomContainer molecule, Random random) {
+        List<IAtom> atoms = new ArrayList<IAtom>();
+        for (IAtom atom : molecule.atoms()) atoms.add(atom);
+        List<IBond> bonds = new ArrayList<IBond>();
+        for (IBond bond : molecule.bonds()) bonds.add(bond);
+        Collections.shuffle(atoms, random);
+        Collections.shuffle(bonds, random);
+        IAtomContainer shuffled = builder.newInstance(IAtomContainer.class);
+        for (IAtom atom : atoms) shuffled.addAtom(atom);
+        for (IBond bond : bonds) shuffled.addBond(bond);
+        return shuffled;
+    }
+
+    /**
+     * The molecule described in label order: each atom with its hydrogens
+     * and its neighbours by label and bond order.
+     */
+    private static String certificate(IAtomContainer molecule, long[] labels) {
+        String[] atoms = new String[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            IAtom atom = molecule.getAtom(i);
+            List<String> neighbours = new ArrayList<String>();
+            for (IBond bond : molecule.getConnectedBondsList(atom)) {
+                int j = molecule.getAtomNumber(bond.getConnectedAtom(atom));
+                neighbours.add(labels[j] + bond.getOrder().toString());
+            }
+            Collections.sort(neighbours);
+            atoms[(int) labels[i] - 1] = atom.getSymbol() + atom.getImplicitHydrogenCount() + neighbours;
+        }
+        StringBuilder certificate = new StringBuilder();
+        for (String atom : atoms) certificate.append(atom).append(';');
+        return certificate.toString();
+    }
+
+    private static long[] oldLabels(IAtomContainer molecule) {
+        new CanonicalLabeler().canonLabel(molecule);
+        long[] labels = new long[molecule.getAtomCount()];
+        for (int i = 0; i < labels.length; i++)
+            labels[i] = (Long) molecule.getAtom(i).getProperty(InvPair.CANONICAL_LABEL);
+        return labels;
+    }
+
+    @Test public void testCanonLabel_IAtomContainer() throws Exception {
+        IAtomContainer molecule = sp.parseSmiles("CC(=O)CBr");
+        new CanonicalPartitionLabeler().canonLabel(molecule);
+        long[] expected = new CanonicalPartitionLabeler().getCanonicalLabels(molecule);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(Long.valueOf(expected[i]), molecule.getAtom(i).getProperty(InvPair.CANONICAL_LABEL));
+        }
+        new CanonicalPartitionLabeler().canonLabel(builder.newInstance(IAtomContainer.class));
+    }
+
+    @Test public void testGetCanonicalLabels_IAtomContainer() throws Exception {
+        for (String smiles : ASYMMETRIC) {
+            IAtomContainer molecule = sp.parseSmiles(smiles);
+            long[] labels = new CanonicalPartitionLabeler().getCanonicalLabels(molecule);
+            long[] sorted = labels.clone();
+            Arrays.sort(sorted);
+            for (int i = 0; i < sorted.length; i++) Assert.assertEquals(i + 1, sorted[i]);
+            // without ties the labels are those of the CanonicalLabeler
+            Assert.assertArrayEquals(oldLabels(molecule), labels);
+        }
+        Assert.assertEquals(0, new CanonicalPartitionLabeler()
+                                   .getCanonicalLabels(builder.newInstance(IAtomContainer.class)).length);
+        Assert.assertArrayEquals(new long[]{1}, new CanonicalPartitionLabeler().getCanonicalLabels(sp.parseSmiles("C")));
+    }
+
+    /**
+     * The labelled molecule is the same for any order of the atoms.
+     */
+    @Test public void testGetCanonicalLabels_Shuffled() throws Exception {
+        CanonicalPartitionLabeler labeler = new CanonicalPartitionLabeler();
+        Random random = new Random(42);
+        for (String smiles : SYMMETRIC) {
+            IAtomContainer molecule = sp.parseSmiles(smiles);
+            String expected = certificate(molecule, labeler.getCanonicalLabels(molecule));
+            for (int i = 0; i < 20; i++) {
+                IAtomContainer shuffled = shuffle(molecule, random);
+                Assert.assertEquals(smiles, expected, certificate(shuffled, labeler.getCanonicalLabels(shuffled)));
+            }
+        }
+    }
+
+    /**
+     * The CanonicalLabeler breaks the tie between the ring atoms at the
+     * first atom, so the labelled molecule depends on the atom order.
+     */
+    @Test public void testGetCanonicalLabels_NotEquivalent() throws Exception {
+        IAtomContainer molecule = sp.parseSmiles("C1CC1.C1CCC1");
+        IAtomContainer reversed = builder.newInstance(IAtomContainer.class);
+        for (int i = molecule.getAtomCount() - 1; i >= 0; i--) reversed.addAtom(molecule.getAtom(i));
+        for (IBond bond : molecule.bonds()) reversed.addBond(bond);
+        Assert.assertFalse(certificate(molecule, oldLabels(molecule)).equals(certificate(reversed, oldLabels(reversed))));
+        CanonicalPartitionLabeler labeler = new CanonicalPartitionLabeler();
+        Assert.assertEquals(certificate(molecule, labeler.getCanonicalLabels(molecule)),
+                            certificate(reversed, labeler.getCanonicalLabels(reversed)));
+    }
+
+    @Test public void testSmilesGenerator_Shuffled() throws Exception {
+        Random random = new Random(7);
+        for (String smiles : SYMMETRIC) {
+            // the generator writes the fragments in input order
+            if (smiles.contains(".")) continue;
+            IAtomContainer molecule = sp.parseSmiles(smiles);
+            String expected = new SmilesGenerator().createSMILES(molecule);
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals(expected, new SmilesGenerator().createSMILES(shuffle(molecule, random)));
+            }
+        }
+    }
+
+    @Test public void testGetCanonicalLabels_Threads() throws Exception {
+        final CanonicalPartitionLabeler labeler = new CanonicalPartitionLabeler();
+        final List<IAtomContainer> molecules = new ArrayList<IAtomContainer>();
+        List<String> expected = new ArrayList<String>();
+        for (String smiles : SYMMETRIC) {
+            IAtomContainer molecule = sp.parseSmiles(smiles);
+            molecules.add(molecule);
+            expected.add(certificate(molecule, labeler.getCanonicalLabels(molecule)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(new Callable<List<String>>() {
+                    public List<String> call() {
+                        List<String> certificates = new ArrayList<String>();
+                        for (int i = 0; i < 10; i++) {
+                            certificates.clear();
+                            for (IAtomContainer molecule : molecules)
+                                certificates.add(certificate(molecule, labeler.getCanonicalLabels(molecule)));
+                        }
+                        return certificates;
+                    }
+                }));
+            }
+            for (Future<List<String>> result : results) Assert.assertEquals(expected, result.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.openscience.cdk.AtomContainer;
 import org.openscience.cdk.CDKTestCase;
 import org.openscience.cdk.config.AtomTypeFactory;
 import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
 
 /**
  * Checks the functionality of the RebondTool.
@@ -74,4 +75,55 @@ public class RebondToolTest extends CDKTestCase {
 		Assert.assertEquals(5, methane.getAtomCount());
 		Assert.assertEquals(4, methane.getBondCount());
 	}
+
+    /** A cubic lattice of carbons at 1.5 A, bonded to the nearest atoms only. */
+    private IAtomContainer lattice(int edge) throws Exception {
+		IAtomContainer lattice = new AtomContainer();
+		for (int x = 0; x < edge; x++)
+			for (int y = 0; y < edge; y++)
+				for (int z = 0; z < edge; z++)
+					lattice.addAtom(new Atom("C", new Point3d(1.5 * x, 1.5 * y, 1.5 * z)));
+		AtomTypeFactory factory = AtomTypeFactory.getInstance("org/openscience/cdk/config/data/jmol_atomtypes.txt",
+				lattice.getBuilder());
+		for (int i = 0; i < lattice.getAtomCount(); i++) factory.configure(lattice.getAtom(i));
+		return lattice;
+	}
+
+    private static String bonds(IAtomContainer container) {
+		StringBuilder bonds = new StringBuilder();
+		for (IBond bond : container.bonds()) {
+			bonds.append(container.getAtomNumber(bond.getAtom(0))).append('-')
+			     .append(container.getAtomNumber(bond.getAtom(1))).append(' ');
+		}
+		return bonds.toString();
+	}
+
+    @Test
+    public void testRebond_Lattice() throws Exception {
+		IAtomContainer lattice = lattice(10);
+		new RebondTool(2.0, 0.5, 0.5).rebond(lattice);
+		Assert.assertEquals(3 * 10 * 10 * 9, lattice.getBondCount());
+		for (IBond bond : lattice.bonds()) {
+			Assert.assertEquals(1.5, bond.getAtom(0).getPoint3d().distance(bond.getAtom(1).getPoint3d()), 0.0001);
+		}
+		// the old bonds are removed
+		new RebondTool(2.0, 0.5, 0.5).rebond(lattice);
+		Assert.assertEquals(3 * 10 * 10 * 9, lattice.getBondCount());
+	}
+
+    @Test
+    public void testRebond_IAtomContainer_int() throws Exception {
+		IAtomContainer serial = lattice(12);
+		new RebondTool(2.0, 0.5, 0.5).rebond(serial);
+		for (int threads = 1; threads <= 4; threads++) {
+			IAtomContainer parallel = lattice(12);
+			new RebondTool(2.0, 0.5, 0.5).rebond(parallel, threads);
+			Assert.assertEquals(bonds(serial), bonds(parallel));
+		}
+	}
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testRebond_NoThreads() throws Exception {
+		new RebondTool(2.0, 0.5, 0.5).rebond(lattice(2), 0);
+	}
 }
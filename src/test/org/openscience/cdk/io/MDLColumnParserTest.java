@@ -0,0 +1,199 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+
+/**
+ * Checks that the {@link MDLColumnParser} gives the same values and
+ * exceptions as the String based parsing it replaces in the
+ * {@link MDLV2000Reader}.
+ *
+ * @cdk.module test-io
+ */
+public class MDLColumnParserTest extends CDKTestCase {
+
+    private static final String[] FIELDS = {
+        "", " ", "   ", "0", "  0", "  1", " 12", "123", "-1", " -3", "+5", "007",
+        "1 2", "x", " x ", "-", "+", "--1", "\t4", "2\t", "\u000B7",
+        "2147483647", "2147483648", "-2147483648", "-2147483649", "99999999999",
+        "\u0663", " \u0661\u0662",
+        "    0.0000", "    1.2724", "   -0.4125", "-1234.5678", "0.5", ".5", "-.5",
+        "1.", "-0.0", "1e3", "1E-5", " 1.5e+2", "NaN", "-Infinity", "1.0d", "1.0f",
+        "0x1p3", "1.2.3", "..", ".", "12345678901234567890", "0.000000000000000000000001",
+        "9007199254740993", "9007199254740992", "123456.78901234567"
+    };
+
+    private static String referenceInt(String field) {
+        try {
+            return String.valueOf(Integer.parseInt(field.trim()));
+        } catch (NumberFormatException exception) {
+            return "NumberFormatException";
+        }
+    }
+
+    private static String parseInt(String line, int begin, int end) {
+        try {
+            return String.valueOf(MDLColumnParser.parseInt(line, begin, end));
+        } catch (NumberFormatException exception) {
+            return "NumberFormatException";
+        }
+    }
+
+    private static String referenceDouble(String field) {
+        try {
+            return String.valueOf(Double.doubleToRawLongBits(Double.parseDouble(field.trim())));
+        } catch (NumberFormatException exception) {
+            return "NumberFormatException";
+        }
+    }
+
+    private static String parseDouble(String line, int begin, int end) {
+        try {
+            return String.valueOf(Double.doubleToRawLongBits(MDLColumnParser.parseDouble(line, begin, end)));
+        } catch (NumberFormatException exception) {
+            return "NumberFormatException";
+        }
+    }
+
+    private static String referenceDigits(String field) {
+        StringBuffer buffer = new StringBuffer();
+        for (int i = 0; i < field.length(); i++) {
+            if (Character.isDigit(field.charAt(i))) buffer.append(field.charAt(i));
+        }
+        return referenceInt(buffer.toString());
+    }
+
+    private static String parseDigits(String line, int begin, int end) {
+        try {
+            return String.valueOf(MDLColumnParser.parseDigits(line, begin, end));
+        } catch (NumberFormatException exception) {
+            return "NumberFormatException";
+        }
+    }
+
+    @Test public void testParseInt_String_int_int() {
+        for (String field : FIELDS) {
+            String line = "ab" + field + "cd";
+            Assert.assertEquals(field, referenceInt(field), parseInt(line, 2, 2 + field.length()));
+        }
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void testParseInt_ShortLine() {
+        MDLColumnParser.parseInt("  1", 0, 6);
+    }
+
+    @Test public void testParseDouble_String_int_int() {
+        for (String field : FIELDS) {
+            String line = "ab" + field + "cd";
+            Assert.assertEquals(field, referenceDouble(field), parseDouble(line, 2, 2 + field.length()));
+        }
+        // random coordinates, as written in the atom block
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8));
+            String field = String.format("%10." + random.nextInt(12) + "f", value);
+            Assert.assertEquals(field, referenceDouble(field), parseDouble(field, 0, field.length()));
+        }
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void testParseDouble_ShortLine() {
+        MDLColumnParser.parseDouble("    1.2724", 0, 20);
+    }
+
+    @Test public void testParseDigits_String_int_int() {
+        for (String field : FIELDS) {
+            String line = "ab" + field + "cd";
+            Assert.assertEquals(field, referenceDigits(field), parseDigits(line, 2, 2 + field.length()));
+        }
+    }
+
+    @Test public void testTrailingSpace_String() {
+        Pattern trailingSpace = Pattern.compile("\\s+$");
+        String[] lines = {"", " ", "C  0", "C  0 ", "C  0 \t ", "  C", "C\u000B", "C\f", "C\u00A0"};
+        for (String line : lines) {
+            Matcher matcher = trailingSpace.matcher(line);
+            int expected = matcher.find() ? matcher.start() : line.length();
+            Assert.assertEquals(line, expected, MDLColumnParser.trailingSpace(line));
+        }
+    }
+
+    @Test public void testIsAlias_String() {
+        String[] lines = {
+            "A    1", "A  12", "A 3", "A1", "A     1", "A  1 ", "A  ", "A", "B  1", "A  x",
+            "A\t\t7", "A  \u0661", "M  CHG  1   1   1", "A  -1"
+        };
+        for (String line : lines) {
+            boolean alias = line.matches("A\\s{1,4}\\d+");
+            Assert.assertEquals(line, alias, MDLColumnParser.isAlias(line));
+            if (alias) {
+                Assert.assertEquals(Integer.parseInt(line.replaceFirst("A\\s{1,4}", "")),
+                                    MDLColumnParser.parseAlias(line));
+            }
+        }
+    }
+
+    @Test public void testTokens() {
+        String[] lines = {
+            "M  CHG  2   1   1   3  -1", "M  CHG  1   1", "M  ISO  1   2  13",
+            "M  CHG  2   1\t1\t2 +1", "M  RAD  1   1   x", "M  CHG  1  12345678901 2"
+        };
+        for (String line : lines) {
+            StringTokenizer tokenizer = new StringTokenizer(line.substring(9));
+            MDLColumnParser.Tokens tokens = new MDLColumnParser.Tokens(line, 9);
+            while (true) {
+                String expected;
+                try {
+                    expected = referenceInt(tokenizer.nextToken());
+                } catch (NoSuchElementException exception) {
+                    expected = "NoSuchElementException";
+                }
+                String actual;
+                try {
+                    actual = String.valueOf(tokens.nextInt());
+                } catch (NumberFormatException exception) {
+                    actual = "NumberFormatException";
+                } catch (NoSuchElementException exception) {
+                    actual = "NoSuchElementException";
+                }
+                Assert.assertEquals(line, expected, actual);
+                if (expected.equals("NoSuchElementException")) break;
+            }
+        }
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void testTokens_ShortLine() {
+        new MDLColumnParser.Tokens("M  CHG", 9);
+    }
+}
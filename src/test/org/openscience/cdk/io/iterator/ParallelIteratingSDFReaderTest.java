@@ -0,0 +1,199 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.iterator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.io.formats.MDLFormat;
+import org.openscience.cdk.io.listener.IChemObjectIOListener;
+import org.openscience.cdk.io.setting.IOSetting;
+
+/**
+ * @cdk.module test-io
+ */
+public class ParallelIteratingSDFReaderTest extends CDKTestCase {
+
+    private static final IChemObjectBuilder builder = DefaultChemObjectBuilder.getInstance();
+
+    private static final String[] MDLNUMBERS = {
+        "MFCD00000387", "MFCD00000661", "MFCD00000662",
+        "MFCD00000663", "MFCD00000664", "MFCD03453215"
+    };
+
+    private String read(String path) throws IOException {
+        InputStream in = getClass().getClassLoader().getResourceAsStream(path);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) bytes.write(buffer, 0, n);
+        in.close();
+        return bytes.toString();
+    }
+
+    /**
+     * Returns the content of test2.sdf the given number of times, without the
+     * empty line after its last '$$$$', which would be read as the title line
+     * of the next record.
+     */
+    private String repeat(int times) throws IOException {
+        String single = read("data/mdl/test2.sdf").replaceAll("\\$\\$\\$\\$\\s*$", "\\$\\$\\$\\$\n");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < times; i++) content.append(single);
+        return content.toString();
+    }
+
+    private static List<String> mdlNumbers(IIteratingChemObjectReader<IAtomContainer> reader)
+        throws IOException {
+        List<String> numbers = new ArrayList<String>();
+        while (reader.hasNext()) {
+            IAtomContainer molecule = reader.next();
+            Assert.assertTrue(molecule.getAtomCount() > 0);
+            numbers.add((String) molecule.getProperty("MDLNUMBER"));
+        }
+        reader.close();
+        return numbers;
+    }
+
+    @Test public void testParallelIteratingSDFReader_Reader_IChemObjectBuilder() throws Exception {
+        String content = read("data/mdl/test2.sdf");
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(new StringReader(content), builder);
+        List<String> expected = mdlNumbers(new IteratingSDFReader(new StringReader(content), builder));
+        Assert.assertEquals(6, expected.size());
+        Assert.assertEquals(expected, mdlNumbers(reader));
+        Assert.assertFalse(reader.hasNext());
+    }
+
+    @Test public void testParallelIteratingSDFReader_InputStream_IChemObjectBuilder() throws Exception {
+        InputStream in = getClass().getClassLoader().getResourceAsStream("data/mdl/test2.sdf");
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(in, builder);
+        int count = 0;
+        while (reader.hasNext()) {
+            Assert.assertEquals(MDLNUMBERS[count], reader.next().getProperty("MDLNUMBER"));
+            count++;
+        }
+        reader.close();
+        Assert.assertEquals(6, count);
+    }
+
+    @Test public void testParallelIteratingSDFReader_Reader_IChemObjectBuilder_int_boolean() throws Exception {
+        String content = repeat(50);
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            for (String number : MDLNUMBERS) expected.add(number);
+        }
+
+        // the order is kept, also with a small read ahead
+        Assert.assertEquals(expected, mdlNumbers(
+            new ParallelIteratingSDFReader(new StringReader(content), builder, 3, true)));
+        Assert.assertEquals(expected, mdlNumbers(
+            new ParallelIteratingSDFReader(new StringReader(content), builder, 1, true)));
+
+        // all molecules are read, in any order
+        List<String> unordered = mdlNumbers(
+            new ParallelIteratingSDFReader(new StringReader(content), builder, 4, false));
+        Collections.sort(expected);
+        Collections.sort(unordered);
+        Assert.assertEquals(expected, unordered);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParallelIteratingSDFReader_NoThreads() {
+        new ParallelIteratingSDFReader(new StringReader(""), builder, 0, true);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNext_Empty() {
+        new ParallelIteratingSDFReader(new StringReader(""), builder).next();
+    }
+
+    /**
+     * @cdk.bug 3488307
+     */
+    @Test public void testSetSkip_boolean() throws Exception {
+        String content = read("data/mdl/bug3488307.sdf");
+        IteratingSDFReader sequential = new IteratingSDFReader(new StringReader(content), builder);
+        sequential.setSkip(true);
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(new StringReader(content), builder, 2, true);
+        reader.setSkip(true);
+        List<String> skipped = mdlNumbers(reader);
+        Assert.assertEquals(3, skipped.size());
+        Assert.assertEquals(mdlNumbers(sequential), skipped);
+
+        // without skipping the broken record ends the iteration
+        reader = new ParallelIteratingSDFReader(new StringReader(content), builder, 2, true);
+        Assert.assertTrue(mdlNumbers(reader).size() < 3);
+    }
+
+    @Test public void testClose() throws Exception {
+        String content = repeat(50);
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(
+            new StringReader(content), builder, 2, true);
+        // stop while the splitter waits for molecules to be taken
+        Assert.assertNotNull(reader.next());
+        reader.close();
+        Assert.assertFalse(reader.hasNext());
+    }
+
+    @Test public void testSetReader_Reader() throws Exception {
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(new StringReader(""), builder);
+        Assert.assertFalse(reader.hasNext());
+        reader.setReader(new StringReader(read("data/mdl/test2.sdf")));
+        Assert.assertEquals(6, mdlNumbers(reader).size());
+    }
+
+    @Test public void testSetReader_InputStream() throws Exception {
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(new StringReader(""), builder);
+        reader.setReader(getClass().getClassLoader().getResourceAsStream("data/mdl/test2.sdf"));
+        Assert.assertEquals(6, mdlNumbers(reader).size());
+    }
+
+    @Test public void testGetFormat() {
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(new StringReader(""), builder);
+        Assert.assertEquals(MDLFormat.getInstance(), reader.getFormat());
+    }
+
+    @Test public void testCustomizeJob() throws Exception {
+        ParallelIteratingSDFReader reader = new ParallelIteratingSDFReader(new StringReader(""), builder);
+        final List<String> questions = new ArrayList<String>();
+        reader.addChemObjectIOListener(new IChemObjectIOListener() {
+            public void processIOSettingQuestion(IOSetting setting) {
+                questions.add(setting.getName());
+            }
+        });
+        reader.customizeJob();
+        Assert.assertEquals(Collections.singletonList("ForceReadAs3DCoordinates"), questions);
+    }
+}
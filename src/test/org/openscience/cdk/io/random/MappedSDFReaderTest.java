@@ -0,0 +1,231 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.io.random;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObject;
+import org.openscience.cdk.io.formats.MDLFormat;
+
+/**
+ * @cdk.module test-io
+ */
+public class MappedSDFReaderTest extends CDKTestCase {
+
+    private static final String[] MDLNUMBERS = {
+        "MFCD00000387", "MFCD00000661", "MFCD00000662",
+        "MFCD00000663", "MFCD00000664", "MFCD03453215"
+    };
+
+    /**
+     * Copies the content of test2.sdf, which has six records, into a
+     * temporary file, optionally with other line ends.
+     */
+    private static File createFile(boolean crlf) throws IOException {
+        InputStream in = MappedSDFReaderTest.class.getClassLoader()
+            .getResourceAsStream("data/mdl/test2.sdf");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) bytes.write(buffer, 0, n);
+        in.close();
+        String content = bytes.toString();
+        if (crlf) content = content.replaceAll("\r?\n", "\r\n");
+
+        File file = File.createTempFile("mapped", ".sdf");
+        file.deleteOnExit();
+        MappedSDFReader.getIndexFile(file.getPath()).deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content.getBytes());
+        out.close();
+        return file;
+    }
+
+    private static void assertRecords(MappedSDFReader reader) throws Exception {
+        Assert.assertEquals(6, reader.size());
+        // reading backwards, just for the test
+        for (int i = reader.size() - 1; i >= 0; i--) {
+            IChemObject molecule = reader.readRecord(i);
+            Assert.assertTrue(molecule instanceof IAtomContainer);
+            Assert.assertEquals(MDLNUMBERS[i], molecule.getProperty("MDLNUMBER"));
+            Assert.assertTrue(((IAtomContainer) molecule).getAtomCount() > 0);
+        }
+    }
+
+    @Test public void testMappedSDFReader_File_IChemObjectBuilder() throws Exception {
+        File file = createFile(false);
+        MappedSDFReader reader = new MappedSDFReader(file, DefaultChemObjectBuilder.getInstance());
+        assertRecords(reader);
+        reader.close();
+        Assert.assertTrue(MappedSDFReader.getIndexFile(file.getPath()).exists());
+
+        // the second time the index is loaded
+        reader = new MappedSDFReader(file, DefaultChemObjectBuilder.getInstance());
+        assertRecords(reader);
+        reader.close();
+    }
+
+    @Test public void testMappedSDFReader_File_IChemObjectBuilder_int() throws Exception {
+        File file = createFile(true);
+        // records cross the boundaries of these small segments
+        MappedSDFReader reader = new MappedSDFReader(file, DefaultChemObjectBuilder.getInstance(), 1000);
+        assertRecords(reader);
+        Assert.assertEquals(5, reader.indexOf("MDLNUMBER", MDLNUMBERS[5]));
+        reader.close();
+    }
+
+    @Test public void testGetIndexFile_String() {
+        File indexFile = MappedSDFReader.getIndexFile("/some/folder/test.sdf");
+        Assert.assertEquals("test.sdf_cdk.bindex", indexFile.getName());
+        Assert.assertEquals(new File(System.getProperty("java.io.tmpdir")).getAbsolutePath(),
+                            indexFile.getParentFile().getAbsolutePath());
+        Assert.assertFalse(indexFile.equals(RandomAccessReader.getIndexFile("/some/folder/test.sdf")));
+    }
+
+    @Test public void testReadContent_int() throws Exception {
+        MappedSDFReader reader = new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance());
+        String content = reader.readContent(2);
+        Assert.assertTrue(content.contains(MDLNUMBERS[2]));
+        Assert.assertTrue(content.trim().endsWith("$$$$"));
+        Assert.assertFalse(content.contains(MDLNUMBERS[1]));
+        Assert.assertFalse(content.contains(MDLNUMBERS[3]));
+        reader.close();
+    }
+
+    @Test(expected = CDKException.class)
+    public void testReadContent_int_NoSuchRecord() throws Exception {
+        MappedSDFReader reader = new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance());
+        try {
+            reader.readContent(6);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test public void testReadRecord_int() throws Exception {
+        final MappedSDFReader reader = new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 60; i++) {
+                final int record = i % reader.size();
+                results.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        return reader.readRecord(record).getProperty("MDLNUMBER");
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                Assert.assertEquals(MDLNUMBERS[i % MDLNUMBERS.length], results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+            reader.close();
+        }
+    }
+
+    @Test public void testIndexOf_String_String() throws Exception {
+        MappedSDFReader reader = new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance());
+        for (int i = 0; i < MDLNUMBERS.length; i++) {
+            Assert.assertEquals(i, reader.indexOf("MDLNUMBER", MDLNUMBERS[i]));
+        }
+        Assert.assertEquals(-1, reader.indexOf("MDLNUMBER", "MFCD00000000"));
+        Assert.assertEquals(-1, reader.indexOf("NO_SUCH_TAG", MDLNUMBERS[0]));
+        reader.close();
+    }
+
+    @Test public void testReadRecord_String_String() throws Exception {
+        MappedSDFReader reader = new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance());
+        IChemObject molecule = reader.readRecord("MDLNUMBER", MDLNUMBERS[4]);
+        Assert.assertNotNull(molecule);
+        Assert.assertEquals(MDLNUMBERS[4], molecule.getProperty("MDLNUMBER"));
+        Assert.assertNull(reader.readRecord("MDLNUMBER", "MFCD00000000"));
+        reader.close();
+    }
+
+    @Test public void testIterator() throws Exception {
+        MappedSDFReader reader = new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance());
+        Assert.assertEquals(MDLNUMBERS[0], reader.first().getProperty("MDLNUMBER"));
+        Assert.assertFalse(reader.hasPrevious());
+        Assert.assertEquals(1, reader.nextIndex());
+        int count = 1;
+        while (reader.hasNext()) {
+            Assert.assertEquals(MDLNUMBERS[count], reader.next().getProperty("MDLNUMBER"));
+            count++;
+        }
+        Assert.assertEquals(6, count);
+        Assert.assertEquals(4, reader.previousIndex());
+        Assert.assertEquals(MDLNUMBERS[4], reader.previous().getProperty("MDLNUMBER"));
+        Assert.assertEquals(MDLNUMBERS[5], reader.last().getProperty("MDLNUMBER"));
+        reader.close();
+    }
+
+    @Test public void testGetFormat() throws Exception {
+        MappedSDFReader reader = new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance());
+        Assert.assertEquals(MDLFormat.getInstance(), reader.getFormat());
+        reader.close();
+    }
+
+    @Test public void testClose() throws Exception {
+        MappedSDFReader reader = new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance());
+        reader.close();
+    }
+
+    @Test public void testToString() throws Exception {
+        File file = createFile(false);
+        MappedSDFReader reader = new MappedSDFReader(file, DefaultChemObjectBuilder.getInstance());
+        Assert.assertEquals(file.getAbsolutePath(), reader.toString());
+        reader.close();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSet_IChemObject() throws Exception {
+        new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance()).set(null);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAdd_IChemObject() throws Exception {
+        new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance()).add(null);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRemove() throws Exception {
+        new MappedSDFReader(createFile(false), DefaultChemObjectBuilder.getInstance()).remove();
+    }
+}
@@ -386,6 +386,19 @@ public class UniversalIsomorphismTesterTest extends CDKTestCase
         }
     }
 
+    @Test public void testGetSubgraphMaps_IAtomContainer_IAtomContainer_int() throws Exception {
+        IAtomContainer mol = MoleculeFactory.makeAlkane(6);
+        IAtomContainer frag = MoleculeFactory.makeAlkane(3);
+
+        List<List<RMap>> all = uiTester.getSubgraphMaps(mol, frag);
+        Assert.assertEquals(8, all.size());
+        Assert.assertEquals(8, uiTester.getSubgraphMaps(mol, frag, -1).size());
+        Assert.assertEquals(1, uiTester.getSubgraphMaps(mol, frag, 1).size());
+        Assert.assertEquals(3, uiTester.getSubgraphMaps(mol, frag, 3).size());
+        Assert.assertEquals(8, uiTester.getSubgraphMaps(mol, frag, 20).size());
+        Assert.assertEquals(0, uiTester.getSubgraphMaps(frag, mol, 1).size());
+    }
+
     /**
      * @cdk.bug 1208740
      */
@@ -108,6 +108,22 @@ public class ForceFieldConfiguratorTest  {
 		assertEquals(12, (int) atomtype4.getMassNumber());
 		
 	}
+
+	@Test
+	public void testSetForceFieldConfigurator_SharedParameters() throws CDKException {
+		forceFieldConfigurator.setForceFieldConfigurator("mm2");
+		ForceFieldConfigurator other = new ForceFieldConfigurator();
+		other.setForceFieldConfigurator("mm2");
+		// the parameter file is read once
+		assertSame(forceFieldConfigurator.getParameterSet(), other.getParameterSet());
+		assertSame(forceFieldConfigurator.getAtomTypes(), other.getAtomTypes());
+		try {
+			other.getParameterSet().clear();
+			fail("the shared parameter set must not be modifiable");
+		} catch (UnsupportedOperationException expected) {
+		}
+		assertFalse(forceFieldConfigurator.getParameterSet().isEmpty());
+	}
 	
 	@Test
 	public void testRemoveAromaticityFlagsFromHoseCode_String() {
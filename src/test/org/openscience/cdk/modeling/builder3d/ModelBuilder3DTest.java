@@ -386,4 +386,39 @@ public class ModelBuilder3DTest extends CDKTestCase {
 		}
 		checkAverageBondLength(ac);
 	}
+
+    @Test
+    public void testGenerate3DCoordinates_Iterable_int() throws Exception {
+        ModelBuilder3D mb3d = ModelBuilder3D.getInstance();
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        String[] smiles = {"CCCCCC", "CCO", "CccccC", "C1CCCCC1CC", "OC(=O)C1CCCCC1", "CC(C)CC(N)C(=O)O",
+                           "CCCCCCCCCC", "C1CCCC1CCN"};
+        List<IAtomContainer> molecules = new ArrayList<IAtomContainer>();
+        for (int i = 0; i < 3; i++) {
+            for (String smile : smiles) {
+                IAtomContainer mol = sp.parseSmiles(smile);
+                addExplicitHydrogens(mol);
+                molecules.add(mol);
+            }
+        }
+        // not connected, cannot be laid out
+        IAtomContainer disconnected = sp.parseSmiles("CC.CC");
+        molecules.add(disconnected);
+
+        List<IAtomContainer> failed = mb3d.generate3DCoordinates(molecules, 4);
+        Assert.assertEquals(1, failed.size());
+        Assert.assertSame(disconnected, failed.get(0));
+        for (IAtomContainer mol : molecules) {
+            if (mol == disconnected) continue;
+            for (IAtom atom : mol.atoms()) {
+                Assert.assertNotNull(atom.getPoint3d());
+            }
+            checkAverageBondLength(mol);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGenerate3DCoordinates_Iterable_NoThreads() throws Exception {
+        ModelBuilder3D.getInstance().generate3DCoordinates(new ArrayList<IAtomContainer>(), 0);
+    }
 }
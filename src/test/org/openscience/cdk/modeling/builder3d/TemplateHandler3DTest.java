@@ -22,19 +22,29 @@ package org.openscience.cdk.modeling.builder3d;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.CDKTestCase;
 import org.openscience.cdk.fingerprint.IBitFingerprint;
+import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IAtomContainerSet;
+import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.io.iterator.IteratingSDFReader;
 import org.openscience.cdk.ringsearch.RingPartitioner;
 import org.openscience.cdk.silent.AtomContainer;
+import org.openscience.cdk.silent.AtomContainerSet;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
 import org.openscience.cdk.templates.MoleculeFactory;
 import org.openscience.cdk.tools.manipulator.RingSetManipulator;
 
@@ -99,4 +109,145 @@ public class TemplateHandler3DTest extends CDKTestCase {
 		ModelBuilder3DTest.checkAverageBondLength(ac);
 	}
 
+
+	private static IAtomContainer largestRingSystem(IAtomContainer molecule) throws Exception {
+		ForceFieldConfigurator ffc = new ForceFieldConfigurator();
+		ffc.setForceFieldConfigurator("mm2");
+		IRingSet ringSetMolecule = ffc.assignAtomTyps(molecule);
+		List<IRingSet> ringSystems = RingPartitioner.partitionRings(ringSetMolecule);
+		return RingSetManipulator.getAllInOneContainer(RingSetManipulator.getLargestRingSet(ringSystems));
+	}
+
+	/**
+	 * The precompiled store holds the same templates and fingerprints as the
+	 * SD file and the fingerprint file it is made from.
+	 */
+	@Test
+	public void testTemplateStore() throws Exception {
+		ClassLoader loader = this.getClass().getClassLoader();
+		IAtomContainerSet templates = new AtomContainerSet();
+		List<BitSet> fingerprints = new ArrayList<BitSet>();
+		TemplateHandler3D.readTemplateStore(
+		    loader.getResourceAsStream("org/openscience/cdk/modeling/builder3d/data/ringTemplateStore.bin.gz"),
+		    templates, fingerprints
+		);
+		Assert.assertEquals(10751, templates.getAtomContainerCount());
+
+		IteratingSDFReader reader = new IteratingSDFReader(new InputStreamReader(new GZIPInputStream(
+		    loader.getResourceAsStream("org/openscience/cdk/modeling/builder3d/data/ringTemplateStructures.sdf.gz")
+		)), SilentChemObjectBuilder.getInstance());
+		BufferedReader fingerprintReader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+		    loader.getResourceAsStream("org/openscience/cdk/modeling/builder3d/data/ringTemplateFingerprints.txt.gz")
+		)));
+		for (int i = 0; i < templates.getAtomContainerCount(); i++) {
+			IAtomContainer expected = (IAtomContainer) reader.next();
+			IAtomContainer actual = templates.getAtomContainer(i);
+			Assert.assertEquals(expected.getAtomCount(), actual.getAtomCount());
+			for (int j = 0; j < expected.getAtomCount(); j++) {
+				IAtom atom = expected.getAtom(j);
+				Assert.assertEquals(atom.getSymbol(), actual.getAtom(j).getSymbol());
+				Assert.assertEquals(atom.getPoint3d().x, actual.getAtom(j).getPoint3d().x, 0.0);
+				Assert.assertEquals(atom.getPoint3d().y, actual.getAtom(j).getPoint3d().y, 0.0);
+				Assert.assertEquals(atom.getPoint3d().z, actual.getAtom(j).getPoint3d().z, 0.0);
+				Assert.assertEquals(atom.getFlag(CDKConstants.ISAROMATIC),
+				                    actual.getAtom(j).getFlag(CDKConstants.ISAROMATIC));
+			}
+			Assert.assertEquals(expected.getBondCount(), actual.getBondCount());
+			for (int j = 0; j < expected.getBondCount(); j++) {
+				IBond bond = expected.getBond(j);
+				Assert.assertEquals(expected.getAtomNumber(bond.getAtom(0)), actual.getAtomNumber(actual.getBond(j).getAtom(0)));
+				Assert.assertEquals(expected.getAtomNumber(bond.getAtom(1)), actual.getAtomNumber(actual.getBond(j).getAtom(1)));
+				Assert.assertEquals(bond.getOrder(), actual.getBond(j).getOrder());
+				Assert.assertEquals(bond.getFlag(CDKConstants.ISAROMATIC),
+				                    actual.getBond(j).getFlag(CDKConstants.ISAROMATIC));
+			}
+			Assert.assertEquals(TemplateHandler3D.getBitSetFromFile(new StringTokenizer(fingerprintReader.readLine(), "\t ;{, }")),
+			                    fingerprints.get(i));
+		}
+		Assert.assertFalse(reader.hasNext());
+		reader.close();
+		fingerprintReader.close();
+	}
+
+	@Test
+	public void testGetRingSystemKey() throws Exception {
+		SmilesParser sp = new SmilesParser(SilentChemObjectBuilder.getInstance());
+		// the same ring system with the atoms in another order
+		Assert.assertEquals(TemplateHandler3D.getRingSystemKey(sp.parseSmiles("C1CCC2CCCCC2C1")),
+		                    TemplateHandler3D.getRingSystemKey(sp.parseSmiles("C1CC2CCCCC2CC1")));
+		Assert.assertEquals(TemplateHandler3D.getRingSystemKey(sp.parseSmiles("O=C1CCCCC1")),
+		                    TemplateHandler3D.getRingSystemKey(sp.parseSmiles("C1CCC(=O)CC1")));
+		// other atoms, bonds or connections
+		Assert.assertFalse(TemplateHandler3D.getRingSystemKey(sp.parseSmiles("C1CCCCC1")).equals(
+		                   TemplateHandler3D.getRingSystemKey(sp.parseSmiles("C1CCOCC1"))));
+		Assert.assertFalse(TemplateHandler3D.getRingSystemKey(sp.parseSmiles("C1CCCCC1")).equals(
+		                   TemplateHandler3D.getRingSystemKey(sp.parseSmiles("c1ccccc1"))));
+		Assert.assertFalse(TemplateHandler3D.getRingSystemKey(sp.parseSmiles("C1CC2CCC1CC2")).equals(
+		                   TemplateHandler3D.getRingSystemKey(sp.parseSmiles("C1CCC2CCC2C1"))));
+	}
+
+	/**
+	 * Ring systems with a template of the same topology, but which the
+	 * fingerprint screen rejected, are found by the exact lookup.
+	 */
+	@Test
+	public void testMapTemplates_Aromatic() throws Exception {
+		SmilesParser sp = new SmilesParser(SilentChemObjectBuilder.getInstance());
+		TemplateHandler3D th3d = TemplateHandler3D.getInstance();
+		for (String smiles : new String[]{"c1ccccc1", "c1ccc2ccccc2c1", "c1ccc2c(c1)ccc1ccccc12"}) {
+			IAtomContainer ringSystem = largestRingSystem(sp.parseSmiles(smiles));
+			th3d.mapTemplates(ringSystem, ringSystem.getAtomCount());
+			for (IAtom atom : ringSystem.atoms())
+				Assert.assertNotNull(smiles, atom.getPoint3d());
+		}
+	}
+
+	@Test
+	public void testMapTemplates_Threads() throws Exception {
+		final TemplateHandler3D th3d = TemplateHandler3D.getInstance();
+		final String[] smiles = {"C1CCC2CCCCC2C1", "O=C1CCCCC1", "C1CC2CCC1CC2", "c1ccc2ccccc2c1", "C1CCCCCCCCCCC1"};
+		final SmilesParser sp = new SmilesParser(SilentChemObjectBuilder.getInstance());
+		final List<String> expected = new ArrayList<String>();
+		for (String smi : smiles) {
+			IAtomContainer ringSystem = largestRingSystem(sp.parseSmiles(smi));
+			th3d.mapTemplates(ringSystem, ringSystem.getAtomCount());
+			expected.add(coordinates(ringSystem));
+		}
+
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					try {
+						for (int repeat = 0; repeat < 5; repeat++) {
+							for (int i = 0; i < smiles.length; i++) {
+								IAtomContainer ringSystem;
+								synchronized (sp) {
+									ringSystem = sp.parseSmiles(smiles[i]);
+								}
+								ringSystem = largestRingSystem(ringSystem);
+								th3d.mapTemplates(ringSystem, ringSystem.getAtomCount());
+								Assert.assertEquals(expected.get(i), coordinates(ringSystem));
+							}
+						}
+					} catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) thread.join();
+		if (!errors.isEmpty()) throw new AssertionError(errors.get(0));
+	}
+
+	private static String coordinates(IAtomContainer container) {
+		StringBuilder sb = new StringBuilder();
+		for (IAtom atom : container.atoms()) sb.append(atom.getPoint3d()).append(';');
+		return sb.toString();
+	}
+
 }
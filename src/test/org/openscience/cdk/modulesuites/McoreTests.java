@@ -45,6 +45,7 @@ import org.openscience.cdk.coverage.CoreCoverageTest;
 import org.openscience.cdk.exception.CDKExceptionTest;
 import org.openscience.cdk.exception.NoSuchAtomExceptionTest;
 import org.openscience.cdk.exception.NoSuchAtomTypeExceptionTest;
+import org.openscience.cdk.graph.AdjacencyListTest;
 import org.openscience.cdk.graph.PathToolsTest;
 import org.openscience.cdk.graph.SpanningTreeTest;
 import org.openscience.cdk.graph.matrix.AdjacencyMatrixTest;
@@ -106,6 +107,7 @@ import org.openscience.cdk.tools.periodictable.PeriodicTableTest;
     SystemOutLoggingToolTest.class,
     BondManipulatorTest.class,
     AdjacencyMatrixTest.class,
+    AdjacencyListTest.class,
     PathToolsTest.class,
     TetrahedralChiralityTest.class,
     DoubleBondStereochemistryTest.class,
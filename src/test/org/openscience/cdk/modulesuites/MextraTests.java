@@ -34,6 +34,7 @@ import org.openscience.cdk.reaction.ReactionChainTest;
 import org.openscience.cdk.tools.BremserPredictorTest;
 import org.openscience.cdk.tools.DeAromatizationToolTest;
 import org.openscience.cdk.tools.HOSECodeAnalyserTest;
+import org.openscience.cdk.tools.HOSECodeShiftPredictorTest;
 
 /**
  * TestSuite that runs all the sample tests.
@@ -53,6 +54,7 @@ import org.openscience.cdk.tools.HOSECodeAnalyserTest;
     DeAromatizationToolTest.class,
     ShelXWriterTest.class,
     BremserPredictorTest.class,
+    HOSECodeShiftPredictorTest.class,
     ParserTest.class,
     ReactionChainTest.class    
 })
@@ -31,6 +31,7 @@ import org.openscience.cdk.fingerprint.MACCSFingerprinterTest;
 import org.openscience.cdk.fingerprint.PubchemFingerprinterTest;
 import org.openscience.cdk.fingerprint.ShortestPathFingerprinterTest;
 import org.openscience.cdk.similarity.DistanceMomentTest;
+import org.openscience.cdk.similarity.FingerprintDatabaseTest;
 import org.openscience.cdk.similarity.LingoSimilarityTest;
 import org.openscience.cdk.similarity.TanimotoTest;
 
@@ -49,6 +50,7 @@ import org.openscience.cdk.similarity.TanimotoTest;
     PubchemFingerprinterTest.class,
     DistanceMomentTest.class,
     TanimotoTest.class,
+    FingerprintDatabaseTest.class,
     LingoSimilarityTest.class,
     KlekotaRothFingerprinterTest.class,
 	ShortestPathFingerprinterTest.class
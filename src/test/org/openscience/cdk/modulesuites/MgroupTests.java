@@ -21,6 +21,7 @@ package org.openscience.cdk.modulesuites;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
+import org.openscience.cdk.graph.invariant.CanonicalPartitionLabelerTest;
 import org.openscience.cdk.group.AbstractDiscretePartitionRefinerTest;
 import org.openscience.cdk.group.AtomDiscretePartitionRefinerTest;
 import org.openscience.cdk.group.AtomEquitablePartitionRefinerTest;
@@ -49,6 +50,7 @@ import org.openscience.cdk.group.PermutationTest;
         BondDiscretePartitionRefinerTest.class,
         BondEquitablePartitionRefinerTest.class,
         BondGroupTests.class,
+        CanonicalPartitionLabelerTest.class,
         DisjointSetForestTest.class,
         PartitionTest.class,
         PermutationTest.class,
@@ -39,6 +39,7 @@ import org.openscience.cdk.io.GhemicalReaderTest;
 import org.openscience.cdk.io.HINReaderTest;
 import org.openscience.cdk.io.INChIPlainTextReaderTest;
 import org.openscience.cdk.io.INChIReaderTest;
+import org.openscience.cdk.io.MDLColumnParserTest;
 import org.openscience.cdk.io.MDLRXNReaderTest;
 import org.openscience.cdk.io.MDLRXNV2000ReaderTest;
 import org.openscience.cdk.io.MDLRXNV3000ReaderTest;
@@ -64,10 +65,12 @@ import org.openscience.cdk.io.XYZWriterTest;
 import org.openscience.cdk.io.cml.CMLIOTests;
 import org.openscience.cdk.io.iterator.IteratingMDLConformerReaderTest;
 import org.openscience.cdk.io.iterator.IteratingSDFReaderTest;
+import org.openscience.cdk.io.iterator.ParallelIteratingSDFReaderTest;
 import org.openscience.cdk.io.iterator.IteratingPCCompoundASNReaderTest;
 import org.openscience.cdk.io.iterator.IteratingPCCompoundXMLReaderTest;
 import org.openscience.cdk.io.iterator.IteratingPCSubstancesXMLReaderTest;
 import org.openscience.cdk.io.program.Mopac7WriterTest;
+import org.openscience.cdk.io.random.MappedSDFReaderTest;
 
 /**
  * TestSuite that runs all the sample tests for the cdk.io package.
@@ -91,6 +94,7 @@ import org.openscience.cdk.io.program.Mopac7WriterTest;
     INChIPlainTextReaderTest.class,
     MDLReaderTest.class,
     MDLV2000ReaderTest.class,
+    MDLColumnParserTest.class,
     MDLV3000ReaderTest.class,
     SDFReaderTest.class,
     MDLV2000WriterTest.class,
@@ -120,6 +124,10 @@ import org.openscience.cdk.io.program.Mopac7WriterTest;
     IteratingMDLConformerReaderTest.class,
     IteratingPCCompoundASNReaderTest.class,
     IteratingPCCompoundXMLReaderTest.class,
-    IteratingPCSubstancesXMLReaderTest.class        
+    IteratingPCSubstancesXMLReaderTest.class,
+    ParallelIteratingSDFReaderTest.class,
+
+        // cdk.io.random package
+    MappedSDFReaderTest.class
 })
 public class MioTests {}
\ No newline at end of file
@@ -23,8 +23,10 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 import org.openscience.cdk.coverage.QsarmolecularCoverageTest;
+import org.openscience.cdk.geometry.surface.NumericalSurfaceTest;
 import org.openscience.cdk.graph.matrix.TopologicalMatrixTest;
 import org.openscience.cdk.qsar.DescriptorEngineTest;
+import org.openscience.cdk.qsar.PerceptionCacheTest;
 import org.openscience.cdk.qsar.DescriptorNamesTest;
 import org.openscience.cdk.qsar.descriptors.molecular.ALOGPDescriptorTest;
 import org.openscience.cdk.qsar.descriptors.molecular.APolDescriptorTest;
@@ -89,6 +91,7 @@ import org.openscience.cdk.qsar.descriptors.molecular.ZagrebIndexDescriptorTest;
         // Individual Tests - Please add correlatively  
     ChiIndexUtilsTest.class,
     DescriptorEngineTest.class,
+    PerceptionCacheTest.class,
     DescriptorNamesTest.class,
 
 //      from cdk.test.qsar.molecular
@@ -137,6 +140,7 @@ import org.openscience.cdk.qsar.descriptors.molecular.ZagrebIndexDescriptorTest;
     CarbonTypesDescriptorTest.class,
     HybridizationRatioDescriptorTest.class,
     FMFDescriptorTest.class,
-    TopologicalMatrixTest.class
+    TopologicalMatrixTest.class,
+    NumericalSurfaceTest.class
 })
 public class MqsarmolecularTests {}
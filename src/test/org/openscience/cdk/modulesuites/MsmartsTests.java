@@ -25,6 +25,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 import org.openscience.cdk.coverage.SmartsCoverageTest;
 import org.openscience.cdk.isomorphism.SMARTSTest;
+import org.openscience.cdk.smiles.smarts.SMARTSPatternSetTest;
 import org.openscience.cdk.smiles.smarts.SMARTSQueryToolTest;
 import org.openscience.cdk.smiles.smarts.parser.ParserTest;
 import org.openscience.cdk.smiles.smarts.parser.RecursiveTest;
@@ -46,6 +47,7 @@ import org.openscience.cdk.smiles.smarts.parser.visitor.SmartsQueryVisitorTest;
     RecursiveTest.class,
     SmartsDumpVisitorTest.class,
     SmartsQueryVisitorTest.class,
-    SMARTSQueryToolTest.class
+    SMARTSQueryToolTest.class,
+    SMARTSPatternSetTest.class
 })
 public class MsmartsTests {}
@@ -35,9 +35,11 @@ import org.openscience.cdk.fingerprint.FingerprinterTest;
 import org.openscience.cdk.fingerprint.FingerprinterToolTest;
 import org.openscience.cdk.fingerprint.GraphOnlyFingerprinterTest;
 import org.openscience.cdk.fingerprint.HybridizationFingerprinterTest;
+import org.openscience.cdk.fingerprint.PathHasherTest;
 import org.openscience.cdk.geometry.BondToolsTest;
 import org.openscience.cdk.geometry.CrystalGeometryToolsTest;
 import org.openscience.cdk.geometry.GeometryToolsTest;
+import org.openscience.cdk.geometry.SpatialGridTest;
 import org.openscience.cdk.geometry.volume.VABCVolumeTest;
 import org.openscience.cdk.graph.AtomContainerAtomPermutorTest;
 import org.openscience.cdk.graph.AtomContainerBondPermutorTest;
@@ -74,8 +76,10 @@ import org.openscience.cdk.qsar.result.IntegerArrayResultTypeTest;
 import org.openscience.cdk.qsar.result.IntegerResultTest;
 import org.openscience.cdk.qsar.result.IntegerResultTypeTest;
 import org.openscience.cdk.ringsearch.AllRingsFinderTest;
+import org.openscience.cdk.ringsearch.HanserRingFinderTest;
 import org.openscience.cdk.ringsearch.PathTest;
 import org.openscience.cdk.ringsearch.QueueTest;
+import org.openscience.cdk.ringsearch.RelevantCyclesTest;
 import org.openscience.cdk.ringsearch.RingPartitionerTest;
 import org.openscience.cdk.ringsearch.SSSRFinderTest;
 import org.openscience.cdk.ringsearch.cyclebasis.CycleBasisTest;
@@ -119,6 +123,7 @@ import org.openscience.cdk.validate.ProblemMarkerTest;
     DictRefTest.class,
     CrystalGeometryToolsTest.class,
     GeometryToolsTest.class,
+    SpatialGridTest.class,
     MinimalPathIteratorTest.class,
     ConnectivityCheckerTest.class,
     UniversalIsomorphismTesterTest.class,
@@ -128,6 +133,7 @@ import org.openscience.cdk.validate.ProblemMarkerTest;
     RNodeTest.class,
     MathToolsTest.class,
     AllRingsFinderTest.class,
+    HanserRingFinderTest.class,
     RingPartitionerTest.class,
     SimpleCycleTest.class,
     SimpleCycleBasisTest.class,
@@ -148,6 +154,7 @@ import org.openscience.cdk.validate.ProblemMarkerTest;
     FingerprinterTest.class,
     HybridizationFingerprinterTest.class,
     GraphOnlyFingerprinterTest.class,
+    PathHasherTest.class,
     FingerprinterToolTest.class,
     ProblemMarkerTest.class,
     BondToolsTest.class,
@@ -170,6 +177,7 @@ import org.openscience.cdk.validate.ProblemMarkerTest;
     MorganNumbersToolsTest.class,
     PathTest.class,
     QueueTest.class,
+    RelevantCyclesTest.class,
     SSSRFinderTest.class,
     DoubleArrayResultTest.class,
     IntegerArrayResultTest.class,
@@ -23,13 +23,23 @@
  */
 package org.openscience.cdk.qsar;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.openscience.cdk.CDKTestCase;
 import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.IImplementationSpecification;
+import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.modeling.builder3d.ModelBuilder3D;
 import org.openscience.cdk.modeling.builder3d.TemplateHandler3D;
+import org.openscience.cdk.qsar.result.DoubleResult;
+import org.openscience.cdk.qsar.result.DoubleResultType;
+import org.openscience.cdk.qsar.result.IDescriptorResult;
 import org.openscience.cdk.smiles.SmilesParser;
 
 /**
@@ -151,5 +161,194 @@ public class    DescriptorEngineTest extends CDKTestCase {
     	Assert.assertEquals(loadedDescriptors, engine.getDescriptorClassNames().size());
     	Assert.assertEquals(loadedDescriptors, engine.getDescriptorSpecifications().size());
     }
-}
 
+    private static final String[] SMILES = {
+        "CCO", "c1ccccc1", "CC(=O)O", "COC1=CC2=C(C=C1)NC3=C2CCNC3", "C1CCCCC1N",
+        "OC(=O)C(N)Cc1ccccc1", "ClC(Cl)Cl", "CCCCCCCCCC", "O=C=O", "c1ccncc1"
+    };
+
+    private static List<IAtomContainer> parse() throws Exception {
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        List<IAtomContainer> molecules = new ArrayList<IAtomContainer>();
+        for (String smiles : SMILES) molecules.add(sp.parseSmiles(smiles));
+        return molecules;
+    }
+
+    private static DescriptorEngine createEngine() {
+        return new DescriptorEngine(Arrays.asList(
+            "org.openscience.cdk.qsar.descriptors.molecular.ZagrebIndexDescriptor",
+            "org.openscience.cdk.qsar.descriptors.molecular.TPSADescriptor",
+            "org.openscience.cdk.qsar.descriptors.molecular.AtomCountDescriptor",
+            "org.openscience.cdk.qsar.descriptors.molecular.WeightDescriptor"
+        ));
+    }
+
+    private static String values(DescriptorEngine engine, IAtomContainer molecule) {
+        StringBuilder values = new StringBuilder();
+        for (IImplementationSpecification specification : engine.getDescriptorSpecifications()) {
+            DescriptorValue value = (DescriptorValue) molecule.getProperty(specification);
+            values.append(value == null ? "null" : value.getValue().toString()).append(' ');
+        }
+        return values.toString();
+    }
+
+    @Test
+    public void testProcess_IAtomContainer() throws Exception {
+        DescriptorEngine engine = createEngine();
+        Assert.assertEquals(4, engine.getDescriptorInstances().size());
+        IAtomContainer molecule = parse().get(2);
+        engine.process(molecule);
+        for (IImplementationSpecification specification : engine.getDescriptorSpecifications()) {
+            Assert.assertNotNull(molecule.getProperty(specification));
+        }
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(engine.getCalculationTime(i) > 0);
+            Assert.assertEquals(0, engine.getFailureCount(i));
+        }
+    }
+
+    @Test
+    public void testProcess_Iterable_int() throws Exception {
+        DescriptorEngine engine = createEngine();
+        List<IAtomContainer> expected = parse();
+        for (IAtomContainer molecule : expected) engine.process(molecule);
+        long[] sequentialTimes = new long[4];
+        for (int i = 0; i < 4; i++) sequentialTimes[i] = engine.getCalculationTime(i);
+
+        List<IAtomContainer> molecules = new ArrayList<IAtomContainer>();
+        for (int i = 0; i < 20; i++) molecules.addAll(parse());
+        engine.process(molecules, 3);
+        for (int i = 0; i < molecules.size(); i++) {
+            Assert.assertEquals(SMILES[i % SMILES.length],
+                                values(engine, expected.get(i % SMILES.length)),
+                                values(engine, molecules.get(i)));
+        }
+        // the time is added up
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(engine.getCalculationTime(i) > sequentialTimes[i]);
+            Assert.assertEquals(0, engine.getFailureCount(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testProcess_Iterable_NoThreads() throws Exception {
+        createEngine().process(parse(), 0);
+    }
+
+    @Test
+    public void testProcess_Iterable_int_Parameters() throws Exception {
+        DescriptorEngine engine = new DescriptorEngine(Collections.<String>emptyList());
+        ScaledAtomCountDescriptor descriptor = new ScaledAtomCountDescriptor();
+        descriptor.setParameters(new Object[]{2.0});
+        engine.setDescriptorInstances(Collections.<IDescriptor>singletonList(descriptor));
+        engine.setDescriptorSpecifications(engine.initializeSpecifications(engine.getDescriptorInstances()));
+
+        List<IAtomContainer> molecules = parse();
+        engine.process(molecules, 2);
+        for (IAtomContainer molecule : molecules) {
+            DescriptorValue value = (DescriptorValue) molecule.getProperty(descriptor.getSpecification());
+            if (molecule.getAtomCount() % 2 == 0) {
+                // the copies have the parameters of the original instance
+                Assert.assertEquals(2.0 * molecule.getAtomCount(),
+                                    ((DoubleResult) value.getValue()).doubleValue(), 0.0);
+            } else {
+                Assert.assertNull(value);
+            }
+        }
+    }
+
+    @Test
+    public void testGetFailureCount_int() throws Exception {
+        DescriptorEngine engine = new DescriptorEngine(Collections.<String>emptyList());
+        engine.setDescriptorInstances(Collections.<IDescriptor>singletonList(new ScaledAtomCountDescriptor()));
+        engine.setDescriptorSpecifications(engine.initializeSpecifications(engine.getDescriptorInstances()));
+        int odd = 0;
+        for (IAtomContainer molecule : parse()) {
+            if (molecule.getAtomCount() % 2 != 0) odd++;
+        }
+        Assert.assertTrue(odd > 0);
+
+        engine.process(parse(), 1);
+        Assert.assertEquals(odd, engine.getFailureCount(0));
+        engine.process(parse(), 3);
+        Assert.assertEquals(2 * odd, engine.getFailureCount(0));
+        for (IAtomContainer molecule : parse()) engine.process(molecule);
+        Assert.assertEquals(3 * odd, engine.getFailureCount(0));
+    }
+
+    @Test
+    public void testResetStatistics() throws Exception {
+        DescriptorEngine engine = createEngine();
+        engine.process(parse(), 2);
+        Assert.assertTrue(engine.getCalculationTime(0) > 0);
+        engine.resetStatistics();
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(0, engine.getCalculationTime(i));
+            Assert.assertEquals(0, engine.getFailureCount(i));
+        }
+    }
+
+    @Test(expected = CDKException.class)
+    public void testProcess_Iterable_int_Exception() throws Exception {
+        DescriptorEngine engine = new DescriptorEngine(Collections.<String>emptyList());
+        ScaledAtomCountDescriptor descriptor = new ScaledAtomCountDescriptor();
+        descriptor.setParameters(new Object[]{Double.NaN});
+        engine.setDescriptorInstances(Collections.<IDescriptor>singletonList(descriptor));
+        engine.setDescriptorSpecifications(engine.initializeSpecifications(engine.getDescriptorInstances()));
+        try {
+            engine.process(parse(), 2);
+        } finally {
+            Assert.assertTrue(engine.getFailureCount(0) > 0);
+        }
+    }
+
+    /**
+     * Counts the atoms times a factor, and fails for molecules with an odd number of
+     * atoms. A factor of NaN throws an exception.
+     */
+    public static class ScaledAtomCountDescriptor implements IMolecularDescriptor {
+
+        private static final DescriptorSpecification SPECIFICATION = new DescriptorSpecification(
+            "http://www.blueobelisk.org/ontologies/chemoinformatics-algorithms/#scaledAtomCount",
+            ScaledAtomCountDescriptor.class.getName(), "$Id$", "The Chemistry Development Kit");
+
+        private double factor = 1.0;
+
+        public DescriptorSpecification getSpecification() {
+            return SPECIFICATION;
+        }
+
+        public String[] getParameterNames() {
+            return new String[]{"factor"};
+        }
+
+        public Object getParameterType(String name) {
+            return 1.0;
+        }
+
+        public void setParameters(Object[] params) throws CDKException {
+            factor = (Double) params[0];
+        }
+
+        public Object[] getParameters() {
+            return new Object[]{factor};
+        }
+
+        public String[] getDescriptorNames() {
+            return new String[]{"scaledAtomCount"};
+        }
+
+        public DescriptorValue calculate(IAtomContainer container) {
+            if (Double.isNaN(factor)) throw new IllegalStateException("No factor");
+            Exception exception = container.getAtomCount() % 2 == 0
+                ? null : new CDKException("Odd number of atoms");
+            return new DescriptorValue(SPECIFICATION, getParameterNames(), getParameters(),
+                                       new DoubleResult(factor * container.getAtomCount()),
+                                       getDescriptorNames(), exception);
+        }
+
+        public IDescriptorResult getDescriptorResultType() {
+            return new DoubleResultType();
+        }
+    }
+}
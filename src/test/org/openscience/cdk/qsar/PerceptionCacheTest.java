@@ -0,0 +1,269 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.qsar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.aromaticity.CDKHueckelAromaticityDetector;
+import org.openscience.cdk.graph.PathTools;
+import org.openscience.cdk.graph.matrix.AdjacencyMatrix;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.qsar.descriptors.molecular.ALOGPDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.AromaticAtomsCountDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.AutocorrelationDescriptorPolarizability;
+import org.openscience.cdk.qsar.descriptors.molecular.BCUTDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.EccentricConnectivityIndexDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.HBondAcceptorCountDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.MDEDescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.TPSADescriptor;
+import org.openscience.cdk.qsar.descriptors.molecular.XLogPDescriptor;
+import org.openscience.cdk.ringsearch.AllRingsFinder;
+import org.openscience.cdk.ringsearch.SSSRFinder;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.tools.CDKHydrogenAdder;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+/**
+ * @cdk.module test-qsarmolecular
+ */
+public class PerceptionCacheTest extends CDKTestCase {
+
+    private static final String[] SMILES = {
+        "c1ccccc1O", "C1CCCCC1", "CC(=O)Nc1ccc(O)cc1", "c1ccc2ccccc2c1", "O=C1C=CC(=O)C=C1",
+        "C1=CC=CN1", "c1ccncc1", "CCCC(C)C(=O)[O-]", "C1CC2CCC1CC2", "[NH4+].[Cl-]"
+    };
+
+    private static IAtomContainer parse(String smiles) throws Exception {
+        return new SmilesParser(DefaultChemObjectBuilder.getInstance()).parseSmiles(smiles);
+    }
+
+    /** The atom and bond fields set by the perception steps. */
+    private static String state(IAtomContainer container) {
+        StringBuilder state = new StringBuilder();
+        for (IAtom atom : container.atoms()) {
+            state.append(atom.getSymbol()).append(' ').append(atom.getAtomTypeName()).append(' ')
+                 .append(atom.getHybridization()).append(' ').append(atom.getFormalCharge()).append(' ')
+                 .append(atom.getImplicitHydrogenCount()).append(' ')
+                 .append(atom.getFlag(CDKConstants.ISAROMATIC)).append(' ')
+                 .append(atom.getFlag(CDKConstants.ISINRING)).append('\n');
+        }
+        for (IBond bond : container.bonds()) {
+            state.append(bond.getOrder()).append(' ')
+                 .append(bond.getFlag(CDKConstants.ISAROMATIC)).append(' ')
+                 .append(bond.getFlag(CDKConstants.ISINRING)).append('\n');
+        }
+        return state.toString();
+    }
+
+    /** The atom and bond indices of the rings, in no particular order. */
+    private static List<String> rings(IAtomContainer container, IRingSet ringSet) {
+        List<String> rings = new ArrayList<String>();
+        for (IAtomContainer ring : ringSet.atomContainers()) {
+            StringBuilder indices = new StringBuilder();
+            for (IAtom atom : ring.atoms()) indices.append(container.getAtomNumber(atom)).append(' ');
+            indices.append("/ ");
+            for (IBond bond : ring.bonds()) indices.append(container.getBondNumber(bond)).append(' ');
+            rings.add(indices.toString());
+        }
+        Collections.sort(rings);
+        return rings;
+    }
+
+    @Test public void testPerceptionCache() throws Exception {
+        PerceptionCache cache = new PerceptionCache();
+        Assert.assertNotNull(cache);
+        IAtomContainer molecule = parse("c1ccccc1");
+        Assert.assertEquals(6, cache.findAllRings(molecule).getAtomContainer(0).getAtomCount());
+    }
+
+    @Test public void testGetInstance_IAtomContainer() throws Exception {
+        IAtomContainer molecule = parse("CCO");
+        PerceptionCache none = PerceptionCache.getInstance(molecule);
+        Assert.assertNotNull(none);
+        Assert.assertNull(molecule.getProperty(PerceptionCache.PERCEPTION_CACHE));
+
+        PerceptionCache.attach(molecule);
+        PerceptionCache cache = PerceptionCache.getInstance(molecule);
+        Assert.assertNotSame(none, cache);
+        // clones find the cache of their original
+        Assert.assertSame(cache, PerceptionCache.getInstance((IAtomContainer) molecule.clone()));
+    }
+
+    @Test public void testAttach_IAtomContainer() throws Exception {
+        IAtomContainer molecule = parse("CCO");
+        Assert.assertTrue(PerceptionCache.attach(molecule));
+        Object cache = molecule.getProperty(PerceptionCache.PERCEPTION_CACHE);
+        Assert.assertTrue(cache instanceof PerceptionCache);
+        Assert.assertFalse(PerceptionCache.attach(molecule));
+        Assert.assertSame(cache, molecule.getProperty(PerceptionCache.PERCEPTION_CACHE));
+        PerceptionCache.detach(molecule);
+        Assert.assertNull(molecule.getProperty(PerceptionCache.PERCEPTION_CACHE));
+    }
+
+    @Test public void testPercieveAtomTypesAndConfigureAtoms_IAtomContainer() throws Exception {
+        for (String smiles : SMILES) {
+            IAtomContainer molecule = parse(smiles);
+            PerceptionCache.attach(molecule);
+            PerceptionCache cache = PerceptionCache.getInstance(molecule);
+            IAtomContainer expected = (IAtomContainer) molecule.clone();
+            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(expected);
+            // calculated, and then taken from the cache
+            for (int i = 0; i < 2; i++) {
+                IAtomContainer clone = (IAtomContainer) molecule.clone();
+                cache.percieveAtomTypesAndConfigureAtoms(clone);
+                Assert.assertEquals(smiles, state(expected), state(clone));
+            }
+        }
+    }
+
+    @Test public void testPercieveAtomTypesAndConfigureAtoms_Changed() throws Exception {
+        IAtomContainer molecule = parse("CC=O");
+        PerceptionCache cache = new PerceptionCache();
+        cache.percieveAtomTypesAndConfigureAtoms((IAtomContainer) molecule.clone());
+
+        // a different bond order gives different atom types
+        IAtomContainer changed = (IAtomContainer) molecule.clone();
+        changed.getBond(1).setOrder(IBond.Order.SINGLE);
+        changed.getAtom(2).setFormalCharge(-1);
+        IAtomContainer expected = (IAtomContainer) changed.clone();
+        AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(expected);
+        cache.percieveAtomTypesAndConfigureAtoms(changed);
+        Assert.assertEquals("O.minus", changed.getAtom(2).getAtomTypeName());
+        Assert.assertEquals(state(expected), state(changed));
+    }
+
+    @Test public void testDetectAromaticity_IAtomContainer() throws Exception {
+        for (String smiles : SMILES) {
+            IAtomContainer molecule = parse(smiles);
+            PerceptionCache cache = new PerceptionCache();
+            IAtomContainer expected = (IAtomContainer) molecule.clone();
+            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(expected);
+            boolean aromatic = CDKHueckelAromaticityDetector.detectAromaticity(expected);
+            for (int i = 0; i < 2; i++) {
+                IAtomContainer clone = (IAtomContainer) molecule.clone();
+                cache.percieveAtomTypesAndConfigureAtoms(clone);
+                Assert.assertEquals(smiles, aromatic, cache.detectAromaticity(clone));
+                Assert.assertEquals(smiles, state(expected), state(clone));
+            }
+        }
+    }
+
+    @Test public void testAddImplicitHydrogens_IAtomContainer() throws Exception {
+        for (String smiles : SMILES) {
+            IAtomContainer molecule = parse(smiles);
+            for (IAtom atom : molecule.atoms()) atom.setImplicitHydrogenCount(null);
+            PerceptionCache cache = new PerceptionCache();
+            IAtomContainer expected = (IAtomContainer) molecule.clone();
+            AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(expected);
+            CDKHydrogenAdder.getInstance(expected.getBuilder()).addImplicitHydrogens(expected);
+            for (int i = 0; i < 2; i++) {
+                IAtomContainer clone = (IAtomContainer) molecule.clone();
+                cache.percieveAtomTypesAndConfigureAtoms(clone);
+                cache.addImplicitHydrogens(clone);
+                Assert.assertEquals(smiles, state(expected), state(clone));
+            }
+        }
+    }
+
+    @Test public void testFindAllRings_IAtomContainer() throws Exception {
+        for (String smiles : SMILES) {
+            IAtomContainer molecule = parse(smiles);
+            PerceptionCache cache = new PerceptionCache();
+            List<String> expected = rings(molecule, new AllRingsFinder().findAllRings(molecule));
+            for (int i = 0; i < 2; i++) {
+                IAtomContainer clone = (IAtomContainer) molecule.clone();
+                Assert.assertEquals(smiles, expected, rings(clone, cache.findAllRings(clone)));
+            }
+        }
+    }
+
+    @Test public void testFindSSSR_IAtomContainer() throws Exception {
+        for (String smiles : SMILES) {
+            IAtomContainer molecule = parse(smiles);
+            PerceptionCache cache = new PerceptionCache();
+            IAtomContainer expected = (IAtomContainer) molecule.clone();
+            List<String> expectedRings = rings(expected, new SSSRFinder(expected).findSSSR());
+            for (int i = 0; i < 2; i++) {
+                IAtomContainer clone = (IAtomContainer) molecule.clone();
+                Assert.assertEquals(smiles, expectedRings, rings(clone, cache.findSSSR(clone)));
+                Assert.assertEquals(smiles, state(expected), state(clone));
+            }
+        }
+    }
+
+    @Test public void testGetTopologicalMatrix_IAtomContainer() throws Exception {
+        IAtomContainer molecule = parse("CC(=O)Nc1ccc(O)cc1");
+        PerceptionCache cache = new PerceptionCache();
+        int[][] expected = PathTools.computeFloydAPSP(AdjacencyMatrix.getMatrix(molecule));
+        int[][] matrix = cache.getTopologicalMatrix(molecule);
+        Assert.assertTrue(Arrays.deepEquals(expected, matrix));
+        // the matrix may be changed by the caller
+        matrix[0][1] = 42;
+        Assert.assertTrue(Arrays.deepEquals(expected, cache.getTopologicalMatrix(molecule)));
+
+        // a different connection table is not taken from the cache
+        IAtomContainer local = AtomContainerManipulator.removeHydrogens(molecule);
+        local.removeBond(local.getBond(0));
+        Assert.assertTrue(Arrays.deepEquals(PathTools.computeFloydAPSP(AdjacencyMatrix.getMatrix(local)),
+                                            cache.getTopologicalMatrix(local)));
+    }
+
+    /**
+     * The descriptors that use the cache give the same values with and without it.
+     */
+    @Test public void testDescriptors() throws Exception {
+        IMolecularDescriptor[] descriptors = {
+            new ALOGPDescriptor(), new AromaticAtomsCountDescriptor(),
+            new AutocorrelationDescriptorPolarizability(), new BCUTDescriptor(),
+            new EccentricConnectivityIndexDescriptor(), new HBondAcceptorCountDescriptor(),
+            new MDEDescriptor(), new TPSADescriptor(), new XLogPDescriptor()
+        };
+        descriptors[1].setParameters(new Object[]{true});
+        descriptors[5].setParameters(new Object[]{true});
+        descriptors[7].setParameters(new Object[]{true});
+        for (String smiles : SMILES) {
+            IAtomContainer molecule = parse(smiles);
+            String[] expected = new String[descriptors.length];
+            for (int i = 0; i < descriptors.length; i++) {
+                expected[i] = descriptors[i].calculate(molecule).getValue().toString();
+            }
+            PerceptionCache.attach(molecule);
+            for (int i = 0; i < descriptors.length; i++) {
+                Assert.assertEquals(smiles + " " + descriptors[i].getClass().getSimpleName(),
+                                    expected[i], descriptors[i].calculate(molecule).getValue().toString());
+            }
+            PerceptionCache.detach(molecule);
+        }
+    }
+}
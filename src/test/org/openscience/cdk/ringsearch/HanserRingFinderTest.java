@@ -0,0 +1,183 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.ringsearch;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemFile;
+import org.openscience.cdk.interfaces.IRing;
+import org.openscience.cdk.interfaces.IRingSet;
+import org.openscience.cdk.io.CMLReader;
+import org.openscience.cdk.io.ISimpleChemObjectReader;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.silent.ChemFile;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.templates.MoleculeFactory;
+
+/**
+ * @cdk.module test-standard
+ */
+public class HanserRingFinderTest extends CDKTestCase {
+
+    private static final SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+
+    private IAtomContainer read(String filename) throws Exception {
+        InputStream ins = this.getClass().getClassLoader().getResourceAsStream(filename);
+        ISimpleChemObjectReader reader = filename.endsWith(".cml")
+            ? new CMLReader(ins) : new MDLV2000Reader(ins);
+        IChemFile chemFile = (IChemFile) reader.read(new ChemFile());
+        return chemFile.getChemSequence(0).getChemModel(0).getMoleculeSet().getAtomContainer(0);
+    }
+
+    /**
+     * The rings as sorted lists of bond numbers, after checking that the
+     * atoms and bonds of each ring are in the order around the ring.
+     */
+    private static List<String> rings(IRingSet ringSet, IAtomContainer container) {
+        List<String> rings = new ArrayList<String>();
+        for (int i = 0; i < ringSet.getAtomContainerCount(); i++) {
+            IRing ring = (IRing) ringSet.getAtomContainer(i);
+            Assert.assertEquals(ring.getAtomCount(), ring.getBondCount());
+            int[] bonds = new int[ring.getBondCount()];
+            for (int j = 0; j < bonds.length; j++) {
+                bonds[j] = container.getBondNumber(ring.getBond(j));
+                Assert.assertTrue(ring.getBond(j).contains(ring.getAtom(j)));
+                Assert.assertTrue(ring.getBond(j).contains(ring.getAtom((j + 1) % bonds.length)));
+            }
+            Arrays.sort(bonds);
+            rings.add(Arrays.toString(bonds));
+        }
+        Collections.sort(rings);
+        return rings;
+    }
+
+    private void assertSameRings(IAtomContainer container, Integer maxRingSize) throws Exception {
+        List<String> expected = rings(new AllRingsFinder(false).findAllRings(container, maxRingSize), container);
+        List<String> actual = rings(new HanserRingFinder().findAllRings(container, maxRingSize), container);
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test public void testFindAllRings_IAtomContainer() throws Exception {
+        IAtomContainer molecule = MoleculeFactory.makeEthylPropylPhenantren();
+        Assert.assertEquals(6, new HanserRingFinder().findAllRings(molecule).getAtomContainerCount());
+        assertSameRings(molecule, null);
+    }
+
+    @Test public void testFindAllRings_IAtomContainer_Integer() throws Exception {
+        IAtomContainer molecule = read("data/mdl/four-ring-5x10.mol");
+        HanserRingFinder finder = new HanserRingFinder();
+        Assert.assertEquals(50, finder.findAllRings(molecule, 4).getAtomContainerCount());
+        Assert.assertEquals(135, finder.findAllRings(molecule, 6).getAtomContainerCount());
+        Assert.assertEquals(0, finder.findAllRings(molecule, 3).getAtomContainerCount());
+        assertSameRings(molecule, 6);
+    }
+
+    @Test public void testSmiles() throws Exception {
+        String[] smiles = {
+            "c1ccccc1", "C1CC1CC1CC1", "C1CC2(C1)CCC2", "C12C3C4C1C5C2C3C45", "c1ccc2ccccc2c1",
+            "C1CC2CCC1CC2", "C1CC23CCC1(CC2)CC3", "C1=CC=C2C=CC=CC=C12", "CCO", "C=C", "[Na+].[Cl-]",
+            "C1CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCC1",
+            "C1CC2CC1C1CCC3CCCC3C21", "C1C2CC3CC1CC(C2)C3", "c1cc2ccc3cccc4ccc(c1)c2c34"
+        };
+        for (String smi : smiles) {
+            IAtomContainer molecule = sp.parseSmiles(smi);
+            assertSameRings(molecule, null);
+            assertSameRings(molecule, 6);
+        }
+    }
+
+    @Test public void testPorphyrine() throws Exception {
+        IAtomContainer molecule = read("data/mdl/porphyrin.mol");
+        Assert.assertEquals(20, new HanserRingFinder().findAllRings(molecule).getAtomContainerCount());
+        assertSameRings(molecule, null);
+    }
+
+    @Test public void testCholoylCoA() throws Exception {
+        IAtomContainer molecule = read("data/mdl/choloylcoa.mol");
+        Assert.assertEquals(14, new HanserRingFinder().findAllRings(molecule).getAtomContainerCount());
+        assertSameRings(molecule, null);
+    }
+
+    @Test public void testAzulene() throws Exception {
+        IAtomContainer molecule = read("data/mdl/azulene.mol");
+        Assert.assertEquals(3, new HanserRingFinder().findAllRings(molecule).getAtomContainerCount());
+    }
+
+    @Test public void testBigMoleculeWithIsolatedRings() throws Exception {
+        IAtomContainer molecule = read("data/cml/isolated_ringsystems.cml");
+        Assert.assertEquals(24, new HanserRingFinder().findAllRings(molecule).getAtomContainerCount());
+        assertSameRings(molecule, null);
+    }
+
+    /**
+     * All rings of this ring system are found well within the default
+     * budget, which takes {@link AllRingsFinder} too long for a unit test.
+     */
+    @Test(timeout = 60000)
+    public void testBigRingSystem() throws Exception {
+        IAtomContainer molecule = read("data/mdl/ring_03419.mol");
+        HanserRingFinder finder = new HanserRingFinder();
+        Assert.assertEquals(1976, finder.findAllRings(molecule).getAtomContainerCount());
+        Assert.assertEquals(12, finder.findAllRings(molecule, 6).getAtomContainerCount());
+        assertSameRings(molecule, 6);
+    }
+
+    @Test(expected = CDKException.class)
+    public void testBudget() throws Exception {
+        IAtomContainer molecule = read("data/mdl/ring_03419.mol");
+        new HanserRingFinder().setBudget(1000).findAllRings(molecule);
+    }
+
+    @Test public void testSetBudget_int() {
+        HanserRingFinder finder = new HanserRingFinder();
+        Assert.assertEquals(HanserRingFinder.DEFAULT_BUDGET, finder.getBudget());
+        Assert.assertSame(finder, finder.setBudget(42));
+        Assert.assertEquals(42, finder.getBudget());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetBudget_Zero() {
+        new HanserRingFinder().setBudget(0);
+    }
+
+    @Test public void testRingFlags() throws Exception {
+        IAtomContainer molecule = sp.parseSmiles("c1cccc1CC");
+        new HanserRingFinder().findAllRings(molecule);
+        int count = 0;
+        for (int i = 0; i < molecule.getAtomCount(); i++) {
+            if (molecule.getAtom(i).getFlag(CDKConstants.ISINRING)) count++;
+        }
+        Assert.assertEquals(5, count);
+    }
+}
@@ -0,0 +1,172 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.ringsearch;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.DefaultChemObjectBuilder;
+import org.openscience.cdk.graph.AdjacencyList;
+import org.openscience.cdk.graph.MoleculeGraphs;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemFile;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.ringsearch.cyclebasis.CycleBasis;
+import org.openscience.cdk.ringsearch.cyclebasis.SimpleCycle;
+import org.openscience.cdk.silent.ChemFile;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * Checks the cycles found by {@link RelevantCycles} against the
+ * {@link CycleBasis} on the JGraphT molecule graph.
+ *
+ * @cdk.module test-standard
+ */
+public class RelevantCyclesTest extends CDKTestCase {
+
+    private static final SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+
+    private static final String[] SMILES = {
+        "CCO", "C1CC1", "c1ccccc1", "C1CC2(C1)CCC2", "c1ccc2ccccc2c1", "C1CC2CCC1CC2",
+        "C1CC23CCC1(CC2)CC3", "C12C3C4C1C5C2C3C45", "C1C2CC3CC1CC(C2)C3",
+        "c1cc2ccc3cccc4ccc(c1)c2c34", "C1CC2CC1C1CCC3CCCC3C21", "C1=CC=C2C=CC=CC=C12",
+        "C1CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCC1",
+        "C12C3C4C5C1C6C2C7C3C8C4C5C678", "C1CC2CCC3CCCC4CCC1C2C34",
+        "c12c3c4c5c1c1c6c7c2c2c8c3c3c9c4c4c%10c5c5c1c1c6c6c%11c7c2c2c7c8c3c3c8c9c4c4c9c%10c5c5c1c1c6c6c%11c2c2c7c3c3c8c4c4c9c5c1c1c6c2c3c41",
+        "C1CC2C3CCC4C5CCCC5CC4C3CCC2C1", "O=C1C2C3C4C1C5C2C3C45", "C1C2CC3C1C23",
+        "[Na+].[Cl-]", "C1CCC2(CC1)CCCCC2"
+    };
+
+    private static List<String> sorted(int[][] cycles) {
+        List<String> result = new ArrayList<String>();
+        for (int[] cycle : cycles) {
+            int[] sorted = cycle.clone();
+            Arrays.sort(sorted);
+            result.add(Arrays.toString(sorted));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static List<String> sorted(Collection<?> cycles, IAtomContainer container) {
+        List<String> result = new ArrayList<String>();
+        for (Object cycle : cycles) {
+            List<?> vertices = ((SimpleCycle) cycle).vertexList();
+            int[] sorted = new int[vertices.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = container.getAtomNumber((IAtom) vertices.get(i));
+            }
+            Arrays.sort(sorted);
+            result.add(Arrays.toString(sorted));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /** Checks that each cycle is closed and passes through each vertex once. */
+    private static void assertCycles(int[][] graph, int[][] cycles) {
+        for (int[] cycle : cycles) {
+            Assert.assertTrue(cycle.length >= 3);
+            int[] sorted = cycle.clone();
+            Arrays.sort(sorted);
+            for (int i = 1; i < sorted.length; i++) Assert.assertTrue(sorted[i - 1] < sorted[i]);
+            for (int i = 0; i < cycle.length; i++) {
+                int next = cycle[(i + 1) % cycle.length];
+                boolean bonded = false;
+                for (int neighbour : graph[cycle[i]]) bonded |= neighbour == next;
+                Assert.assertTrue(bonded);
+            }
+        }
+    }
+
+    private static void assertSameCycles(IAtomContainer container) {
+        int[][] graph = new AdjacencyList(container).toNeighbourArray();
+        RelevantCycles cycles = new RelevantCycles(graph);
+        CycleBasis basis = new CycleBasis(MoleculeGraphs.getMoleculeGraph(container));
+        assertCycles(graph, cycles.minimumBasis());
+        assertCycles(graph, cycles.relevant());
+        assertCycles(graph, cycles.essential());
+
+        int[] weights = new int[cycles.minimumBasis().length];
+        for (int i = 0; i < weights.length; i++) weights[i] = cycles.minimumBasis()[i].length;
+        Assert.assertArrayEquals(basis.weightVector(), weights);
+        Assert.assertEquals(sorted(basis.relevantCycles().keySet(), container), sorted(cycles.relevant()));
+        Assert.assertEquals(sorted(basis.essentialCycles(), container), sorted(cycles.essential()));
+    }
+
+    private IAtomContainer read(String filename) throws Exception {
+        InputStream ins = this.getClass().getClassLoader().getResourceAsStream(filename);
+        IChemFile chemFile = (IChemFile) new MDLV2000Reader(ins).read(new ChemFile());
+        return chemFile.getChemSequence(0).getChemModel(0).getMoleculeSet().getAtomContainer(0);
+    }
+
+    @Test public void testRelevantCycles_intArrayArray() throws Exception {
+        for (String smiles : SMILES) assertSameCycles(sp.parseSmiles(smiles));
+        for (String file : new String[]{"data/mdl/porphyrin.mol", "data/mdl/choloylcoa.mol",
+                                        "data/mdl/four-ring-5x10.mol", "data/mdl/six-ring-4x4.mol",
+                                        "data/mdl/ring_03419.mol"}) {
+            assertSameCycles(read(file));
+        }
+    }
+
+    @Test public void testMinimumBasis() throws Exception {
+        // naphthalene: two six rings, the ten ring is not in the basis
+        int[][] cycles = new RelevantCycles(new AdjacencyList(sp.parseSmiles("c1ccc2ccccc2c1"))
+                                                .toNeighbourArray()).minimumBasis();
+        Assert.assertEquals(2, cycles.length);
+        Assert.assertEquals(6, cycles[0].length);
+        Assert.assertEquals(6, cycles[1].length);
+    }
+
+    @Test public void testRelevant() throws Exception {
+        // bicyclo[2.2.2]octane: three six rings, each in some basis of two
+        RelevantCycles cycles = new RelevantCycles(new AdjacencyList(sp.parseSmiles("C1CC2CCC1CC2"))
+                                                       .toNeighbourArray());
+        Assert.assertEquals(2, cycles.minimumBasis().length);
+        Assert.assertEquals(3, cycles.relevant().length);
+    }
+
+    @Test public void testEssential() throws Exception {
+        RelevantCycles cycles = new RelevantCycles(new AdjacencyList(sp.parseSmiles("C1CC2CCC1CC2"))
+                                                       .toNeighbourArray());
+        Assert.assertEquals(0, cycles.essential().length);
+        cycles = new RelevantCycles(new AdjacencyList(sp.parseSmiles("c1ccc2ccccc2c1")).toNeighbourArray());
+        Assert.assertEquals(2, cycles.essential().length);
+    }
+
+    @Test public void testRepeatedNeighbours() {
+        // a triangle with a loop, a repeated edge and a tail
+        int[][] graph = {{1, 2, 2, 0}, {0, 2}, {0, 0, 1, 3}, {2}};
+        RelevantCycles cycles = new RelevantCycles(graph);
+        Assert.assertEquals(1, cycles.minimumBasis().length);
+        Assert.assertEquals(Arrays.asList("[0, 1, 2]"), sorted(cycles.relevant()));
+    }
+}
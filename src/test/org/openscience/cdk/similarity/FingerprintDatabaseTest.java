@@ -0,0 +1,247 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.similarity;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.fingerprint.BitSetFingerprint;
+import org.openscience.cdk.fingerprint.Fingerprinter;
+import org.openscience.cdk.fingerprint.IBitFingerprint;
+import org.openscience.cdk.templates.MoleculeFactory;
+
+/**
+ * @cdk.module test-fingerprint
+ */
+public class FingerprintDatabaseTest extends CDKTestCase {
+
+    private static final int SIZE = 200;
+
+    /**
+     * Random fingerprints with a few different densities, including some
+     * duplicates and an empty fingerprint.
+     */
+    private static List<IBitFingerprint> fingerprints(long seed, int count) {
+        Random random = new Random(seed);
+        List<IBitFingerprint> fingerprints = new ArrayList<IBitFingerprint>();
+        fingerprints.add(new BitSetFingerprint(SIZE));
+        for (int i = 1; i < count; i++) {
+            if (i % 10 == 0) {
+                fingerprints.add(fingerprints.get(random.nextInt(i)));
+                continue;
+            }
+            double density = 0.05 + 0.1 * random.nextInt(4);
+            IBitFingerprint fingerprint = new BitSetFingerprint(SIZE);
+            for (int bit = 0; bit < SIZE; bit++) {
+                if (random.nextDouble() < density) fingerprint.set(bit);
+            }
+            fingerprints.add(fingerprint);
+        }
+        return fingerprints;
+    }
+
+    private static FingerprintDatabase database(List<IBitFingerprint> fingerprints) {
+        FingerprintDatabase database = new FingerprintDatabase(SIZE);
+        for (IBitFingerprint fingerprint : fingerprints) database.add(fingerprint);
+        return database;
+    }
+
+    private static double tanimoto(IBitFingerprint query, IBitFingerprint fingerprint) {
+        if (query.cardinality() == 0 && fingerprint.cardinality() == 0) return 0;
+        return Tanimoto.calculate(query, fingerprint);
+    }
+
+    /** All fingerprints compared with the query, sorted as the search results. */
+    private static List<FingerprintDatabase.Hit> all(List<IBitFingerprint> fingerprints,
+                                                     IBitFingerprint query) {
+        List<FingerprintDatabase.Hit> hits = new ArrayList<FingerprintDatabase.Hit>();
+        for (int i = 0; i < fingerprints.size(); i++) {
+            hits.add(new FingerprintDatabase.Hit(i, tanimoto(query, fingerprints.get(i))));
+        }
+        Collections.sort(hits);
+        return hits;
+    }
+
+    @Test public void testFingerprintDatabase_int() {
+        FingerprintDatabase database = new FingerprintDatabase(1024);
+        Assert.assertEquals(1024, database.getFingerprintSize());
+        Assert.assertEquals(0, database.getFingerprintCount());
+        Assert.assertTrue(database.findSimilar(new BitSetFingerprint(1024), 0).isEmpty());
+        Assert.assertTrue(database.findNearest(new BitSetFingerprint(1024), 5).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFingerprintDatabase_Empty() {
+        new FingerprintDatabase(0);
+    }
+
+    @Test public void testAdd_IBitFingerprint() {
+        List<IBitFingerprint> fingerprints = fingerprints(1, 100);
+        FingerprintDatabase database = new FingerprintDatabase(SIZE);
+        for (int i = 0; i < fingerprints.size(); i++) {
+            Assert.assertEquals(i, database.add(fingerprints.get(i)));
+        }
+        Assert.assertEquals(100, database.getFingerprintCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdd_TooLarge() {
+        IBitFingerprint fingerprint = new BitSetFingerprint(SIZE + 1);
+        fingerprint.set(SIZE);
+        new FingerprintDatabase(SIZE).add(fingerprint);
+    }
+
+    @Test public void testAdd_BitSet() {
+        BitSet bitset = new BitSet();
+        bitset.set(3);
+        bitset.set(SIZE - 1);
+        FingerprintDatabase database = new FingerprintDatabase(SIZE);
+        Assert.assertEquals(0, database.add(bitset));
+        Assert.assertEquals(1.0, database.calculate(new BitSetFingerprint(bitset), 0), 0.0);
+    }
+
+    @Test public void testCalculate_IBitFingerprint_int() throws Exception {
+        Fingerprinter fingerprinter = new Fingerprinter();
+        IBitFingerprint indole = fingerprinter.getBitFingerprint(MoleculeFactory.makeIndole());
+        IBitFingerprint pyrrole = fingerprinter.getBitFingerprint(MoleculeFactory.makePyrrole());
+        FingerprintDatabase database = new FingerprintDatabase(fingerprinter.getSize());
+        database.add(indole);
+        database.add(pyrrole);
+        Assert.assertEquals(Tanimoto.calculate(indole, pyrrole), database.calculate(indole, 1), 0.0);
+        Assert.assertEquals(1.0, database.calculate(indole, 0), 0.0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testCalculate_NoFingerprint() {
+        new FingerprintDatabase(SIZE).calculate(new BitSetFingerprint(SIZE), 0);
+    }
+
+    @Test public void testFindSimilar_IBitFingerprint_double() {
+        List<IBitFingerprint> fingerprints = fingerprints(2, 300);
+        FingerprintDatabase database = database(fingerprints);
+        for (IBitFingerprint query : fingerprints(3, 20)) {
+            for (double threshold : new double[]{0, 0.1, 0.2, 0.5, 1}) {
+                List<FingerprintDatabase.Hit> expected = new ArrayList<FingerprintDatabase.Hit>();
+                for (FingerprintDatabase.Hit hit : all(fingerprints, query)) {
+                    if (hit.getSimilarity() >= threshold) expected.add(hit);
+                }
+                Assert.assertEquals(expected, database.findSimilar(query, threshold));
+            }
+        }
+        // a stored fingerprint finds itself and its duplicates
+        List<FingerprintDatabase.Hit> hits = database.findSimilar(fingerprints.get(20), 1);
+        Assert.assertTrue(hits.size() >= 2);
+        Assert.assertEquals(1.0, hits.get(0).getSimilarity(), 0.0);
+    }
+
+    @Test public void testFindSimilar_IBitFingerprint_double_int() {
+        List<IBitFingerprint> fingerprints = fingerprints(4, 300);
+        FingerprintDatabase database = database(fingerprints);
+        for (IBitFingerprint query : fingerprints(5, 10)) {
+            Assert.assertEquals(database.findSimilar(query, 0.15),
+                                database.findSimilar(query, 0.15, 3));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFindSimilar_NoThreads() {
+        database(fingerprints(6, 10)).findSimilar(new BitSetFingerprint(SIZE), 0.5, 0);
+    }
+
+    @Test public void testFindNearest_IBitFingerprint_int() {
+        List<IBitFingerprint> fingerprints = fingerprints(7, 300);
+        FingerprintDatabase database = database(fingerprints);
+        for (IBitFingerprint query : fingerprints(8, 20)) {
+            List<FingerprintDatabase.Hit> all = all(fingerprints, query);
+            for (int k : new int[]{1, 5, 17, 300, 400}) {
+                Assert.assertEquals(all.subList(0, Math.min(k, all.size())),
+                                    database.findNearest(query, k));
+            }
+        }
+        Assert.assertTrue(database.findNearest(fingerprints.get(1), 0).isEmpty());
+    }
+
+    @Test public void testFindNearest_IBitFingerprint_int_int() {
+        List<IBitFingerprint> fingerprints = fingerprints(9, 300);
+        FingerprintDatabase database = database(fingerprints);
+        for (IBitFingerprint query : fingerprints(10, 10)) {
+            for (int k : new int[]{1, 10, 300}) {
+                Assert.assertEquals(database.findNearest(query, k),
+                                    database.findNearest(query, k, 3));
+            }
+        }
+    }
+
+    @Test public void testAdd_AfterSearch() {
+        List<IBitFingerprint> fingerprints = fingerprints(11, 50);
+        FingerprintDatabase database = database(fingerprints.subList(0, 25));
+        IBitFingerprint query = fingerprints.get(40);
+        Assert.assertEquals(all(fingerprints.subList(0, 25), query).subList(0, 3),
+                            database.findNearest(query, 3));
+        for (IBitFingerprint fingerprint : fingerprints.subList(25, 50)) database.add(fingerprint);
+        Assert.assertEquals(all(fingerprints, query).subList(0, 3), database.findNearest(query, 3));
+    }
+
+    /**
+     * Searches that start at the same time on a freshly filled database all
+     * see the complete order of the fingerprints.
+     */
+    @Test public void testFindNearest_Concurrent() throws Exception {
+        final List<IBitFingerprint> fingerprints = fingerprints(12, 300);
+        final List<IBitFingerprint> queries = fingerprints(13, 8);
+        List<List<FingerprintDatabase.Hit>> expected = new ArrayList<List<FingerprintDatabase.Hit>>();
+        for (IBitFingerprint query : queries) expected.add(all(fingerprints, query).subList(0, 5));
+        ExecutorService executor = Executors.newFixedThreadPool(queries.size());
+        try {
+            for (int round = 0; round < 20; round++) {
+                final FingerprintDatabase database = database(fingerprints);
+                final CountDownLatch ready = new CountDownLatch(queries.size());
+                List<Future<List<FingerprintDatabase.Hit>>> results
+                    = new ArrayList<Future<List<FingerprintDatabase.Hit>>>();
+                for (final IBitFingerprint query : queries) {
+                    results.add(executor.submit(new Callable<List<FingerprintDatabase.Hit>>() {
+                        public List<FingerprintDatabase.Hit> call() throws Exception {
+                            ready.countDown();
+                            ready.await();
+                            return database.findNearest(query, 5);
+                        }
+                    }));
+                }
+                for (int i = 0; i < queries.size(); i++) Assert.assertEquals(expected.get(i), results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -51,6 +51,7 @@ import org.openscience.cdk.templates.MoleculeFactory;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * @cdk.module test-fingerprint
@@ -232,4 +233,42 @@ public class TanimotoTest extends CDKTestCase
 		Assert.assertEquals(countTanimoto1, countTanimoto2, 0.001);
 		Assert.assertEquals(bitTanimoto, countTanimoto1, 0.001);
     }
-}
\ No newline at end of file
+
+    /**
+     * Fingerprints with sorted hashes are compared with a merge, others with
+     * the nested loop; both must give the same coefficient.
+     */
+    @Test public void testICountFingerprint_Unsorted() throws Exception {
+        Random random = new Random(42);
+        for (int n = 0; n < 50; n++) {
+            Map<String, Integer> features1 = new HashMap<String, Integer>();
+            Map<String, Integer> features2 = new HashMap<String, Integer>();
+            for (int i = 0; i < 30; i++) {
+                features1.put("f" + random.nextInt(60), 1 + random.nextInt(5));
+                features2.put("f" + random.nextInt(60), 1 + random.nextInt(5));
+            }
+            ICountFingerprint sorted1 = new IntArrayCountFingerprint(features1);
+            ICountFingerprint sorted2 = new IntArrayCountFingerprint(features2);
+            double expected = Tanimoto.calculate(new ReversedCountFingerprint(sorted1),
+                                                 new ReversedCountFingerprint(sorted2));
+            Assert.assertEquals(expected, Tanimoto.calculate(sorted1, sorted2), 0.0);
+            Assert.assertEquals(Tanimoto.calculate(features1, features2),
+                                Tanimoto.calculate(sorted1, sorted2), 0.0001);
+        }
+    }
+
+    /** A count fingerprint with its bins in decreasing hash order. */
+    private static class ReversedCountFingerprint implements ICountFingerprint {
+        private static final long serialVersionUID = 1L;
+        private final ICountFingerprint fp;
+        ReversedCountFingerprint(ICountFingerprint fp) { this.fp = fp; }
+        public long size() { return fp.size(); }
+        public int numOfPopulatedbins() { return fp.numOfPopulatedbins(); }
+        public int getCount(int index) { return fp.getCount(numOfPopulatedbins() - 1 - index); }
+        public int getHash(int index) { return fp.getHash(numOfPopulatedbins() - 1 - index); }
+        public void merge(ICountFingerprint other) { fp.merge(other); }
+        public void setBehaveAsBitFingerprint(boolean behave) { fp.setBehaveAsBitFingerprint(behave); }
+        public boolean hasHash(int hash) { return fp.hasHash(hash); }
+        public int getCountForHash(int hash) { return fp.getCountForHash(hash); }
+    }
+}
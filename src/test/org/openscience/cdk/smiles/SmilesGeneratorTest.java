@@ -656,7 +656,7 @@ public class SmilesGeneratorTest extends CDKTestCase {
 		IAtomContainer mol1 = reader.read(new AtomContainer());
 		SmilesGenerator sg = new SmilesGenerator();
 		String moleculeSmile = sg.createSMILES(mol1);
-		Assert.assertEquals(moleculeSmile, "C1C=CCCCCC1");
+		Assert.assertEquals("C1=CCCCCCC1", moleculeSmile);
 	}
 
 
@@ -670,7 +670,7 @@ public class SmilesGeneratorTest extends CDKTestCase {
 		IAtomContainer mol1 = reader.read(DefaultChemObjectBuilder.getInstance().newInstance(IAtomContainer.class));
 		SmilesGenerator sg = new SmilesGenerator();
 		String moleculeSmile = sg.createSMILES(mol1);
-		Assert.assertEquals(moleculeSmile, "C=1CCC=CCCC=1");
+		Assert.assertEquals("C1=CCCC=CCC1", moleculeSmile);
 	}
 
 
@@ -699,7 +699,7 @@ public class SmilesGeneratorTest extends CDKTestCase {
 		SmilesGenerator sg = new SmilesGenerator();
 		String moleculeSmile = sg.createSMILES(mol1);
 		//logger.debug(filename + " -> " + moleculeSmile);
-		Assert.assertEquals(moleculeSmile, "C=1CCC=CCCC=1");
+		Assert.assertEquals("C1=CCCC=CCC1", moleculeSmile);
 	}
 	
 	/**
@@ -959,7 +959,7 @@ public class SmilesGeneratorTest extends CDKTestCase {
         IAtomContainer benzene = MoleculeFactory.makeBenzene();
         SmilesGenerator sg = new SmilesGenerator(false);
         String smileswithoutaromaticity = sg.createSMILESWithoutCheckForMultipleMolecules(benzene, false, new boolean[benzene.getBondCount()]);
-        Assert.assertEquals("C=1C=CC=CC=1", smileswithoutaromaticity);
+        Assert.assertEquals("C1=CC=CC=C1", smileswithoutaromaticity);
     }
 
     @Test public void testCreateSMILESWithoutCheckForMultipleMolecules_withoutDetectAromaticity() throws CDKException{
@@ -0,0 +1,121 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.smiles.smarts;
+
+import java.util.BitSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * @cdk.module test-smarts
+ */
+public class SMARTSPatternSetTest extends CDKTestCase {
+
+    private static final String[] SMARTS = {
+        "c1ccccc1", "[CX4H3][#6]", "[CX2]#[CX2]", "O=CO", "[#7]", "[Cl,Br]",
+        "[OX2H][CX4;!$(C([OX2H])[O,S,#7,#15])]", "C#N", "[$(C=O)]", "*~*~*~*~*~*~*~*"
+    };
+
+    private static final String[] SMILES = {
+        "c1ccccc1CCC", "CC(=O)OC(=O)C", "C#CCCN", "OCCCl", "CC#N", "C1CCC12CCCC2", "c1ccncc1C(=O)O"
+    };
+
+    @Test
+    public void testSize() {
+        SMARTSPatternSet patterns = new SMARTSPatternSet(SMARTS);
+        Assert.assertEquals(SMARTS.length, patterns.size());
+    }
+
+    @Test
+    public void testGetSmarts_int() {
+        SMARTSPatternSet patterns = new SMARTSPatternSet(SMARTS);
+        for (int i = 0; i < SMARTS.length; i++)
+            Assert.assertEquals(SMARTS[i], patterns.getSmarts(i));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSmarts() {
+        new SMARTSPatternSet(new String[]{"C", "Epoxide"});
+    }
+
+    /**
+     * The pattern set must give the same answers as matching the
+     * patterns one by one with the {@link SMARTSQueryTool}.
+     */
+    @Test
+    public void testMatch_IAtomContainer() throws Exception {
+        SmilesParser sp = new SmilesParser(SilentChemObjectBuilder.getInstance());
+        SMARTSPatternSet patterns = new SMARTSPatternSet(SMARTS);
+        SMARTSQueryTool sqt = new SMARTSQueryTool("C");
+        for (String smiles : SMILES) {
+            BitSet bits = patterns.match(sp.parseSmiles(smiles));
+            IAtomContainer mol = sp.parseSmiles(smiles);
+            for (int i = 0; i < SMARTS.length; i++) {
+                sqt.setSmarts(SMARTS[i]);
+                Assert.assertEquals(SMARTS[i] + " in " + smiles, sqt.matches(mol), bits.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testMatch_Prefilter() throws Exception {
+        SmilesParser sp = new SmilesParser(SilentChemObjectBuilder.getInstance());
+        SMARTSPatternSet patterns = new SMARTSPatternSet(new String[]{
+            "[#7]", "NN", "C#C", "CCCC", "[N,O]", "[C;!$(C=O)]"
+        });
+        BitSet bits = patterns.match(sp.parseSmiles("CCN"));
+        Assert.assertTrue(bits.get(0));
+        Assert.assertFalse(bits.get(1));
+        Assert.assertFalse(bits.get(2));
+        Assert.assertFalse(bits.get(3));
+        Assert.assertTrue(bits.get(4));
+        Assert.assertTrue(bits.get(5));
+    }
+
+    @Test
+    public void testMatch_Threads() throws Exception {
+        final SMARTSPatternSet patterns = new SMARTSPatternSet(SMARTS);
+        final SmilesParser sp = new SmilesParser(SilentChemObjectBuilder.getInstance());
+        final BitSet expected = patterns.match(sp.parseSmiles(SMILES[6]));
+        final BitSet[] results = new BitSet[4];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int idx = i;
+            final IAtomContainer mol = sp.parseSmiles(SMILES[6]);
+            threads[i] = new Thread() {
+                public void run() {
+                    try {
+                        results[idx] = patterns.match(mol);
+                    } catch (Exception exception) {
+                        results[idx] = null;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+        for (BitSet result : results)
+            Assert.assertEquals(expected, result);
+    }
+}
@@ -130,6 +130,58 @@ public class SMARTSQueryToolTest extends CDKTestCase {
         Assert.assertEquals(9, umatch.size());
     }
 
+    @Test
+    public void testHasMatch_IAtomContainer() throws Exception {
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer atomContainer = sp.parseSmiles("CC(=O)OC(=O)C");
+        SMARTSQueryTool querytool = new SMARTSQueryTool("O=CO");
+
+        Assert.assertTrue(querytool.hasMatch(atomContainer));
+        Assert.assertEquals(1, querytool.countMatches());
+        Assert.assertEquals(3, querytool.getMatchingAtoms().get(0).size());
+
+        // the exhaustive search still finds all mappings
+        Assert.assertTrue(querytool.matches(atomContainer));
+        Assert.assertEquals(2, querytool.countMatches());
+
+        querytool.setSmarts("N");
+        Assert.assertFalse(querytool.hasMatch(atomContainer));
+        Assert.assertEquals(0, querytool.countMatches());
+    }
+
+    @Test
+    public void testHasMatch_IAtomContainer_boolean() throws Exception {
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer atomContainer = sp.parseSmiles("C1CCC12CCCC2");
+        SMARTSQueryTool querytool = new SMARTSQueryTool("C");
+
+        Assert.assertTrue(querytool.hasMatch(atomContainer, true));
+        Assert.assertEquals(1, querytool.countMatches());
+    }
+
+    @Test
+    public void testCountMatches_IAtomContainer_int() throws Exception {
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer atomContainer = sp.parseSmiles("C1CCC12CCCC2");
+        SMARTSQueryTool querytool = new SMARTSQueryTool("CC");
+
+        Assert.assertEquals(5, querytool.countMatches(atomContainer, 5));
+        Assert.assertEquals(5, querytool.getMatchingAtoms().size());
+        Assert.assertEquals(1, querytool.countMatches(atomContainer, 1));
+        Assert.assertEquals(18, querytool.countMatches(atomContainer, 100));
+
+        querytool.setSmarts("C");
+        Assert.assertEquals(3, querytool.countMatches(atomContainer, 3));
+        Assert.assertEquals(8, querytool.countMatches(atomContainer, 100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCountMatches_InvalidLimit() throws Exception {
+        SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+        IAtomContainer atomContainer = sp.parseSmiles("CCC");
+        new SMARTSQueryTool("CC").countMatches(atomContainer, 0);
+    }
+
     @Test
     public void testUniqueQueries() throws Exception {
         SmilesParser sp = new SmilesParser(DefaultChemObjectBuilder.getInstance());
@@ -26,7 +26,13 @@
 package org.openscience.cdk.tools;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.vecmath.Point2d;
 
@@ -585,6 +591,81 @@ public class HOSECodeGeneratorTest extends CDKTestCase {
 		}
     }
 	
+	private static final String[] SMILES = {
+		"C1(C=CN2)=C2C=CC=C1", "CC=CBr", "OC(=O)C1CCCCC1C", "c1ccc2ccccc2c1", "CN1C=NC2=C1C(=O)N(C(=O)N2C)C",
+		"C1CC2CCC1CC2", "C([H])([H])([H])C([H])=C([H])Br", "CC(C)(C)C(=O)[O-].[Na+]"
+	};
+
+	private static IAtomContainer[] molecules() throws Exception {
+		SmilesParser parser = new SmilesParser(DefaultChemObjectBuilder.getInstance());
+		IAtomContainer[] molecules = new IAtomContainer[SMILES.length];
+		for (int i = 0; i < SMILES.length; i++) {
+			molecules[i] = parser.parseSmiles(SMILES[i]);
+			CDKHueckelAromaticityDetector.detectAromaticity(molecules[i]);
+		}
+		return molecules;
+	}
+
+	@Test public void testGetHOSECodes_IAtomContainer_int() throws Exception {
+		HOSECodeGenerator hcg = new HOSECodeGenerator();
+		for (IAtomContainer molecule : molecules()) {
+			for (int spheres = 1; spheres <= 6; spheres++) {
+				String[] codes = hcg.getHOSECodes(molecule, spheres);
+				Assert.assertEquals(molecule.getAtomCount(), codes.length);
+				for (int i = 0; i < codes.length; i++)
+					Assert.assertEquals(hcg.getHOSECode(molecule, molecule.getAtom(i), spheres), codes[i]);
+			}
+		}
+		IAtomContainer molecule = (new SmilesParser(DefaultChemObjectBuilder.getInstance())).parseSmiles("CC=CBr");
+		Assert.assertArrayEquals(new String[]{"C-4;C(=C/Y/)", "C-3;=CC(Y,//)", "C-3;=CY(C,//)", "Br-1;C(=C/C/)"},
+		                         hcg.getHOSECodes(molecule, 4));
+		Assert.assertEquals(0, hcg.getHOSECodes(new AtomContainer(), 4).length);
+	}
+
+	@Test public void testGetHOSECodes_IAtomContainer_int_boolean() throws Exception {
+		HOSECodeGenerator hcg = new HOSECodeGenerator();
+		for (IAtomContainer molecule : molecules()) {
+			String[] codes = hcg.getHOSECodes(molecule, 4, true);
+			for (int i = 0; i < codes.length; i++)
+				Assert.assertEquals(hcg.getHOSECode(molecule, molecule.getAtom(i), 4, true), codes[i]);
+		}
+		IAtomContainer molecule = (new SmilesParser(DefaultChemObjectBuilder.getInstance())).parseSmiles("C1CC1C");
+		Assert.assertEquals("C-4-3;CCC(&,&,//)", hcg.getHOSECodes(molecule, 4, true)[2]);
+	}
+
+	/**
+	 * One generator gives the same codes when used in several threads.
+	 */
+	@Test public void testGetHOSECodes_Threads() throws Exception {
+		final HOSECodeGenerator hcg = new HOSECodeGenerator();
+		final IAtomContainer[] molecules = molecules();
+		final List<String> expected = new ArrayList<String>();
+		for (IAtomContainer molecule : molecules)
+			expected.addAll(Arrays.asList(hcg.getHOSECodes(molecule, 4, true)));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+			for (int t = 0; t < 4; t++) {
+				// each thread has its own copies, as the labels are set on the atoms
+				final IAtomContainer[] copies = molecules();
+				results.add(executor.submit(new Callable<List<String>>() {
+					public List<String> call() throws Exception {
+						List<String> codes = new ArrayList<String>();
+						for (int i = 0; i < 10; i++) {
+							codes.clear();
+							for (IAtomContainer molecule : copies)
+								codes.addAll(Arrays.asList(hcg.getHOSECodes(molecule, 4, true)));
+						}
+						return codes;
+					}
+				}));
+			}
+			for (Future<List<String>> result : results) Assert.assertEquals(expected, result.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
   	@Test public void testGetAtomsOfSphere() throws Exception {
   	  IAtomContainer molecule = (new SmilesParser(DefaultChemObjectBuilder.getInstance())).parseSmiles("CC=CBr");
   		CDKHueckelAromaticityDetector.detectAromaticity(molecule);
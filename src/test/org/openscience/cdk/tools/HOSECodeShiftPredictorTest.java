@@ -0,0 +1,176 @@
+/* Copyright (C) 2012  The Chemistry Development Kit (CDK) project
+ *
+ * Contact: cdk-devel@lists.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation; either version 2.1
+ * of the License, or (at your option) any later version.
+ * All we ask is that proper credit is given for our work, which includes
+ * - but is not limited to - adding the above copyright notice to the beginning
+ * of your source code files, and to any copyright notice that you may distribute
+ * with programs based on this work.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package org.openscience.cdk.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscience.cdk.CDKTestCase;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+/**
+ * @cdk.module test-extra
+ */
+public class HOSECodeShiftPredictorTest extends CDKTestCase {
+
+    /** Six sphere codes of heptan-1-ol, with a second methyl group. */
+    private static final String DATA =
+        "# heptan-1-ol\n" +
+        "C-4;C(C/C/C)C/C/\t14.1\n" +
+        "C-4;CC(C,/C/C)C/O/\t22.7\n" +
+        "C-4;CC(C,C/C,/C)O//\t31.9\n" +
+        "C-4;CC(C,C/C,C/O,)//\t29.4\n" +
+        "C-4;CC(C,C/C,O/C,)//\t25.8\n" +
+        "C-4;CC(C,O/C,/C)C//\t32.8\n" +
+        "C-4;CO(C,/C/C)C/C/\t63.1\n" +
+        "\n" +
+        "C-4;C(C/C/C)C/C/\t14.3\n";
+
+    private static HOSECodeShiftPredictor predictor() throws IOException {
+        return new HOSECodeShiftPredictor(stream(DATA));
+    }
+
+    private static InputStream stream(String data) throws IOException {
+        return new ByteArrayInputStream(data.getBytes("UTF-8"));
+    }
+
+    private static IAtomContainer molecule(String smiles) throws Exception {
+        IAtomContainer molecule = new SmilesParser(SilentChemObjectBuilder.getInstance()).parseSmiles(smiles);
+        AtomContainerManipulator.percieveAtomTypesAndConfigureAtoms(molecule);
+        return molecule;
+    }
+
+    @Test public void testHOSECodeShiftPredictor_InputStream() throws Exception {
+        HOSECodeShiftPredictor predictor = predictor();
+        Assert.assertTrue(predictor.size() > 7);
+        Assert.assertEquals(0, new HOSECodeShiftPredictor(stream("")).size());
+    }
+
+    @Test(expected=IOException.class)
+    public void testHOSECodeShiftPredictor_Malformed() throws Exception {
+        new HOSECodeShiftPredictor(stream("C-4;C(C//)\tnot a shift\n"));
+    }
+
+    @Test public void testHOSECodeShiftPredictor_File() throws Exception {
+        File file = File.createTempFile("shifts", ".txt");
+        try {
+            FileWriter writer = new FileWriter(file);
+            writer.write(DATA);
+            writer.close();
+            Assert.assertEquals(predictor().size(), new HOSECodeShiftPredictor(file).size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test public void testGetMaximumSphereCount() throws Exception {
+        Assert.assertEquals(6, predictor().getMaximumSphereCount());
+        Assert.assertEquals(4, new HOSECodeShiftPredictor(stream("C-4;C(C//)\t14.1\n")).getMaximumSphereCount());
+    }
+
+    @Test public void testGetSphereCount_String() {
+        Assert.assertEquals(4, HOSECodeShiftPredictor.getSphereCount("C-4;C(//)"));
+        Assert.assertEquals(6, HOSECodeShiftPredictor.getSphereCount("C-4;CC(C,C/C,C/O,)//"));
+        Assert.assertEquals(4, HOSECodeShiftPredictor.getSphereCount("=OCC(//)"));
+    }
+
+    @Test public void testTruncate_String_int() {
+        String code = "C-4;C(C/C/C)C/C/";
+        Assert.assertEquals("C-4;C(//)", HOSECodeShiftPredictor.truncate(code, 1));
+        Assert.assertEquals("C-4;C(C//)", HOSECodeShiftPredictor.truncate(code, 2));
+        Assert.assertEquals("C-4;C(C/C/)", HOSECodeShiftPredictor.truncate(code, 3));
+        Assert.assertEquals("C-4;C(C/C/C)", HOSECodeShiftPredictor.truncate(code, 4));
+        Assert.assertEquals("C-4;C(C/C/C)C/", HOSECodeShiftPredictor.truncate(code, 5));
+        Assert.assertEquals(code, HOSECodeShiftPredictor.truncate(code, 6));
+        Assert.assertEquals(code, HOSECodeShiftPredictor.truncate(code, 7));
+    }
+
+    /**
+     * The truncated codes are the codes made with fewer spheres.
+     */
+    @Test public void testTruncate_HOSECodeGenerator() throws Exception {
+        IAtomContainer molecule = molecule("CC(=O)CCCCCC");
+        HOSECodeGenerator generator = new HOSECodeGenerator();
+        String[] codes = generator.getHOSECodes(molecule, 6);
+        for (int spheres = 1; spheres <= 5; spheres++) {
+            String[] expected = generator.getHOSECodes(molecule, spheres);
+            for (int i = 0; i < codes.length; i++)
+                Assert.assertEquals(expected[i], HOSECodeShiftPredictor.truncate(codes[i], spheres));
+        }
+    }
+
+    @Test public void testPredict_String() throws Exception {
+        HOSECodeShiftPredictor predictor = predictor();
+        HOSECodeShiftPredictor.Prediction prediction = predictor.predict("C-4;C(C/C/C)C/C/");
+        Assert.assertEquals(6, prediction.getSphereCount());
+        Assert.assertEquals(2, prediction.getCount());
+        Assert.assertEquals(14.2, prediction.getShift(), 0.0001);
+        Assert.assertEquals(0.1, prediction.getStandardDeviation(), 0.0001);
+        Assert.assertEquals(14.1, prediction.getMinimumShift(), 0.0001);
+        Assert.assertEquals(14.3, prediction.getMaximumShift(), 0.0001);
+
+        // the fifth sphere differs
+        prediction = predictor.predict("C-4;CC(C,/C/C)C/N/");
+        Assert.assertEquals("C-4;CC(C,/C/C)C/", prediction.getHOSECode());
+        Assert.assertEquals(5, prediction.getSphereCount());
+        Assert.assertEquals(22.7, prediction.getShift(), 0.0001);
+
+        // all methylene groups share the first sphere
+        prediction = predictor.predict("C-4;CC(=O,C//)");
+        Assert.assertEquals("C-4;CC(//)", prediction.getHOSECode());
+        Assert.assertEquals(1, prediction.getSphereCount());
+        Assert.assertEquals(5, prediction.getCount());
+        Assert.assertEquals(22.7, prediction.getMinimumShift(), 0.0001);
+        Assert.assertEquals(32.8, prediction.getMaximumShift(), 0.0001);
+
+        Assert.assertNull(predictor.predict("N-3;C(C/C/C)C/C/"));
+        Assert.assertNull(predictor.predict((String) null));
+    }
+
+    @Test public void testPredict_IAtomContainer() throws Exception {
+        HOSECodeShiftPredictor predictor = predictor();
+        IAtomContainer molecule = molecule("CCCCCCCN");
+        HOSECodeShiftPredictor.Prediction[] predictions = predictor.predict(molecule);
+        Assert.assertEquals(molecule.getAtomCount(), predictions.length);
+        String[] codes = new HOSECodeGenerator().getHOSECodes(molecule, 6);
+        for (int i = 0; i < codes.length; i++) {
+            HOSECodeShiftPredictor.Prediction expected = predictor.predict(codes[i]);
+            if (expected == null) Assert.assertNull(predictions[i]);
+            else Assert.assertEquals(expected.getHOSECode(), predictions[i].getHOSECode());
+        }
+        Assert.assertEquals(6, predictions[0].getSphereCount());
+        Assert.assertEquals(14.2, predictions[0].getShift(), 0.0001);
+        Assert.assertEquals(3, predictions[3].getSphereCount());
+        // the carbon next to the nitrogen and the nitrogen are not known
+        Assert.assertNull(predictions[6]);
+        Assert.assertNull(predictions[7]);
+    }
+}